@@ -30,6 +30,7 @@ import java.nio.channels.SelectionKey;
 import java.util.Objects;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.eclipse.jdt.annotation.NonNull;
 import org.newsclub.net.unix.pool.MutableHolder;
@@ -60,6 +61,11 @@ class AFCore extends CleanableState {
   private static final int TL_BUFFER_MAX_CAPACITY = Integer.parseInt(System.getProperty(
       PROP_TL_BUFFER_MAX_CAPACITY, Integer.toString(1 * 1024 * 1024))); // 1 MB per thread
 
+  private static final String PROP_READ_SPIN_NANOS = "org.newsclub.net.unix.read.spin-nanos";
+
+  private static final long DEFAULT_READ_SPIN_NANOS = Long.parseLong(System.getProperty(
+      PROP_READ_SPIN_NANOS, "0")); // 0 means "do not spin"
+
   private final AtomicBoolean closed = new AtomicBoolean(false);
 
   final FileDescriptor fd;
@@ -71,6 +77,22 @@ class AFCore extends CleanableState {
   private volatile boolean blocking = true;
   private final AtomicBoolean cleanFd = new AtomicBoolean(true);
 
+  private volatile int nativeFd = -1;
+  private final AtomicInteger foreignIOState = new AtomicInteger(0);
+  private final AtomicBoolean foreignIOFailed = new AtomicBoolean(false);
+  private volatile boolean suspended = false;
+
+  private static volatile boolean sendmmsgUnsupported = false;
+
+  /**
+   * Bit in {@link #foreignIOState} that prevents new FFM-based I/O operations.
+   */
+  private static final int FOREIGN_IO_BLOCKED = 1 << 30;
+
+  private volatile long readSpinNanos = DEFAULT_READ_SPIN_NANOS;
+  private final AtomicLong readSpinHits = new AtomicLong();
+  private final AtomicLong readSpinMisses = new AtomicLong();
+
   AFCore(Object observed, FileDescriptor fd, AncillaryDataSupport ancillaryDataSupport,
       boolean datagramMode) {
     super(observed);
@@ -106,16 +128,45 @@ class AFCore extends CleanableState {
     return closed.get();
   }
 
+  /**
+   * Marks the file descriptor as temporarily released (during a CRaC checkpoint); while suspended,
+   * an invalid file descriptor does not mark this instance as closed.
+   *
+   * @param suspended {@code true} if suspended.
+   */
+  void setSuspended(boolean suspended) {
+    if (suspended) {
+      blockForeignIO();
+    }
+    this.suspended = suspended;
+    this.nativeFd = -1;
+    if (!suspended && !isClosed()) {
+      unblockForeignIO();
+    }
+  }
+
+  boolean isSuspended() {
+    return suspended;
+  }
+
   void doClose() throws IOException {
     if (closed.compareAndSet(false, true)) {
-      NativeUnixSocket.close(fd);
+      blockForeignIO();
+      nativeFd = -1;
+      try {
+        NativeUnixSocket.close(fd);
+      } finally {
+        VirtualThreadPoller.INSTANCE.onClose(fd);
+      }
     }
   }
 
   FileDescriptor validFdOrException() throws SocketException {
     FileDescriptor fdesc = validFd();
     if (fdesc == null) {
-      closed.set(true);
+      if (!suspended) {
+        closed.set(true);
+      }
       throw new SocketClosedException("Not open");
     }
     return fdesc;
@@ -134,6 +185,102 @@ class AFCore extends CleanableState {
     return null;
   }
 
+  /**
+   * Returns the native file descriptor number, caching it for subsequent calls (only used for the
+   * FFM-based I/O path, which would otherwise need a JNI call just to obtain it). Must only be
+   * called between {@link #beginForeignIO()} and {@link #endForeignIO()}.
+   *
+   * @param fdesc The (valid) file descriptor.
+   * @return The native file descriptor.
+   * @throws IOException on error.
+   */
+  private int nativeFd(FileDescriptor fdesc) throws IOException {
+    int num = nativeFd;
+    if (num < 0) {
+      num = NativeUnixSocket.getFD(fdesc);
+      nativeFd = num;
+    }
+    return num;
+  }
+
+  /**
+   * Marks the beginning of an FFM-based I/O operation, which uses the cached native file descriptor
+   * number, i.e., outside of the close protocol of the JNI-based implementation. Closing (and
+   * suspending) waits until all such operations have ended, so the number cannot be closed (and
+   * reused by another file) while in use.
+   *
+   * @return {@code true} if the operation may proceed (it must then call {@link #endForeignIO()}),
+   *         {@code false} if the JNI-based implementation should be used instead.
+   */
+  private boolean beginForeignIO() {
+    int state;
+    do {
+      state = foreignIOState.get();
+      if ((state & FOREIGN_IO_BLOCKED) != 0) {
+        return false;
+      }
+    } while (!foreignIOState.compareAndSet(state, state + 1));
+    return true;
+  }
+
+  private void endForeignIO() {
+    foreignIOState.decrementAndGet();
+    if (foreignIOFailed.compareAndSet(true, false)) {
+      // keep blocked; the file descriptor is no longer valid
+      blockForeignIO();
+      nativeFd = -1;
+      try {
+        NativeUnixSocket.close(fd);
+      } catch (IOException e) {
+        // ignore; the original error is reported by the caller
+      }
+    }
+  }
+
+  /**
+   * Called by {@link ForeignSocketIOInternal} upon a fatal error. The file descriptor is closed
+   * once the current FFM-based I/O operation has ended (see {@link #endForeignIO()}), and not
+   * before all other ongoing ones have ended as well.
+   */
+  void closeAfterForeignIO() {
+    foreignIOFailed.set(true);
+  }
+
+  /**
+   * Prevents new FFM-based I/O operations, and waits until all ongoing ones have ended (these are
+   * non-blocking, so this takes no longer than a system call).
+   */
+  private void blockForeignIO() {
+    int state;
+    do {
+      state = foreignIOState.get();
+    } while ((state & FOREIGN_IO_BLOCKED) == 0 && !foreignIOState.compareAndSet(state, state
+        | FOREIGN_IO_BLOCKED));
+
+    while ((foreignIOState.get() & ~FOREIGN_IO_BLOCKED) != 0) {
+      Thread.yield();
+    }
+  }
+
+  private void unblockForeignIO() {
+    int state;
+    do {
+      state = foreignIOState.get();
+    } while ((state & FOREIGN_IO_BLOCKED) != 0 && !foreignIOState.compareAndSet(state, state
+        & ~FOREIGN_IO_BLOCKED));
+  }
+
+  /**
+   * Checks if an I/O operation can be handled by the FFM-based implementation: non-blocking
+   * (without virtual-thread emulation), stream-oriented, without addresses or ancillary data.
+   */
+  private boolean canUseForeignIO(boolean virtualBlocking, int options) {
+    return !virtualBlocking && !blocking && !datagramMode
+        && options == NativeUnixSocket.OPT_NON_BLOCKING && (ancillaryDataSupport == null
+            || (ancillaryDataSupport.getAncillaryReceiveBufferSize() == 0 && !ancillaryDataSupport
+                .hasOutboundFileDescriptors()));
+  }
+
   int read(ByteBuffer dst, AFSupplier<Integer> timeout) throws IOException {
     return read(dst, timeout, null, 0);
   }
@@ -168,6 +315,25 @@ class AFCore extends CleanableState {
       options |= NativeUnixSocket.OPT_NON_BLOCKING;
     }
 
+    if (readSpinNanos > 0 && (blocking || virtualBlocking)) {
+      spinUntilReadable(fdesc);
+    }
+
+    final ForeignSocketIOInternal foreignIO = ForeignSocketIOInternal.INSTANCE;
+    if (foreignIO != null && socketAddressBuffer == null && canUseForeignIO(virtualBlocking,
+        options) && beginForeignIO()) {
+      try {
+        // heap buffers are accessed directly, no need to copy via a direct buffer
+        int count = foreignIO.receive(this, nativeFd(fdesc), dst, remaining);
+        if (count > 0) {
+          dst.position(dstPos + count);
+        }
+        return count;
+      } finally {
+        endForeignIO();
+      }
+    }
+
     boolean park = false;
 
     int count;
@@ -228,7 +394,8 @@ class AFCore extends CleanableState {
           if (count < 0) {
             throw new IllegalStateException();
           }
-          dst.position(pos + count);
+          // with OPT_TRUNC, count may exceed the number of bytes actually received
+          dst.position(pos + Math.min(count, remaining));
         } else {
           int oldLimit = buf.limit();
           if (count < oldLimit) {
@@ -255,6 +422,51 @@ class AFCore extends CleanableState {
     return count;
   }
 
+  /**
+   * Busy-polls the socket for readable data, for up to {@link #getReadSpinNanos()} nanoseconds,
+   * before the caller falls back to blocking or parking.
+   *
+   * This trades CPU time for latency: when the peer responds within the spin budget, the cost of
+   * blocking in the kernel (or parking a virtual thread) and being woken up again is avoided.
+   *
+   * @param fdesc The file descriptor.
+   * @throws IOException on error.
+   */
+  private void spinUntilReadable(FileDescriptor fdesc) throws IOException {
+    long budget = readSpinNanos;
+    long start = System.nanoTime();
+    try (Lease<MutableHolder<ByteBuffer>> lease = getPrivateDirectByteBuffer(0)) {
+      ByteBuffer buf = lease.get().get();
+      do {
+        if (NativeUnixSocket.available(fdesc, buf) > 0) {
+          readSpinHits.incrementAndGet();
+          return;
+        }
+        Java7Util.onSpinWait();
+      } while (System.nanoTime() - start < budget);
+    }
+    readSpinMisses.incrementAndGet();
+  }
+
+  long getReadSpinNanos() {
+    return readSpinNanos;
+  }
+
+  void setReadSpinNanos(long nanos) {
+    if (nanos < 0) {
+      throw new IllegalArgumentException("nanos");
+    }
+    this.readSpinNanos = nanos;
+  }
+
+  long getReadSpinHits() {
+    return readSpinHits.get();
+  }
+
+  long getReadSpinMisses() {
+    return readSpinMisses.get();
+  }
+
   int write(ByteBuffer src, AFSupplier<Integer> timeout) throws IOException {
     return write(src, timeout, null, 0);
   }
@@ -306,6 +518,18 @@ class AFCore extends CleanableState {
         options |= NativeUnixSocket.OPT_DGRAM_MODE;
       }
 
+      final ForeignSocketIOInternal foreignIO = ForeignSocketIOInternal.INSTANCE;
+      if (foreignIO != null && addressTo == null && canUseForeignIO(virtualBlocking, options)
+          && beginForeignIO()) {
+        try {
+          int count = foreignIO.send(this, nativeFd(fdesc), src, remaining);
+          src.position(pos + count);
+          return count;
+        } finally {
+          endForeignIO();
+        }
+      }
+
       int written;
 
       boolean park = false;
@@ -363,6 +587,100 @@ class AFCore extends CleanableState {
     }
   }
 
+  /**
+   * Sends several datagrams, each to its own target, with as few system calls as possible
+   * ({@code sendmmsg(2)} where available, one {@code send} per datagram otherwise).
+   *
+   * Each datagram is sent in full, or not at all; the position of each buffer that was sent is
+   * advanced to its limit. In blocking mode, all datagrams are sent (unless an exception is
+   * thrown); in non-blocking mode, sending stops at the first datagram that cannot be sent right
+   * away.
+   *
+   * @param srcs The datagram contents.
+   * @param targets The target addresses (or {@code null} elements for connected sockets).
+   * @param offset The index of the first datagram.
+   * @param length The number of datagrams.
+   * @param timeout The timeout supplier, as used by {@link #write(ByteBuffer, AFSupplier)}.
+   * @return The number of datagrams sent.
+   * @throws IOException on error.
+   */
+  @SuppressWarnings("PMD.CognitiveComplexity")
+  int send(ByteBuffer[] srcs, SocketAddress[] targets, int offset, int length,
+      AFSupplier<Integer> timeout) throws IOException {
+    final boolean virtualBlocking = (ThreadUtil.isVirtualThread() && isBlocking())
+        || isVirtualBlocking();
+
+    int sent = 0;
+    while (sent < length && !virtualBlocking && !sendmmsgUnsupported) {
+      int batch = Math.min(length - sent, AFSocketAddress.SOCKETADDRESS_BATCH_SIZE);
+      int n = sendBatch(srcs, targets, offset + sent, batch);
+      if (n == -2) {
+        sendmmsgUnsupported = true;
+        break;
+      }
+      sent += n;
+      if (n < batch && !blocking) {
+        return sent;
+      }
+    }
+
+    // Fallback: one datagram at a time
+    for (; sent < length; sent++) {
+      ByteBuffer src = srcs[offset + sent];
+      if (src.hasRemaining() && write(src, timeout, targets[offset + sent], 0) == 0) {
+        break;
+      }
+    }
+    return sent;
+  }
+
+  private int sendBatch(ByteBuffer[] srcs, SocketAddress[] targets, int offset, int count)
+      throws IOException {
+    int total = 0;
+    int[] lengths = new int[count];
+    int[] addrLens = new int[count];
+    for (int i = 0; i < count; i++) {
+      int remaining = srcs[offset + i].remaining();
+      lengths[i] = remaining;
+      total += remaining;
+    }
+
+    FileDescriptor fdesc = validFdOrException();
+    int options = 0;
+    if (!blocking) {
+      options |= NativeUnixSocket.OPT_NON_BLOCKING;
+    }
+    if (datagramMode) {
+      options |= NativeUnixSocket.OPT_DGRAM_MODE;
+    }
+
+    try (Lease<MutableHolder<ByteBuffer>> lease = getPrivateDirectByteBuffer(total);
+        Lease<ByteBuffer> addressesLease = AFSocketAddress.SOCKETADDRESS_BATCH_BUFFER_TL.take()) {
+      ByteBuffer buf = Objects.requireNonNull(lease.get().get());
+      ByteBuffer addresses = addressesLease.get();
+      for (int i = 0; i < count; i++) {
+        buf.put(srcs[offset + i].duplicate());
+
+        SocketAddress target = targets[offset + i];
+        if (target != null) {
+          addresses.limit((i + 1) * AFSocketAddress.SOCKETADDRESS_BATCH_STRIDE);
+          addresses.position(i * AFSocketAddress.SOCKETADDRESS_BATCH_STRIDE);
+          addrLens[i] = AFSocketAddress.unwrapAddressDirectBufferInternal(addresses.slice(),
+              target);
+        }
+      }
+      addresses.clear();
+
+      int n = NativeUnixSocket.sendmmsg(fdesc, buf, lengths, addresses,
+          AFSocketAddress.SOCKETADDRESS_BATCH_STRIDE, addrLens, count, options);
+      for (int i = 0; i < n; i++) {
+        ByteBuffer src = srcs[offset + i];
+        src.position(src.limit());
+      }
+      return n;
+    }
+  }
+
   /**
    * Returns a per-thread reusable byte buffer for a given capacity.
    *
@@ -33,6 +33,8 @@ import java.nio.ByteBuffer;
 import java.nio.channels.DatagramChannel;
 import java.nio.channels.MembershipKey;
 import java.nio.channels.spi.SelectorProvider;
+import java.util.List;
+import java.util.Objects;
 import java.util.Set;
 
 import org.eclipse.jdt.annotation.Nullable;
@@ -174,6 +176,48 @@ public abstract class AFDatagramChannel<A extends AFSocketAddress> extends Datag
     }
   }
 
+  /**
+   * Sends several datagrams, each to its own target address, using as few system calls as
+   * possible. On Linux, up to 64 datagrams are sent with one {@code sendmmsg(2)} call; elsewhere,
+   * the datagrams are sent one by one.
+   *
+   * Each datagram is sent in full, or not at all. The position of each buffer that was sent is
+   * advanced to its limit. In non-blocking mode, sending stops at the first datagram that cannot be
+   * sent right away.
+   *
+   * @param srcs The buffers holding the datagrams.
+   * @param targets The target addresses, one per buffer.
+   * @param offset The index of the first datagram in {@code srcs} and {@code targets}.
+   * @param length The number of datagrams to send.
+   * @return The number of datagrams sent.
+   * @throws IOException on error.
+   */
+  public final int send(ByteBuffer[] srcs, SocketAddress[] targets, int offset, int length)
+      throws IOException {
+    if (offset < 0 || length < 0 || offset + length > srcs.length || offset
+        + length > targets.length) {
+      throw new IndexOutOfBoundsException();
+    }
+    for (int i = offset, n = offset + length; i < n; i++) {
+      Objects.requireNonNull(srcs[i]);
+      Objects.requireNonNull(targets[i]);
+    }
+
+    boolean complete = false;
+    Exception exception = null;
+    try {
+      begin();
+      int ret = afSocket.getAFImpl().send(srcs, targets, offset, length);
+      complete = true;
+      return ret;
+    } catch (IOException e) {
+      throw InterruptibleChannelUtil.ioExceptionOrThrowRuntimeException( // NOPMD.PreserveStackTrace
+          (exception = InterruptibleChannelUtil.handleException(this, e)));
+    } finally {
+      InterruptibleChannelUtil.endInterruptable(this, this::end, complete, exception);
+    }
+  }
+
   @Override
   public final int read(ByteBuffer dst) throws IOException {
     boolean complete = false;
@@ -226,6 +270,97 @@ public abstract class AFDatagramChannel<A extends AFSocketAddress> extends Datag
     return write(srcs[offset]);
   }
 
+  /**
+   * Returns the size of the next message (without consuming it), as seen by this socket. This is
+   * mostly useful for message-oriented sockets, such as {@link AFSocketType#SOCK_SEQPACKET} AF_UNIX
+   * and TIPC sockets, where a message must be read in full with a single call.
+   *
+   * In blocking mode, this call blocks until a message is available.
+   *
+   * @return The size of the next message, in bytes, {@code 0} if no message is available
+   *         (non-blocking mode), or {@code -1} if the end of stream has been reached.
+   * @throws IOException on error.
+   */
+  public final int nextMessageSize() throws IOException {
+    boolean complete = false;
+    Exception exception = null;
+    try {
+      begin();
+      int ret = afSocket.getAFImpl().nextMessageSize();
+      complete = true;
+      return ret;
+    } catch (IOException e) {
+      throw InterruptibleChannelUtil.ioExceptionOrThrowRuntimeException( // NOPMD.PreserveStackTrace
+          (exception = InterruptibleChannelUtil.handleException(this, e)));
+    } finally {
+      InterruptibleChannelUtil.endInterruptable(this, this::end, complete, exception);
+    }
+  }
+
+  /**
+   * Receives the next message in full, into a pooled buffer that is sized to fit. The buffer's
+   * position is {@code 0}, and its limit is the length of the message.
+   *
+   * The returned {@link AFMessageBuffer} must be closed once the buffer is no longer used, which
+   * returns the buffer to the pool.
+   *
+   * Note that zero-length messages cannot be distinguished from the end of stream, and are treated
+   * as such.
+   *
+   * @return The message buffer, or {@code null} if no message is available
+   *         (non-blocking mode) or the end of stream has been reached.
+   * @throws IOException on error.
+   * @see #nextMessageSize()
+   */
+  public final @Nullable AFMessageBuffer receiveMessage() throws IOException {
+    boolean complete = false;
+    Exception exception = null;
+    try {
+      begin();
+      AFMessageBuffer ret = afSocket.getAFImpl().receiveMessage();
+      complete = true;
+      return ret;
+    } catch (IOException e) {
+      throw InterruptibleChannelUtil.ioExceptionOrThrowRuntimeException( // NOPMD.PreserveStackTrace
+          (exception = InterruptibleChannelUtil.handleException(this, e)));
+    } finally {
+      InterruptibleChannelUtil.endInterruptable(this, this::end, complete, exception);
+    }
+  }
+
+  /**
+   * Receives up to {@code maxMessages} messages in full, each into a pooled buffer that is sized to
+   * fit (see {@link #receiveMessage()}), and adds them to the given list.
+   *
+   * Only the first message is awaited in blocking mode; subsequent messages are only received if
+   * they are already available.
+   *
+   * @param messages The list to add the message buffers to.
+   * @param maxMessages The maximum number of messages to receive.
+   * @return The number of messages received, or {@code -1} if the end of stream has been reached
+   *         before any message was received.
+   * @throws IOException on error.
+   */
+  public final int receiveMessages(List<AFMessageBuffer> messages, int maxMessages)
+      throws IOException {
+    if (maxMessages <= 0) {
+      return 0;
+    }
+    boolean complete = false;
+    Exception exception = null;
+    try {
+      begin();
+      int ret = afSocket.getAFImpl().receiveMessages(messages, maxMessages);
+      complete = true;
+      return ret;
+    } catch (IOException e) {
+      throw InterruptibleChannelUtil.ioExceptionOrThrowRuntimeException( // NOPMD.PreserveStackTrace
+          (exception = InterruptibleChannelUtil.handleException(this, e)));
+    } finally {
+      InterruptibleChannelUtil.endInterruptable(this, this::end, complete, exception);
+    }
+  }
+
   @Override
   protected final void implCloseSelectableChannel() throws IOException {
     getAFSocket().close();
@@ -53,6 +53,9 @@ public abstract class AFDatagramSocket<A extends AFSocketAddress> extends Datagr
   @SuppressWarnings("this-escape")
   private final AFDatagramChannel<A> channel = newChannel();
 
+  private final CheckpointSupport.@Nullable Participant checkpointParticipant = CheckpointSupport
+      .isEnabled() ? new CheckpointParticipant() : null;
+
   /**
    * Creates a new {@link AFDatagramSocket} instance.
    *
@@ -62,6 +65,9 @@ public abstract class AFDatagramSocket<A extends AFSocketAddress> extends Datagr
     super(impl);
     this.impl = impl;
     this.ancillaryDataSupport = impl.ancillaryDataSupport;
+    if (checkpointParticipant != null) {
+      CheckpointSupport.register(checkpointParticipant);
+    }
   }
 
   /**
@@ -248,6 +254,9 @@ public abstract class AFDatagramSocket<A extends AFSocketAddress> extends Datagr
     if (isClosed()) {
       return;
     }
+    if (checkpointParticipant != null) {
+      CheckpointSupport.unregister(checkpointParticipant);
+    }
     getAFImpl().close();
     boolean wasBound = isBound();
     if (wasBound && deleteOnClose.get()) {
@@ -530,4 +539,19 @@ public abstract class AFDatagramSocket<A extends AFSocketAddress> extends Datagr
   public void setShutdownOnClose(boolean enabled) {
     getAFImpl().getCore().setShutdownOnClose(enabled);
   }
+
+  /**
+   * Closes the socket before a CRaC checkpoint; like connections, datagram sockets cannot survive a
+   * restore.
+   */
+  private final class CheckpointParticipant implements CheckpointSupport.Participant {
+    @Override
+    public void beforeCheckpoint() throws IOException {
+      getChannel().close();
+    }
+
+    @Override
+    public void afterRestore() throws IOException {
+    }
+  }
 }
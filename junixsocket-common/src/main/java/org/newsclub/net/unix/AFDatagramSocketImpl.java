@@ -31,6 +31,7 @@ import java.net.SocketTimeoutException;
 import java.nio.ByteBuffer;
 import java.nio.channels.ClosedChannelException;
 import java.nio.channels.SelectionKey;
+import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -49,6 +50,9 @@ import org.newsclub.net.unix.pool.ObjectPool.Lease;
 @SuppressWarnings("PMD.CyclomaticComplexity")
 public abstract class AFDatagramSocketImpl<A extends AFSocketAddress> extends
     DatagramSocketImplShim {
+  private static final int MESSAGE_PROBE_SIZE = 256;
+  private static final int MESSAGE_PROBE_MAX_SIZE = 1 << 24;
+
   private final AFSocketType socketType;
   private final AFSocketCore core;
   final AncillaryDataSupport ancillaryDataSupport = new AncillaryDataSupport();
@@ -60,6 +64,7 @@ public abstract class AFDatagramSocketImpl<A extends AFSocketAddress> extends
   private final AtomicInteger remotePort = new AtomicInteger(0);
   private final AFAddressFamily<@NonNull A> addressFamily;
   private AFSocketImplExtensions<A> implExtensions = null;
+  private final Object messageLock = new Object();
 
   /**
    * Constructs a new {@link AFDatagramSocketImpl} using the given {@link FileDescriptor} (or null
@@ -422,6 +427,15 @@ public abstract class AFDatagramSocketImpl<A extends AFSocketAddress> extends
     }
   }
 
+  final int send(ByteBuffer[] srcs, SocketAddress[] targets, int offset, int length)
+      throws IOException {
+    try {
+      return core.send(srcs, targets, offset, length, socketTimeout::get);
+    } catch (SocketClosedException e) {
+      throw (ClosedChannelException) new ClosedChannelException().initCause(e);
+    }
+  }
+
   final int read(ByteBuffer dst, ByteBuffer socketAddressBuffer) throws IOException {
     try {
       return core.read(dst, socketTimeout::get, socketAddressBuffer, 0);
@@ -438,6 +452,89 @@ public abstract class AFDatagramSocketImpl<A extends AFSocketAddress> extends
     }
   }
 
+  final int nextMessageSize() throws IOException {
+    try {
+      int capacity = MESSAGE_PROBE_SIZE;
+      while (true) {
+        int count;
+        try (Lease<ByteBuffer> lease = MessageBufferPool.take(capacity)) {
+          count = core.read(lease.get(), socketTimeout::get, null, NativeUnixSocket.OPT_PEEK
+              | NativeUnixSocket.OPT_TRUNC);
+        }
+        if (count != capacity || capacity >= MESSAGE_PROBE_MAX_SIZE) {
+          return count;
+        }
+        // count may be truncated if MSG_TRUNC is not supported; try again with a larger buffer
+        capacity <<= 1;
+      }
+    } catch (SocketClosedException e) {
+      throw (ClosedChannelException) new ClosedChannelException().initCause(e);
+    }
+  }
+
+  final @Nullable AFMessageBuffer receiveMessage() throws IOException {
+    synchronized (messageLock) {
+      return receiveMessage0(nextMessageSize());
+    }
+  }
+
+  final int receiveMessages(List<AFMessageBuffer> messages, int maxMessages)
+      throws IOException {
+    int n = 0;
+    synchronized (messageLock) {
+      while (n < maxMessages) {
+        if (n > 0 && !hasPendingData()) {
+          break;
+        }
+        int size = nextMessageSize();
+        if (size == -1 && n == 0) {
+          return -1;
+        }
+        AFMessageBuffer message = receiveMessage0(size);
+        if (message == null) {
+          break;
+        }
+        messages.add(message);
+        n++;
+      }
+    }
+    return n;
+  }
+
+  private @Nullable AFMessageBuffer receiveMessage0(int size) throws IOException {
+    if (size <= 0) {
+      return null;
+    }
+    Lease<ByteBuffer> lease = MessageBufferPool.take(size);
+    boolean success = false;
+    try {
+      ByteBuffer buf = lease.get();
+      int count = core.read(buf, socketTimeout::get, null, NativeUnixSocket.OPT_TRUNC);
+      if (count <= 0) {
+        return null;
+      } else if (count > size) {
+        throw new SocketException("Message truncated; concurrent receive? " + count + " > "
+            + size);
+      }
+      buf.flip();
+      success = true;
+      return new AFMessageBuffer(lease);
+    } catch (SocketClosedException e) {
+      throw (ClosedChannelException) new ClosedChannelException().initCause(e);
+    } finally {
+      if (!success) {
+        lease.close();
+      }
+    }
+  }
+
+  private boolean hasPendingData() throws IOException {
+    FileDescriptor fdesc = core.validFdOrException();
+    try (Lease<MutableHolder<ByteBuffer>> lease = core.getPrivateDirectByteBuffer(0)) {
+      return NativeUnixSocket.available(fdesc, lease.get().get()) > 0;
+    }
+  }
+
   final boolean isConnected() {
     if (connected.get()) {
       return true;
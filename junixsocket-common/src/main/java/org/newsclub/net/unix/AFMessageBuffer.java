@@ -0,0 +1,76 @@
+/*
+ * junixsocket
+ *
+ * Copyright 2009-2026 Christian Kohlschütter
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.newsclub.net.unix;
+
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+
+import org.newsclub.net.unix.pool.ObjectPool.Lease;
+
+/**
+ * A message received in full via {@link AFDatagramChannel#receiveMessage()}, stored in a pooled
+ * buffer that is sized to fit.
+ *
+ * The buffer must not be used after calling {@link #close()}, which returns it to the pool.
+ *
+ * @author Christian Kohlschütter
+ */
+public final class AFMessageBuffer implements Closeable {
+  private Lease<ByteBuffer> lease;
+
+  AFMessageBuffer(Lease<ByteBuffer> lease) {
+    this.lease = lease;
+  }
+
+  /**
+   * Returns the buffer holding the message; its position is {@code 0} (unless modified), and its
+   * limit is the length of the message.
+   *
+   * @return The buffer.
+   * @throws IllegalStateException if this message buffer has already been closed.
+   */
+  public ByteBuffer getBuffer() {
+    Lease<ByteBuffer> l = lease;
+    if (l == null) {
+      throw new IllegalStateException("Closed");
+    }
+    return l.get();
+  }
+
+  /**
+   * Returns the length of the message, in bytes.
+   *
+   * @return The length.
+   * @throws IllegalStateException if this message buffer has already been closed.
+   */
+  public int length() {
+    return getBuffer().limit();
+  }
+
+  /**
+   * Returns the buffer to the pool; subsequent calls have no effect.
+   */
+  @Override
+  public synchronized void close() {
+    Lease<ByteBuffer> l = lease;
+    if (l != null) {
+      lease = null;
+      l.close();
+    }
+  }
+}
@@ -22,6 +22,8 @@ import java.io.FileDescriptor;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.Pipe;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.channels.spi.SelectorProvider;
 
 import com.kohlschutter.annotations.compiletime.SuppressFBWarnings;
@@ -33,6 +35,7 @@ import com.kohlschutter.annotations.compiletime.SuppressFBWarnings;
  */
 public final class AFPipe extends Pipe implements Closeable {
   static final AFSupplier<Integer> DUMMY_TIMEOUT = () -> 0; // wait forever
+  private static final int TRANSFER_BUFFER_SIZE = 8192;
   private final AFCore sourceCore;
   private final AFCore sinkCore;
   private final SourceChannel sourceChannel;
@@ -74,6 +77,60 @@ public final class AFPipe extends Pipe implements Closeable {
     return sinkCore.fd;
   }
 
+  /**
+   * Checks if this pipe is a true pipe (and not emulated via a socket pair), and data can be moved
+   * in and out of it via {@code splice(2)}.
+   *
+   * @return {@code true} if so.
+   */
+  boolean canSplice() {
+    return options != 0 && AFSocket.supports(AFSocketCapability.CAPABILITY_SPLICE);
+  }
+
+  /**
+   * Returns the capacity of this pipe, in bytes.
+   *
+   * @return The capacity.
+   * @throws IOException on error, or if not supported on this platform.
+   */
+  public int getCapacity() throws IOException {
+    if (options == 0) {
+      throw new OperationNotSupportedSocketException("Pipe is emulated via a socket pair");
+    }
+    return NativeUnixSocket.pipeCapacity(sinkCore.fd, 0);
+  }
+
+  /**
+   * Sets the capacity of this pipe (Linux only). A larger capacity reduces the number of wakeups
+   * for producer/consumer pipelines that move large amounts of data.
+   *
+   * The kernel rounds the value up, and may limit it (for unprivileged users, see
+   * {@code /proc/sys/fs/pipe-max-size}).
+   *
+   * @param capacity The desired capacity, in bytes.
+   * @return The actual capacity.
+   * @throws IOException on error, or if not supported on this platform.
+   */
+  public int setCapacity(int capacity) throws IOException {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("capacity");
+    }
+    if (options == 0) {
+      throw new OperationNotSupportedSocketException("Pipe is emulated via a socket pair");
+    }
+    return NativeUnixSocket.pipeCapacity(sinkCore.fd, capacity);
+  }
+
+  private static FileDescriptor spliceableFileDescriptor(Object channel) throws IOException {
+    if (channel instanceof FileDescriptorAccess) {
+      FileDescriptor fd = ((FileDescriptorAccess) channel).getFileDescriptor();
+      if (fd != null && fd.valid()) {
+        return fd;
+      }
+    }
+    return null;
+  }
+
   @Override
   public void close() throws IOException {
     try { // NOPMD.UseTryWithResources
@@ -111,6 +168,51 @@ public final class AFPipe extends Pipe implements Closeable {
       return sourceCore.read(dst, DUMMY_TIMEOUT, null, options);
     }
 
+    /**
+     * Transfers up to {@code count} bytes from this pipe to the given channel.
+     *
+     * If the target channel provides access to its {@link FileDescriptor} (such as junixsocket
+     * sockets and pipes), and {@link AFSocketCapability#CAPABILITY_SPLICE} is supported, the data
+     * is moved via {@code splice(2)}, without copying it to user space. Otherwise, the data is
+     * copied.
+     *
+     * Once some data has been transferred, this method does not wait for more data to arrive in
+     * the pipe.
+     *
+     * @param count The maximum number of bytes to transfer.
+     * @param target The target channel.
+     * @return The number of bytes transferred, possibly zero.
+     * @throws IOException on error.
+     */
+    public long transferTo(long count, WritableByteChannel target) throws IOException {
+      if (count < 0) {
+        throw new IllegalArgumentException("count");
+      }
+      FileDescriptor targetFd = canSplice() ? spliceableFileDescriptor(target) : null;
+      if (targetFd == null) {
+        return copy(this, target, count, false);
+      }
+
+      long remaining = count;
+      int opt = 0;
+      boolean complete = false;
+      begin();
+      try {
+        while (remaining > 0) {
+          long n = NativeUnixSocket.splice(sourceCore.fd, targetFd, remaining, opt);
+          if (n <= 0) {
+            break;
+          }
+          remaining -= n;
+          opt = NativeUnixSocket.SPLICE_OPT_NON_BLOCKING;
+        }
+        complete = true;
+      } finally {
+        end(complete);
+      }
+      return count - remaining;
+    }
+
     @Override
     protected void implConfigureBlocking(boolean block) throws IOException {
       sourceCore.implConfigureBlocking(block);
@@ -155,6 +257,97 @@ public final class AFPipe extends Pipe implements Closeable {
       return sinkCore.write(src, DUMMY_TIMEOUT, null, options);
     }
 
+    /**
+     * Writes the given buffer to the pipe, like {@link #write(ByteBuffer)}, but for direct buffers
+     * (where supported), via {@code vmsplice(2)}, which maps the buffer's memory into the pipe
+     * instead of copying it.
+     *
+     * <b>IMPORTANT:</b> The pipe references the buffer's memory until the data has been read from
+     * the other end. The contents of the written region must not be modified until then, otherwise
+     * the reader may see the modified data. Only use this method when the buffer is not reused
+     * before the data has been consumed (for example, when the buffer is handed off and not
+     * touched again, or when the reader acknowledges it).
+     *
+     * For heap buffers, or if {@code vmsplice(2)} is not supported, this behaves like
+     * {@link #write(ByteBuffer)}.
+     *
+     * @param src The buffer.
+     * @return The number of bytes written, possibly zero.
+     * @throws IOException on error.
+     */
+    public int writeUnmodifiable(ByteBuffer src) throws IOException {
+      if (!src.isDirect() || !canSplice()) {
+        return write(src);
+      }
+      int pos = src.position();
+      int remaining = src.remaining();
+      if (remaining == 0) {
+        return 0;
+      }
+      int n;
+      boolean complete = false;
+      begin();
+      try {
+        n = NativeUnixSocket.vmsplice(sinkCore.fd, src, pos, remaining, 0);
+        complete = true;
+      } finally {
+        end(complete);
+      }
+      if (n > 0) {
+        src.position(pos + n);
+      }
+      return n;
+    }
+
+    /**
+     * Transfers up to {@code count} bytes from the given channel into this pipe.
+     *
+     * If the source channel provides access to its {@link FileDescriptor} (such as junixsocket
+     * sockets and pipes), and {@link AFSocketCapability#CAPABILITY_SPLICE} is supported, the data
+     * is moved via {@code splice(2)}, without copying it to user space. Otherwise, the data is
+     * copied.
+     *
+     * Once some data has been transferred, this method does not wait for more space to become
+     * available in the pipe.
+     *
+     * @param src The source channel.
+     * @param count The maximum number of bytes to transfer.
+     * @return The number of bytes transferred, possibly zero, or {@code -1} if the source has
+     *         reached end-of-stream and no bytes were transferred.
+     * @throws IOException on error.
+     */
+    public long transferFrom(ReadableByteChannel src, long count) throws IOException {
+      if (count < 0) {
+        throw new IllegalArgumentException("count");
+      }
+      FileDescriptor srcFd = canSplice() ? spliceableFileDescriptor(src) : null;
+      if (srcFd == null) {
+        return copy(src, this, count, true);
+      }
+
+      long remaining = count;
+      int opt = 0;
+      boolean complete = false;
+      begin();
+      try {
+        while (remaining > 0) {
+          long n = NativeUnixSocket.splice(srcFd, sinkCore.fd, remaining, opt);
+          if (n == -1 && remaining == count) {
+            complete = true;
+            return -1;
+          } else if (n <= 0) {
+            break;
+          }
+          remaining -= n;
+          opt = NativeUnixSocket.SPLICE_OPT_NON_BLOCKING;
+        }
+        complete = true;
+      } finally {
+        end(complete);
+      }
+      return count - remaining;
+    }
+
     @Override
     protected void implConfigureBlocking(boolean block) throws IOException {
       sinkCore.implConfigureBlocking(block);
@@ -171,6 +364,29 @@ public final class AFPipe extends Pipe implements Closeable {
     }
   }
 
+  private static long copy(ReadableByteChannel src, WritableByteChannel target, long count,
+      boolean reportEOF) throws IOException {
+    ByteBuffer buf = ByteBuffer.allocate((int) Math.min(count, TRANSFER_BUFFER_SIZE));
+    long transferred = 0;
+    while (transferred < count) {
+      buf.clear();
+      buf.limit((int) Math.min(buf.capacity(), count - transferred));
+      int n = src.read(buf);
+      if (n <= 0) {
+        if (n == -1 && transferred == 0 && reportEOF) {
+          return -1;
+        }
+        break;
+      }
+      buf.flip();
+      while (buf.hasRemaining()) {
+        target.write(buf);
+      }
+      transferred += n;
+    }
+    return transferred;
+  }
+
   /**
    * Returns the options bitmask that is to be passed to native receive/send calls.
    *
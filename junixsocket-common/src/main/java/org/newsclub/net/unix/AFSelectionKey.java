@@ -27,7 +27,7 @@ import java.util.concurrent.atomic.AtomicInteger;
 import com.kohlschutter.annotations.compiletime.SuppressFBWarnings;
 
 final class AFSelectionKey extends SelectionKey {
-  private static final int OP_INVALID = 1 << 7; // custom
+  static final int OP_INVALID = 1 << 7; // custom
   private final AFSelector sel;
   private final AFSocketCore core;
   private final AtomicInteger ops = new AtomicInteger();
@@ -35,6 +35,10 @@ final class AFSelectionKey extends SelectionKey {
   private final SelectableChannel chann;
   private final AtomicBoolean cancelled = new AtomicBoolean();
 
+  // used by AFSelector's epoll mode; guarded by the selector
+  private int epollId = 0;
+  private int epollOps = 0;
+
   AFSelectionKey(AFSelector selector, AbstractSelectableChannel ch, int ops, Object att) {
     super();
     this.chann = ch;
@@ -109,6 +113,7 @@ final class AFSelectionKey extends SelectionKey {
   @Override
   public SelectionKey interestOps(int interestOps) {
     this.ops.set(interestOps); // FIXME check
+    sel.interestOpsChanged(this);
     return this;
   }
 
@@ -125,6 +130,22 @@ final class AFSelectionKey extends SelectionKey {
     this.opsReady.set(opsReady);
   }
 
+  int getEpollId() {
+    return epollId;
+  }
+
+  void setEpollId(int id) {
+    this.epollId = id;
+  }
+
+  int getEpollOps() {
+    return epollOps;
+  }
+
+  void setEpollOps(int ops) {
+    this.epollOps = ops;
+  }
+
   @Override
   public String toString() {
     return super.toString() + "[" + readyOps() + ";valid=" + isValid() + ";channel=" + channel()
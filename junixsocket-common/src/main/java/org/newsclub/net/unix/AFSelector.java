@@ -29,17 +29,35 @@ import java.nio.channels.Selector;
 import java.nio.channels.spi.AbstractSelectableChannel;
 import java.nio.channels.spi.AbstractSelector;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import org.eclipse.jdt.annotation.Nullable;
+
 import com.kohlschutter.annotations.compiletime.SuppressFBWarnings;
 
 final class AFSelector extends AbstractSelector {
-  private final AFPipe selectorPipe;
-  private final PollFd selectorPipePollFd;
+  /**
+   * If set to {@code true}, all selectors use epoll where supported, not just the ones obtained
+   * via {@link AFSelectorProvider#openScalableSelector()}.
+   */
+  static final String PROP_SELECTOR_EPOLL = "org.newsclub.net.unix.selector.epoll";
+
+  private static final boolean EPOLL_BY_DEFAULT = Boolean.parseBoolean(System.getProperty(
+      PROP_SELECTOR_EPOLL, "false"));
+
+  private static final int EPOLL_MIN_EVENTS = 64;
+  private static final int EPOLL_MAX_EVENTS = 4096;
+
+  private volatile AFPipe selectorPipe;
+  private volatile PollFd selectorPipePollFd;
 
   private final ByteBuffer pipeMsgWakeUp = ByteBuffer.allocate(1);
   private final ByteBuffer pipeMsgReceiveBuffer = ByteBuffer.allocateDirect(256);
@@ -54,15 +72,45 @@ final class AFSelector extends AbstractSelector {
   @SuppressWarnings("PMD.LooseCoupling")
   private final MapValueSet<SelectionKey, Integer> selectedKeysSet =
       new MapValueSet<SelectionKey, Integer>(keysRegistered, selectCount::get, 0);
-  private final Set<SelectionKey> selectedKeysPublic = new UngrowableSet<>(selectedKeysSet);
+  private final Set<SelectionKey> selectedKeysPublic;
 
   private PollFd pollFd = null;
 
+  private final @Nullable Epoll epoll;
+
+  private final CheckpointSupport.@Nullable Participant checkpointParticipant = CheckpointSupport
+      .isEnabled() ? new CheckpointParticipant() : null;
+
   AFSelector(AFSelectorProvider<?> provider) throws IOException {
+    this(provider, EPOLL_BY_DEFAULT);
+  }
+
+  /**
+   * Creates a new selector.
+   *
+   * @param provider The provider.
+   * @param scalable If {@code true}, use epoll instead of poll, if supported, so the cost of a
+   *          {@code select} call depends on the number of ready keys, not the number of registered
+   *          keys.
+   * @throws IOException on error.
+   */
+  AFSelector(AFSelectorProvider<?> provider, boolean scalable) throws IOException {
     super(provider);
 
     this.selectorPipe = AFUNIXSelectorProvider.getInstance().openSelectablePipe();
     this.selectorPipePollFd = new PollFd(selectorPipe.sourceFD());
+
+    if (scalable && AFSocket.supports(AFSocketCapability.CAPABILITY_EPOLL)) {
+      this.epoll = new Epoll();
+      this.selectedKeysPublic = new UngrowableSet<>(epoll.selectedKeys);
+    } else {
+      this.epoll = null;
+      this.selectedKeysPublic = new UngrowableSet<>(selectedKeysSet);
+    }
+
+    if (checkpointParticipant != null) {
+      CheckpointSupport.register(checkpointParticipant);
+    }
   }
 
   @Override
@@ -72,9 +120,33 @@ final class AFSelector extends AbstractSelector {
       pollFd = null;
       selectedKeysSet.markRemoved(key);
     }
+    if (epoll != null) {
+      epoll.pendingUpdates.add(key);
+    }
     return key;
   }
 
+  /**
+   * Called by {@link AFSelectionKey#interestOps(int)}. In epoll mode, the change is applied upon
+   * the next {@code select} call; in poll mode, the interest set is read upon each call anyway.
+   *
+   * @param key The key.
+   */
+  void interestOpsChanged(AFSelectionKey key) {
+    if (epoll != null && key.getEpollOps() != key.interestOps()) {
+      epoll.pendingUpdates.add(key);
+    }
+  }
+
+  /**
+   * Checks if this selector uses epoll instead of poll.
+   *
+   * @return {@code true} if so.
+   */
+  boolean isEpoll() {
+    return epoll != null;
+  }
+
   @Override
   public Set<SelectionKey> keys() {
     return keysRegisteredPublic;
@@ -112,6 +184,13 @@ final class AFSelector extends AbstractSelector {
   }
 
   private int select0(int timeout) throws IOException {
+    CheckpointSupport.awaitRestore();
+
+    Epoll ep = epoll;
+    if (ep != null) {
+      return ep.select(timeout);
+    }
+
     PollFd pfd;
 
     int selectId = updateSelectCount();
@@ -160,6 +239,10 @@ final class AFSelector extends AbstractSelector {
     if ((pollFd.rops[0] & SelectionKey.OP_READ) == 0) {
       return;
     }
+    consumeWakeUpBytes();
+  }
+
+  private synchronized void consumeWakeUpBytes() throws IOException {
     int maxReceive;
     int bytesReceived;
 
@@ -327,6 +410,9 @@ final class AFSelector extends AbstractSelector {
 
   @Override
   protected void implCloseSelector() throws IOException {
+    if (checkpointParticipant != null) {
+      CheckpointSupport.unregister(checkpointParticipant);
+    }
     wakeup();
     Set<SelectionKey> keys;
     synchronized (this) {
@@ -337,6 +423,9 @@ final class AFSelector extends AbstractSelector {
       ((AFSelectionKey) key).cancelNoRemove();
     }
     selectorPipe.close();
+    if (epoll != null) {
+      epoll.close();
+    }
   }
 
   @Override
@@ -367,6 +456,10 @@ final class AFSelector extends AbstractSelector {
     selectedKeysSet.remove(key);
     deregister(key);
     pollFd = null;
+    if (epoll != null) {
+      epoll.selectedKeys.remove(key);
+      epoll.pendingUpdates.add(key);
+    }
   }
 
   private void deregister(AFSelectionKey key) {
@@ -417,4 +510,205 @@ final class AFSelector extends AbstractSelector {
       this.rops = new int[ops.length];
     }
   }
+
+  /**
+   * Closes the wakeup pipe before a CRaC checkpoint, and recreates it after restore. Threads
+   * currently in {@code select} are woken up, and any further {@code select} calls wait until the
+   * restore has completed.
+   */
+  private final class CheckpointParticipant implements CheckpointSupport.Participant {
+    @Override
+    public void beforeCheckpoint() throws IOException {
+      if (!isOpen()) {
+        return;
+      }
+      wakeup();
+      synchronized (AFSelector.this) {
+        pollFd = null;
+      }
+      selectorPipe.close();
+      if (epoll != null) {
+        epoll.close();
+      }
+    }
+
+    @Override
+    public void afterRestore() throws IOException {
+      if (!isOpen() || selectorPipe.sourceFD().valid()) {
+        return;
+      }
+      AFPipe pipe = AFUNIXSelectorProvider.getInstance().openSelectablePipe();
+      synchronized (AFSelector.this) {
+        selectorPipePollFd = new PollFd(pipe.sourceFD());
+        selectorPipe = pipe;
+        pollFd = null;
+        if (epoll != null) {
+          epoll.reopen();
+        }
+      }
+    }
+  }
+
+  /**
+   * The epoll-based backend. Interest-set changes are queued and applied right before
+   * {@code epoll_wait}, and only the keys reported as ready are touched afterwards, so the cost of
+   * a {@code select} call no longer grows with the number of registered keys.
+   *
+   * The selected-key set has the same semantics as in poll mode: it contains the keys that were
+   * found ready by the most recent {@code select} call.
+   */
+  private final class Epoll {
+    private final FileDescriptor epfd = new FileDescriptor();
+    private final Queue<AFSelectionKey> pendingUpdates = new ConcurrentLinkedQueue<>();
+    private final Map<Integer, AFSelectionKey> keysById = new HashMap<>();
+    private final Set<SelectionKey> selectedKeys = new HashSet<>();
+    private int[] ids = new int[EPOLL_MIN_EVENTS];
+    private int[] rops = new int[EPOLL_MIN_EVENTS];
+    private int nextId = 0;
+
+    Epoll() throws IOException {
+      open();
+    }
+
+    private void open() throws IOException {
+      NativeUnixSocket.epollCreate(epfd);
+      // id 0 is reserved for the wakeup pipe
+      NativeUnixSocket.epollCtl(epfd, NativeUnixSocket.EPOLL_ADD, selectorPipe.sourceFD(),
+          SelectionKey.OP_READ, 0);
+    }
+
+    /**
+     * Recreates the epoll instance after a CRaC restore, and re-adds all keys.
+     *
+     * @throws IOException on error.
+     */
+    void reopen() throws IOException {
+      close();
+      for (AFSelectionKey key : keysById.values()) {
+        key.setEpollId(0);
+        pendingUpdates.add(key);
+      }
+      keysById.clear();
+      open();
+    }
+
+    void close() throws IOException {
+      if (epfd.valid()) {
+        NativeUnixSocket.close(epfd);
+      }
+    }
+
+    int select(int timeout) throws IOException {
+      synchronized (this) { // only one thread at a time may use the event arrays
+        synchronized (AFSelector.this) {
+          if (!isOpen()) {
+            throw new ClosedSelectorException();
+          }
+          clearSelectedKeys();
+          applyPendingUpdates();
+        }
+        int num;
+        try {
+          begin();
+          num = NativeUnixSocket.epollWait(epfd, ids, rops, timeout);
+        } finally {
+          end();
+        }
+        synchronized (AFSelector.this) {
+          if (num > 0) {
+            setOpsReady(num);
+            if (num == ids.length && num < EPOLL_MAX_EVENTS) {
+              ids = new int[num * 2];
+              rops = new int[num * 2];
+            }
+          }
+          return selectedKeys.size();
+        }
+      }
+    }
+
+    private void clearSelectedKeys() {
+      for (SelectionKey k : selectedKeys) {
+        AFSelectionKey key = (AFSelectionKey) k;
+        if (key.isValid()) {
+          key.setOpsReady(0);
+        }
+      }
+      selectedKeys.clear();
+    }
+
+    @SuppressWarnings("PMD.CognitiveComplexity")
+    private void applyPendingUpdates() throws IOException {
+      AFSelectionKey key;
+      while ((key = pendingUpdates.poll()) != null) {
+        FileDescriptor fd = key.getAFCore().fd;
+        int id = key.getEpollId();
+        if (!fd.valid() || !key.isValid()) {
+          if (id != 0) {
+            keysById.remove(id);
+            key.setEpollId(0);
+            try {
+              NativeUnixSocket.epollCtl(epfd, NativeUnixSocket.EPOLL_DEL, fd, 0, 0);
+            } catch (IOException e) { // NOPMD.EmptyCatchBlock
+              // ignore; closing the file descriptor also removes it from the interest list
+            }
+          }
+          key.cancelNoRemove();
+          keysRegistered.remove(key);
+          continue;
+        }
+
+        int ops = key.interestOps();
+        if (id == 0) {
+          id = newId();
+          keysById.put(id, key);
+          key.setEpollId(id);
+          key.setEpollOps(ops);
+          NativeUnixSocket.epollCtl(epfd, NativeUnixSocket.EPOLL_ADD, fd, ops, id);
+        } else if (key.getEpollOps() != ops) {
+          key.setEpollOps(ops);
+          NativeUnixSocket.epollCtl(epfd, NativeUnixSocket.EPOLL_MOD, fd, ops, id);
+        }
+      }
+    }
+
+    private int newId() {
+      int id;
+      do {
+        id = ++nextId;
+      } while (id == 0 || keysById.containsKey(id));
+      return id;
+    }
+
+    private void setOpsReady(int num) throws IOException {
+      boolean wakeUp = false;
+      for (int i = 0; i < num; i++) {
+        int id = ids[i];
+        if (id == 0) {
+          wakeUp = true;
+          continue;
+        }
+        AFSelectionKey key = keysById.get(id);
+        if (key == null) {
+          continue;
+        }
+        int r = rops[i];
+        int ready = (r & key.interestOps()) | (r & AFSelectionKey.OP_INVALID);
+        key.setOpsReady(ready);
+        if (ready == 0) {
+          continue;
+        }
+        selectedKeys.add(key);
+        if (key.hasOpInvalid()) {
+          SelectableChannel ch = key.channel();
+          if (ch != null && ch.isOpen()) {
+            ch.close();
+          }
+        }
+      }
+      if (wakeUp) {
+        consumeWakeUpBytes();
+      }
+    }
+  }
 }
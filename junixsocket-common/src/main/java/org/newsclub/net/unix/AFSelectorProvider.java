@@ -245,6 +245,22 @@ public abstract class AFSelectorProvider<A extends AFSocketAddress> extends Sele
     return new AFSelector(this);
   }
 
+  /**
+   * Opens a selector that is optimized for a large number of registered channels, such as a
+   * server handling tens of thousands of concurrent connections.
+   *
+   * Where supported (see {@link AFSocketCapability#CAPABILITY_EPOLL}), the selector is backed by
+   * {@code epoll(7)}, which means that the cost of a {@code select} call depends on the number of
+   * ready channels rather than the number of registered ones. Otherwise, this is equivalent to
+   * {@link #openSelector()}.
+   *
+   * @return The new selector.
+   * @throws IOException on error.
+   */
+  public final AbstractSelector openScalableSelector() throws IOException {
+    return new AFSelector(this, true);
+  }
+
   @Override
   public abstract AFServerSocketChannel<A> openServerSocketChannel() throws IOException;
 
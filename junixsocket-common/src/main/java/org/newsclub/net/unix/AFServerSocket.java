@@ -60,6 +60,10 @@ public abstract class AFServerSocket<A extends AFSocketAddress> extends ServerSo
 
   private final AtomicBoolean closed = new AtomicBoolean(false);
 
+  private final CheckpointSupport.@Nullable Participant checkpointParticipant = CheckpointSupport
+      .isEnabled() ? new CheckpointParticipant() : null;
+  private int backlog = 50;
+
   /**
    * The constructor of the concrete subclass.
    *
@@ -292,6 +296,11 @@ public abstract class AFServerSocket<A extends AFSocketAddress> extends ServerSo
     }
 
     implementation.listen(backlog);
+    this.backlog = backlog;
+
+    if (checkpointParticipant != null) {
+      CheckpointSupport.register(checkpointParticipant);
+    }
   }
 
   @Override
@@ -313,7 +322,20 @@ public abstract class AFServerSocket<A extends AFSocketAddress> extends ServerSo
   AFSocket<A> accept1(boolean throwOnFail) throws IOException {
     AFSocket<A> as = newSocketInstance();
 
-    boolean success = implementation.accept0(as.getAFImpl(false));
+    boolean success;
+    while (true) {
+      CheckpointSupport.awaitRestore();
+      try {
+        success = implementation.accept0(as.getAFImpl(false));
+        break;
+      } catch (IOException e) {
+        if (implementation.getCore().isSuspended() || CheckpointSupport.isCheckpointing()) {
+          // socket was released for a CRaC checkpoint; retry once restored
+          continue;
+        }
+        throw e;
+      }
+    }
     if (isClosed()) {
       // We may have connected to the socket to unblock it
       throw new BrokenPipeSocketException("Socket is closed");
@@ -358,6 +380,9 @@ public abstract class AFServerSocket<A extends AFSocketAddress> extends ServerSo
     if (!closed.compareAndSet(false, true)) {
       return;
     }
+    if (checkpointParticipant != null) {
+      CheckpointSupport.unregister(checkpointParticipant);
+    }
     if (isClosed()) {
       return;
     }
@@ -677,4 +702,57 @@ public abstract class AFServerSocket<A extends AFSocketAddress> extends ServerSo
   // NOTE: We shall re-implement all methods defined in ServerSocket that internally call getImpl()
   // and call getAFImpl() here. This is not strictly necessary for environments where we can
   // override "impl"; however it's the right thing to do.
+
+  /**
+   * Releases the listening socket before a CRaC checkpoint, and re-binds it to the same address
+   * after restore.
+   *
+   * The re-bind always uses {@link NativeUnixSocket#BIND_OPT_REUSE}, regardless of
+   * {@link #getReuseAddress()}: the address is still ours, but may be occupied by the stale socket
+   * file of the released socket.
+   */
+  private final class CheckpointParticipant implements CheckpointSupport.Participant {
+    private @Nullable A restoreEndpoint;
+
+    @Override
+    public void beforeCheckpoint() throws IOException {
+      A endpoint = boundEndpoint0();
+      FileDescriptor fd = implementation.getFD();
+      if (closed.get() || endpoint == null || !fd.valid()) {
+        return;
+      }
+      restoreEndpoint = endpoint;
+
+      implementation.getCore().setSuspended(true);
+      try {
+        // wakes up threads blocked in accept (Linux)
+        NativeUnixSocket.shutdown(fd, NativeUnixSocket.SHUT_RD_WR);
+      } catch (IOException e) {
+        // ignore
+      }
+      NativeUnixSocket.close(fd);
+    }
+
+    @Override
+    public void afterRestore() throws IOException {
+      A endpoint = restoreEndpoint;
+      if (endpoint == null) {
+        return;
+      }
+      restoreEndpoint = null;
+
+      try {
+        if (closed.get()) {
+          return;
+        }
+        FileDescriptor fd = implementation.getFD();
+        implementation.createSocket(fd, AFSocketType.SOCK_STREAM);
+        implementation.setOption(SocketOptions.SO_REUSEADDR, true);
+        implementation.bind(endpoint, NativeUnixSocket.BIND_OPT_REUSE);
+        implementation.listen(backlog);
+      } finally {
+        implementation.getCore().setSuspended(false);
+      }
+    }
+  }
 }
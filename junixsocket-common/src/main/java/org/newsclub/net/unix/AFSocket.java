@@ -62,6 +62,9 @@ public abstract class AFSocket<A extends AFSocketAddress> extends Socket impleme
 
   private @Nullable SocketAddressFilter connectFilter;
 
+  private final CheckpointSupport.@Nullable Participant checkpointParticipant = CheckpointSupport
+      .isEnabled() ? new CheckpointParticipant() : null;
+
   /**
    * Creates a new {@link AFSocket} instance.
    *
@@ -280,6 +283,10 @@ public abstract class AFSocket<A extends AFSocketAddress> extends Socket impleme
   }
 
   final void internalDummyConnect() throws IOException {
+    // also reached for accepted sockets, socket pairs and sockets created from file descriptors
+    if (checkpointParticipant != null) {
+      CheckpointSupport.register(checkpointParticipant);
+    }
     if (!isConnected()) {
       super.connect(AFSocketAddress.INTERNAL_DUMMY_CONNECT, 0);
     }
@@ -413,6 +420,13 @@ public abstract class AFSocket<A extends AFSocketAddress> extends Socket impleme
     return capabilitiesValue;
   }
 
+  /**
+   * Forces capabilities to be determined again upon next access (e.g., after a CRaC restore).
+   */
+  static synchronized void resetCapabilities() {
+    capabilitiesValue = null;
+  }
+
   /**
    * Checks if the current environment (system platform, native library, etc.) supports a given
    * junixsocket capability.
@@ -462,6 +476,9 @@ public abstract class AFSocket<A extends AFSocketAddress> extends Socket impleme
 
   @Override
   public final synchronized void close() throws IOException {
+    if (checkpointParticipant != null) {
+      CheckpointSupport.unregister(checkpointParticipant);
+    }
     IOException superException = null;
     try {
       super.close();
@@ -625,4 +642,66 @@ public abstract class AFSocket<A extends AFSocketAddress> extends Socket impleme
   public void setShutdownOnClose(boolean enabled) {
     getAFImpl().getCore().setShutdownOnClose(enabled);
   }
+
+  /**
+   * Returns the time a blocking read busy-polls for incoming data before actually blocking (or
+   * parking a virtual thread), in nanoseconds; {@code 0} means "no spinning".
+   *
+   * The default can be set via the system property
+   * {@code org.newsclub.net.unix.read.spin-nanos}.
+   *
+   * @return The spin time, in nanoseconds.
+   */
+  public long getReadSpinNanos() {
+    return getAFImpl().getCore().getReadSpinNanos();
+  }
+
+  /**
+   * Sets the time a blocking read busy-polls for incoming data before actually blocking (or
+   * parking a virtual thread), in nanoseconds; {@code 0} means "no spinning".
+   *
+   * Spinning reduces the latency of request/response protocols where the peer typically responds
+   * within a few microseconds, at the expense of CPU time. Note that a spinning virtual thread
+   * occupies its carrier thread.
+   *
+   * @param nanos The spin time, in nanoseconds.
+   */
+  public void setReadSpinNanos(long nanos) {
+    getAFImpl().getCore().setReadSpinNanos(nanos);
+  }
+
+  /**
+   * Returns the number of spinning reads that found data within the spin time.
+   *
+   * @return The number of spin hits.
+   * @see #setReadSpinNanos(long)
+   */
+  public long getReadSpinHits() {
+    return getAFImpl().getCore().getReadSpinHits();
+  }
+
+  /**
+   * Returns the number of spinning reads that did not find data within the spin time, and then had
+   * to block.
+   *
+   * @return The number of spin misses.
+   * @see #setReadSpinNanos(long)
+   */
+  public long getReadSpinMisses() {
+    return getAFImpl().getCore().getReadSpinMisses();
+  }
+
+  /**
+   * Closes the connection before a CRaC checkpoint; connections cannot survive a restore.
+   */
+  private final class CheckpointParticipant implements CheckpointSupport.Participant {
+    @Override
+    public void beforeCheckpoint() throws IOException {
+      getChannel().close();
+    }
+
+    @Override
+    public void afterRestore() throws IOException {
+    }
+  }
 }
@@ -84,6 +84,25 @@ public abstract class AFSocketAddress extends InetSocketAddress {
         return true;
       });
 
+  /**
+   * The maximum number of native socket addresses held by {@link #SOCKETADDRESS_BATCH_BUFFER_TL}.
+   */
+  static final int SOCKETADDRESS_BATCH_SIZE = 64;
+
+  /**
+   * The distance between two native socket addresses in {@link #SOCKETADDRESS_BATCH_BUFFER_TL}.
+   */
+  static final int SOCKETADDRESS_BATCH_STRIDE = SOCKADDR_MAX_LEN;
+
+  static final ObjectPool<ByteBuffer> SOCKETADDRESS_BATCH_BUFFER_TL = ObjectPool
+      .newThreadLocalPool(() -> {
+        return AFSocketAddress.newSockAddrDirectBuffer(SOCKADDR_MAX_LEN
+            * SOCKETADDRESS_BATCH_SIZE);
+      }, (o) -> {
+        o.clear();
+        return true;
+      });
+
   private static final boolean USE_DESERIALIZATION_FOR_INIT;
 
   static {
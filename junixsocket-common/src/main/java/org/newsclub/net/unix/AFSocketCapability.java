@@ -152,6 +152,27 @@ public enum AFSocketCapability {
    */
   CAPABILITY_SEND_RECV_TIMEOUT(15),
 
+  /**
+   * Support for moving data between file descriptors in the kernel, without copying it to user
+   * space, via {@code splice(2)}, {@code tee(2)} and {@code vmsplice(2)} (Linux only). This is
+   * used by {@link AFSocketRelay}, {@link AFSocketFanout}, and {@link AFPipe}.
+   */
+  CAPABILITY_SPLICE(16),
+
+  /**
+   * Support for the Linux {@code epoll(7)} API. If available,
+   * {@link AFSelectorProvider#openScalableSelector()} returns a selector whose cost per
+   * {@code select} call depends on the number of ready channels, not the number of registered ones.
+   */
+  CAPABILITY_EPOLL(17),
+
+  /**
+   * Support for sending file contents to a socket without copying them to user space, via
+   * {@code sendfile(2)} (Linux only). This is used by
+   * {@link AFSocketChannel#transferFrom(java.nio.channels.FileChannel, long, long)}.
+   */
+  CAPABILITY_SENDFILE(18),
+
   ; // end of list
 
   private final int bitmask;
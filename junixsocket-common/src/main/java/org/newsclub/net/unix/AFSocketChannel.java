@@ -26,6 +26,8 @@ import java.net.SocketAddress;
 import java.net.SocketOption;
 import java.net.StandardProtocolFamily;
 import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
 import java.nio.channels.SocketChannel;
 import java.nio.channels.spi.SelectorProvider;
 import java.util.Objects;
@@ -286,8 +288,24 @@ public abstract class AFSocketChannel<A extends AFSocketAddress> extends SocketC
     if (length == 0) {
       return 0;
     }
-    // FIXME support more than one buffer for scatter-gather access
-    return write(srcs[offset]);
+    // FIXME use a single writev call
+    // For now, write the buffers one by one until the socket stops accepting data. This way,
+    // callers that write a header and a body buffer in one go (e.g., HTTP servers) don't need an
+    // extra round-trip through their selector for each remaining buffer.
+    long written = 0;
+    for (int i = offset, n = offset + length; i < n; i++) {
+      ByteBuffer src = srcs[i];
+      int remaining = src.remaining();
+      if (remaining == 0) {
+        continue;
+      }
+      int count = write(src);
+      written += count;
+      if (count < remaining) {
+        break;
+      }
+    }
+    return written;
   }
 
   @Override
@@ -307,6 +325,78 @@ public abstract class AFSocketChannel<A extends AFSocketAddress> extends SocketC
     }
   }
 
+  /**
+   * Transfers bytes from the given file to this channel.
+   *
+   * This is semantically equivalent to {@code src.transferTo(position, count, this)}, however,
+   * where supported (see {@link AFSocketCapability#CAPABILITY_SENDFILE}), the data is sent via
+   * {@code sendfile(2)}, i.e., without copying it to user space. Note that
+   * {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)} itself cannot
+   * do that for junixsocket channels, and resorts to copying the data in small chunks instead.
+   *
+   * {@code sendfile(2)} is only used with the JDK's own {@link FileChannel} implementation for
+   * regular files. For other implementations (e.g., channels from a zip file system), and if the
+   * JDK's implementation cannot be accessed as expected, this method falls back to
+   * {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)}.
+   *
+   * If this channel is in non-blocking mode, fewer than {@code count} bytes may be transferred.
+   *
+   * @param src The source file channel.
+   * @param position The position within the file at which the transfer is to begin; must be
+   *          non-negative.
+   * @param count The maximum number of bytes to be transferred; must be non-negative.
+   * @return The number of bytes, possibly zero, that were actually transferred.
+   * @throws IOException on error.
+   */
+  public final long transferFrom(FileChannel src, long position, long count) throws IOException {
+    if (position < 0 || count < 0) {
+      throw new IllegalArgumentException("position and count must not be negative");
+    }
+    if (!src.isOpen()) {
+      throw new ClosedChannelException();
+    }
+    if (count == 0) {
+      return 0;
+    }
+    if (!AFSocket.supports(AFSocketCapability.CAPABILITY_SENDFILE) || (isBlocking() && ThreadUtil
+        .isVirtualThread())) {
+      return src.transferTo(position, count, this);
+    }
+
+    long transferred = 0;
+    boolean fallback = false;
+    boolean complete = false;
+    Exception exception = null;
+    try {
+      begin();
+      FileDescriptor fd = getFileDescriptor();
+      do {
+        long n = NativeUnixSocket.sendfile(fd, src, position + transferred, count - transferred);
+        if (n == -2) {
+          // not supported for this particular file (channel); fall back below
+          fallback = transferred == 0;
+          break;
+        } else if (n <= 0) {
+          // would block, or end of file
+          complete = true;
+          return transferred;
+        }
+        transferred += n;
+      } while (transferred < count && isBlocking());
+      complete = true;
+    } catch (IOException e) {
+      throw InterruptibleChannelUtil.ioExceptionOrThrowRuntimeException( // NOPMD.PreserveStackTrace
+          (exception = InterruptibleChannelUtil.handleException(this, e)));
+    } finally {
+      InterruptibleChannelUtil.endInterruptable(this, this::end, complete, exception);
+    }
+
+    if (fallback) {
+      return src.transferTo(position, count, this);
+    }
+    return transferred;
+  }
+
   @Override
   public final A getLocalAddress() throws IOException {
     return getLocalSocketAddress();
@@ -361,6 +451,46 @@ public abstract class AFSocketChannel<A extends AFSocketAddress> extends SocketC
     getAFCore().setShutdownOnClose(enabled);
   }
 
+  /**
+   * Returns the time a blocking read busy-polls for incoming data before actually blocking, in
+   * nanoseconds; {@code 0} means "no spinning".
+   *
+   * @return The spin time, in nanoseconds.
+   * @see AFSocket#getReadSpinNanos()
+   */
+  public long getReadSpinNanos() {
+    return getAFCore().getReadSpinNanos();
+  }
+
+  /**
+   * Sets the time a blocking read busy-polls for incoming data before actually blocking, in
+   * nanoseconds; {@code 0} means "no spinning".
+   *
+   * @param nanos The spin time, in nanoseconds.
+   * @see AFSocket#setReadSpinNanos(long)
+   */
+  public void setReadSpinNanos(long nanos) {
+    getAFCore().setReadSpinNanos(nanos);
+  }
+
+  /**
+   * Returns the number of spinning reads that found data within the spin time.
+   *
+   * @return The number of spin hits.
+   */
+  public long getReadSpinHits() {
+    return getAFCore().getReadSpinHits();
+  }
+
+  /**
+   * Returns the number of spinning reads that did not find data within the spin time.
+   *
+   * @return The number of spin misses.
+   */
+  public long getReadSpinMisses() {
+    return getAFCore().getReadSpinMisses();
+  }
+
   /**
    * Opens a socket channel. The {@code family} parameter specifies the {@link ProtocolFamily
    * protocol family} of the channel's socket.
@@ -35,6 +35,8 @@ import org.newsclub.net.unix.pool.ObjectPool.Lease;
  */
 class AFSocketCore extends AFCore {
   private final AtomicInteger pendingAccepts = new AtomicInteger(0);
+  private final Object pendingAcceptsMonitor = new Object();
+  private volatile boolean awaitingPendingAccepts = false;
   private static final int SHUT_RD_WR = 2;
 
   /**
@@ -158,12 +160,51 @@ class AFSocketCore extends AFCore {
 
   protected void decPendingAccepts() {
     pendingAccepts.decrementAndGet();
+    if (awaitingPendingAccepts) {
+      synchronized (pendingAcceptsMonitor) {
+        pendingAcceptsMonitor.notifyAll();
+      }
+    }
   }
 
   protected boolean hasPendingAccepts() {
     return pendingAccepts.get() > 0;
   }
 
+  protected int getPendingAccepts() {
+    return pendingAccepts.get();
+  }
+
+  /**
+   * Waits until the number of pending accepts drops below the given count (or to zero), or until
+   * the timeout elapses.
+   *
+   * @param count The count to drop below.
+   * @param timeoutMillis The timeout, in milliseconds.
+   * @return The number of pending accepts.
+   * @throws InterruptedException on interrupt.
+   */
+  protected int awaitPendingAcceptsBelow(int count, long timeoutMillis)
+      throws InterruptedException {
+    awaitingPendingAccepts = true;
+    try {
+      long end = System.currentTimeMillis() + timeoutMillis;
+      synchronized (pendingAcceptsMonitor) {
+        int n;
+        while ((n = pendingAccepts.get()) >= count && n > 0) {
+          long remaining = end - System.currentTimeMillis();
+          if (remaining <= 0) {
+            break;
+          }
+          pendingAcceptsMonitor.wait(remaining);
+        }
+        return n;
+      }
+    } finally {
+      awaitingPendingAccepts = false;
+    }
+  }
+
   boolean isShutdownOnClose() {
     return shutdownOnClose.get();
   }
@@ -0,0 +1,671 @@
+/*
+ * junixsocket
+ *
+ * Copyright 2009-2026 Christian Kohlschütter
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.newsclub.net.unix;
+
+import java.io.Closeable;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Duplicates the data read from one source socket to any number of subscriber sockets.
+ *
+ * Where supported (see {@link AFSocketCapability#CAPABILITY_SPLICE}), data is read from the source
+ * into a pipe via {@code splice(2)}, duplicated into one pipe per subscriber via {@code tee(2)},
+ * and from there spliced into the subscriber sockets, without being copied to user space.
+ * Otherwise, data is copied via direct buffers.
+ *
+ * Each subscriber can hold a bounded amount of data that has not yet been sent (its backlog). What
+ * happens when a subscriber falls further behind is controlled by the {@link SlowSubscriberPolicy},
+ * and, for {@link SlowSubscriberPolicy#DROP}, by the limits set via
+ * {@link #setBacklogLimit(int, long, TimeUnit)}.
+ *
+ * Once the source reaches end-of-stream, and all pending data has been sent, the output of all
+ * subscribers is shut down, and all channels are closed. Subscribers added later only receive data
+ * read from then on. Data read while there are no subscribers is discarded.
+ *
+ * @author Christian Kohlschütter
+ */
+public final class AFSocketFanout implements Closeable {
+  private static final int BUFFER_SIZE = 64 * 1024;
+  private static final int DEFAULT_MAX_BACKLOG = 256 * 1024;
+
+  private final AFSocketChannel<?> source;
+  private final SlowSubscriberPolicy policy;
+  private final boolean zeroCopy;
+  private final Selector selector;
+  private final Queue<Subscriber> pendingSubscribers = new ConcurrentLinkedQueue<>();
+  private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+  private final AtomicBoolean closed = new AtomicBoolean(false);
+  private final AtomicInteger subscriberCount = new AtomicInteger();
+  private final AtomicLong bytesRead = new AtomicLong();
+  private volatile int maxBacklog = DEFAULT_MAX_BACKLOG;
+  private volatile long maxStallNanos = 0;
+  private long nextStallCheckNanos = 0;
+
+  // zero-copy mode
+  private final AFPipe pipe;
+  private final FileOutputStream devNull;
+  private long pending;
+
+  // copying mode
+  private final ByteBuffer chunk;
+
+  private SelectionKey sourceKey;
+  private boolean sourceEOF;
+
+  /**
+   * Controls what happens when a subscriber cannot keep up.
+   */
+  public enum SlowSubscriberPolicy {
+    /**
+     * Stop reading from the source until the slowest subscriber has caught up.
+     */
+    BLOCK,
+
+    /**
+     * Disconnect subscribers whose backlog exceeds the limits set via
+     * {@link AFSocketFanout#setBacklogLimit(int, long, TimeUnit)}.
+     */
+    DROP;
+  }
+
+  private AFSocketFanout(AFSocketChannel<?> source, SlowSubscriberPolicy policy, boolean zeroCopy)
+      throws IOException {
+    this.source = source;
+    this.policy = policy;
+    this.zeroCopy = zeroCopy;
+
+    source.configureBlocking(false);
+    if (zeroCopy) {
+      this.pipe = AFPipe.open();
+      this.devNull = new FileOutputStream("/dev/null"); // NOPMD
+      this.chunk = null;
+    } else {
+      this.pipe = null;
+      this.devNull = null;
+      this.chunk = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    }
+
+    this.selector = AFUNIXSelectorProvider.provider().openSelector();
+    this.sourceKey = source.register(selector, 0);
+    ThreadUtil.startNewDaemonThread(false, this::run);
+  }
+
+  /**
+   * Starts duplicating the data read from the given source channel, using {@code splice(2)} and
+   * {@code tee(2)} where supported. The source channel is configured to be non-blocking.
+   *
+   * @param source The source channel.
+   * @param policy The policy for slow subscribers.
+   * @return The new fanout.
+   * @throws IOException on error.
+   */
+  public static AFSocketFanout open(AFSocketChannel<?> source, SlowSubscriberPolicy policy)
+      throws IOException {
+    return new AFSocketFanout(source, policy, AFSocket.supports(
+        AFSocketCapability.CAPABILITY_SPLICE));
+  }
+
+  /**
+   * Starts duplicating the data read from the given source channel, always copying data via
+   * direct buffers, even if {@code splice(2)} is supported.
+   *
+   * @param source The source channel.
+   * @param policy The policy for slow subscribers.
+   * @return The new fanout.
+   * @throws IOException on error.
+   */
+  public static AFSocketFanout openCopying(AFSocketChannel<?> source, SlowSubscriberPolicy policy)
+      throws IOException {
+    return new AFSocketFanout(source, policy, false);
+  }
+
+  /**
+   * Checks if this fanout moves data without copying it to user space.
+   *
+   * @return {@code true} if {@code splice(2)} and {@code tee(2)} are used.
+   */
+  public boolean isZeroCopy() {
+    return zeroCopy;
+  }
+
+  /**
+   * Adds a subscriber. The channel is configured to be non-blocking, and is closed when the
+   * subscriber is removed.
+   *
+   * @param channel The subscriber channel.
+   * @return The subscriber.
+   * @throws IOException on error.
+   */
+  public Subscriber addSubscriber(AFSocketChannel<?> channel) throws IOException {
+    if (closed.get()) {
+      throw new SocketClosedException("Fanout is closed");
+    }
+    channel.configureBlocking(false);
+    Subscriber sub = new Subscriber(channel);
+    subscriberCount.incrementAndGet();
+    pendingSubscribers.add(sub);
+    selector.wakeup();
+    return sub;
+  }
+
+  /**
+   * Sets the limits for the backlog of a subscriber, i.e., the data not yet sent to it, when
+   * using {@link SlowSubscriberPolicy#DROP}. The limits have no effect with
+   * {@link SlowSubscriberPolicy#BLOCK}.
+   *
+   * A subscriber is disconnected once its backlog would exceed {@code maxBytes}, or once it has not
+   * accepted any data for longer than {@code maxStall} (if positive) while it had data pending.
+   *
+   * When copying, the subscriber's buffer grows on demand, up to {@code maxBytes}. In zero-copy
+   * mode, the backlog is held in the subscriber's pipe, which is grown to {@code maxBytes} when
+   * the subscriber is added; should the kernel limit the pipe capacity to a smaller value (see
+   * {@code /proc/sys/fs/pipe-max-size}), that capacity is the effective byte limit, unless a time
+   * limit is set, in which case all subscribers wait for a stalled subscriber for up to
+   * {@code maxStall}.
+   *
+   * The byte limit applies to subscribers added afterwards. The default is 256 KiB, without time
+   * limit.
+   *
+   * @param maxBytes The maximum backlog, in bytes.
+   * @param maxStall The maximum time a subscriber may not accept any data, or {@code 0} for no
+   *          time limit.
+   * @param unit The time unit of {@code maxStall}.
+   */
+  public void setBacklogLimit(int maxBytes, long maxStall, TimeUnit unit) {
+    if (maxBytes <= 0) {
+      throw new IllegalArgumentException("maxBytes");
+    } else if (maxStall < 0) {
+      throw new IllegalArgumentException("maxStall");
+    }
+    this.maxBacklog = maxBytes;
+    this.maxStallNanos = unit.toNanos(maxStall);
+    selector.wakeup();
+  }
+
+  /**
+   * Returns the number of connected subscribers.
+   *
+   * @return The number of subscribers.
+   */
+  public int getSubscriberCount() {
+    return subscriberCount.get();
+  }
+
+  /**
+   * Returns the number of bytes read from the source.
+   *
+   * @return The number of bytes.
+   */
+  public long getBytesRead() {
+    return bytesRead.get();
+  }
+
+  /**
+   * Checks if this fanout is still running.
+   *
+   * @return {@code true} if open.
+   */
+  public boolean isOpen() {
+    return !closed.get();
+  }
+
+  /**
+   * Stops the fanout, closing the source and all subscribers.
+   */
+  @Override
+  public void close() throws IOException {
+    if (closed.compareAndSet(false, true)) {
+      selector.wakeup();
+    }
+  }
+
+  private static void closeQuietly(Closeable c) {
+    if (c == null) {
+      return;
+    }
+    try {
+      c.close();
+    } catch (IOException e) {
+      // ignore
+    }
+  }
+
+  @SuppressWarnings("PMD.CognitiveComplexity")
+  private void run() {
+    try {
+      while (!closed.get()) {
+        Subscriber sub;
+        while ((sub = pendingSubscribers.poll()) != null) {
+          sub.register();
+        }
+
+        if (pump()) {
+          break;
+        }
+
+        if (nextStallCheckNanos > 0) {
+          selector.select(TimeUnit.NANOSECONDS.toMillis(nextStallCheckNanos) + 1);
+        } else {
+          selector.select();
+        }
+        selector.selectedKeys().clear();
+      }
+    } catch (IOException | RuntimeException e) {
+      StackTraceUtil.printStackTrace(e);
+    } finally {
+      closed.set(true);
+      Subscriber sub;
+      while ((sub = pendingSubscribers.poll()) != null) {
+        sub.close();
+      }
+      for (Subscriber s : subscribers) {
+        s.close();
+      }
+      closeQuietly(source);
+      closeQuietly(pipe);
+      closeQuietly(devNull);
+      closeQuietly(selector);
+    }
+  }
+
+  /**
+   * Moves as much data as possible without blocking, and updates the interest ops.
+   *
+   * @return {@code true} if the source has reached end-of-stream, and all data has been sent.
+   * @throws IOException on error with the source.
+   */
+  private boolean pump() throws IOException {
+    boolean progress;
+    do {
+      progress = false;
+      for (Subscriber sub : subscribers) {
+        progress |= sub.flush();
+      }
+      if (zeroCopy) {
+        progress |= pumpSplice();
+      } else {
+        progress |= pumpCopy();
+      }
+      progress |= dropStalledSubscribers();
+    } while (progress);
+
+    if (sourceEOF && pending == 0) {
+      boolean drained = true;
+      for (Subscriber sub : subscribers) {
+        if (sub.hasBuffered()) {
+          drained = false;
+          break;
+        }
+      }
+      if (drained) {
+        for (Subscriber sub : subscribers) {
+          try {
+            sub.channel.shutdownOutput();
+          } catch (IOException e) {
+            // ignore
+          }
+          sub.close();
+        }
+        return true;
+      }
+    }
+
+    try {
+      sourceKey.interestOps(!sourceEOF && pending == 0 && canRead() ? SelectionKey.OP_READ : 0);
+      for (Subscriber sub : subscribers) {
+        sub.key.interestOps(sub.wantWrite ? SelectionKey.OP_WRITE : 0);
+      }
+    } catch (CancelledKeyException e) {
+      throw (IOException) new SocketClosedException("Channel closed").initCause(e);
+    }
+    return false;
+  }
+
+  /**
+   * Disconnects subscribers that have exceeded the time limit set via
+   * {@link #setBacklogLimit(int, long, TimeUnit)}, and determines when to check again.
+   *
+   * @return {@code true} if any subscriber was disconnected.
+   */
+  private boolean dropStalledSubscribers() {
+    nextStallCheckNanos = 0;
+    long maxStall = maxStallNanos;
+    if (policy != SlowSubscriberPolicy.DROP || maxStall == 0) {
+      return false;
+    }
+    long now = System.nanoTime();
+    boolean dropped = false;
+    for (Subscriber sub : subscribers) {
+      if (!sub.stalled) {
+        continue;
+      }
+      long remaining = sub.stalledSince + maxStall - now;
+      if (remaining <= 0) {
+        sub.close();
+        dropped = true;
+      } else if (nextStallCheckNanos == 0 || remaining < nextStallCheckNanos) {
+        nextStallCheckNanos = remaining;
+      }
+    }
+    return dropped;
+  }
+
+  private boolean canRead() {
+    if (zeroCopy || policy == SlowSubscriberPolicy.DROP) {
+      return true;
+    }
+    for (Subscriber sub : subscribers) {
+      if (!sub.buffer.hasRemaining()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Zero-copy mode: {@code tee(2)} always duplicates from the start of the source pipe, so each
+   * subscriber remembers how many bytes at the start of the pipe it already holds. Only data held
+   * by all subscribers is removed from the pipe.
+   */
+  @SuppressWarnings("PMD.CognitiveComplexity")
+  private boolean pumpSplice() throws IOException {
+    if (pending == 0) {
+      if (sourceEOF) {
+        return false;
+      }
+      long n = NativeUnixSocket.splice(source.getFileDescriptor(), pipe.sinkFD(), BUFFER_SIZE,
+          NativeUnixSocket.SPLICE_OPT_NON_BLOCKING);
+      if (n == -1) {
+        sourceEOF = true;
+        return true;
+      } else if (n > 0) {
+        pending = n;
+        bytesRead.addAndGet(n);
+        for (Subscriber sub : subscribers) {
+          sub.offset = 0;
+        }
+        return true;
+      }
+      return false;
+    }
+
+    boolean progress = false;
+    for (Subscriber sub : subscribers) {
+      if (sub.offset != 0) {
+        continue;
+      }
+      if (policy == SlowSubscriberPolicy.DROP && sub.buffered + pending > maxBacklog) {
+        sub.close();
+        progress = true;
+        continue;
+      }
+      long n;
+      try {
+        n = NativeUnixSocket.tee(pipe.sourceFD(), sub.pipe.sinkFD(), pending,
+            NativeUnixSocket.SPLICE_OPT_NON_BLOCKING);
+      } catch (IOException e) {
+        sub.close();
+        continue;
+      }
+      if (n > 0) {
+        sub.offset = n;
+        sub.buffered += n;
+        progress = true;
+      } else if (policy == SlowSubscriberPolicy.DROP && maxStallNanos == 0) {
+        // The subscriber's pipe is full; without a time limit, that's as much as it may hold
+        sub.close();
+        progress = true;
+      }
+    }
+
+    long consumed = pending;
+    for (Subscriber sub : subscribers) {
+      consumed = Math.min(consumed, sub.offset);
+    }
+    if (consumed > 0) {
+      long remaining = consumed;
+      while (remaining > 0) {
+        long n = NativeUnixSocket.splice(pipe.sourceFD(), devNull.getFD(), remaining, 0);
+        if (n <= 0) {
+          throw new IOException("Could not discard data from pipe");
+        }
+        remaining -= n;
+      }
+      pending -= consumed;
+      for (Subscriber sub : subscribers) {
+        sub.offset -= consumed;
+      }
+      progress = true;
+    }
+    return progress;
+  }
+
+  private boolean pumpCopy() throws IOException {
+    if (sourceEOF || !canRead()) {
+      return false;
+    }
+    chunk.clear();
+    if (policy == SlowSubscriberPolicy.BLOCK) {
+      for (Subscriber sub : subscribers) {
+        chunk.limit(Math.min(chunk.limit(), sub.buffer.remaining()));
+      }
+    }
+    int n = source.read(chunk);
+    if (n == -1) {
+      sourceEOF = true;
+      return true;
+    } else if (n == 0) {
+      return false;
+    }
+    bytesRead.addAndGet(n);
+    chunk.flip();
+    for (Subscriber sub : subscribers) {
+      // only with SlowSubscriberPolicy.DROP
+      if (sub.buffer.remaining() < n && !sub.growBuffer(sub.buffer.position() + n)) {
+        sub.close();
+      } else {
+        sub.buffer.put(chunk.duplicate());
+      }
+    }
+    return true;
+  }
+
+  /**
+   * A subscriber, receiving a copy of the source data.
+   */
+  public final class Subscriber implements Closeable {
+    private final AFSocketChannel<?> channel;
+    private final AtomicBoolean subClosed = new AtomicBoolean(false);
+    private final AtomicLong bytesWritten = new AtomicLong();
+    private SelectionKey key;
+    private boolean wantWrite;
+    private boolean stalled;
+    private long stalledSince;
+
+    // zero-copy mode
+    private AFPipe pipe;
+    private long offset;
+    private long buffered;
+
+    // copying mode; in write mode
+    private ByteBuffer buffer;
+
+    Subscriber(AFSocketChannel<?> channel) throws IOException {
+      this.channel = channel;
+      if (zeroCopy) {
+        this.pipe = AFPipe.open();
+        this.buffer = null;
+        if (policy == SlowSubscriberPolicy.DROP) {
+          growPipe(maxBacklog);
+        }
+      } else {
+        this.buffer = ByteBuffer.allocateDirect(Math.min(BUFFER_SIZE, maxBacklog));
+      }
+    }
+
+    /**
+     * Grows the pipe (zero-copy mode) towards the given capacity, halving the request whenever the
+     * kernel refuses it (for example, due to {@code /proc/sys/fs/pipe-max-size}).
+     *
+     * @param capacity The desired capacity.
+     */
+    private void growPipe(int capacity) {
+      try {
+        for (int cap = capacity, current = pipe.getCapacity(); cap > current; cap /= 2) {
+          try {
+            pipe.setCapacity(cap);
+            return;
+          } catch (IOException e) {
+            // try a smaller capacity
+          }
+        }
+      } catch (IOException e) {
+        // keep the default capacity
+      }
+    }
+
+    /**
+     * Grows the buffer (copying mode), within the backlog limit.
+     *
+     * @param needed The required capacity.
+     * @return {@code true} if the buffer now has the required capacity.
+     */
+    boolean growBuffer(int needed) {
+      int max = maxBacklog;
+      if (needed > max) {
+        return false;
+      }
+      ByteBuffer newBuffer = ByteBuffer.allocateDirect(Math.min(max, Math.max(needed, buffer
+          .capacity() * 2)));
+      buffer.flip();
+      newBuffer.put(buffer);
+      buffer = newBuffer;
+      return true;
+    }
+
+    void register() {
+      if (subClosed.get()) {
+        return;
+      }
+      try {
+        key = channel.register(selector, 0, this);
+      } catch (IOException | RuntimeException e) {
+        close();
+        return;
+      }
+      // new subscribers skip any data that is already in the source pipe
+      offset = pending;
+      subscribers.add(this);
+    }
+
+    boolean hasBuffered() {
+      return zeroCopy ? buffered > 0 : buffer.position() > 0;
+    }
+
+    /**
+     * Sends buffered data to the subscriber socket.
+     *
+     * @return {@code true} if any data was sent.
+     */
+    boolean flush() {
+      wantWrite = false;
+      if (!hasBuffered()) {
+        stalled = false;
+        return false;
+      }
+      long n;
+      try {
+        if (zeroCopy) {
+          n = NativeUnixSocket.splice(pipe.sourceFD(), channel.getFileDescriptor(), buffered,
+              NativeUnixSocket.SPLICE_OPT_NON_BLOCKING);
+          if (n > 0) {
+            buffered -= n;
+          }
+        } else {
+          buffer.flip();
+          try {
+            n = channel.write(buffer);
+          } finally {
+            buffer.compact();
+          }
+        }
+      } catch (IOException e) {
+        close();
+        return true;
+      }
+      if (n <= 0) {
+        wantWrite = true;
+        if (!stalled) {
+          stalled = true;
+          stalledSince = System.nanoTime();
+        }
+        return false;
+      }
+      stalled = false;
+      bytesWritten.addAndGet(n);
+      wantWrite = hasBuffered();
+      return true;
+    }
+
+    /**
+     * Returns the number of bytes sent to this subscriber.
+     *
+     * @return The number of bytes.
+     */
+    public long getBytesWritten() {
+      return bytesWritten.get();
+    }
+
+    /**
+     * Checks if this subscriber is still connected.
+     *
+     * @return {@code true} if open.
+     */
+    public boolean isOpen() {
+      return !subClosed.get();
+    }
+
+    /**
+     * Removes this subscriber, and closes its channel.
+     */
+    @Override
+    public void close() {
+      if (!subClosed.compareAndSet(false, true)) {
+        return;
+      }
+      subscriberCount.decrementAndGet();
+      subscribers.remove(this);
+      closeQuietly(channel);
+      closeQuietly(pipe);
+    }
+  }
+}
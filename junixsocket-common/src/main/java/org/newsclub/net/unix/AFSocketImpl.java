@@ -59,6 +59,17 @@ import org.newsclub.net.unix.pool.ObjectPool.Lease;
 public abstract class AFSocketImpl<A extends AFSocketAddress> extends SocketImplShim {
   private static final int SHUTDOWN_RD_WR = (1 << SHUT_RD) | (1 << SHUT_WR);
 
+  /**
+   * How long to wait for pending accepts to return after shutdown, before trying to unblock them
+   * by connecting to the socket.
+   */
+  private static final long UNBLOCK_ACCEPTS_GRACE_MILLIS = 5;
+
+  /**
+   * How long to wait for pending accepts to return after connecting to the socket.
+   */
+  private static final long UNBLOCK_ACCEPTS_TIMEOUT_MILLIS = 50;
+
   private final AFSocketStreamCore core;
   final AncillaryDataSupport ancillaryDataSupport = new AncillaryDataSupport();
 
@@ -100,8 +111,11 @@ public abstract class AFSocketImpl<A extends AFSocketAddress> extends SocketImpl
     }
 
     /**
-     * Unblock other threads that are currently waiting on accept, simply by connecting to the
-     * socket.
+     * Unblock other threads that are currently waiting on accept.
+     * <p>
+     * On some platforms (e.g., Linux), shutting down the server socket (see {@link #doClose()})
+     * already unblocks all pending accepts. On others, we have to unblock them by connecting to
+     * the socket, once for every remaining pending accept.
      */
     @Override
     protected void unblockAccepts() {
@@ -119,42 +133,58 @@ public abstract class AFSocketImpl<A extends AFSocketAddress> extends SocketImpl
     }
 
     private void unblockAccepts0() {
-      while (hasPendingAccepts()) {
-        try {
-          FileDescriptor tmpFd = new FileDescriptor();
-
-          try (Lease<ByteBuffer> abLease = socketAddress.getNativeAddressDirectBuffer()) {
-            createSocket(tmpFd, AFSocketType.SOCK_STREAM);
-            ByteBuffer ab = abLease.get();
-            NativeUnixSocket.connect(ab, ab.limit(), tmpFd, inode.get());
-          } catch (IOException e) {
-            // there's nothing more we can do to unlock these accepts
-            // (e.g., SocketException: No such file or directory)
-            return;
+      try {
+        int pending = getPendingAccepts();
+        while (pending > 0) {
+          // Wait for accepts that have already been unblocked to return
+          int remaining = awaitPendingAcceptsBelow(pending, UNBLOCK_ACCEPTS_GRACE_MILLIS);
+          if (remaining < pending) {
+            pending = remaining;
+            continue;
           }
-          if (isShutdownOnClose()) {
-            try {
-              NativeUnixSocket.shutdown(tmpFd, SHUT_RD_WR);
-            } catch (Exception e) {
-              // ignore
+
+          // No progress; connect once for each accept that is still blocked
+          for (int i = 0; i < remaining; i++) {
+            if (!connectToUnblockAccept()) {
+              // there's nothing more we can do to unlock these accepts
+              return;
             }
           }
+          pending = awaitPendingAcceptsBelow(remaining, UNBLOCK_ACCEPTS_TIMEOUT_MILLIS);
+        }
+      } catch (InterruptedException e) {
+        // ignore
+      }
+    }
+
+    private boolean connectToUnblockAccept() {
+      try {
+        FileDescriptor tmpFd = new FileDescriptor();
+
+        try (Lease<ByteBuffer> abLease = socketAddress.getNativeAddressDirectBuffer()) {
+          createSocket(tmpFd, AFSocketType.SOCK_STREAM);
+          ByteBuffer ab = abLease.get();
+          NativeUnixSocket.connect(ab, ab.limit(), tmpFd, inode.get());
+        } catch (IOException e) {
+          // e.g., SocketException: No such file or directory
+          return false;
+        }
+        if (isShutdownOnClose()) {
           try {
-            NativeUnixSocket.close(tmpFd);
+            NativeUnixSocket.shutdown(tmpFd, SHUT_RD_WR);
           } catch (Exception e) {
             // ignore
           }
-        } catch (RuntimeException e) {
-          // ignore
         }
-
-        // sleep a little to give the cleaners some CPU time to actually clean up
         try {
-          Thread.sleep(5);
-        } catch (InterruptedException e) {
+          NativeUnixSocket.close(tmpFd);
+        } catch (Exception e) {
           // ignore
         }
+      } catch (RuntimeException e) {
+        // ignore
       }
+      return true;
     }
   }
 
@@ -0,0 +1,480 @@
+/*
+ * junixsocket
+ *
+ * Copyright 2009-2026 Christian Kohlschütter
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.newsclub.net.unix;
+
+import java.io.Closeable;
+import java.io.FileDescriptor;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Relays bytes between pairs of connected sockets, in both directions, until both directions have
+ * reached end-of-stream.
+ *
+ * All connections of a relay are served by a single selector thread. Where supported (see
+ * {@link AFSocketCapability#CAPABILITY_SPLICE}), data is moved from one socket to the other via
+ * {@code splice(2)} through an intermediate pipe, without being copied to user space. Otherwise,
+ * data is copied via a direct buffer.
+ *
+ * <pre><code>
+ * try (AFSocketRelay relay = AFSocketRelay.open()) {
+ *   relay.relay(clientChannel, upstreamChannel);
+ *   ...
+ * }
+ * </code></pre>
+ *
+ * @author Christian Kohlschütter
+ */
+public final class AFSocketRelay implements Closeable {
+  private static final int CHUNK_SIZE = 64 * 1024;
+
+  private final Selector selector;
+  private final boolean zeroCopy;
+  private final Queue<Connection> pendingRegistrations = new ConcurrentLinkedQueue<>();
+  private final AtomicBoolean closed = new AtomicBoolean(false);
+  private final AtomicInteger connectionCount = new AtomicInteger();
+  private final AtomicLong bytesRelayed = new AtomicLong();
+
+  private AFSocketRelay(boolean zeroCopy) throws IOException {
+    this.zeroCopy = zeroCopy;
+    this.selector = AFUNIXSelectorProvider.provider().openSelector();
+    ThreadUtil.startNewDaemonThread(false, this::run);
+  }
+
+  /**
+   * Opens a new relay, using {@code splice(2)} where supported.
+   *
+   * @return The new relay.
+   * @throws IOException on error.
+   */
+  public static AFSocketRelay open() throws IOException {
+    return new AFSocketRelay(AFSocket.supports(AFSocketCapability.CAPABILITY_SPLICE));
+  }
+
+  /**
+   * Opens a new relay that always copies data via a direct buffer, even if {@code splice(2)} is
+   * supported.
+   *
+   * @return The new relay.
+   * @throws IOException on error.
+   */
+  public static AFSocketRelay openCopying() throws IOException {
+    return new AFSocketRelay(false);
+  }
+
+  /**
+   * Checks if this relay moves data without copying it to user space.
+   *
+   * @return {@code true} if {@code splice(2)} is used.
+   */
+  public boolean isZeroCopy() {
+    return zeroCopy;
+  }
+
+  /**
+   * Starts relaying data between the two given connected channels. Both channels are configured to
+   * be non-blocking, and are closed once the relay for this connection ends (either because both
+   * directions reached end-of-stream, or due to an error).
+   *
+   * @param a The first channel.
+   * @param b The second channel.
+   * @return The connection.
+   * @throws IOException on error.
+   */
+  public Connection relay(AFSocketChannel<?> a, AFSocketChannel<?> b) throws IOException {
+    if (closed.get()) {
+      throw new SocketClosedException("Relay is closed");
+    }
+    a.configureBlocking(false);
+    b.configureBlocking(false);
+    Connection conn = new Connection(a, b);
+    connectionCount.incrementAndGet();
+    pendingRegistrations.add(conn);
+    selector.wakeup();
+    return conn;
+  }
+
+  /**
+   * Returns an {@link AFSocketChannel} that refers to a duplicate of the file descriptor of the
+   * given JDK {@link SocketChannel} (e.g., a TCP connection), so it can be used with
+   * {@link #relay(AFSocketChannel, AFSocketChannel)}. The given channel may be closed afterwards.
+   *
+   * This requires access to JDK internals, which needs to be granted via
+   * {@code --add-exports java.base/sun.nio.ch=org.newsclub.net.unix} (or {@code ALL-UNNAMED}, if
+   * junixsocket is on the classpath).
+   *
+   * @param channel The JDK socket channel.
+   * @return The junixsocket channel.
+   * @throws IOException on error, including if the file descriptor cannot be accessed.
+   */
+  public static AFSocketChannel<?> adopt(SocketChannel channel) throws IOException {
+    if (channel instanceof AFSocketChannel) {
+      return (AFSocketChannel<?>) channel;
+    }
+    FileDescriptor fd;
+    try {
+      Method getFD = Class.forName("sun.nio.ch.SelChImpl").getMethod("getFD");
+      fd = (FileDescriptor) getFD.invoke(channel);
+    } catch (ClassNotFoundException | NoSuchMethodException | IllegalAccessException
+        | InvocationTargetException | RuntimeException e) {
+      throw new IOException("Cannot access file descriptor of " + channel
+          + "; try --add-exports java.base/sun.nio.ch=org.newsclub.net.unix", e);
+    }
+    return FileDescriptorCast.duplicating(fd).as(AFGenericSocketChannel.class);
+  }
+
+  /**
+   * Returns the number of connections currently being relayed.
+   *
+   * @return The number of connections.
+   */
+  public int getConnectionCount() {
+    return connectionCount.get();
+  }
+
+  /**
+   * Returns the total number of bytes relayed, in both directions, across all connections.
+   *
+   * @return The number of bytes.
+   */
+  public long getBytesRelayed() {
+    return bytesRelayed.get();
+  }
+
+  /**
+   * Stops the relay, closing all connections.
+   */
+  @Override
+  public void close() throws IOException {
+    if (closed.compareAndSet(false, true)) {
+      selector.wakeup();
+    }
+  }
+
+  @SuppressWarnings("PMD.CognitiveComplexity")
+  private void run() {
+    try {
+      while (!closed.get()) {
+        Connection conn;
+        while ((conn = pendingRegistrations.poll()) != null) {
+          conn.register();
+        }
+
+        selector.select();
+
+        Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+        while (it.hasNext()) {
+          SelectionKey key = it.next();
+          it.remove();
+          ((Connection) key.attachment()).pump();
+        }
+      }
+    } catch (IOException | RuntimeException e) {
+      StackTraceUtil.printStackTrace(e);
+    } finally {
+      Connection conn;
+      while ((conn = pendingRegistrations.poll()) != null) {
+        conn.close();
+      }
+      for (SelectionKey key : selector.keys()) {
+        ((Connection) key.attachment()).close();
+      }
+      try {
+        selector.close();
+      } catch (IOException e) {
+        // ignore
+      }
+    }
+  }
+
+  private static void closeQuietly(Closeable c) {
+    try {
+      c.close();
+    } catch (IOException e) {
+      // ignore
+    }
+  }
+
+  /**
+   * A pair of sockets whose data is relayed in both directions.
+   */
+  public final class Connection implements Closeable {
+    private final AFSocketChannel<?> a;
+    private final AFSocketChannel<?> b;
+    private final Direction aToB;
+    private final Direction bToA;
+    private final AtomicBoolean connClosed = new AtomicBoolean(false);
+    private SelectionKey keyA;
+    private SelectionKey keyB;
+
+    Connection(AFSocketChannel<?> a, AFSocketChannel<?> b) throws IOException {
+      this.a = a;
+      this.b = b;
+      Direction ab = null;
+      try {
+        ab = newDirection(a, b);
+        this.aToB = ab;
+        this.bToA = newDirection(b, a);
+      } catch (IOException e) {
+        if (ab != null) {
+          ab.close();
+        }
+        throw e;
+      }
+    }
+
+    private Direction newDirection(AFSocketChannel<?> src, AFSocketChannel<?> dst)
+        throws IOException {
+      return zeroCopy ? new SpliceDirection(src, dst) : new CopyDirection(src, dst);
+    }
+
+    void register() {
+      try {
+        keyA = a.register(selector, 0, this);
+        keyB = b.register(selector, 0, this);
+      } catch (IOException | RuntimeException e) {
+        close();
+        return;
+      }
+      pump();
+    }
+
+    void pump() {
+      if (connClosed.get()) {
+        return;
+      }
+      try {
+        aToB.pump();
+        bToA.pump();
+        if (aToB.done && bToA.done) {
+          close();
+          return;
+        }
+        keyA.interestOps((aToB.wantRead ? SelectionKey.OP_READ : 0) | (bToA.wantWrite
+            ? SelectionKey.OP_WRITE : 0));
+        keyB.interestOps((bToA.wantRead ? SelectionKey.OP_READ : 0) | (aToB.wantWrite
+            ? SelectionKey.OP_WRITE : 0));
+      } catch (IOException | CancelledKeyException e) {
+        close();
+      }
+    }
+
+    /**
+     * Returns the number of bytes relayed from the first to the second channel.
+     *
+     * @return The number of bytes.
+     */
+    public long getBytesForward() {
+      return aToB.bytes;
+    }
+
+    /**
+     * Returns the number of bytes relayed from the second to the first channel.
+     *
+     * @return The number of bytes.
+     */
+    public long getBytesBackward() {
+      return bToA.bytes;
+    }
+
+    /**
+     * Checks if this connection is still being relayed.
+     *
+     * @return {@code true} if open.
+     */
+    public boolean isOpen() {
+      return !connClosed.get();
+    }
+
+    /**
+     * Stops relaying, and closes both channels.
+     */
+    @Override
+    public void close() {
+      if (!connClosed.compareAndSet(false, true)) {
+        return;
+      }
+      connectionCount.decrementAndGet();
+      closeQuietly(a);
+      closeQuietly(b);
+      aToB.close();
+      bToA.close();
+    }
+  }
+
+  /**
+   * Moves data from one channel to another.
+   */
+  private abstract class Direction {
+    final AFSocketChannel<?> src;
+    final AFSocketChannel<?> dst;
+    volatile long bytes;
+    boolean srcEOF;
+    boolean done;
+    boolean wantRead;
+    boolean wantWrite;
+
+    Direction(AFSocketChannel<?> src, AFSocketChannel<?> dst) {
+      this.src = src;
+      this.dst = dst;
+    }
+
+    /**
+     * Checks if data has been received from the source, but not yet sent to the destination.
+     *
+     * @return {@code true} if so.
+     */
+    abstract boolean hasPending();
+
+    /**
+     * Receives data from the source.
+     *
+     * @return The number of bytes, {@code 0} if no data is available, or {@code -1} on EOF.
+     * @throws IOException on error.
+     */
+    abstract long fill() throws IOException;
+
+    /**
+     * Sends pending data to the destination.
+     *
+     * @return The number of bytes, or {@code 0} if the destination cannot take any more data.
+     * @throws IOException on error.
+     */
+    abstract long drain() throws IOException;
+
+    void close() {
+    }
+
+    final void pump() throws IOException {
+      wantRead = false;
+      wantWrite = false;
+      while (!done) {
+        if (hasPending()) {
+          long n = drain();
+          if (n == 0) {
+            wantWrite = true;
+            return;
+          }
+          bytes += n;
+          bytesRelayed.addAndGet(n);
+        } else if (srcEOF) {
+          dst.shutdownOutput();
+          done = true;
+        } else {
+          long n = fill();
+          if (n == -1) {
+            srcEOF = true;
+          } else if (n == 0) {
+            wantRead = true;
+            return;
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Moves data via {@code splice(2)} through a pipe.
+   */
+  private final class SpliceDirection extends Direction {
+    private final AFPipe pipe;
+    private final FileDescriptor srcFd;
+    private final FileDescriptor dstFd;
+    private long pending;
+
+    SpliceDirection(AFSocketChannel<?> src, AFSocketChannel<?> dst) throws IOException {
+      super(src, dst);
+      this.pipe = AFPipe.open();
+      this.srcFd = src.getFileDescriptor();
+      this.dstFd = dst.getFileDescriptor();
+    }
+
+    @Override
+    boolean hasPending() {
+      return pending > 0;
+    }
+
+    @Override
+    long fill() throws IOException {
+      long n = NativeUnixSocket.splice(srcFd, pipe.sinkFD(), CHUNK_SIZE,
+          NativeUnixSocket.SPLICE_OPT_NON_BLOCKING);
+      if (n > 0) {
+        pending += n;
+      }
+      return n;
+    }
+
+    @Override
+    long drain() throws IOException {
+      long n = NativeUnixSocket.splice(pipe.sourceFD(), dstFd, pending,
+          NativeUnixSocket.SPLICE_OPT_NON_BLOCKING);
+      if (n == -1) {
+        throw new IOException("Unexpected end of pipe");
+      }
+      pending -= n;
+      return n;
+    }
+
+    @Override
+    void close() {
+      closeQuietly(pipe);
+    }
+  }
+
+  /**
+   * Moves data via a direct buffer.
+   */
+  private final class CopyDirection extends Direction {
+    private final ByteBuffer buf = ByteBuffer.allocateDirect(CHUNK_SIZE);
+
+    CopyDirection(AFSocketChannel<?> src, AFSocketChannel<?> dst) {
+      super(src, dst);
+      buf.flip();
+    }
+
+    @Override
+    boolean hasPending() {
+      return buf.hasRemaining();
+    }
+
+    @Override
+    long fill() throws IOException {
+      buf.clear();
+      int n = src.read(buf);
+      buf.flip();
+      return n;
+    }
+
+    @Override
+    long drain() throws IOException {
+      return dst.write(buf);
+    }
+  }
+}
@@ -0,0 +1,378 @@
+/*
+ * junixsocket
+ *
+ * Copyright 2009-2026 Christian Kohlschütter
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.newsclub.net.unix;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Keeps a small number of pre-connected ("warm") sockets per key (e.g., per socket address) ready,
+ * so that connection requests can be served without paying for the connection setup.
+ *
+ * Whenever a connection for a key is requested, a warm connection is handed out if available, and
+ * the pool for that key is refilled in the background. Warm connections are checked for liveness
+ * before they are handed out, and are closed once they have been idle for longer than the
+ * configured timeout.
+ *
+ * Note that all pools share a single background thread, which also establishes the warm
+ * connections. The {@link Connector} should therefore not block indefinitely (e.g., it should use
+ * a timeout for any handshake it performs).
+ *
+ * @param <K> The key type.
+ * @param <S> The socket type.
+ * @author Christian Kohlschütter
+ */
+public final class AFSocketWarmPool<K, S extends AFSocket<?>> implements Closeable {
+  private final Connector<K, S> connector;
+  private final int maxWarm;
+  private final long idleTimeoutMillis;
+  private final boolean acceptPendingData;
+  private final Map<K, Pool> pools = new ConcurrentHashMap<>();
+  private final AtomicBoolean closed = new AtomicBoolean(false);
+  private @Nullable ScheduledFuture<?> sweeper;
+
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong evictions = new AtomicLong();
+  private final AtomicLong livenessFailures = new AtomicLong();
+
+  /**
+   * Creates new connections for a given key.
+   *
+   * @param <K> The key type.
+   * @param <S> The socket type.
+   */
+  @FunctionalInterface
+  public interface Connector<K, S extends AFSocket<?>> {
+    /**
+     * Establishes a new connection for the given key.
+     *
+     * @param key The key.
+     * @return The connected socket.
+     * @throws IOException on error.
+     */
+    S connect(K key) throws IOException;
+  }
+
+  private static final class Executor {
+    private static final ScheduledExecutorService INSTANCE = newExecutor();
+
+    private static ScheduledExecutorService newExecutor() {
+      AtomicInteger count = new AtomicInteger();
+      ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, (r) -> {
+        Thread t = new Thread(r, "junixsocket warm connection pool " + count.incrementAndGet());
+        t.setDaemon(true);
+        return t;
+      });
+      executor.setRemoveOnCancelPolicy(true);
+      return executor;
+    }
+  }
+
+  private final class Warm {
+    private final S socket;
+    private final long since;
+
+    Warm(S socket, long since) {
+      this.socket = socket;
+      this.since = since;
+    }
+  }
+
+  private final class Pool {
+    private final K key;
+    private final Queue<Warm> idle = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicBoolean refilling = new AtomicBoolean(false);
+
+    Pool(K key) {
+      this.key = key;
+    }
+
+    @Nullable
+    Warm poll() {
+      Warm w = idle.poll();
+      if (w != null) {
+        size.decrementAndGet();
+      }
+      return w;
+    }
+
+    void refill() {
+      if (closed.get() || !refilling.compareAndSet(false, true)) {
+        return;
+      }
+      Executor.INSTANCE.execute(() -> {
+        try {
+          while (!closed.get() && size.get() < maxWarm) {
+            idle.add(new Warm(connector.connect(key), System.currentTimeMillis()));
+            size.incrementAndGet();
+          }
+        } catch (IOException e) {
+          // ignore; the next request will connect on its own
+        } finally {
+          refilling.set(false);
+        }
+        if (closed.get()) {
+          drain();
+        }
+      });
+    }
+
+    void evictIdle(long now) {
+      for (Iterator<Warm> it = idle.iterator(); it.hasNext();) {
+        Warm w = it.next();
+        if (now - w.since >= idleTimeoutMillis && idle.remove(w)) {
+          size.decrementAndGet();
+          evictions.incrementAndGet();
+          closeQuietly(w.socket);
+        }
+      }
+    }
+
+    void drain() {
+      Warm w;
+      while ((w = poll()) != null) {
+        closeQuietly(w.socket);
+      }
+    }
+  }
+
+  /**
+   * Creates a new pool.
+   *
+   * @param connector The connector used to establish new connections.
+   * @param maxWarm The number of warm connections to keep per key; {@code 0} disables pooling.
+   * @param idleTimeoutMillis The time after which an unused warm connection is closed.
+   * @param acceptPendingData If {@code true}, warm connections that have already received data
+   *          (e.g., a greeting) are handed out as-is; if {@code false}, such connections are
+   *          considered broken.
+   */
+  public AFSocketWarmPool(Connector<K, S> connector, int maxWarm, long idleTimeoutMillis,
+      boolean acceptPendingData) {
+    if (maxWarm < 0) {
+      throw new IllegalArgumentException("maxWarm");
+    }
+    if (idleTimeoutMillis <= 0) {
+      throw new IllegalArgumentException("idleTimeoutMillis");
+    }
+    this.connector = connector;
+    this.maxWarm = maxWarm;
+    this.idleTimeoutMillis = idleTimeoutMillis;
+    this.acceptPendingData = acceptPendingData;
+  }
+
+  private Pool pool(K key) {
+    Pool pool = Java7Util.computeIfAbsent(pools, key, Pool::new);
+    ensureSweeper();
+    return pool;
+  }
+
+  /**
+   * Returns a connected socket for the given key, either a warm one from the pool, or a newly
+   * connected one.
+   *
+   * @param key The key.
+   * @return The socket.
+   * @throws IOException on error.
+   */
+  public S take(K key) throws IOException {
+    if (maxWarm == 0 || closed.get()) {
+      return connector.connect(key);
+    }
+
+    Pool pool = pool(key);
+    try {
+      Warm w;
+      while ((w = pool.poll()) != null) {
+        if (isAlive(w.socket)) {
+          hits.incrementAndGet();
+          return w.socket;
+        }
+        livenessFailures.incrementAndGet();
+        closeQuietly(w.socket);
+      }
+      misses.incrementAndGet();
+      return connector.connect(key);
+    } finally {
+      pool.refill();
+    }
+  }
+
+  /**
+   * Starts establishing warm connections for the given key, so that even the first connection
+   * request can be served from the pool.
+   *
+   * @param key The key.
+   */
+  public void prefill(K key) {
+    if (maxWarm > 0 && !closed.get()) {
+      pool(key).refill();
+    }
+  }
+
+  private synchronized void ensureSweeper() {
+    if (sweeper == null && !closed.get()) {
+      long period = Math.max(1, idleTimeoutMillis / 2);
+      sweeper = Executor.INSTANCE.scheduleWithFixedDelay(this::evictIdle, period, period,
+          TimeUnit.MILLISECONDS);
+    }
+  }
+
+  private void evictIdle() {
+    long now = System.currentTimeMillis();
+    for (Pool pool : pools.values()) {
+      pool.evictIdle(now);
+    }
+  }
+
+  /**
+   * Checks if the given (idle) socket is still connected, without blocking.
+   *
+   * @param socket The socket.
+   * @return {@code true} if still connected (and, unless pending data is accepted, no data has
+   *         been received).
+   */
+  private boolean isAlive(S socket) {
+    if (socket.isClosed() || !socket.isConnected() || socket.isInputShutdown() || socket
+        .isOutputShutdown()) {
+      return false;
+    }
+    AFSocketChannel<?> channel = socket.getChannel();
+    try {
+      if (acceptPendingData && socket.getInputStream().available() > 0) {
+        // the peer has already sent something (e.g., a greeting); keep it for the caller
+        return true;
+      }
+      channel.configureBlocking(false);
+      try {
+        // 0 means no data, -1 means EOF; if data arrived just now, we cannot hand it out
+        return channel.read(ByteBuffer.allocate(1)) == 0;
+      } finally {
+        channel.configureBlocking(true);
+      }
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Returns the number of warm connections currently in the pool, across all keys.
+   *
+   * @return The number of warm connections.
+   */
+  public int getWarmConnectionCount() {
+    int count = 0;
+    for (Pool pool : pools.values()) {
+      count += pool.size.get();
+    }
+    return count;
+  }
+
+  /**
+   * Returns the number of warm connections currently in the pool for the given key.
+   *
+   * @param key The key.
+   * @return The number of warm connections.
+   */
+  public int getWarmConnectionCount(K key) {
+    Pool pool = pools.get(key);
+    return pool == null ? 0 : pool.size.get();
+  }
+
+  /**
+   * Returns the number of requests that were served from the pool.
+   *
+   * @return The number of hits.
+   */
+  public long getHits() {
+    return hits.get();
+  }
+
+  /**
+   * Returns the number of requests that had to connect on the request path (not counting requests
+   * made while pooling is disabled).
+   *
+   * @return The number of misses.
+   */
+  public long getMisses() {
+    return misses.get();
+  }
+
+  /**
+   * Returns the number of warm connections that were closed because they were idle for too long.
+   *
+   * @return The number of evictions.
+   */
+  public long getEvictions() {
+    return evictions.get();
+  }
+
+  /**
+   * Returns the number of warm connections that were found to be broken when requested.
+   *
+   * @return The number of liveness failures.
+   */
+  public long getLivenessFailures() {
+    return livenessFailures.get();
+  }
+
+  private static void closeQuietly(Closeable c) {
+    try {
+      c.close();
+    } catch (IOException e) {
+      // ignore
+    }
+  }
+
+  /**
+   * Closes all warm connections. Subsequent requests are served directly, without pooling.
+   */
+  @Override
+  public void close() {
+    if (!closed.compareAndSet(false, true)) {
+      return;
+    }
+    synchronized (this) {
+      ScheduledFuture<?> s = sweeper;
+      if (s != null) {
+        s.cancel(false);
+        sweeper = null;
+      }
+    }
+    for (Pool pool : pools.values()) {
+      pool.drain();
+    }
+    pools.clear();
+  }
+}
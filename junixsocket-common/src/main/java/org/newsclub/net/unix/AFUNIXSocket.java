@@ -135,6 +135,23 @@ public final class AFUNIXSocket extends AFSocket<AFUNIXSocketAddress> implements
     return ((AFUNIXSocketImpl) getAFImpl()).getReceivedFileDescriptors();
   }
 
+  /**
+   * Retrieves an array of incoming {@link FileDescriptor}s that were sent as ancillary messages,
+   * like {@link #getReceivedFileDescriptors()}. If {@code detach} is {@code true}, the returned file
+   * descriptors are no longer tracked by this socket, i.e., they are not closed when this socket is
+   * closed; the caller is then responsible for closing them.
+   *
+   * Detaching is useful for long-lived connections that transfer many file descriptors whose
+   * lifetime is independent from that of the connection.
+   *
+   * @param detach If {@code true}, detach the file descriptors from this socket.
+   * @return The file descriptors, or an empty array if none were available.
+   * @throws IOException if the operation fails.
+   */
+  public FileDescriptor[] getReceivedFileDescriptors(boolean detach) throws IOException {
+    return ((AFUNIXSocketImpl) getAFImpl()).getReceivedFileDescriptors(detach);
+  }
+
   @Override
   public void clearReceivedFileDescriptors() {
     ((AFUNIXSocketImpl) getAFImpl()).clearReceivedFileDescriptors();
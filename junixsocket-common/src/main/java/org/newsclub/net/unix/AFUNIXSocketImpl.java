@@ -57,6 +57,10 @@ class AFUNIXSocketImpl extends AFSocketImpl<AFUNIXSocketAddress> {
     return ancillaryDataSupport.getReceivedFileDescriptors();
   }
 
+  final FileDescriptor[] getReceivedFileDescriptors(boolean detach) {
+    return ancillaryDataSupport.getReceivedFileDescriptors(detach);
+  }
+
   final void clearReceivedFileDescriptors() {
     ancillaryDataSupport.clearReceivedFileDescriptors();
   }
@@ -144,6 +144,10 @@ final class AncillaryDataSupport implements Closeable {
   }
 
   FileDescriptor[] getReceivedFileDescriptors() {
+    return getReceivedFileDescriptors(false);
+  }
+
+  FileDescriptor[] getReceivedFileDescriptors(boolean detach) {
     if (receivedFileDescriptors.isEmpty()) {
       return NO_FILE_DESCRIPTORS;
     }
@@ -165,6 +169,11 @@ final class AncillaryDataSupport implements Closeable {
       System.arraycopy(fds, 0, oneArray, offset, fds.length);
       offset += fds.length;
     }
+    if (detach) {
+      for (FileDescriptor fd : oneArray) {
+        openReceivedFileDescriptors.remove(fd);
+      }
+    }
     return oneArray;
   }
 
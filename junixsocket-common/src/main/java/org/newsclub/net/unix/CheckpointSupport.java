@@ -0,0 +1,371 @@
+/*
+ * junixsocket
+ *
+ * Copyright 2009-2026 Christian Kohlschütter
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.newsclub.net.unix;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+
+import com.kohlschutter.annotations.compiletime.SuppressFBWarnings;
+
+/**
+ * Coordinated Restore at Checkpoint (CRaC) support.
+ *
+ * If the {@code org.crac} (or {@code jdk.crac}) API is available at runtime, a single global
+ * resource is registered with it, which notifies all registered {@link Participant}s. The API is
+ * accessed via reflection, so there is no compile- or runtime dependency on CRaC.
+ *
+ * Upon checkpoint, connected sockets (including socket pairs and sockets obtained from file
+ * descriptors) and datagram sockets are closed, and listening server sockets and selector wakeup
+ * pipes are closed and then recreated (and re-bound) upon restore. Threads blocked in
+ * {@code accept} or {@code select} wait until the restore has completed.
+ *
+ * Resources that cannot be released and recreated transparently, such as open junixsocket-memory
+ * {@code SharedMemory} objects (and the futexes/mutexes that live in them), block checkpoints: as
+ * long as such a resource is open, a checkpoint attempt fails with an {@link IOException} naming
+ * it, before any other resource is released.
+ *
+ * CRaC integration can be disabled by setting the system property
+ * {@code org.newsclub.net.unix.crac} to {@code false}.
+ *
+ * @author Christian Kohlschütter
+ */
+final class CheckpointSupport {
+  private static final String PROP_CRAC = "org.newsclub.net.unix.crac";
+
+  private static final WeakRegistry<Participant, Boolean> PARTICIPANTS = new WeakRegistry<>();
+
+  private static final WeakRegistry<Object, String> BLOCKERS = new WeakRegistry<>();
+
+  /**
+   * The registered CRaC resource; CRaC only keeps weak references, so we must keep it here.
+   */
+  @SuppressWarnings("unused")
+  private static final Object RESOURCE = Boolean.parseBoolean(System.getProperty(PROP_CRAC,
+      "true")) ? registerResource() : null;
+
+  private static final boolean ENABLED = RESOURCE != null;
+
+  private static volatile CountDownLatch restoreLatch = null;
+
+  /**
+   * Something that needs to be notified upon checkpoint and restore.
+   */
+  interface Participant {
+    /**
+     * Called before a checkpoint is taken.
+     *
+     * @throws IOException on error.
+     */
+    void beforeCheckpoint() throws IOException;
+
+    /**
+     * Called after the checkpoint was restored (or after the checkpoint attempt failed).
+     *
+     * @throws IOException on error.
+     */
+    void afterRestore() throws IOException;
+  }
+
+  private CheckpointSupport() {
+    throw new IllegalStateException("No instances");
+  }
+
+  @SuppressWarnings("PMD.AvoidCatchingThrowable")
+  private static Object registerResource() {
+    for (String pkg : new String[] {"org.crac", "jdk.crac"}) {
+      try {
+        Class<?> coreClass = Class.forName(pkg + ".Core");
+        Class<?> contextClass = Class.forName(pkg + ".Context");
+        Class<?> resourceClass = Class.forName(pkg + ".Resource");
+
+        Object context = coreClass.getMethod("getGlobalContext").invoke(null);
+        Object resource = Proxy.newProxyInstance(CheckpointSupport.class.getClassLoader(),
+            new Class<?>[] {resourceClass}, new ResourceInvocationHandler());
+        contextClass.getMethod("register", resourceClass).invoke(context, resource);
+        return resource;
+      } catch (ClassNotFoundException | NoSuchMethodException | IllegalAccessException
+          | InvocationTargetException | LinkageError | RuntimeException e) {
+        // not available; try next
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Checks if CRaC support is enabled (i.e., the CRaC API is available, and integration has not
+   * been disabled).
+   *
+   * @return {@code true} if enabled.
+   */
+  static boolean isEnabled() {
+    return ENABLED;
+  }
+
+  /**
+   * Registers a participant, which will be notified as long as it is strongly referenced elsewhere.
+   * Does nothing if CRaC support is not enabled.
+   *
+   * @param participant The participant.
+   */
+  static void register(Participant participant) {
+    if (ENABLED) {
+      PARTICIPANTS.put(participant, Boolean.TRUE);
+    }
+  }
+
+  /**
+   * Unregisters a participant.
+   *
+   * @param participant The participant.
+   */
+  static void unregister(Participant participant) {
+    if (ENABLED) {
+      PARTICIPANTS.remove(participant);
+    }
+  }
+
+  /**
+   * Marks the given resource as blocking checkpoints, until it is unblocked via
+   * {@link #unblockCheckpoints(Object)} (or no longer strongly referenced elsewhere). Does nothing
+   * if CRaC support is not enabled.
+   *
+   * @param resource The resource.
+   * @param description A description of the resource, used in the error message.
+   */
+  static void blockCheckpoints(Object resource, String description) {
+    if (ENABLED) {
+      BLOCKERS.put(resource, description);
+    }
+  }
+
+  /**
+   * Removes a checkpoint block previously set via {@link #blockCheckpoints(Object, String)}.
+   *
+   * @param resource The resource.
+   */
+  static void unblockCheckpoints(Object resource) {
+    if (ENABLED) {
+      BLOCKERS.remove(resource);
+    }
+  }
+
+  /**
+   * Checks if a checkpoint is currently in progress (i.e., resources have been released, but not
+   * yet restored).
+   *
+   * @return {@code true} if so.
+   */
+  static boolean isCheckpointing() {
+    return restoreLatch != null;
+  }
+
+  /**
+   * Waits until the current checkpoint (if any) has been restored.
+   *
+   * @return {@code true} if we had to wait, {@code false} if no checkpoint was in progress.
+   * @throws InterruptedIOException if interrupted while waiting.
+   */
+  static boolean awaitRestore() throws InterruptedIOException {
+    CountDownLatch latch = restoreLatch;
+    if (latch == null) {
+      return false;
+    }
+    try {
+      latch.await();
+    } catch (InterruptedException e) {
+      throw (InterruptedIOException) new InterruptedIOException("Interrupted while waiting for "
+          + "checkpoint restore").initCause(e);
+    }
+    return true;
+  }
+
+  private static List<Participant> participants() {
+    return PARTICIPANTS.keys();
+  }
+
+  static synchronized void beforeCheckpoint() throws IOException {
+    List<String> blockers = BLOCKERS.values();
+    if (!blockers.isEmpty()) {
+      // refuse before releasing anything, so the failed attempt leaves everything intact
+      throw new IOException("Cannot checkpoint while the following resources are open: "
+          + blockers);
+    }
+
+    if (restoreLatch == null) {
+      restoreLatch = new CountDownLatch(1);
+    }
+
+    IOException ex = null;
+    for (Participant p : participants()) {
+      try {
+        p.beforeCheckpoint();
+      } catch (IOException e) {
+        if (ex == null) {
+          ex = e;
+        } else {
+          ex.addSuppressed(e);
+        }
+      }
+    }
+    if (ex != null) {
+      throw ex;
+    }
+  }
+
+  static synchronized void afterRestore() throws IOException {
+    // we may have been restored on a different machine/kernel
+    AFSocket.resetCapabilities();
+
+    IOException ex = null;
+    try {
+      for (Participant p : participants()) {
+        try {
+          p.afterRestore();
+        } catch (IOException e) {
+          if (ex == null) {
+            ex = e;
+          } else {
+            ex.addSuppressed(e);
+          }
+        }
+      }
+    } finally {
+      CountDownLatch latch = restoreLatch;
+      restoreLatch = null;
+      if (latch != null) {
+        latch.countDown();
+      }
+    }
+    if (ex != null) {
+      throw ex;
+    }
+  }
+
+  /**
+   * A concurrent map with weakly referenced keys, compared by identity.
+   *
+   * Unlike a synchronized {@link java.util.WeakHashMap}, registering and unregistering (which
+   * happens whenever a socket is created or closed) does not contend on a global lock. Entries
+   * whose keys have been garbage-collected are expunged upon the next modification.
+   *
+   * @param <K> The key type.
+   * @param <V> The value type.
+   */
+  private static final class WeakRegistry<K, V> {
+    private final ConcurrentHashMap<Key<K>, V> map = new ConcurrentHashMap<>();
+    private final ReferenceQueue<K> queue = new ReferenceQueue<>();
+
+    private static final class Key<K> extends WeakReference<K> {
+      private final int hash;
+
+      Key(K referent, ReferenceQueue<? super K> queue) {
+        super(referent, queue);
+        this.hash = System.identityHashCode(referent);
+      }
+
+      @Override
+      public int hashCode() {
+        return hash;
+      }
+
+      @Override
+      public boolean equals(Object obj) {
+        if (obj == this) { // NOPMD.CompareObjectsWithEquals
+          return true;
+        } else if (!(obj instanceof Key)) {
+          return false;
+        }
+        Object referent = get();
+        return referent != null && referent == ((Key<?>) obj).get(); // NOPMD.CompareObjectsWithEquals
+      }
+    }
+
+    void put(K key, V value) {
+      expunge();
+      map.put(new Key<>(key, queue), value);
+    }
+
+    void remove(K key) {
+      expunge();
+      map.remove(new Key<>(key, null));
+    }
+
+    List<K> keys() {
+      List<K> list = new ArrayList<>(map.size());
+      for (Key<K> k : map.keySet()) {
+        K referent = k.get();
+        if (referent != null) {
+          list.add(referent);
+        }
+      }
+      return list;
+    }
+
+    List<V> values() {
+      List<V> list = new ArrayList<>(map.size());
+      for (Map.Entry<Key<K>, V> en : map.entrySet()) {
+        if (en.getKey().get() != null) {
+          list.add(en.getValue());
+        }
+      }
+      return list;
+    }
+
+    private void expunge() {
+      Reference<? extends K> ref;
+      while ((ref = queue.poll()) != null) {
+        map.remove(ref);
+      }
+    }
+  }
+
+  private static final class ResourceInvocationHandler implements InvocationHandler {
+    @Override
+    @SuppressFBWarnings("THROWS_METHOD_THROWS_CLAUSE_THROWABLE")
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      switch (method.getName()) {
+        case "beforeCheckpoint":
+          beforeCheckpoint();
+          return null;
+        case "afterRestore":
+          afterRestore();
+          return null;
+        case "hashCode":
+          return System.identityHashCode(proxy);
+        case "equals":
+          return proxy == args[0]; // NOPMD.CompareObjectsWithEquals
+        case "toString":
+          return "junixsocket CRaC resource";
+        default:
+          throw new UnsupportedOperationException(method.getName());
+      }
+    }
+  }
+}
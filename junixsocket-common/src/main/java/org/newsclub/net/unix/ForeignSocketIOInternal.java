@@ -0,0 +1,195 @@
+/*
+ * junixsocket
+ *
+ * Copyright 2009-2026 Christian Kohlschütter
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.newsclub.net.unix;
+
+import java.io.FileDescriptor;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.net.SocketException;
+import java.nio.ByteBuffer;
+
+/**
+ * Internal class, to be used by junixsocket-memory only.
+ *
+ * An optional, Foreign Function and Memory-based implementation of the hot-path socket syscalls.
+ * It is only used for non-blocking stream I/O that needs neither addresses nor ancillary data; all
+ * other operations (and any platform where the implementation is unavailable) use JNI.
+ *
+ * The implementation is selected by setting the system property
+ * {@code org.newsclub.net.unix.io.backend} to {@code ffm}; the default is {@code jni}.
+ *
+ * @author Christian Kohlschütter
+ */
+@SuppressWarnings("doclint")
+public abstract class ForeignSocketIOInternal {
+  private static final String PROP_IO_BACKEND = "org.newsclub.net.unix.io.backend";
+  private static final String FFM_IMPL_CLASS = "org.newsclub.net.unix.memory.ForeignSocketIO";
+
+  static final ForeignSocketIOInternal INSTANCE = init();
+
+  /**
+   * Classification of the errno values the I/O layer needs to tell apart.
+   */
+  public enum ErrorKind {
+    WOULD_BLOCK, INTERRUPTED, BROKEN_PIPE, CONNECTION_RESET, NOT_CONNECTED, BAD_FILE_DESCRIPTOR,
+    OTHER
+  }
+
+  protected ForeignSocketIOInternal() {
+  }
+
+  @SuppressWarnings("PMD.AvoidCatchingThrowable")
+  private static ForeignSocketIOInternal init() {
+    if (!"ffm".equals(System.getProperty(PROP_IO_BACKEND, "jni"))) {
+      return null;
+    }
+    try {
+      ForeignSocketIOInternal impl = (ForeignSocketIOInternal) Class.forName(FFM_IMPL_CLASS)
+          .getConstructor().newInstance();
+      return impl.isAvailable() ? impl : null;
+    } catch (ClassNotFoundException | InstantiationException | IllegalAccessException
+        | InvocationTargetException | NoSuchMethodException | LinkageError
+        | RuntimeException e) {
+      // junixsocket-memory is not available, or FFM is not supported on this platform/VM
+      return null;
+    }
+  }
+
+  /**
+   * Checks whether the FFM-based implementation is used for eligible operations.
+   *
+   * @return {@code true} if active.
+   */
+  public static boolean isActive() {
+    return INSTANCE != null;
+  }
+
+  /**
+   * Checks if this implementation can be used on the current platform.
+   *
+   * @return {@code true} if usable.
+   */
+  protected abstract boolean isAvailable();
+
+  /**
+   * Calls {@code recv(2)} with {@code MSG_DONTWAIT}, reading into the given buffer, starting at its
+   * current position. The buffer's position is not modified.
+   *
+   * @param fd The native file descriptor.
+   * @param buf The target buffer (direct or heap).
+   * @param length The maximum number of bytes to read.
+   * @return The number of bytes read, or the negated errno value upon error.
+   */
+  protected abstract int recv(int fd, ByteBuffer buf, int length);
+
+  /**
+   * Calls {@code send(2)} with {@code MSG_DONTWAIT | MSG_NOSIGNAL}, writing from the given buffer,
+   * starting at its current position. The buffer's position is not modified.
+   *
+   * @param fd The native file descriptor.
+   * @param buf The source buffer (direct or heap).
+   * @param length The maximum number of bytes to write.
+   * @return The number of bytes written, or the negated errno value upon error.
+   */
+  protected abstract int send(int fd, ByteBuffer buf, int length);
+
+  /**
+   * Classifies the given errno value.
+   *
+   * @param errno The errno value.
+   * @return The classification.
+   */
+  protected abstract ErrorKind errorKind(int errno);
+
+  /**
+   * Returns a human-readable message for the given errno value.
+   *
+   * @param errno The errno value.
+   * @return The message.
+   */
+  protected abstract String errorMessage(int errno);
+
+  /**
+   * Receives from a non-blocking stream socket, using the same return value conventions as
+   * {@link NativeUnixSocket#receive(FileDescriptor, ByteBuffer, int, int, ByteBuffer, int, AncillaryDataSupport, int)}.
+   *
+   * @param core The socket core (its file descriptor is closed upon fatal errors, like with JNI).
+   * @param fd The native file descriptor.
+   * @param buf The target buffer.
+   * @param length The maximum number of bytes to read.
+   * @return The number of bytes read, 0 if no data is available, -1 upon EOF.
+   * @throws IOException on error.
+   */
+  final int receive(AFCore core, int fd, ByteBuffer buf, int length) throws IOException {
+    int count = recv(fd, buf, length);
+    if (count > 0) {
+      return count;
+    } else if (count == 0) {
+      return -1; // EOF
+    } else {
+      return handleError(core, -count);
+    }
+  }
+
+  /**
+   * Sends to a non-blocking stream socket, using the same return value conventions as
+   * {@link NativeUnixSocket#send(FileDescriptor, ByteBuffer, int, int, ByteBuffer, int, int, AncillaryDataSupport)}.
+   *
+   * @param core The socket core (its file descriptor is closed upon fatal errors, like with JNI).
+   * @param fd The native file descriptor.
+   * @param buf The source buffer.
+   * @param length The maximum number of bytes to write.
+   * @return The number of bytes written, or 0 if the send buffer is full.
+   * @throws IOException on error.
+   */
+  final int send(AFCore core, int fd, ByteBuffer buf, int length) throws IOException {
+    int count = send(fd, buf, length);
+    if (count >= 0) {
+      return count;
+    } else {
+      return handleError(core, -count);
+    }
+  }
+
+  private int handleError(AFCore core, int errno) throws IOException {
+    ErrorKind kind = errorKind(errno);
+    switch (kind) {
+      case WOULD_BLOCK:
+      case INTERRUPTED:
+        return 0;
+      case OTHER:
+        throw new SocketException(errorMessage(errno));
+      default:
+        break;
+    }
+
+    // same as JNI: close the socket so Socket#isClosed returns true (once no longer in use)
+    core.closeAfterForeignIO();
+    String message = errorMessage(errno);
+    switch (kind) {
+      case BROKEN_PIPE:
+        throw new BrokenPipeSocketException(message);
+      case CONNECTION_RESET:
+        throw new ConnectionResetSocketException(message);
+      case NOT_CONNECTED:
+        throw new NotConnectedSocketException(message);
+      default:
+        throw new SocketException(message);
+    }
+  }
+}
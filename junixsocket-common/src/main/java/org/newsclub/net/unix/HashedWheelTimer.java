@@ -0,0 +1,370 @@
+/*
+ * junixsocket
+ *
+ * Copyright 2009-2026 Christian Kohlschütter
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.newsclub.net.unix;
+
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * A hashed-wheel timer for managing large numbers of (mostly cancelled) timeouts with low
+ * overhead.
+ * <p>
+ * Scheduling and cancelling a timeout are O(1) operations. All timeouts are managed by a single
+ * daemon thread, which is only started upon first use, and which only wakes up when there is a
+ * chance that a timeout expires (i.e., there is no periodic polling while the timer is idle).
+ * <p>
+ * Expired tasks are run directly on the timer thread, and should therefore complete quickly (e.g.,
+ * unpark a thread, or hand off the work to another executor).
+ * <p>
+ * Timeouts are rounded up to the tick duration (by default, 1 millisecond); they never expire
+ * early.
+ *
+ * @author Christian Kohlschütter
+ */
+public final class HashedWheelTimer {
+  private static final long DEFAULT_TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+  private static final int DEFAULT_WHEEL_SIZE = 4096;
+
+  private static final long WAKEUP_AWAKE = Long.MIN_VALUE;
+  private static final long WAKEUP_IDLE = Long.MAX_VALUE;
+
+  private final String threadName;
+  private final long tickNanos;
+  private final Bucket[] wheel;
+  private final int mask;
+  private final long startTime;
+
+  private final Queue<Timeout<?>> incoming = new ConcurrentLinkedQueue<>();
+  private final Queue<Timeout<?>> cancelled = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger pending = new AtomicInteger();
+
+  private final Object threadLock = new Object();
+  private volatile @Nullable Thread thread;
+  private volatile long plannedWakeup = WAKEUP_IDLE;
+
+  private long processedTick = 0; // only accessed from timer thread
+
+  /**
+   * Creates a new {@link HashedWheelTimer} with a default tick duration of 1 millisecond and a
+   * wheel size of 4096 buckets.
+   *
+   * @param threadName The name of the timer thread.
+   */
+  public HashedWheelTimer(String threadName) {
+    this(threadName, DEFAULT_TICK_NANOS, TimeUnit.NANOSECONDS, DEFAULT_WHEEL_SIZE);
+  }
+
+  /**
+   * Creates a new {@link HashedWheelTimer}.
+   *
+   * @param threadName The name of the timer thread.
+   * @param tickDuration The duration of one tick (the timer's precision).
+   * @param unit The unit of {@code tickDuration}.
+   * @param wheelSize The number of buckets in the wheel (rounded up to the next power of two).
+   */
+  public HashedWheelTimer(String threadName, long tickDuration, TimeUnit unit, int wheelSize) {
+    this.threadName = Objects.requireNonNull(threadName);
+    this.tickNanos = unit.toNanos(tickDuration);
+    if (tickNanos <= 0) {
+      throw new IllegalArgumentException("tickDuration");
+    }
+    if (wheelSize <= 0 || wheelSize > (1 << 24)) {
+      throw new IllegalArgumentException("wheelSize");
+    }
+    int size = Integer.highestOneBit(wheelSize);
+    if (size < wheelSize) {
+      size <<= 1;
+    }
+    this.wheel = new Bucket[size];
+    for (int i = 0; i < size; i++) {
+      wheel[i] = new Bucket();
+    }
+    this.mask = size - 1;
+    this.startTime = System.nanoTime();
+  }
+
+  /**
+   * Schedules the given task to be run after the given delay.
+   *
+   * @param task The task.
+   * @param delay The delay.
+   * @param unit The unit of {@code delay}.
+   * @return A future that can be used to cancel the task.
+   */
+  public ScheduledFuture<?> schedule(Runnable task, long delay, TimeUnit unit) {
+    return schedule(new Timeout<Void>(task, deadline(delay, unit)));
+  }
+
+  /**
+   * Schedules the given task to be run after the given delay.
+   *
+   * @param <V> The result type.
+   * @param task The task.
+   * @param delay The delay.
+   * @param unit The unit of {@code delay}.
+   * @return A future that can be used to cancel the task, and to retrieve its result.
+   */
+  public <V> ScheduledFuture<V> schedule(Callable<V> task, long delay, TimeUnit unit) {
+    return schedule(new Timeout<V>(task, deadline(delay, unit)));
+  }
+
+  /**
+   * Returns the number of pending timeouts (approximately; includes recently cancelled timeouts
+   * that have not been purged yet).
+   *
+   * @return The number of pending timeouts.
+   */
+  public int getPendingCount() {
+    return pending.get();
+  }
+
+  private static long deadline(long delay, TimeUnit unit) {
+    long delayNanos = unit.toNanos(Math.max(0, delay));
+    long deadline = System.nanoTime() + delayNanos;
+    if (deadline - System.nanoTime() < 0) {
+      // overflow
+      deadline = System.nanoTime() + (Long.MAX_VALUE >> 1);
+    }
+    return deadline;
+  }
+
+  private <V> Timeout<V> schedule(Timeout<V> timeout) {
+    pending.incrementAndGet();
+    incoming.add(timeout);
+    Thread t = ensureThreadStarted();
+    long planned = plannedWakeup;
+    if (planned == WAKEUP_IDLE || (planned != WAKEUP_AWAKE && timeout.deadline - planned < 0)) {
+      LockSupport.unpark(t);
+    }
+    return timeout;
+  }
+
+  private Thread ensureThreadStarted() {
+    Thread t = thread;
+    if (t == null) {
+      synchronized (threadLock) {
+        t = thread;
+        if (t == null) {
+          t = new Thread(this::run, threadName);
+          t.setDaemon(true);
+          thread = t;
+          t.start();
+        }
+      }
+    }
+    return t;
+  }
+
+  private long currentTick() {
+    return (System.nanoTime() - startTime) / tickNanos;
+  }
+
+  private long tickOf(long deadline) {
+    long d = deadline - startTime;
+    long tick = d / tickNanos;
+    if (tick * tickNanos < d) {
+      tick++;
+    }
+    return tick;
+  }
+
+  @SuppressWarnings("InfiniteLoopStatement")
+  private void run() {
+    while (true) { // NOPMD.WhileLoopWithLiteralBoolean
+      transferIncoming();
+      purgeCancelled();
+      expireTimeouts();
+
+      long wakeupTick = nextNonEmptyTick();
+      long wakeup = wakeupTick == -1 ? WAKEUP_IDLE : startTime + wakeupTick * tickNanos;
+      plannedWakeup = wakeup;
+      if (!incoming.isEmpty()) {
+        // raced with schedule; process the new timeouts first
+        plannedWakeup = WAKEUP_AWAKE;
+        continue;
+      }
+
+      if (wakeup == WAKEUP_IDLE) {
+        LockSupport.park(this);
+      } else {
+        long sleepNanos = wakeup - System.nanoTime();
+        if (sleepNanos > 0) {
+          LockSupport.parkNanos(this, sleepNanos);
+        }
+      }
+      plannedWakeup = WAKEUP_AWAKE; // no need to unpark us while we're processing
+      Thread.interrupted(); // clear
+    }
+  }
+
+  private void transferIncoming() {
+    Timeout<?> t;
+    while ((t = incoming.poll()) != null) {
+      if (t.isCancelled()) {
+        pending.decrementAndGet();
+        continue;
+      }
+      long tick = Math.max(processedTick, tickOf(t.deadline));
+      wheel[(int) (tick & mask)].add(t);
+    }
+  }
+
+  private void purgeCancelled() {
+    Timeout<?> t;
+    while ((t = cancelled.poll()) != null) {
+      if (t.bucket != null) {
+        t.bucket.remove(t);
+        pending.decrementAndGet();
+      }
+    }
+  }
+
+  private void expireTimeouts() {
+    long now = System.nanoTime();
+    long current = currentTick();
+    if (current < processedTick) {
+      return;
+    }
+    long numTicks = Math.min(current - processedTick + 1, wheel.length);
+    long first = current - numTicks + 1;
+    for (long tick = first; tick <= current; tick++) {
+      Bucket bucket = wheel[(int) (tick & mask)];
+      Timeout<?> t = bucket.head;
+      while (t != null) {
+        Timeout<?> next = t.next;
+        if (t.deadline - now <= 0) {
+          bucket.remove(t);
+          pending.decrementAndGet();
+          t.run();
+        }
+        t = next;
+      }
+    }
+    processedTick = current + 1;
+  }
+
+  private long nextNonEmptyTick() {
+    for (int i = 0; i < wheel.length; i++) {
+      long tick = processedTick + i;
+      Bucket bucket = wheel[(int) (tick & mask)];
+      if (bucket.head != null) {
+        return tick;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * A doubly-linked list of timeouts; only accessed from the timer thread.
+   */
+  private static final class Bucket {
+    private @Nullable Timeout<?> head;
+    private @Nullable Timeout<?> tail;
+
+    void add(Timeout<?> t) {
+      t.bucket = this;
+      t.prev = tail;
+      t.next = null;
+      if (tail == null) {
+        head = t;
+      } else {
+        tail.next = t;
+      }
+      tail = t;
+    }
+
+    void remove(Timeout<?> t) {
+      Timeout<?> prev = t.prev;
+      Timeout<?> next = t.next;
+      if (prev == null) {
+        head = next;
+      } else {
+        prev.next = next;
+      }
+      if (next == null) {
+        tail = prev;
+      } else {
+        next.prev = prev;
+      }
+      t.prev = null;
+      t.next = null;
+      t.bucket = null;
+    }
+  }
+
+  private final class Timeout<V> extends FutureTask<V> implements ScheduledFuture<V> {
+    private final long deadline;
+
+    // only accessed from timer thread
+    private @Nullable Bucket bucket;
+    private @Nullable Timeout<?> prev;
+    private @Nullable Timeout<?> next;
+
+    Timeout(Callable<V> callable, long deadline) {
+      super(callable);
+      this.deadline = deadline;
+    }
+
+    Timeout(Runnable runnable, long deadline) {
+      super(runnable, null);
+      this.deadline = deadline;
+    }
+
+    @Override
+    public long getDelay(TimeUnit unit) {
+      return unit.convert(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public int compareTo(Delayed o) {
+      if (o == this) { // NOPMD.CompareObjectsWithEquals
+        return 0;
+      }
+      return Long.compare(getDelay(TimeUnit.NANOSECONDS), o.getDelay(TimeUnit.NANOSECONDS));
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+      boolean success = super.cancel(mayInterruptIfRunning);
+      if (success) {
+        cancelled.add(this);
+      }
+      return success;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      return this == obj; // NOPMD.CompareObjectsWithEquals
+    }
+
+    @Override
+    public int hashCode() {
+      return System.identityHashCode(this);
+    }
+  }
+}
@@ -54,6 +54,10 @@ final class Java7Util {
     return Executors.newWorkStealingPool();
   }
 
+  static void onSpinWait() {
+    Thread.onSpinWait();
+  }
+
   @SuppressWarnings("deprecation")
   @SuppressForbidden
   static int getJavaFeatureVersion() {
@@ -150,6 +150,14 @@ public final class MemoryImplUtilInternal {
     return NativeUnixSocket.sizeOfSharedMemory(fd);
   }
 
+  public void blockCheckpoints(Object resource, String description) {
+    CheckpointSupport.blockCheckpoints(resource, description);
+  }
+
+  public void unblockCheckpoints(Object resource) {
+    CheckpointSupport.unblockCheckpoints(resource);
+  }
+
   public boolean futexIsInterProcess() {
     return FUTEX_INTER_PROCESS;
   }
@@ -0,0 +1,81 @@
+/*
+ * junixsocket
+ *
+ * Copyright 2009-2026 Christian Kohlschütter
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.newsclub.net.unix;
+
+import java.nio.ByteBuffer;
+
+import org.newsclub.net.unix.pool.ObjectPool;
+import org.newsclub.net.unix.pool.ObjectPool.Lease;
+import org.newsclub.net.unix.pool.StripedObjectPool;
+
+/**
+ * Pools direct {@link ByteBuffer}s for whole-message reception, grouped into power-of-two size
+ * classes. Leased buffers have their limit set to the exact requested size.
+ *
+ * @author Christian Kohlschütter
+ */
+final class MessageBufferPool {
+  private static final int MIN_SHIFT = 8; // 256 bytes
+  private static final int MAX_SHIFT = 18; // 256 kB; larger buffers are not pooled
+  private static final int SLOTS_PER_STRIPE = 2;
+
+  private static final ObjectPool<ByteBuffer>[] POOLS = initPools();
+
+  private MessageBufferPool() {
+    throw new IllegalStateException("No instances");
+  }
+
+  @SuppressWarnings("unchecked")
+  private static ObjectPool<ByteBuffer>[] initPools() {
+    ObjectPool<ByteBuffer>[] pools =
+        (ObjectPool<ByteBuffer>[]) new ObjectPool<?>[MAX_SHIFT - MIN_SHIFT + 1];
+    int stripes = Runtime.getRuntime().availableProcessors();
+    for (int i = 0; i < pools.length; i++) {
+      final int capacity = 1 << (MIN_SHIFT + i);
+      pools[i] = new StripedObjectPool<>(() -> ByteBuffer.allocateDirect(capacity), (buf) -> {
+        buf.clear();
+        return true;
+      }, stripes, SLOTS_PER_STRIPE);
+    }
+    return pools;
+  }
+
+  /**
+   * Takes a buffer from the pool that can hold at least {@code size} bytes. The buffer's position
+   * is {@code 0}, and its limit is {@code size}.
+   *
+   * @param size The required size, in bytes.
+   * @return The lease for the buffer.
+   */
+  static Lease<ByteBuffer> take(int size) {
+    if (size < 0) {
+      throw new IllegalArgumentException("size");
+    }
+    Lease<ByteBuffer> lease;
+    if (size > (1 << MAX_SHIFT)) {
+      lease = ObjectPool.unpooledLease(ByteBuffer.allocateDirect(size));
+    } else {
+      int shift = size <= 1 ? 0 : 32 - Integer.numberOfLeadingZeros(size - 1);
+      lease = POOLS[Math.max(0, shift - MIN_SHIFT)].take();
+    }
+    ByteBuffer buf = lease.get();
+    buf.clear();
+    buf.limit(size);
+    return lease;
+  }
+}
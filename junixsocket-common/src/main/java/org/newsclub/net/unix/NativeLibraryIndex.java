@@ -0,0 +1,286 @@
+/*
+ * junixsocket
+ *
+ * Copyright 2009-2026 Christian Kohlschütter
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.newsclub.net.unix;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Properties;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * An index of the native library candidates available on the classpath.
+ *
+ * Finding these candidates involves probing a couple dozen resource paths per artifact, reading
+ * {@code pom.properties} files, etc. This class does all of that in its static initializer, without
+ * touching any JNI code or runtime-specific state (such as the temporary directory). This allows
+ * GraalVM native-image to initialize it at image build time (see {@code native-image.properties}),
+ * so a native executable starts with a precomputed index in its image heap.
+ * <p>
+ * Only this lookup is precomputed. Address family registries, sockaddr and constant tables, and
+ * the JNI class/method lookups all depend on the native library loaded into the running process,
+ * and are therefore still initialized at runtime.
+ *
+ * @author Christian Kohlschütter
+ */
+final class NativeLibraryIndex {
+  static final String LIBRARY_NAME = "junixsocket-native";
+
+  static final String OS_NAME_SIMPLIFIED = lookupArchProperty("os.name", "UnknownOS");
+  static final boolean IS_ANDROID = checkAndroid();
+  static final List<String> ARCHITECTURE_AND_OS = architectureAndOS();
+
+  private static final String[] PROVIDERS = {
+      "org.newsclub.lib.junixsocket.custom.NarMetadata", "junixsocket-native-custom", //
+      "org.newsclub.lib.junixsocket.common.NarMetadata", "junixsocket-native-common", //
+  };
+
+  private static final NativeLibraryIndex INSTANCE = new NativeLibraryIndex();
+
+  private final @Nullable String commonVersion;
+  private final List<Entry> entries;
+  private final List<Throwable> errors;
+
+  /**
+   * A native library found on the classpath.
+   */
+  static final class Entry {
+    final String providerClassname;
+    final String artifactName;
+    final String libraryNameAndVersion;
+    final String path;
+
+    Entry(String providerClassname, String artifactName, String libraryNameAndVersion,
+        String path) {
+      this.providerClassname = providerClassname;
+      this.artifactName = artifactName;
+      this.libraryNameAndVersion = libraryNameAndVersion;
+      this.path = path;
+    }
+
+    /**
+     * Resolves the resource URL of this library.
+     *
+     * @return The URL, or {@code null} if not found.
+     * @throws ClassNotFoundException if the provider class is no longer available.
+     */
+    @Nullable
+    URL resolve() throws ClassNotFoundException {
+      return providerClass(providerClassname).getResource(path);
+    }
+  }
+
+  private NativeLibraryIndex() {
+    List<Throwable> errorList = new ArrayList<>();
+
+    String version = null;
+    try {
+      version = getArtifactVersion(NativeLibraryIndex.class, "junixsocket-common",
+          "junixsocket-core");
+    } catch (Exception e) {
+      errorList.add(e);
+    }
+    this.commonVersion = version;
+
+    List<Entry> list = new ArrayList<>();
+    for (int i = 0; i < PROVIDERS.length; i += 2) {
+      String providerClassname = PROVIDERS[i];
+      String artifactName = PROVIDERS[i + 1];
+      try {
+        Class<?> providerClass = providerClass(providerClassname);
+        String libraryNameAndVersion = LIBRARY_NAME + "-" + getArtifactVersion(providerClass,
+            artifactName);
+        findLibraries(list, providerClass, artifactName, libraryNameAndVersion);
+      } catch (Exception e) {
+        errorList.add(e);
+      }
+    }
+
+    this.entries = Collections.unmodifiableList(list);
+    this.errors = Collections.unmodifiableList(errorList);
+  }
+
+  static NativeLibraryIndex getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Returns the version of junixsocket-common, as found in its {@code pom.properties}.
+   *
+   * @return The version, or {@code null} if unknown.
+   */
+  @Nullable
+  String getCommonVersion() {
+    return commonVersion;
+  }
+
+  /**
+   * Returns the native libraries found on the classpath, in the order they should be tried.
+   *
+   * @return The list of entries.
+   */
+  List<Entry> getEntries() {
+    return entries;
+  }
+
+  /**
+   * Returns the errors that occurred while building the index (e.g., a missing provider artifact).
+   *
+   * @return The list of errors.
+   */
+  List<Throwable> getErrors() {
+    return errors;
+  }
+
+  private static Class<?> providerClass(String providerClassname) throws ClassNotFoundException {
+    // don't initialize the class; we only need it to find resources
+    return Class.forName(providerClassname, false, NativeLibraryIndex.class.getClassLoader());
+  }
+
+  static String getArtifactVersion(Class<?> providerClass, String... artifactNames)
+      throws IOException {
+    for (String artifactName : artifactNames) {
+      Properties p = new Properties();
+      String resource = "/META-INF/maven/com.kohlschutter.junixsocket/" + artifactName
+          + "/pom.properties";
+      try (InputStream in = providerClass.getResourceAsStream(resource)) {
+        if (in == null) {
+          throw new FileNotFoundException("Could not find resource " + resource + " relative to "
+              + providerClass);
+        }
+        p.load(in);
+        String version = p.getProperty("version");
+
+        Objects.requireNonNull(version, "Could not read version from pom.properties");
+        return version;
+      }
+    }
+    throw new IllegalStateException("No artifact names specified");
+  }
+
+  private static void findLibraries(List<Entry> list, Class<?> providerClass, String artifactName,
+      String libraryNameAndVersion) {
+    String mappedName = mapLibraryName(libraryNameAndVersion);
+
+    String[] prefixes = mappedName.startsWith("lib") ? new String[] {""} : new String[] {"", "lib"};
+
+    String providerClassname = providerClass.getName();
+    for (String archOs : ARCHITECTURE_AND_OS) {
+      for (String compiler : new String[] {"clang", "gcc"
+          // "gpp", "g++", "linker", "clang", "gcc", "cc", "CC", "icpc", "icc", "xlC", "xlC_r",
+          // "msvc",
+          // "icl", "ecpc", "ecc"
+      }) {
+        for (String prefix : prefixes) {
+          String path = "/lib/" + archOs + "-" + compiler + "/jni/" + prefix + mappedName;
+
+          if (isValidResource(providerClass.getResource(path))) {
+            list.add(new Entry(providerClassname, artifactName, libraryNameAndVersion, path));
+          }
+
+          // NOTE: we have to try .nodeps version _after_ trying the properly linked one.
+          // While the former may throw an UnsatisfiedLinkError, this one may just terminate the VM
+          // with a "symbol lookup error"
+          String nodepsPath = nodepsPath(path);
+          if (nodepsPath != null && isValidResource(providerClass.getResource(nodepsPath))) {
+            list.add(new Entry(providerClassname, artifactName, libraryNameAndVersion,
+                nodepsPath));
+          }
+        }
+      }
+    }
+  }
+
+  private static boolean isValidResource(URL url) {
+    if (url == null) {
+      return false;
+    }
+    try (InputStream unused = url.openStream()) {
+      return true;
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  private static String nodepsPath(String path) {
+    int lastDot = path.lastIndexOf('.');
+    if (lastDot == -1) {
+      return null;
+    } else {
+      return path.substring(0, lastDot) + ".nodeps" + path.substring(lastDot);
+    }
+  }
+
+  static String mapLibraryName(String libraryNameAndVersion) {
+    String mappedName = System.mapLibraryName(libraryNameAndVersion);
+    if (mappedName.endsWith(".so")) {
+      // https://github.com/eclipse-openj9/openj9/issues/9788
+      // Many thanks to Fabrice Bourquin for finding this issue!
+      switch (OS_NAME_SIMPLIFIED) {
+        case "AIX":
+          mappedName = mappedName.substring(0, mappedName.length() - 3) + ".a";
+          break;
+        case "OS400":
+          mappedName = mappedName.substring(0, mappedName.length() - 3) + ".srvpgm";
+          break;
+        default:
+          break;
+      }
+    }
+    return mappedName;
+  }
+
+  private static String lookupArchProperty(String key, String defaultVal) {
+    return System.getProperty(key, defaultVal).replaceAll("[ /\\\\'\";:\\$]", "");
+  }
+
+  private static List<String> architectureAndOS() {
+    String arch = lookupArchProperty("os.arch", "UnknownArch");
+
+    List<String> list = new ArrayList<>();
+    if (IS_ANDROID) {
+      // Android identifies itself as os.name="Linux"
+      // let's probe for an Android-specific library first
+      list.add(arch + "-Android");
+    }
+    list.add(arch + "-" + OS_NAME_SIMPLIFIED);
+    if (OS_NAME_SIMPLIFIED.startsWith("Windows") && !"Windows10".equals(OS_NAME_SIMPLIFIED)) {
+      list.add(arch + "-" + "Windows10");
+    }
+
+    if ("MacOSX".equals(OS_NAME_SIMPLIFIED) && "x86_64".equals(arch)) {
+      list.add("aarch64-MacOSX"); // Rosetta 2
+    }
+
+    return Collections.unmodifiableList(list);
+  }
+
+  private static boolean checkAndroid() {
+    String vmName = lookupArchProperty("java.vm.name", "UnknownVM");
+    String vmSpecVendor = lookupArchProperty("java.vm.specification.vendor",
+        "UnknownSpecificationVendor");
+
+    return ("Dalvik".equals(vmName) || vmSpecVendor.contains("Android"));
+  }
+}
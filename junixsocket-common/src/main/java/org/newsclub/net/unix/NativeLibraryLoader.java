@@ -19,19 +19,31 @@ package org.newsclub.net.unix;
 
 import java.io.Closeable;
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
+import java.net.JarURLConnection;
 import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.Objects;
-import java.util.Properties;
+import java.util.Locale;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.jar.JarEntry;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
 
 import com.kohlschutter.annotations.compiletime.SuppressFBWarnings;
 
@@ -43,19 +55,26 @@ final class NativeLibraryLoader implements Closeable {
       "org.newsclub.net.unix.library.override.force";
   private static final String PROP_LIBRARY_TMPDIR = "org.newsclub.net.unix.library.tmpdir";
 
-  private static final File TEMP_DIR;
-  private static final String OS_NAME_SIMPLIFIED = lookupArchProperty("os.name", "UnknownOS");
+  /**
+   * Controls the persistent library cache: {@code false} (default) disables
+   * it, {@code true} uses a per-user directory in the temporary directory, {@code memory} uses a
+   * per-user directory on a RAM-backed file system ({@code /dev/shm} on Linux, where available),
+   * and any other value is treated as the path of the cache directory.
+   */
+  private static final String PROP_LIBRARY_CACHE = "org.newsclub.net.unix.library.cache";
 
-  private static final List<String> ARCHITECTURE_AND_OS = architectureAndOS();
-  private static final String LIBRARY_NAME = "junixsocket-native";
+  private static final File TEMP_DIR;
+  private static final File CACHE_DIR;
+  private static final List<String> ARCHITECTURE_AND_OS = NativeLibraryIndex.ARCHITECTURE_AND_OS;
+  private static final String LIBRARY_NAME = NativeLibraryIndex.LIBRARY_NAME;
 
   private static final AtomicBoolean LOADED = new AtomicBoolean(false);
-  private static final boolean IS_ANDROID = checkAndroid();
 
   static {
     String dir = System.getProperty(PROP_LIBRARY_TMPDIR, System.getProperty("java.io.tmpdir",
         null));
     TEMP_DIR = (dir == null) ? null : new File(dir);
+    CACHE_DIR = cacheDir(System.getProperty(PROP_LIBRARY_CACHE, "false"));
   }
 
   NativeLibraryLoader() {
@@ -70,14 +89,38 @@ final class NativeLibraryLoader implements Closeable {
     return TEMP_DIR;
   }
 
-  private List<LibraryCandidate> tryProviderClass(String providerClassname, String artifactName)
-      throws IOException, ClassNotFoundException {
-    Class<?> providerClass = Class.forName(providerClassname);
+  /**
+   * Returns the directory of the persistent library cache, or {@code null} if disabled; debugging
+   * only.
+   *
+   * @return The cache directory, or {@code null}.
+   */
+  static File cacheDir() {
+    return CACHE_DIR;
+  }
 
-    String version = getArtifactVersion(providerClass, artifactName);
-    String libraryNameAndVersion = LIBRARY_NAME + "-" + version;
+  private static File cacheDir(String mode) {
+    String dirName = "junixsocket-" + System.getProperty("user.name", "user").replaceAll(
+        "[^A-Za-z0-9_.-]", "_");
+    switch (mode.toLowerCase(Locale.ENGLISH)) {
+      case "":
+      case "false":
+        return null;
+      case "memory":
+        File shm = new File("/dev/shm");
+        if ("Linux".equals(System.getProperty("os.name")) && shm.isDirectory() && shm.canWrite()) {
+          return new File(shm, dirName);
+        }
+        return tempCacheDir(dirName);
+      case "true":
+        return tempCacheDir(dirName);
+      default:
+        return new File(mode);
+    }
+  }
 
-    return findLibraryCandidates(artifactName, libraryNameAndVersion, providerClass);
+  private static File tempCacheDir(String dirName) {
+    return TEMP_DIR == null ? null : new File(TEMP_DIR, dirName);
   }
 
   public static String getJunixsocketVersion() throws IOException {
@@ -88,28 +131,7 @@ final class NativeLibraryLoader implements Closeable {
       return v;
     }
 
-    return getArtifactVersion(AFSocket.class, "junixsocket-common");
-  }
-
-  private static String getArtifactVersion(Class<?> providerClass, String... artifactNames)
-      throws IOException {
-    for (String artifactName : artifactNames) {
-      Properties p = new Properties();
-      String resource = "/META-INF/maven/com.kohlschutter.junixsocket/" + artifactName
-          + "/pom.properties";
-      try (InputStream in = providerClass.getResourceAsStream(resource)) {
-        if (in == null) {
-          throw new FileNotFoundException("Could not find resource " + resource + " relative to "
-              + providerClass);
-        }
-        p.load(in);
-        String version = p.getProperty("version");
-
-        Objects.requireNonNull(version, "Could not read version from pom.properties");
-        return version;
-      }
-    }
-    throw new IllegalStateException("No artifact names specified");
+    return NativeLibraryIndex.getArtifactVersion(AFSocket.class, "junixsocket-common");
   }
 
   private abstract static class LibraryCandidate implements Closeable {
@@ -208,13 +230,47 @@ final class NativeLibraryLoader implements Closeable {
     }
 
     @Override
-    @SuppressWarnings("PMD.CognitiveComplexity")
     @SuppressFBWarnings("URLCONNECTION_SSRF_FD")
     synchronized String load() throws IOException, LinkageError {
       if (libraryNameAndVersion == null) {
         return null;
       }
 
+      Throwable cacheError = null;
+      if (CACHE_DIR != null) {
+        try {
+          loadFromCache(CACHE_DIR);
+          return artifactName + "/" + libraryNameAndVersion;
+        } catch (IOException | LinkageError e) {
+          // fall back to extracting a temporary copy
+          cacheError = e;
+        }
+      }
+
+      try {
+        loadFromTempFile();
+      } catch (IOException | LinkageError e) {
+        if (cacheError != null) {
+          e.addSuppressed(cacheError);
+        }
+        throw e;
+      }
+      return artifactName + "/" + libraryNameAndVersion;
+    }
+
+    /**
+     * Loads the library from the persistent library cache, extracting it first if necessary.
+     *
+     * @param cacheDir The cache directory.
+     * @throws IOException on error.
+     */
+    private void loadFromCache(File cacheDir) throws IOException {
+      System.load(extractToCache(cacheDir, libraryNameAndVersion, library).getAbsolutePath());
+    }
+
+    @SuppressWarnings("PMD.CognitiveComplexity")
+    @SuppressFBWarnings("URLCONNECTION_SSRF_FD")
+    private void loadFromTempFile() throws IOException {
       File libDir = TEMP_DIR;
       File userHomeDir = new File(System.getProperty("user.home", "."));
       File userDirOrNull = new File(System.getProperty("user.dir", "."));
@@ -222,27 +278,15 @@ final class NativeLibraryLoader implements Closeable {
         userDirOrNull = null;
       }
 
-      deleteLibTmpDelFiles(libDir);
-      deleteLibTmpDelFiles(userHomeDir);
-      if (userDirOrNull != null) {
-        deleteLibTmpDelFiles(userDirOrNull);
-      }
-
       for (int attempt = 0; attempt < 3; attempt++) {
-        File libFile;
-        try {
-          libFile = File.createTempFile("libtmp", System.mapLibraryName(libraryNameAndVersion),
-              libDir);
-          try (InputStream libraryIn = library.openStream();
-              OutputStream out = new FileOutputStream(libFile)) {
-            byte[] buf = new byte[4096];
-            int read;
-            while ((read = libraryIn.read(buf)) >= 0) {
-              out.write(buf, 0, read);
-            }
-          }
-        } catch (IOException e) {
-          throw e;
+        // Only clean up the directory we're actually about to use; the fallback directories are
+        // scanned only when the previous attempt failed.
+        deleteLibTmpDelFiles(libDir);
+
+        File libFile = File.createTempFile("libtmp", System.mapLibraryName(libraryNameAndVersion),
+            libDir);
+        try (InputStream libraryIn = library.openStream()) {
+          Files.copy(libraryIn, libFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
         }
 
         try {
@@ -287,12 +331,6 @@ final class NativeLibraryLoader implements Closeable {
         // If we reach this, then we were able to load the library
         break; // NOPMD.AvoidBranchingStatementAsLastInLoop
       }
-      return artifactName + "/" + libraryNameAndVersion;
-    }
-
-    @SuppressFBWarnings("RV_RETURN_VALUE_IGNORED_BAD_PRACTICE")
-    private static void tryDelete(File f) {
-      f.delete();
     }
 
     @Override
@@ -305,6 +343,177 @@ final class NativeLibraryLoader implements Closeable {
     }
   }
 
+  /**
+   * Returns the cached copy of the given library, extracting it into the cache directory first if
+   * necessary.
+   *
+   * The cached file is named after the CRC-32 and the size of the library, which are taken from
+   * the jar entry's metadata, so a cache hit requires neither reading nor hashing the library. The
+   * cache directory must be owned by the current user and must not be writable by anyone else, so
+   * on a hit, we only check that the cached file is a regular file of the expected size (which
+   * catches truncated copies). New entries are verified against the CRC-32 while being written to
+   * a temporary file in the cache directory, and then atomically renamed, so concurrently starting
+   * JVMs never observe a partially written library. Cached files are never deleted by junixsocket.
+   *
+   * @param cacheDir The cache directory.
+   * @param libraryNameAndVersion The library name, including the version.
+   * @param library The library resource.
+   * @return The cached library file.
+   * @throws IOException on error.
+   */
+  @SuppressFBWarnings("URLCONNECTION_SSRF_FD")
+  static File extractToCache(File cacheDir, String libraryNameAndVersion, URL library)
+      throws IOException {
+    ensureSecureCacheDir(cacheDir.toPath());
+
+    URLConnection conn = library.openConnection();
+    long crc = -1;
+    long size = -1;
+    if (conn instanceof JarURLConnection) {
+      JarEntry entry = ((JarURLConnection) conn).getJarEntry();
+      if (entry != null) {
+        crc = entry.getCrc();
+        size = entry.getSize();
+      }
+    }
+    if (crc == -1 || size == -1) {
+      // Not from a jar (e.g., an exploded classes directory); compute the key ourselves
+      CRC32 checksum = new CRC32();
+      size = 0;
+      try (InputStream in = conn.getInputStream()) {
+        byte[] buf = new byte[64 * 1024];
+        int read;
+        while ((read = in.read(buf)) >= 0) {
+          checksum.update(buf, 0, read);
+          size += read;
+        }
+      }
+      crc = checksum.getValue();
+      conn = library.openConnection();
+    }
+
+    File libFile = new File(cacheDir, System.mapLibraryName(libraryNameAndVersion + "-" + String
+        .format(Locale.ENGLISH, "%08x-%d", crc, size)));
+    Path libPath = libFile.toPath();
+    Path digestPath = new File(cacheDir, libFile.getName() + ".sha256").toPath();
+
+    if (isCachedCopyValid(libPath, size, digestPath)) {
+      return libFile;
+    }
+
+    File tmpFile = File.createTempFile("libtmp", ".part", cacheDir);
+    File tmpDigestFile = File.createTempFile("libtmp", ".sha256.part", cacheDir);
+    Path tmpPath = tmpFile.toPath();
+    try {
+      CRC32 checksum = new CRC32();
+      MessageDigest sha256 = newSha256();
+      try (InputStream in = new DigestInputStream(new CheckedInputStream(conn.getInputStream(),
+          checksum), sha256)) {
+        Files.copy(in, tmpPath, StandardCopyOption.REPLACE_EXISTING);
+      }
+      if (checksum.getValue() != crc || Files.size(tmpPath) != size) {
+        throw new IOException("Library contents do not match checksum: " + library);
+      }
+      Files.write(tmpDigestFile.toPath(), sha256.digest());
+
+      moveReplacing(tmpPath, libPath);
+      moveReplacing(tmpDigestFile.toPath(), digestPath);
+    } finally {
+      tryDelete(tmpFile);
+      tryDelete(tmpDigestFile);
+    }
+    return libFile;
+  }
+
+  private static void moveReplacing(Path source, Path target) throws IOException {
+    try {
+      Files.move(source, target, StandardCopyOption.ATOMIC_MOVE,
+          StandardCopyOption.REPLACE_EXISTING);
+    } catch (AtomicMoveNotSupportedException e) {
+      Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  private static MessageDigest newSha256() throws IOException {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IOException(e);
+    }
+  }
+
+  /**
+   * Checks that a cached library is a regular file of the expected size, and that its contents
+   * still match the SHA-256 digest recorded when it was extracted.
+   *
+   * @param libPath The cached library.
+   * @param expectedSize The expected file size.
+   * @param digestPath The file holding the digest recorded upon extraction.
+   * @return {@code true} if the cached copy can be used as-is.
+   */
+  private static boolean isCachedCopyValid(Path libPath, long expectedSize, Path digestPath) {
+    try {
+      BasicFileAttributes attrs = Files.readAttributes(libPath, BasicFileAttributes.class,
+          LinkOption.NOFOLLOW_LINKS);
+      if (!attrs.isRegularFile() || attrs.size() != expectedSize) {
+        return false;
+      }
+      if (!Files.isRegularFile(digestPath, LinkOption.NOFOLLOW_LINKS)) {
+        return false;
+      }
+      byte[] expectedDigest = Files.readAllBytes(digestPath);
+
+      MessageDigest sha256 = newSha256();
+      try (InputStream in = new DigestInputStream(Files.newInputStream(libPath,
+          LinkOption.NOFOLLOW_LINKS), sha256)) {
+        byte[] buf = new byte[64 * 1024];
+        while (in.read(buf) >= 0) {
+          // just compute the digest
+        }
+      }
+      return MessageDigest.isEqual(expectedDigest, sha256.digest());
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Ensures the cache directory exists, is owned by the current user, and cannot be written to by
+   * anyone else (where the file system supports POSIX permissions).
+   *
+   * @param dir The cache directory.
+   * @throws IOException if the directory cannot be created, or if it is not safe to use.
+   */
+  private static void ensureSecureCacheDir(Path dir) throws IOException {
+    boolean posix = dir.getFileSystem().supportedFileAttributeViews().contains("posix");
+    if (!Files.isDirectory(dir)) {
+      if (posix) {
+        Files.createDirectories(dir, PosixFilePermissions.asFileAttribute(PosixFilePermissions
+            .fromString("rwx------")));
+      } else {
+        Files.createDirectories(dir);
+      }
+    }
+    if (!posix) {
+      return;
+    }
+
+    String user = System.getProperty("user.name", "");
+    if (!user.equals(Files.getOwner(dir).getName())) {
+      throw new IOException("Library cache directory is not owned by " + user + ": " + dir);
+    }
+    Set<PosixFilePermission> perms = Files.getPosixFilePermissions(dir);
+    if (perms.contains(PosixFilePermission.GROUP_WRITE) || perms.contains(
+        PosixFilePermission.OTHERS_WRITE)) {
+      throw new IOException("Library cache directory is writable by others: " + dir);
+    }
+  }
+
+  @SuppressFBWarnings("RV_RETURN_VALUE_IGNORED_BAD_PRACTICE")
+  private static void tryDelete(File f) {
+    f.delete();
+  }
+
   private synchronized void setLoaded(String library) {
     setLoaded0(library);
   }
@@ -457,27 +666,25 @@ final class NativeLibraryLoader implements Closeable {
   }
 
   private List<LibraryCandidate> initLibraryCandidates(List<Throwable> suppressedThrowables) {
+    NativeLibraryIndex index = NativeLibraryIndex.getInstance();
+    suppressedThrowables.addAll(index.getErrors());
+
     List<LibraryCandidate> candidates = new ArrayList<>();
-    try {
-      String version = getArtifactVersion(getClass(), "junixsocket-common", "junixsocket-core");
-      if (version != null) {
-        candidates.add(new StandardLibraryCandidate(version));
-      }
-    } catch (Exception e) {
-      suppressedThrowables.add(e);
+    String version = index.getCommonVersion();
+    if (version != null) {
+      candidates.add(new StandardLibraryCandidate(version));
     }
 
-    try {
-      candidates.addAll(tryProviderClass("org.newsclub.lib.junixsocket.custom.NarMetadata",
-          "junixsocket-native-custom"));
-    } catch (Exception e) {
-      suppressedThrowables.add(e);
-    }
-    try {
-      candidates.addAll(tryProviderClass("org.newsclub.lib.junixsocket.common.NarMetadata",
-          "junixsocket-native-common"));
-    } catch (Exception e) {
-      suppressedThrowables.add(e);
+    for (NativeLibraryIndex.Entry entry : index.getEntries()) {
+      try {
+        URL url = entry.resolve();
+        if (url != null) {
+          candidates.add(new ClasspathLibraryCandidate(entry.artifactName,
+              entry.libraryNameAndVersion, entry.path, url));
+        }
+      } catch (Exception e) {
+        suppressedThrowables.add(e);
+      }
     }
 
     candidates.add(new StandardLibraryCandidate(null));
@@ -485,126 +692,14 @@ final class NativeLibraryLoader implements Closeable {
     return candidates;
   }
 
-  private static String lookupArchProperty(String key, String defaultVal) {
-    return System.getProperty(key, defaultVal).replaceAll("[ /\\\\'\";:\\$]", "");
-  }
-
-  private static List<String> architectureAndOS() {
-    String arch = lookupArchProperty("os.arch", "UnknownArch");
-
-    List<String> list = new ArrayList<>();
-    if (IS_ANDROID) {
-      // Android identifies itself as os.name="Linux"
-      // let's probe for an Android-specific library first
-      list.add(arch + "-Android");
-    }
-    list.add(arch + "-" + OS_NAME_SIMPLIFIED);
-    if (OS_NAME_SIMPLIFIED.startsWith("Windows") && !"Windows10".equals(OS_NAME_SIMPLIFIED)) {
-      list.add(arch + "-" + "Windows10");
-    }
-
-    if ("MacOSX".equals(OS_NAME_SIMPLIFIED) && "x86_64".equals(arch)) {
-      list.add("aarch64-MacOSX"); // Rosetta 2
-    }
-
-    return list;
-  }
-
-  private static boolean checkAndroid() {
-    String vmName = lookupArchProperty("java.vm.name", "UnknownVM");
-    String vmSpecVendor = lookupArchProperty("java.vm.specification.vendor",
-        "UnknownSpecificationVendor");
-
-    return ("Dalvik".equals(vmName) || vmSpecVendor.contains("Android"));
-  }
-
   static boolean isAndroid() {
-    return IS_ANDROID;
+    return NativeLibraryIndex.IS_ANDROID;
   }
 
   static List<String> getArchitectureAndOS() {
     return ARCHITECTURE_AND_OS;
   }
 
-  private static URL validateResourceURL(URL url) {
-    if (url == null) {
-      return null;
-    }
-    try (InputStream unused = url.openStream()) {
-      return url;
-    } catch (IOException e) {
-      return null;
-    }
-  }
-
-  private static String mapLibraryName(String libraryNameAndVersion) {
-    String mappedName = System.mapLibraryName(libraryNameAndVersion);
-    if (mappedName.endsWith(".so")) {
-      // https://github.com/eclipse-openj9/openj9/issues/9788
-      // Many thanks to Fabrice Bourquin for finding this issue!
-      switch (OS_NAME_SIMPLIFIED) {
-        case "AIX":
-          mappedName = mappedName.substring(0, mappedName.length() - 3) + ".a";
-          break;
-        case "OS400":
-          mappedName = mappedName.substring(0, mappedName.length() - 3) + ".srvpgm";
-          break;
-        default:
-          break;
-      }
-    }
-    return mappedName;
-  }
-
-  private List<LibraryCandidate> findLibraryCandidates(String artifactName,
-      String libraryNameAndVersion, Class<?> providerClass) {
-    String mappedName = mapLibraryName(libraryNameAndVersion);
-
-    String[] prefixes = mappedName.startsWith("lib") ? new String[] {""} : new String[] {"", "lib"};
-
-    List<LibraryCandidate> list = new ArrayList<>();
-    for (String archOs : ARCHITECTURE_AND_OS) {
-      for (String compiler : new String[] {"clang", "gcc"
-          // "gpp", "g++", "linker", "clang", "gcc", "cc", "CC", "icpc", "icc", "xlC", "xlC_r",
-          // "msvc",
-          // "icl", "ecpc", "ecc"
-      }) {
-        for (String prefix : prefixes) {
-          String path = "/lib/" + archOs + "-" + compiler + "/jni/" + prefix + mappedName;
-
-          URL url;
-
-          url = validateResourceURL(providerClass.getResource(path));
-          if (url != null) {
-            list.add(new ClasspathLibraryCandidate(artifactName, libraryNameAndVersion, path, url));
-          }
-
-          // NOTE: we have to try .nodeps version _after_ trying the properly linked one.
-          // While the former may throw an UnsatisfiedLinkError, this one may just terminate the VM
-          // with a "symbol lookup error"
-          String nodepsPath = nodepsPath(path);
-          if (nodepsPath != null) {
-            url = validateResourceURL(providerClass.getResource(nodepsPath));
-            if (url != null) {
-              list.add(new ClasspathLibraryCandidate(artifactName, libraryNameAndVersion,
-                  nodepsPath, url));
-            }
-          }
-        }
-      }
-    }
-    return list;
-  }
-
-  private String nodepsPath(String path) {
-    int lastDot = path.lastIndexOf('.');
-    if (lastDot == -1) {
-      return null;
-    } else {
-      return path.substring(0, lastDot) + ".nodeps" + path.substring(lastDot);
-    }
-  }
-
   @Override
   public void close() {
   }
@@ -29,6 +29,7 @@ import java.net.Socket;
 import java.net.SocketAddress;
 import java.net.SocketException;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.spi.AbstractSelectableChannel;
 import java.nio.file.FileAlreadyExistsException;
@@ -70,6 +71,19 @@ final class NativeUnixSocket {
 
   static final int OPT_DGRAM_MODE = 16;
 
+  /**
+   * Indicator that the real length of the received message should be returned, even if it exceeds
+   * the given buffer length (i.e., {@code MSG_TRUNC}, where supported).
+   */
+  static final int OPT_TRUNC = 32;
+
+  static final int SPLICE_OPT_NON_BLOCKING = 1;
+  static final int SPLICE_OPT_MORE = 2;
+
+  static final int EPOLL_ADD = 1;
+  static final int EPOLL_MOD = 2;
+  static final int EPOLL_DEL = 3;
+
   static final int BIND_OPT_REUSE = 1;
 
   static final int SOCKETSTATUS_INVALID = -1;
@@ -423,4 +437,45 @@ final class NativeUnixSocket {
   static native boolean futexIsInterProcess();
 
   static native long sizeOfSharedMemory(FileDescriptor fdObj) throws IOException;
+
+  static native long splice(FileDescriptor fdIn, FileDescriptor fdOut, long length, int options)
+      throws IOException;
+
+  static native long tee(FileDescriptor fdIn, FileDescriptor fdOut, long length, int options)
+      throws IOException;
+
+  static native int vmsplice(FileDescriptor fdOut, ByteBuffer buf, int offset, int length,
+      int options) throws IOException;
+
+  static native int pipeCapacity(FileDescriptor fd, int newCapacity) throws IOException;
+
+  static native long sendfile(FileDescriptor fdOut, FileChannel in, long position, long count)
+      throws IOException;
+
+  /**
+   * Sends several datagrams with a single {@code sendmmsg(2)} call.
+   *
+   * @param fd The socket.
+   * @param directBuffer The datagram contents, back-to-back, starting at offset 0.
+   * @param lengths The length of each datagram.
+   * @param directSocketAddresses The target addresses, one every {@code addressStride} bytes.
+   * @param addressStride The distance between two target addresses.
+   * @param addrLens The length of each target address ({@code 0} for connected sockets).
+   * @param count The number of datagrams.
+   * @param options Options, such as {@link #OPT_NON_BLOCKING}.
+   * @return The number of datagrams sent, {@code 0} if none could be sent right away in
+   *         non-blocking mode, or {@code -2} if not supported.
+   * @throws IOException on error.
+   */
+  static native int sendmmsg(FileDescriptor fd, ByteBuffer directBuffer, int[] lengths,
+      ByteBuffer directSocketAddresses, int addressStride, int[] addrLens, int count, int options)
+      throws IOException;
+
+  static native void epollCreate(FileDescriptor epfd) throws IOException;
+
+  static native void epollCtl(FileDescriptor epfd, int op, FileDescriptor fd, int ops, int id)
+      throws IOException;
+
+  static native int epollWait(FileDescriptor epfd, int[] ids, int[] rops, int timeout)
+      throws IOException;
 }
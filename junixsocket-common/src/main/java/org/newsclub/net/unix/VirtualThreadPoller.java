@@ -28,7 +28,6 @@ import java.nio.channels.SelectionKey;
  *
  * @author Christian Kohlschütter
  */
-@SuppressWarnings("PMD.ImplicitFunctionalInterface")
 interface VirtualThreadPoller {
   /**
    * Returns the default instance best suited for the current system.
@@ -52,4 +51,12 @@ interface VirtualThreadPoller {
    */
   void parkThreadUntilReady(FileDescriptor fd, /* SelectionKey.OP_ */ int mode, long now,
       AFSupplier<Integer> timeout, Closeable closeOnInterrupt) throws IOException;
+
+  /**
+   * Notifies the poller that the given file descriptor has been closed, so that any threads parked
+   * on it can be woken up.
+   *
+   * @param fd The file descriptor.
+   */
+  void onClose(FileDescriptor fd);
 }
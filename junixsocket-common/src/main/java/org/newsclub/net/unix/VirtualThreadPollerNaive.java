@@ -22,12 +22,16 @@ import java.io.FileDescriptor;
 import java.io.IOException;
 import java.io.InterruptedIOException;
 import java.net.SocketTimeoutException;
-import java.util.LinkedList;
-import java.util.List;
-import java.util.Map;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.util.Collections;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.eclipse.jdt.annotation.Nullable;
 import org.newsclub.net.unix.AFSelector.PollFd;
@@ -36,13 +40,21 @@ import org.newsclub.net.unix.AFSelector.PollFd;
  * "Naive" implementation of {@link VirtualThreadPoller}, using
  * {@link NativeUnixSocket#poll(PollFd, int)} on non-virtual threads.
  *
+ * Each poll job waits for the exact remaining timeout (or indefinitely), along with the wakeup pipe
+ * of the worker thread that runs it. The pipe is signalled when the waiting thread gives up
+ * (timeout, interrupt), or when the file descriptor is closed (see {@link #onClose(FileDescriptor)}),
+ * so no periodic polling is necessary.
+ * <p>
+ * A worker runs one poll job at a time, so there is exactly one wakeup pipe per worker thread, not
+ * per parked thread. The pipe is closed when its worker thread is gone (the pipe then becomes
+ * unreachable).
+ *
  * @author Christian Kohlschütter
  */
 final class VirtualThreadPollerNaive implements VirtualThreadPoller {
-  private static final int POLL_INTERVAL_MILLIS = 1_000; // should remain at 1 second to simplify
-                                                         // socket timeout handling
-
-  private static final Map<FileDescriptor, PollJob> POLL_JOBS = new ConcurrentHashMap<>();
+  private static final ConcurrentHashMap<FileDescriptor, Set<PollJob>> POLL_JOBS =
+      new ConcurrentHashMap<>();
+  private static final ThreadLocal<AFPipe> WORKER_WAKEUP_PIPE = new ThreadLocal<>();
 
   private static final InterruptedIOException POLL_INTERRUPTED_SENTINEL =
       new InterruptedIOException();
@@ -57,11 +69,14 @@ final class VirtualThreadPollerNaive implements VirtualThreadPoller {
           ThreadUtil.commonPool() : ThreadUtil.newWorkStealingPool();
 
   private static final class PollJob {
-    private final List<Thread> waitingThreads = new LinkedList<>();
     private final FileDescriptor fd;
     private final int mode;
     private final long now;
     private final AFSupplier<Integer> timeout;
+    private final AtomicBoolean abandoned = new AtomicBoolean(false);
+    private @Nullable AFPipe wakeupPipe = null;
+    private boolean woken = false;
+    private boolean released = false;
 
     PollJob(FileDescriptor fd, int mode, long now, AFSupplier<Integer> timeout) {
       this.fd = fd;
@@ -71,90 +86,205 @@ final class VirtualThreadPollerNaive implements VirtualThreadPoller {
     }
 
     @SuppressWarnings("PMD.CognitiveComplexity")
-    AFFuture<@Nullable IOException> trigger(Thread waitingThread) {
-      synchronized (fd) {
-        waitingThreads.add(waitingThread);
-      }
-      return AFFuture.supplyAsync(() -> {
-        try {
-          Thread thread = Thread.currentThread();
-          PollFd pfd = new PollFd(new FileDescriptor[] {fd}, new int[] {mode});
-          do {
-            if (thread.isInterrupted() || !fd.valid()) {
-              return POLL_INTERRUPTED_SENTINEL;
-            }
-            try {
-              NativeUnixSocket.poll(pfd, POLL_INTERVAL_MILLIS);
-            } catch (IOException e) {
-              return e;
-            }
-            if (thread.isInterrupted() || !fd.valid()) {
-              return POLL_INTERRUPTED_SENTINEL;
-            }
-            if (pfd.rops[0] != 0) {
+    @Nullable
+    IOException poll() {
+      AFPipe pipe = null;
+      try {
+        pipe = workerWakeupPipe();
+        synchronized (this) {
+          if (woken) {
+            // woken up before we even started; let the caller decide
+            return null;
+          }
+          wakeupPipe = pipe;
+        }
+
+        PollFd pfd = new PollFd(new FileDescriptor[] {fd, pipe.source().getFileDescriptor()},
+            new int[] {mode, SelectionKey.OP_READ});
+        Thread thread = Thread.currentThread();
+        do {
+          if (thread.isInterrupted() || !fd.valid()) {
+            return POLL_INTERRUPTED_SENTINEL;
+          }
+          if (abandoned.get()) {
+            // the waiting thread timed out (or was interrupted) already
+            break;
+          }
+
+          int pollTimeout;
+          int timeoutMillis = timeout.get();
+          if (timeoutMillis > 0) {
+            long remaining = timeoutMillis - (System.currentTimeMillis() - now);
+            if (remaining <= 0) {
+              // handle in calling thread
               break;
             }
+            pollTimeout = (int) remaining;
+          } else {
+            pollTimeout = -1;
+          }
 
-            int timeoutMillis = timeout.get();
-            if (timeoutMillis > 0) {
-              if ((System.currentTimeMillis() - now) >= timeoutMillis) {
-                // handle in calling thread
-                break;
-              }
-            }
-          } while (true); // NOPMD.WhileLoopWithLiteralBoolean
-        } finally {
-          Thread threadToWake = null;
-          try {
-            synchronized (fd) {
-              threadToWake = waitingThreads.remove(0);
-              if (waitingThreads.isEmpty()) {
-                POLL_JOBS.remove(fd);
-              }
-            }
-          } finally {
-            if (threadToWake != null) {
-              LockSupport.unpark(threadToWake);
-            }
+          NativeUnixSocket.poll(pfd, pollTimeout);
+          if (thread.isInterrupted() || !fd.valid()) {
+            return POLL_INTERRUPTED_SENTINEL;
+          }
+          if (pfd.rops[0] != 0 || pfd.rops[1] != 0) {
+            // ready, or woken up (a spurious wakeup is handled by the caller retrying)
+            break;
           }
+        } while (true); // NOPMD.WhileLoopWithLiteralBoolean
+      } catch (IOException e) {
+        return e;
+      } finally {
+        unregister(this);
+        boolean drain;
+        synchronized (this) {
+          released = true;
+          drain = woken && wakeupPipe != null;
         }
+        if (drain && pipe != null) {
+          drainWakeupPipe(pipe);
+        }
+      }
+      return null;
+    }
+
+    /**
+     * Interrupts a pending poll, if any.
+     */
+    synchronized void wakeUp() {
+      if (woken || released) {
+        return;
+      }
+      woken = true;
+      AFPipe pipe = wakeupPipe;
+      if (pipe == null) {
+        return;
+      }
+      try {
+        pipe.sink().write(ByteBuffer.allocate(1));
+      } catch (IOException e) {
+        // ignore
+      }
+    }
+
+    /**
+     * Called by the waiting thread when it no longer waits for the result.
+     */
+    void abandon() {
+      if (abandoned.compareAndSet(false, true)) {
+        wakeUp();
+      }
+    }
+  }
 
-        return null;
-      }, POLLJOB_EXECUTOR)::get;
+  private static AFPipe workerWakeupPipe() throws IOException {
+    AFPipe pipe = WORKER_WAKEUP_PIPE.get();
+    if (pipe == null) {
+      pipe = AFPipe.open();
+      pipe.source().configureBlocking(false);
+      pipe.sink().configureBlocking(false);
+      WORKER_WAKEUP_PIPE.set(pipe);
+    }
+    return pipe;
+  }
+
+  private static void drainWakeupPipe(AFPipe pipe) {
+    try {
+      ByteBuffer buf = ByteBuffer.allocate(1);
+      while (pipe.source().read(buf) > 0) {
+        buf.clear();
+      }
+    } catch (IOException e) {
+      // the pipe may still hold a stale wakeup byte; don't reuse it
+      WORKER_WAKEUP_PIPE.remove();
+      try {
+        pipe.close();
+      } catch (IOException e2) {
+        e.addSuppressed(e2);
+      }
+    }
+  }
+
+  private static void register(PollJob job) {
+    while (true) { // NOPMD.WhileLoopWithLiteralBoolean
+      Set<PollJob> jobs = POLL_JOBS.get(job.fd);
+      if (jobs == null) {
+        jobs = Collections.newSetFromMap(new ConcurrentHashMap<PollJob, Boolean>());
+        Set<PollJob> existing = POLL_JOBS.putIfAbsent(job.fd, jobs);
+        if (existing != null) {
+          jobs = existing;
+        }
+      }
+      jobs.add(job);
+      if (POLL_JOBS.get(job.fd) == jobs) { // NOPMD.CompareObjectsWithEquals
+        return;
+      }
+      // raced with unregister, which removed the set from the map; retry
+      jobs.remove(job);
+    }
+  }
+
+  private static void unregister(PollJob job) {
+    Set<PollJob> jobs = POLL_JOBS.get(job.fd);
+    if (jobs != null && jobs.remove(job) && jobs.isEmpty()) {
+      POLL_JOBS.remove(job.fd, jobs);
+    }
+  }
+
+  @Override
+  public void onClose(FileDescriptor fd) {
+    Set<PollJob> jobs = POLL_JOBS.get(fd);
+    if (jobs != null) {
+      for (PollJob job : jobs) {
+        job.wakeUp();
+      }
     }
   }
 
   @Override
   public void parkThreadUntilReady(FileDescriptor fd, int mode, long now,
       AFSupplier<Integer> timeout, Closeable closeOnInterrupt) throws IOException {
-    Thread virtualThread = Thread.currentThread();
-
-    PollJob job = Java7Util.computeIfAbsent(POLL_JOBS, fd, (k) -> new PollJob(fd, mode, now,
-        timeout));
-    AFFuture<@Nullable IOException> future = job.trigger(virtualThread);
-
-    LockSupport.park();
-    if (virtualThread.isInterrupted()) {
-      throw SocketClosedByInterruptException.newInstanceAndClose(closeOnInterrupt);
+    PollJob job = new PollJob(fd, mode, now, timeout);
+    register(job);
+    Future<@Nullable IOException> future;
+    try {
+      future = POLLJOB_EXECUTOR.submit(job::poll);
+    } catch (RuntimeException e) {
+      unregister(job);
+      throw e;
     }
 
+    IOException ex;
     try {
-      IOException ex = future.get();
-      if (ex != null) {
-        if (ex == POLL_INTERRUPTED_SENTINEL) {
-          throw SocketClosedByInterruptException.newInstanceAndClose(closeOnInterrupt);
-        }
-        throw ex;
+      int timeoutMillis = timeout.get();
+      if (timeoutMillis > 0) {
+        long remaining = timeoutMillis - (System.currentTimeMillis() - now);
+        ex = future.get(Math.max(0, remaining), TimeUnit.MILLISECONDS);
+      } else {
+        ex = future.get();
       }
+    } catch (TimeoutException e) {
+      job.abandon();
+      throw new SocketTimeoutException(); // NOPMD.PreserveStackTrace
     } catch (InterruptedException | ExecutionException e) {
+      job.abandon();
       throw SocketClosedByInterruptException.newInstanceAndClose(closeOnInterrupt); // NOPMD.PreserveStackTrace
     }
 
-    int timeoutMillis = timeout.get();
-    if (timeoutMillis > 0) {
-      if ((System.currentTimeMillis() - now) >= timeoutMillis) {
-        throw new SocketTimeoutException();
+    if (ex != null) {
+      if (ex == POLL_INTERRUPTED_SENTINEL) {
+        throw SocketClosedByInterruptException.newInstanceAndClose(closeOnInterrupt);
       }
+      throw ex;
     }
+
+    if (isTimedOut(now, timeout.get())) {
+      throw new SocketTimeoutException();
+    }
+  }
+
+  private static boolean isTimedOut(long now, int timeoutMillis) {
+    return timeoutMillis > 0 && (System.currentTimeMillis() - now) >= timeoutMillis;
   }
 }
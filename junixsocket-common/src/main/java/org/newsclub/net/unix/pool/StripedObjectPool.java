@@ -0,0 +1,291 @@
+/*
+ * junixsocket
+ *
+ * Copyright 2009-2026 Christian Kohlschütter
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.newsclub.net.unix.pool;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * An {@link ObjectPool} that distributes its objects across several stripes, with the stripe
+ * selected by a per-thread hash. Each pool slot hands out a small, fixed set of reusable
+ * {@link Lease} instances in turn, so taking and returning a pooled object does not allocate.
+ * <p>
+ * Unlike a {@link ThreadLocal}-based pool, this pool works well with virtual threads, which may be
+ * very many, and short-lived.
+ * <p>
+ * If no slot is available within the thread's stripe (and a neighboring one), a new, unpooled
+ * object is supplied ("overflow").
+ * <p>
+ * NOTE: Leases obtained from this pool must be closed exactly once; using a lease after closing it
+ * is not permitted. Closing or discarding a lease that has already been closed throws an
+ * {@link IllegalStateException}, and {@link Lease#get()} returns {@code null}. Since lease
+ * instances are reused, such misuse can only be detected as long as the slot has not been leased
+ * out again four times since.
+ *
+ * @param <O> The object type.
+ * @author Christian Kohlschütter
+ */
+public final class StripedObjectPool<O> implements ObjectPool<O> {
+  private static final int DEFAULT_SLOTS_PER_STRIPE = 4;
+  private static final int STRIPES_TO_PROBE = 2;
+  private static final int LEASES_PER_SLOT = 4; // must be a power of two
+
+  private final ObjectSupplier<O> supplier;
+  private final ObjectSanitizer<O> sanitizer;
+  private final Slot<O>[] slots;
+  private final int stripeMask;
+  private final int slotsPerStripe;
+  private final int slotsToProbe;
+  private final AtomicLong overflowCount = new AtomicLong();
+
+  /**
+   * Constructs a {@link StripedObjectPool} with the given supplier and sanitizer, and a default
+   * number of stripes (depending on the number of available processors).
+   *
+   * @param supplier The supplier.
+   * @param sanitizer The sanitizer.
+   */
+  public StripedObjectPool(ObjectSupplier<@NonNull O> supplier,
+      ObjectSanitizer<@NonNull O> sanitizer) {
+    this(supplier, sanitizer, Runtime.getRuntime().availableProcessors(),
+        DEFAULT_SLOTS_PER_STRIPE);
+  }
+
+  /**
+   * Constructs a {@link StripedObjectPool} with the given supplier and sanitizer, and the given
+   * number of stripes and slots per stripe.
+   *
+   * @param supplier The supplier.
+   * @param sanitizer The sanitizer.
+   * @param stripes The minimum number of stripes (rounded up to the next power of two).
+   * @param slotsPerStripe The number of objects per stripe.
+   */
+  @SuppressWarnings("unchecked")
+  public StripedObjectPool(ObjectSupplier<@NonNull O> supplier,
+      ObjectSanitizer<@NonNull O> sanitizer, int stripes, int slotsPerStripe) {
+    if (stripes <= 0 || stripes > (1 << 16)) {
+      throw new IllegalArgumentException("stripes");
+    }
+    if (slotsPerStripe <= 0) {
+      throw new IllegalArgumentException("slotsPerStripe");
+    }
+    this.supplier = Objects.requireNonNull(supplier);
+    this.sanitizer = Objects.requireNonNull(sanitizer);
+
+    int numStripes = Integer.highestOneBit(stripes);
+    if (numStripes < stripes) {
+      numStripes <<= 1;
+    }
+    this.stripeMask = numStripes - 1;
+    this.slotsPerStripe = slotsPerStripe;
+    this.slotsToProbe = Math.min(numStripes, STRIPES_TO_PROBE) * slotsPerStripe;
+
+    this.slots = (Slot<O>[]) new Slot<?>[numStripes * slotsPerStripe];
+    for (int i = 0; i < slots.length; i++) {
+      slots[i] = new Slot<>(this);
+    }
+  }
+
+  private static int probe() {
+    int h = System.identityHashCode(Thread.currentThread());
+    // spread bits (see ConcurrentHashMap)
+    return (h ^ (h >>> 16)) * 0x9E3779B9;
+  }
+
+  @Override
+  public Lease<O> take() {
+    int start = ((probe() >>> 16) & stripeMask) * slotsPerStripe;
+    final Slot<O>[] theSlots = slots;
+    final int n = theSlots.length;
+    for (int i = 0; i < slotsToProbe; i++) {
+      int idx = start + i;
+      if (idx >= n) {
+        idx -= n;
+      }
+      Slot<O> slot = theSlots[idx];
+      if (slot.tryAcquire()) {
+        if (slot.obj == null) {
+          slot.obj = Objects.requireNonNull(supplier.get());
+          slot.misses++;
+        } else {
+          slot.hits++;
+        }
+        return slot.nextLease();
+      }
+    }
+
+    overflowCount.incrementAndGet();
+    return ObjectPool.unpooledLease(Objects.requireNonNull(supplier.get()));
+  }
+
+  /**
+   * Returns the number of times an object was taken from the pool and a pooled object could be
+   * reused.
+   *
+   * @return The approximate hit count.
+   */
+  public long getHitCount() {
+    long count = 0;
+    for (Slot<O> slot : slots) {
+      count += slot.hits;
+    }
+    return count;
+  }
+
+  /**
+   * Returns the number of times an object was taken from the pool, a pool slot was available, but
+   * a new object had to be supplied (because the slot was empty).
+   *
+   * @return The approximate miss count.
+   */
+  public long getMissCount() {
+    long count = 0;
+    for (Slot<O> slot : slots) {
+      count += slot.misses;
+    }
+    return count;
+  }
+
+  /**
+   * Returns the number of times an object was taken from the pool, but no pool slot was available,
+   * so an unpooled object had to be supplied.
+   *
+   * @return The overflow count.
+   */
+  public long getOverflowCount() {
+    return overflowCount.get();
+  }
+
+  /**
+   * Returns the maximum number of objects kept in this pool.
+   *
+   * @return The capacity.
+   */
+  public int getCapacity() {
+    return slots.length;
+  }
+
+  /**
+   * A pool slot.
+   *
+   * @param <O> The object type.
+   */
+  private static final class Slot<O> {
+    @SuppressWarnings("rawtypes")
+    private static final AtomicIntegerFieldUpdater<Slot> STATE = AtomicIntegerFieldUpdater
+        .newUpdater(Slot.class, "state");
+
+    private static final int FREE = 0;
+    private static final int LEASED = 1;
+
+    private final StripedObjectPool<O> pool;
+    private final SlotLease<O>[] leases;
+
+    private volatile int state = FREE;
+    private @Nullable O obj;
+
+    // only modified while leased; read racily for statistics
+    private int nextLease;
+    private long hits;
+    private long misses;
+
+    @SuppressWarnings("unchecked")
+    Slot(StripedObjectPool<O> pool) {
+      this.pool = pool;
+      this.leases = (SlotLease<O>[]) new SlotLease<?>[LEASES_PER_SLOT];
+      for (int i = 0; i < LEASES_PER_SLOT; i++) {
+        leases[i] = new SlotLease<>(this);
+      }
+    }
+
+    boolean tryAcquire() {
+      return state == FREE && STATE.compareAndSet(this, FREE, LEASED);
+    }
+
+    /**
+     * Activates and returns the next lease instance; must only be called right after a successful
+     * {@link #tryAcquire()}.
+     *
+     * @return The lease.
+     */
+    SlotLease<O> nextLease() {
+      SlotLease<O> lease = leases[nextLease];
+      nextLease = (nextLease + 1) & (LEASES_PER_SLOT - 1);
+      lease.activate();
+      return lease;
+    }
+
+    void release() {
+      @Nullable
+      O theObject = obj;
+      if (theObject != null && !pool.sanitizer.sanitize(theObject)) {
+        obj = null;
+      }
+      state = FREE;
+    }
+  }
+
+  /**
+   * A reusable lease for the object held by a {@link Slot}. Only valid between being handed out by
+   * {@link Slot#nextLease()} and being closed, which guards the slot against stale leases.
+   *
+   * @param <O> The object type.
+   */
+  private static final class SlotLease<O> implements Lease<O> {
+    @SuppressWarnings("rawtypes")
+    private static final AtomicIntegerFieldUpdater<SlotLease> ACTIVE = AtomicIntegerFieldUpdater
+        .newUpdater(SlotLease.class, "active");
+
+    private final Slot<O> slot;
+    private volatile int active;
+
+    SlotLease(Slot<O> slot) {
+      this.slot = slot;
+    }
+
+    void activate() {
+      active = 1;
+    }
+
+    @SuppressWarnings("null")
+    @Override
+    public O get() {
+      return active == 1 ? slot.obj : null;
+    }
+
+    @Override
+    public void close() {
+      if (!ACTIVE.compareAndSet(this, 1, 0)) {
+        throw new IllegalStateException("Lease already closed");
+      }
+      slot.release();
+    }
+
+    @Override
+    public void discard() {
+      if (active != 1) {
+        throw new IllegalStateException("Lease already closed");
+      }
+      slot.obj = null;
+    }
+  }
+}
@@ -22,19 +22,18 @@ import org.newsclub.net.unix.ThreadUtil;
 
 final class VirtualAwareThreadLocalObjectPool<O> implements ObjectPool<O> {
   private final ThreadLocalObjectPool<O> tlPool;
-  private final ConcurrentQueueObjectPool<O> cqPool;
+  private final StripedObjectPool<O> stripedPool;
 
   public VirtualAwareThreadLocalObjectPool(ObjectSupplier<@NonNull O> supplier,
       ObjectSanitizer<@NonNull O> sanitizer) {
     this.tlPool = new ThreadLocalObjectPool<>(supplier, sanitizer);
-    this.cqPool = new ConcurrentQueueObjectPool<>(supplier, sanitizer, Runtime.getRuntime()
-        .availableProcessors() * 2);
+    this.stripedPool = new StripedObjectPool<>(supplier, sanitizer);
   }
 
   @Override
   public Lease<O> take() {
     if (ThreadUtil.isVirtualThread()) {
-      return cqPool.take();
+      return stripedPool.take();
     } else {
       return tlPool.take();
     }
@@ -112,6 +112,10 @@ final class Java7Util {
     }
   }
 
+  static void onSpinWait() {
+    // Thread.onSpinWait is only available in Java 9 or newer
+  }
+
   static int getJavaFeatureVersion() {
     return JAVA8_OR_LATER ? 8 : 7;
   }
@@ -0,0 +1,267 @@
+/*
+ * junixsocket
+ *
+ * Copyright 2009-2026 Christian Kohlschütter
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.newsclub.net.unix;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+import org.newsclub.net.unix.AFSocketFanout.SlowSubscriberPolicy;
+
+/**
+ * Tests the behavior of {@link AFSocketFanout}.
+ *
+ * @author Christian Kohlschütter
+ */
+public final class AFSocketFanoutTest {
+  private static final int NUM_SUBSCRIBERS = 8;
+  private static final int PAYLOAD_SIZE = 1024 * 1024;
+
+  @Test
+  public void testFanout() throws Exception {
+    assertTimeoutPreemptively(Duration.ofSeconds(30), () -> testFanout(false));
+  }
+
+  @Test
+  public void testFanoutCopying() throws Exception {
+    assertTimeoutPreemptively(Duration.ofSeconds(30), () -> testFanout(true));
+  }
+
+  @Test
+  public void testDropSlowSubscriber() throws Exception {
+    assertTimeoutPreemptively(Duration.ofSeconds(30), () -> testDropSlowSubscriber(false));
+  }
+
+  @Test
+  public void testDropSlowSubscriberCopying() throws Exception {
+    assertTimeoutPreemptively(Duration.ofSeconds(30), () -> testDropSlowSubscriber(true));
+  }
+
+  @Test
+  public void testSlowSubscriberWithinBacklogLimit() throws Exception {
+    assertTimeoutPreemptively(Duration.ofSeconds(30), () -> testSlowSubscriberWithinBacklogLimit(
+        false));
+  }
+
+  @Test
+  public void testSlowSubscriberWithinBacklogLimitCopying() throws Exception {
+    assertTimeoutPreemptively(Duration.ofSeconds(30), () -> testSlowSubscriberWithinBacklogLimit(
+        true));
+  }
+
+  @Test
+  public void testDropStalledSubscriber() throws Exception {
+    assertTimeoutPreemptively(Duration.ofSeconds(30), () -> testDropStalledSubscriber(false));
+  }
+
+  @Test
+  public void testDropStalledSubscriberCopying() throws Exception {
+    assertTimeoutPreemptively(Duration.ofSeconds(30), () -> testDropStalledSubscriber(true));
+  }
+
+  private static AFSocketFanout openFanout(AFSocketChannel<?> source,
+      SlowSubscriberPolicy policy, boolean copying) throws IOException {
+    return copying ? AFSocketFanout.openCopying(source, policy) : AFSocketFanout.open(source,
+        policy);
+  }
+
+  private static void testFanout(boolean copying) throws IOException, InterruptedException,
+      ExecutionException {
+    AFUNIXSocketPair<AFUNIXSocketChannel> sourcePair = AFUNIXSocketPair.open();
+    List<CompletableFuture<ByteBuffer>> results = new ArrayList<>();
+    List<AFSocketFanout.Subscriber> subscribers = new ArrayList<>();
+    try (AFSocketFanout fanout = openFanout(sourcePair.getSocket2(), SlowSubscriberPolicy.BLOCK,
+        copying)) {
+      for (int i = 0; i < NUM_SUBSCRIBERS; i++) {
+        AFUNIXSocketPair<AFUNIXSocketChannel> pair = AFUNIXSocketPair.open();
+        subscribers.add(fanout.addSubscriber(pair.getSocket1()));
+        results.add(readFully(pair.getSocket2()));
+      }
+
+      writePayload(sourcePair.getSocket1());
+
+      for (CompletableFuture<ByteBuffer> cf : results) {
+        assertPayload(cf.get());
+      }
+      for (AFSocketFanout.Subscriber sub : subscribers) {
+        assertEquals(PAYLOAD_SIZE, sub.getBytesWritten());
+      }
+      assertEquals(PAYLOAD_SIZE, fanout.getBytesRead());
+    } finally {
+      sourcePair.getSocket1().close();
+    }
+  }
+
+  private static void testDropSlowSubscriber(boolean copying) throws IOException,
+      InterruptedException, ExecutionException {
+    AFUNIXSocketPair<AFUNIXSocketChannel> sourcePair = AFUNIXSocketPair.open();
+    AFUNIXSocketPair<AFUNIXSocketChannel> fastPair = AFUNIXSocketPair.open();
+    AFUNIXSocketPair<AFUNIXSocketChannel> slowPair = AFUNIXSocketPair.open();
+    try (AFSocketFanout fanout = openFanout(sourcePair.getSocket2(), SlowSubscriberPolicy.DROP,
+        copying)) {
+      fanout.setBacklogLimit(256 * 1024, 0, TimeUnit.SECONDS);
+      AFSocketFanout.Subscriber fast = fanout.addSubscriber(fastPair.getSocket1());
+      AFSocketFanout.Subscriber slow = fanout.addSubscriber(slowPair.getSocket1());
+      AtomicLong received = new AtomicLong();
+      CompletableFuture<ByteBuffer> result = readFully(fastPair.getSocket2(), received);
+
+      // the slow subscriber never reads, and exceeds the byte limit; the source is paced such that
+      // the fast subscriber never does
+      writePayload(sourcePair.getSocket1(), received);
+
+      assertPayload(result.get());
+      assertEquals(PAYLOAD_SIZE, fast.getBytesWritten());
+      assertFalse(slow.isOpen());
+    } finally {
+      sourcePair.getSocket1().close();
+      slowPair.getSocket2().close();
+    }
+  }
+
+  private static void testSlowSubscriberWithinBacklogLimit(boolean copying) throws IOException,
+      InterruptedException, ExecutionException {
+    AFUNIXSocketPair<AFUNIXSocketChannel> sourcePair = AFUNIXSocketPair.open();
+    AFUNIXSocketPair<AFUNIXSocketChannel> fastPair = AFUNIXSocketPair.open();
+    AFUNIXSocketPair<AFUNIXSocketChannel> slowPair = AFUNIXSocketPair.open();
+    try (AFSocketFanout fanout = openFanout(sourcePair.getSocket2(), SlowSubscriberPolicy.DROP,
+        copying)) {
+      fanout.setBacklogLimit(4 * PAYLOAD_SIZE, 10, TimeUnit.SECONDS);
+      AFSocketFanout.Subscriber fast = fanout.addSubscriber(fastPair.getSocket1());
+      AFSocketFanout.Subscriber slow = fanout.addSubscriber(slowPair.getSocket1());
+      CompletableFuture<ByteBuffer> result = readFully(fastPair.getSocket2());
+
+      // the slow subscriber only starts reading once all data has been read from the source
+      writePayload(sourcePair.getSocket1());
+      while (fanout.getBytesRead() < PAYLOAD_SIZE) {
+        Thread.sleep(10);
+      }
+      Thread.sleep(100);
+      assertTrue(slow.isOpen());
+      CompletableFuture<ByteBuffer> slowResult = readFully(slowPair.getSocket2());
+
+      assertPayload(result.get());
+      assertPayload(slowResult.get());
+
+      assertEquals(PAYLOAD_SIZE, fast.getBytesWritten());
+      assertEquals(PAYLOAD_SIZE, slow.getBytesWritten());
+    } finally {
+      sourcePair.getSocket1().close();
+    }
+  }
+
+  private static void testDropStalledSubscriber(boolean copying) throws IOException,
+      InterruptedException, ExecutionException {
+    AFUNIXSocketPair<AFUNIXSocketChannel> sourcePair = AFUNIXSocketPair.open();
+    AFUNIXSocketPair<AFUNIXSocketChannel> fastPair = AFUNIXSocketPair.open();
+    AFUNIXSocketPair<AFUNIXSocketChannel> slowPair = AFUNIXSocketPair.open();
+    try (AFSocketFanout fanout = openFanout(sourcePair.getSocket2(), SlowSubscriberPolicy.DROP,
+        copying)) {
+      fanout.setBacklogLimit(4 * PAYLOAD_SIZE, 100, TimeUnit.MILLISECONDS);
+      AFSocketFanout.Subscriber fast = fanout.addSubscriber(fastPair.getSocket1());
+      AFSocketFanout.Subscriber slow = fanout.addSubscriber(slowPair.getSocket1());
+      CompletableFuture<ByteBuffer> result = readFully(fastPair.getSocket2());
+
+      // the slow subscriber never reads; its backlog stays within the byte limit, but it stalls
+      writePayload(sourcePair.getSocket1());
+
+      assertPayload(result.get());
+      assertEquals(PAYLOAD_SIZE, fast.getBytesWritten());
+      assertFalse(slow.isOpen());
+    } finally {
+      sourcePair.getSocket1().close();
+      slowPair.getSocket2().close();
+    }
+  }
+
+  private static void writePayload(AFUNIXSocketChannel ch) throws IOException,
+      InterruptedException {
+    writePayload(ch, null);
+  }
+
+  /**
+   * Writes the payload; if {@code received} is not {@code null}, every chunk is only written once
+   * that many bytes have been received by the reader.
+   */
+  private static void writePayload(AFUNIXSocketChannel ch, AtomicLong received)
+      throws IOException, InterruptedException {
+    ByteBuffer out = ByteBuffer.allocate(PAYLOAD_SIZE);
+    for (int i = 0; i < PAYLOAD_SIZE; i++) {
+      out.put((byte) i);
+    }
+    out.flip();
+    while (out.hasRemaining()) {
+      if (received != null) {
+        out.limit(Math.min(PAYLOAD_SIZE, out.position() + 16 * 1024));
+      }
+      while (out.hasRemaining()) {
+        ch.write(out);
+      }
+      if (received != null) {
+        while (received.get() < out.position()) {
+          Thread.sleep(1);
+        }
+        out.limit(PAYLOAD_SIZE);
+      }
+    }
+    ch.shutdownOutput();
+  }
+
+  private static void assertPayload(ByteBuffer in) {
+    assertEquals(PAYLOAD_SIZE, in.position());
+    in.flip();
+    for (int i = 0; i < PAYLOAD_SIZE; i++) {
+      assertEquals((byte) i, in.get(), "Mismatch at " + i);
+    }
+  }
+
+  private static CompletableFuture<ByteBuffer> readFully(AFUNIXSocketChannel ch) {
+    return readFully(ch, new AtomicLong());
+  }
+
+  private static CompletableFuture<ByteBuffer> readFully(AFUNIXSocketChannel ch,
+      AtomicLong received) {
+    CompletableFuture<ByteBuffer> cf = new CompletableFuture<>();
+    ThreadUtil.startNewDaemonThread(false, () -> {
+      ByteBuffer in = ByteBuffer.allocate(PAYLOAD_SIZE + 1);
+      try (AFUNIXSocketChannel c = ch) {
+        while (c.read(in) >= 0) {
+          received.set(in.position());
+          if (!in.hasRemaining()) {
+            break;
+          }
+        }
+        cf.complete(in);
+      } catch (IOException e) {
+        cf.completeExceptionally(e);
+      }
+    });
+    return cf;
+  }
+}
@@ -0,0 +1,220 @@
+/*
+ * junixsocket
+ *
+ * Copyright 2009-2026 Christian Kohlschütter
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.newsclub.net.unix;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import com.kohlschutter.testutil.TestAbortedNotAnIssueException;
+
+/**
+ * Tests the behavior of {@link AFSocketRelay}.
+ *
+ * @author Christian Kohlschütter
+ */
+public final class AFSocketRelayTest {
+  private static final int NUM_CONNECTIONS = 32;
+  private static final int PAYLOAD_SIZE = 256 * 1024;
+
+  @Test
+  public void testRelay() throws Exception {
+    try (AFSocketRelay relay = AFSocketRelay.open()) {
+      assertTimeoutPreemptively(Duration.ofSeconds(10), () -> testRelay(relay, 1));
+    }
+  }
+
+  @Test
+  public void testRelayCopying() throws Exception {
+    try (AFSocketRelay relay = AFSocketRelay.openCopying()) {
+      assertTimeoutPreemptively(Duration.ofSeconds(10), () -> testRelay(relay, 1));
+    }
+  }
+
+  @ParameterizedTest(name = "copying={0}")
+  @ValueSource(booleans = {false, true})
+  public void testRelayManyConnections(boolean copying) throws Exception {
+    try (AFSocketRelay relay = copying ? AFSocketRelay.openCopying() : AFSocketRelay.open()) {
+      assertTimeoutPreemptively(Duration.ofSeconds(30), () -> testRelay(relay,
+          NUM_CONNECTIONS));
+    }
+  }
+
+  @Test
+  public void testAdopt() throws Exception {
+    try (ServerSocketChannel server = ServerSocketChannel.open()) {
+      server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+      try (SocketChannel client = SocketChannel.open(server.getLocalAddress());
+          SocketChannel accepted = server.accept()) {
+        AFUNIXSocketPair<AFUNIXSocketChannel> upstream = AFUNIXSocketPair.open();
+        assertSame(upstream.getSocket1(), AFSocketRelay.adopt(upstream.getSocket1()));
+
+        AFSocketChannel<?> adopted;
+        try {
+          adopted = AFSocketRelay.adopt(accepted);
+        } catch (IOException e) {
+          if (e.getCause() instanceof ReflectiveOperationException || e
+              .getCause() instanceof RuntimeException) {
+            throw new TestAbortedNotAnIssueException(
+                "Access to JDK internals was not granted via --add-exports", e);
+          }
+          throw e;
+        }
+        // the adopted channel refers to a duplicate of the file descriptor
+        accepted.close();
+
+        try (AFSocketRelay relay = AFSocketRelay.open()) {
+          AFSocketRelay.Connection conn = relay.relay(adopted, upstream.getSocket1());
+          Thread echoThread = ThreadUtil.startNewDaemonThread(false, () -> echo(upstream
+              .getSocket2()));
+          try {
+            assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+              ByteBuffer out = ByteBuffer.wrap(new byte[] {1, 2, 3, 4});
+              while (out.hasRemaining()) {
+                client.write(out);
+              }
+              client.shutdownOutput();
+
+              ByteBuffer in = ByteBuffer.allocate(5);
+              while (client.read(in) >= 0) {
+                // read until end-of-stream
+              }
+              in.flip();
+              assertEquals(ByteBuffer.wrap(new byte[] {1, 2, 3, 4}), in);
+              echoThread.join();
+            });
+            assertEquals(4, conn.getBytesForward());
+            assertEquals(4, conn.getBytesBackward());
+          } finally {
+            upstream.getSocket2().close();
+          }
+        }
+      }
+    }
+  }
+
+  private static void testRelay(AFSocketRelay relay, int numConnections) throws IOException,
+      InterruptedException {
+    List<AFUNIXSocketPair<AFUNIXSocketChannel>> clients = new ArrayList<>();
+    List<AFUNIXSocketPair<AFUNIXSocketChannel>> upstreams = new ArrayList<>();
+    List<AFSocketRelay.Connection> connections = new ArrayList<>();
+    try {
+      for (int i = 0; i < numConnections; i++) {
+        AFUNIXSocketPair<AFUNIXSocketChannel> client = AFUNIXSocketPair.open();
+        AFUNIXSocketPair<AFUNIXSocketChannel> upstream = AFUNIXSocketPair.open();
+        clients.add(client);
+        upstreams.add(upstream);
+        connections.add(relay.relay(client.getSocket2(), upstream.getSocket1()));
+      }
+
+      long time = System.nanoTime();
+      List<Thread> echoThreads = new ArrayList<>();
+      for (AFUNIXSocketPair<AFUNIXSocketChannel> upstream : upstreams) {
+        echoThreads.add(ThreadUtil.startNewDaemonThread(false, () -> echo(upstream
+            .getSocket2())));
+      }
+
+      for (AFUNIXSocketPair<AFUNIXSocketChannel> client : clients) {
+        AFUNIXSocketChannel ch = client.getSocket1();
+        ByteBuffer out = ByteBuffer.allocate(PAYLOAD_SIZE);
+        for (int i = 0; i < PAYLOAD_SIZE; i++) {
+          out.put((byte) i);
+        }
+        out.flip();
+        Thread writer = ThreadUtil.startNewDaemonThread(false, () -> {
+          try {
+            while (out.hasRemaining()) {
+              ch.write(out);
+            }
+            ch.shutdownOutput();
+          } catch (IOException e) {
+            StackTraceUtil.printStackTrace(e);
+          }
+        });
+
+        ByteBuffer in = ByteBuffer.allocate(PAYLOAD_SIZE);
+        while (in.hasRemaining()) {
+          if (ch.read(in) < 0) {
+            break;
+          }
+        }
+        writer.join();
+        assertEquals(PAYLOAD_SIZE, in.position());
+        in.flip();
+        for (int i = 0; i < PAYLOAD_SIZE; i++) {
+          assertEquals((byte) i, in.get(), "Mismatch at " + i);
+        }
+        assertEquals(-1, ch.read(ByteBuffer.allocate(1)));
+      }
+      for (Thread t : echoThreads) {
+        t.join();
+      }
+      time = System.nanoTime() - time;
+
+      for (AFSocketRelay.Connection conn : connections) {
+        assertEquals(PAYLOAD_SIZE, conn.getBytesForward());
+        assertEquals(PAYLOAD_SIZE, conn.getBytesBackward());
+      }
+      assertEquals(2L * PAYLOAD_SIZE * numConnections, relay.getBytesRelayed());
+
+      if (numConnections > 1) {
+        // compare the output of the splice and copy variants of testRelayManyConnections
+        System.out.println("AFSocketRelay (" + (relay.isZeroCopy() ? "splice" : "copy") + "): "
+            + numConnections + " connections, " + (2L * PAYLOAD_SIZE * numConnections * 1000
+                / Math.max(1, time / 1000)) + " kB/s");
+      }
+    } finally {
+      for (AFUNIXSocketPair<AFUNIXSocketChannel> p : clients) {
+        p.getSocket1().close();
+      }
+      for (AFUNIXSocketPair<AFUNIXSocketChannel> p : upstreams) {
+        p.getSocket2().close();
+      }
+    }
+  }
+
+  private static void echo(AFUNIXSocketChannel ch) {
+    ByteBuffer buf = ByteBuffer.allocate(8192);
+    try {
+      while (ch.read(buf) >= 0) {
+        buf.flip();
+        while (buf.hasRemaining()) {
+          ch.write(buf);
+        }
+        buf.clear();
+      }
+      ch.shutdownOutput();
+    } catch (IOException e) {
+      StackTraceUtil.printStackTrace(e);
+    }
+  }
+}
@@ -0,0 +1,199 @@
+/*
+ * junixsocket
+ *
+ * Copyright 2009-2026 Christian Kohlschütter
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.newsclub.net.unix;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import com.kohlschutter.testutil.TestAbortedNotAnIssueException;
+
+/**
+ * Simulates a CRaC checkpoint/restore cycle by invoking the registered resource directly.
+ */
+public class CheckpointSupportTest {
+  private static void assumeEnabled() {
+    if (!CheckpointSupport.isEnabled()) {
+      throw new TestAbortedNotAnIssueException("CRaC API is not available");
+    }
+  }
+
+  @Test
+  public void testServerSocketRebindsAfterRestore() throws Exception {
+    assumeEnabled();
+
+    AFUNIXSocketAddress addr = AFUNIXSocketAddress.ofNewTempFile();
+    try (AFUNIXServerSocket server = AFUNIXServerSocket.bindOn(addr)) {
+      CompletableFuture<AFUNIXSocket> accepted = CompletableFuture.supplyAsync(() -> {
+        try {
+          return server.accept();
+        } catch (Exception e) {
+          throw new IllegalStateException(e);
+        }
+      });
+
+      AFUNIXSocket client = AFUNIXSocket.connectTo(addr);
+      AFUNIXSocket serverSide = accepted.get(5, TimeUnit.SECONDS);
+
+      // a second accept is pending while we take the checkpoint
+      CompletableFuture<AFUNIXSocket> pendingAccept = CompletableFuture.supplyAsync(() -> {
+        try {
+          return server.accept();
+        } catch (Exception e) {
+          throw new IllegalStateException(e);
+        }
+      });
+      Thread.sleep(50);
+
+      CheckpointSupport.beforeCheckpoint();
+      try {
+        assertFalse(server.getFileDescriptor().valid(), "Server socket should be released");
+        assertTrue(client.isClosed(), "Client connection should be closed");
+        assertTrue(serverSide.isClosed(), "Accepted connection should be closed");
+        assertFalse(server.isClosed());
+        assertFalse(pendingAccept.isDone());
+      } finally {
+        CheckpointSupport.afterRestore();
+      }
+
+      assertTrue(server.getFileDescriptor().valid());
+      try (AFUNIXSocket client2 = AFUNIXSocket.connectTo(addr);
+          AFUNIXSocket serverSide2 = pendingAccept.get(5, TimeUnit.SECONDS)) {
+        assertNotNull(serverSide2);
+        client2.getOutputStream().write(42);
+        assertEquals(42, serverSide2.getInputStream().read());
+      }
+    }
+  }
+
+  @Test
+  public void testServerSocketRebindsWithoutReuseAddress() throws Exception {
+    assumeEnabled();
+
+    AFUNIXSocketAddress addr = AFUNIXSocketAddress.ofNewTempFile();
+    try (AFUNIXServerSocket server = AFUNIXServerSocket.newInstance()) {
+      server.setReuseAddress(false);
+      server.bind(addr);
+
+      CheckpointSupport.beforeCheckpoint();
+      CheckpointSupport.afterRestore();
+
+      // the socket file left behind by the released socket must not prevent the re-bind
+      assertTrue(server.getFileDescriptor().valid());
+      try (AFUNIXSocket client = AFUNIXSocket.connectTo(addr);
+          AFUNIXSocket serverSide = server.accept()) {
+        client.getOutputStream().write(42);
+        assertEquals(42, serverSide.getInputStream().read());
+      }
+    }
+  }
+
+  @Test
+  public void testSelectorRecreatesWakeupPipe() throws Exception {
+    assumeEnabled();
+
+    AFUNIXSocketPair<AFUNIXSocketChannel> pair = AFUNIXSocketPair.open();
+    try (Selector selector = AFUNIXSelectorProvider.provider().openSelector();
+        AFUNIXSocketChannel s1 = pair.getSocket1(); AFUNIXSocketChannel s2 = pair.getSocket2()) {
+
+      CheckpointSupport.beforeCheckpoint();
+      CheckpointSupport.afterRestore();
+
+      // the channels were closed, but the selector itself must still work
+      assertFalse(s1.isOpen());
+      assertTrue(selector.isOpen());
+      assertEquals(0, selector.selectNow());
+
+      AFUNIXSocketPair<AFUNIXSocketChannel> pair2 = AFUNIXSocketPair.open();
+      try (AFUNIXSocketChannel t1 = pair2.getSocket1(); AFUNIXSocketChannel t2 = pair2
+          .getSocket2()) {
+        t2.configureBlocking(false);
+        t2.register(selector, SelectionKey.OP_READ);
+        t1.write(ByteBuffer.wrap(new byte[] {1}));
+        assertEquals(1, selector.select(5000));
+        assertEquals(1, t2.read(ByteBuffer.allocate(1)));
+        selector.selectedKeys().clear();
+
+        // wakeup must work via the new pipe
+        CompletableFuture<Integer> select = CompletableFuture.supplyAsync(() -> {
+          try {
+            return selector.select();
+          } catch (Exception e) {
+            throw new IllegalStateException(e);
+          }
+        });
+        Thread.sleep(50);
+        selector.wakeup();
+        select.get(5, TimeUnit.SECONDS);
+      }
+    }
+  }
+
+  @Test
+  public void testDatagramSocketsAreClosed() throws Exception {
+    assumeEnabled();
+
+    AFUNIXSocketPair<AFUNIXDatagramChannel> pair = AFUNIXSocketPair.openDatagram();
+    try (AFUNIXDatagramChannel d1 = pair.getSocket1(); AFUNIXDatagramChannel d2 = pair
+        .getSocket2(); AFUNIXDatagramSocket bound = AFUNIXDatagramSocket.newInstance()) {
+      bound.bind(AFUNIXSocketAddress.ofNewTempFile());
+
+      CheckpointSupport.beforeCheckpoint();
+      CheckpointSupport.afterRestore();
+
+      assertFalse(d1.isOpen());
+      assertFalse(d2.isOpen());
+      assertTrue(bound.isClosed());
+    }
+  }
+
+  @Test
+  public void testBlockedCheckpointLeavesResourcesIntact() throws Exception {
+    assumeEnabled();
+
+    Object blocker = new Object();
+    AFUNIXSocketPair<AFUNIXSocketChannel> pair = AFUNIXSocketPair.open();
+    try (AFUNIXSocketChannel s1 = pair.getSocket1(); AFUNIXSocketChannel s2 = pair.getSocket2()) {
+      CheckpointSupport.blockCheckpoints(blocker, "Test resource");
+      try {
+        IOException e = assertThrows(IOException.class, CheckpointSupport::beforeCheckpoint);
+        assertTrue(e.getMessage().contains("Test resource"), e.getMessage());
+        assertFalse(CheckpointSupport.isCheckpointing());
+        assertTrue(s1.isOpen());
+        assertTrue(s2.isOpen());
+      } finally {
+        CheckpointSupport.unblockCheckpoints(blocker);
+      }
+
+      CheckpointSupport.beforeCheckpoint();
+      CheckpointSupport.afterRestore();
+      assertFalse(s1.isOpen());
+    }
+  }
+}
@@ -216,6 +216,46 @@ public abstract class DatagramSocketTest<A extends SocketAddress> extends Socket
     }
   }
 
+  @Test
+  public void testChannelSendBatch() throws Exception {
+    // two receivers, each within the default AF_UNIX datagram queue length on Linux (10)
+    final int numDatagrams = 16;
+    AFSocketAddress ds1Addr = (AFSocketAddress) newTempAddressForDatagram();
+    AFSocketAddress ds2Addr = (AFSocketAddress) newTempAddressForDatagram();
+    AFSocketAddress ds3Addr = (AFSocketAddress) newTempAddressForDatagram();
+    try (AFDatagramChannel<?> dc1 = (AFDatagramChannel<?>) newDatagramChannel(); //
+        DatagramChannel dc2 = newDatagramChannel(); //
+        DatagramChannel dc3 = newDatagramChannel()) {
+      dc1.bind(ds1Addr);
+      dc2.bind(ds2Addr);
+      dc3.bind(ds3Addr);
+
+      ByteBuffer[] srcs = new ByteBuffer[numDatagrams];
+      SocketAddress[] targets = new SocketAddress[numDatagrams];
+      for (int i = 0; i < numDatagrams; i++) {
+        srcs[i] = (i % 3 == 0) ? ByteBuffer.allocate(4) : ByteBuffer.allocateDirect(4);
+        srcs[i].putInt(i);
+        srcs[i].flip();
+        targets[i] = (i % 2 == 0) ? ds2Addr : ds3Addr;
+      }
+
+      assertEquals(numDatagrams, dc1.send(srcs, targets, 0, numDatagrams));
+      for (ByteBuffer src : srcs) {
+        assertFalse(src.hasRemaining());
+      }
+
+      ByteBuffer bb = ByteBuffer.allocate(64);
+      for (int i = 0; i < numDatagrams; i++) {
+        bb.clear();
+        SocketAddress receivedFrom = ((i % 2 == 0) ? dc2 : dc3).receive(bb);
+        bb.flip();
+        assertEquals(4, bb.remaining());
+        assertEquals(i, bb.getInt());
+        assertExpectedSocketAddressFromDatagramChannelReceive(ds1Addr, receivedFrom);
+      }
+    }
+  }
+
   @SuppressWarnings("PMD.PreserveStackTrace")
   protected void assertExpectedSocketAddressFromDatagramChannelReceive(SocketAddress expected,
       SocketAddress received) {
@@ -0,0 +1,230 @@
+/*
+ * junixsocket
+ *
+ * Copyright 2009-2026 Christian Kohlschütter
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.newsclub.net.unix;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the epoll-backed selector returned by {@link AFSelectorProvider#openScalableSelector()},
+ * as well as {@link AFSocketChannel#transferFrom(FileChannel, long, long)}.
+ *
+ * @author Christian Kohlschütter
+ */
+@AFSocketCapabilityRequirement({
+    AFSocketCapability.CAPABILITY_UNIX_DOMAIN, AFSocketCapability.CAPABILITY_EPOLL})
+public final class EpollSelectorTest {
+  private static final int NUM_PAIRS = 512;
+
+  @Test
+  public void testManyKeysFewReady() throws Exception {
+    List<AFUNIXSocketPair<AFUNIXSocketChannel>> pairs = new ArrayList<>();
+    try (Selector sel = AFUNIXSelectorProvider.provider().openScalableSelector()) {
+      assertTrue(((AFSelector) sel).isEpoll());
+
+      List<SelectionKey> keys = new ArrayList<>();
+      for (int i = 0; i < NUM_PAIRS; i++) {
+        AFUNIXSocketPair<AFUNIXSocketChannel> pair = AFUNIXSocketPair.open();
+        pairs.add(pair);
+        pair.getSocket2().configureBlocking(false);
+        keys.add(pair.getSocket2().register(sel, SelectionKey.OP_READ));
+      }
+      assertEquals(NUM_PAIRS, sel.keys().size());
+      assertEquals(0, sel.selectNow());
+
+      int[] ready = {3, 100, NUM_PAIRS - 1};
+      Set<SelectionKey> expected = new HashSet<>();
+      for (int i : ready) {
+        pairs.get(i).getSocket1().write(ByteBuffer.wrap(new byte[] {(byte) i}));
+        expected.add(keys.get(i));
+      }
+
+      assertEquals(ready.length, sel.select(1000));
+      assertEquals(expected, sel.selectedKeys());
+      for (SelectionKey key : sel.selectedKeys()) {
+        assertEquals(SelectionKey.OP_READ, key.readyOps());
+      }
+
+      // level-triggered: still readable
+      assertEquals(ready.length, sel.selectNow());
+
+      // no longer interested in one of them
+      keys.get(100).interestOps(0);
+      assertEquals(ready.length - 1, sel.selectNow());
+      assertFalse(sel.selectedKeys().contains(keys.get(100)));
+
+      // consume the data of another one
+      ByteBuffer bb = ByteBuffer.allocate(1);
+      assertEquals(1, pairs.get(3).getSocket2().read(bb));
+      assertEquals(1, sel.selectNow());
+      assertEquals(keys.get(NUM_PAIRS - 1), sel.selectedKeys().iterator().next());
+
+      // cancelled keys are removed upon the next selection operation
+      keys.get(NUM_PAIRS - 1).cancel();
+      assertEquals(0, sel.selectNow());
+      assertEquals(NUM_PAIRS - 1, sel.keys().size());
+
+      // and so are keys of closed channels
+      pairs.get(0).getSocket2().close();
+      assertEquals(0, sel.selectNow());
+      assertEquals(NUM_PAIRS - 2, sel.keys().size());
+    } finally {
+      for (AFUNIXSocketPair<AFUNIXSocketChannel> pair : pairs) {
+        pair.getSocket1().close();
+        pair.getSocket2().close();
+      }
+    }
+  }
+
+  @Test
+  public void testWakeup() throws Exception {
+    try (Selector sel = AFUNIXSelectorProvider.provider().openScalableSelector()) {
+      CompletableFuture<Integer> cf = new CompletableFuture<>();
+      ThreadUtil.startNewDaemonThread(false, () -> {
+        try {
+          cf.complete(sel.select());
+        } catch (IOException e) {
+          cf.completeExceptionally(e);
+        }
+      });
+      Thread.sleep(100);
+      sel.wakeup();
+      assertEquals(0, cf.get(5, TimeUnit.SECONDS));
+
+      // the wakeup has been consumed
+      assertEquals(0, sel.select(100));
+    }
+  }
+
+  @Test
+  @AFSocketCapabilityRequirement(AFSocketCapability.CAPABILITY_SENDFILE)
+  public void testTransferFrom() throws Exception {
+    byte[] data = new byte[3 * 1024 * 1024 + 17];
+    for (int i = 0; i < data.length; i++) {
+      data[i] = (byte) (i * 31);
+    }
+
+    File f = File.createTempFile("jux", ".bin");
+    try {
+      Files.write(f.toPath(), data);
+      assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+        AFUNIXSocketPair<AFUNIXSocketChannel> pair = AFUNIXSocketPair.open();
+        try (AFUNIXSocketChannel out = pair.getSocket1();
+            AFUNIXSocketChannel in = pair.getSocket2();
+            FileChannel fc = FileChannel.open(f.toPath(), StandardOpenOption.READ)) {
+          CompletableFuture<byte[]> received = new CompletableFuture<>();
+          ThreadUtil.startNewDaemonThread(false, () -> {
+            ByteBuffer bb = ByteBuffer.allocate(data.length);
+            try {
+              while (bb.hasRemaining() && in.read(bb) >= 0) {
+                // keep reading
+              }
+              received.complete(bb.array());
+            } catch (IOException e) {
+              received.completeExceptionally(e);
+            }
+          });
+
+          // skip the first byte, then transfer the rest
+          assertEquals(data.length - 1, out.transferFrom(fc, 1, data.length));
+          assertEquals(0, out.transferFrom(fc, data.length, 1));
+          out.write(ByteBuffer.wrap(data, 0, 1));
+
+          byte[] expected = new byte[data.length];
+          System.arraycopy(data, 1, expected, 0, data.length - 1);
+          expected[data.length - 1] = data[0];
+          assertArrayEquals(expected, received.get());
+        }
+      });
+    } finally {
+      Files.deleteIfExists(f.toPath());
+    }
+  }
+
+  @Test
+  @AFSocketCapabilityRequirement(AFSocketCapability.CAPABILITY_SENDFILE)
+  public void testTransferFromOtherFileChannel() throws Exception {
+    byte[] data = new byte[100_000];
+    for (int i = 0; i < data.length; i++) {
+      data[i] = (byte) (i * 17);
+    }
+
+    // The zip file system has its own FileChannel implementation, which sendfile cannot use
+    Path zip = Files.createTempFile("jux", ".zip");
+    try {
+      Files.delete(zip);
+      try (FileSystem fs = FileSystems.newFileSystem(URI.create("jar:" + zip.toUri()), Collections
+          .singletonMap("create", "true"))) {
+        Files.write(fs.getPath("data"), data);
+      }
+
+      assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+        AFUNIXSocketPair<AFUNIXSocketChannel> pair = AFUNIXSocketPair.open();
+        try (FileSystem fs = FileSystems.newFileSystem(URI.create("jar:" + zip.toUri()),
+            Collections.<String, Object> emptyMap());
+            AFUNIXSocketChannel out = pair.getSocket1();
+            AFUNIXSocketChannel in = pair.getSocket2();
+            FileChannel fc = FileChannel.open(fs.getPath("data"), StandardOpenOption.READ)) {
+          CompletableFuture<byte[]> received = new CompletableFuture<>();
+          ThreadUtil.startNewDaemonThread(false, () -> {
+            ByteBuffer bb = ByteBuffer.allocate(data.length);
+            try {
+              while (bb.hasRemaining() && in.read(bb) >= 0) {
+                // keep reading
+              }
+              received.complete(bb.array());
+            } catch (IOException e) {
+              received.completeExceptionally(e);
+            }
+          });
+
+          assertEquals(data.length, out.transferFrom(fc, 0, data.length));
+          assertArrayEquals(data, received.get());
+        }
+      });
+    } finally {
+      Files.deleteIfExists(zip);
+    }
+  }
+}
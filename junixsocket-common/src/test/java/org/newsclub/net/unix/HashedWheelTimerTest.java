@@ -0,0 +1,108 @@
+/*
+ * junixsocket
+ *
+ * Copyright 2009-2026 Christian Kohlschütter
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.newsclub.net.unix;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+public class HashedWheelTimerTest {
+  @Test
+  public void testSchedule() throws Exception {
+    HashedWheelTimer timer = new HashedWheelTimer("test");
+
+    long time = System.nanoTime();
+    ScheduledFuture<String> future = timer.schedule(() -> "done", 20, TimeUnit.MILLISECONDS);
+    assertEquals("done", future.get(5, TimeUnit.SECONDS));
+    time = System.nanoTime() - time;
+
+    assertTrue(time >= TimeUnit.MILLISECONDS.toNanos(20), "Should not expire early");
+    assertTrue(future.isDone());
+    assertFalse(future.isCancelled());
+  }
+
+  @Test
+  public void testCancel() throws Exception {
+    HashedWheelTimer timer = new HashedWheelTimer("test");
+
+    AtomicInteger count = new AtomicInteger();
+    ScheduledFuture<?> future = timer.schedule(count::incrementAndGet, 20, TimeUnit.MILLISECONDS);
+    assertTrue(future.cancel(false));
+    assertTrue(future.isCancelled());
+
+    Thread.sleep(50);
+    assertEquals(0, count.get());
+    assertEquals(0, timer.getPendingCount());
+  }
+
+  @Test
+  public void testLongerThanOneRound() throws Exception {
+    HashedWheelTimer timer = new HashedWheelTimer("test", 1, TimeUnit.MILLISECONDS, 8);
+
+    long time = System.nanoTime();
+    ScheduledFuture<?> future = timer.schedule(() -> {
+    }, 50, TimeUnit.MILLISECONDS);
+    future.get(5, TimeUnit.SECONDS);
+    time = System.nanoTime() - time;
+
+    assertTrue(time >= TimeUnit.MILLISECONDS.toNanos(50), "Should not expire early");
+  }
+
+  @Test
+  public void testManyTimeouts() throws Exception {
+    HashedWheelTimer timer = new HashedWheelTimer("test");
+
+    int numTimeouts = 100_000;
+    CountDownLatch latch = new CountDownLatch(numTimeouts / 2);
+    AtomicInteger early = new AtomicInteger();
+    AtomicInteger cancelledButRun = new AtomicInteger();
+
+    ThreadLocalRandom rnd = ThreadLocalRandom.current();
+    for (int i = 0; i < numTimeouts; i++) {
+      boolean cancel = (i % 2) == 0;
+      // timeouts to be cancelled are far enough in the future to not expire before cancellation
+      long delayNanos = rnd.nextLong(cancel ? TimeUnit.MILLISECONDS.toNanos(250) : 0,
+          TimeUnit.MILLISECONDS.toNanos(500));
+      long deadline = System.nanoTime() + delayNanos;
+      ScheduledFuture<?> future = timer.schedule(() -> {
+        if (System.nanoTime() - deadline < 0) {
+          early.incrementAndGet();
+        }
+        if (cancel) {
+          cancelledButRun.incrementAndGet();
+        }
+        latch.countDown();
+      }, delayNanos, TimeUnit.NANOSECONDS);
+      if (cancel) {
+        future.cancel(false);
+      }
+    }
+
+    assertTrue(latch.await(10, TimeUnit.SECONDS), "All non-cancelled timeouts should expire");
+    assertEquals(0, early.get(), "Timeouts should not expire early");
+    assertEquals(0, cancelledButRun.get(), "Cancelled timeouts should not run");
+  }
+}
@@ -0,0 +1,217 @@
+/*
+ * junixsocket
+ *
+ * Copyright 2009-2026 Christian Kohlschütter
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.newsclub.net.unix;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.kohlschutter.annotations.compiletime.SuppressFBWarnings;
+
+/**
+ * Tests the persistent native library cache of {@link NativeLibraryLoader}, using fake library
+ * contents.
+ *
+ * @author Christian Kohlschütter
+ */
+@SuppressFBWarnings("PATH_TRAVERSAL_IN")
+public class NativeLibraryLoaderCacheTest {
+  private static final String LIBRARY_NAME = "junixsocket-native-test";
+
+  private Path tempDir;
+  private File cacheDir;
+
+  @BeforeEach
+  public void setUp() throws IOException {
+    tempDir = Files.createTempDirectory("jux");
+    cacheDir = new File(tempDir.toFile(), "cache");
+  }
+
+  @AfterEach
+  public void tearDown() throws IOException {
+    try (Stream<Path> paths = Files.walk(tempDir)) {
+      paths.sorted(Comparator.reverseOrder()).forEach((p) -> p.toFile().delete());
+    }
+  }
+
+  private URL createJar(String name, byte[] contents) throws IOException {
+    File jarFile = new File(tempDir.toFile(), name + ".jar");
+    try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jarFile.toPath()))) {
+      out.putNextEntry(new JarEntry("lib/" + LIBRARY_NAME));
+      out.write(contents);
+      out.closeEntry();
+    }
+    return URI.create("jar:" + jarFile.toURI() + "!/lib/" + LIBRARY_NAME).toURL();
+  }
+
+  private static byte[] randomBytes(int len) {
+    byte[] bytes = new byte[len];
+    ThreadLocalRandom.current().nextBytes(bytes);
+    return bytes;
+  }
+
+  @Test
+  public void testMissThenHit() throws Exception {
+    byte[] contents = randomBytes(100_000);
+    URL library = createJar("a", contents);
+
+    File libFile = NativeLibraryLoader.extractToCache(cacheDir, LIBRARY_NAME, library);
+    assertArrayEquals(contents, Files.readAllBytes(libFile.toPath()));
+
+    // A hit must not rewrite the cached copy
+    FileTime mtime = FileTime.fromMillis(1_000_000_000_000L);
+    Files.setLastModifiedTime(libFile.toPath(), mtime);
+
+    assertEquals(libFile, NativeLibraryLoader.extractToCache(cacheDir, LIBRARY_NAME, library));
+    assertEquals(mtime, Files.getLastModifiedTime(libFile.toPath()));
+  }
+
+  @Test
+  public void testTamperedCachedCopyIsReplaced() throws Exception {
+    byte[] contents = randomBytes(100_000);
+    URL library = createJar("a", contents);
+
+    File libFile = NativeLibraryLoader.extractToCache(cacheDir, LIBRARY_NAME, library);
+
+    // same size, different contents
+    byte[] tampered = contents.clone();
+    tampered[0] ^= 1;
+    Files.write(libFile.toPath(), tampered);
+
+    assertEquals(libFile, NativeLibraryLoader.extractToCache(cacheDir, LIBRARY_NAME, library));
+    assertArrayEquals(contents, Files.readAllBytes(libFile.toPath()));
+  }
+
+  @Test
+  public void testMissForDifferentContents() throws Exception {
+    byte[] contents = randomBytes(100_000);
+    File libFile1 = NativeLibraryLoader.extractToCache(cacheDir, LIBRARY_NAME, createJar("a",
+        contents));
+
+    byte[] contents2 = contents.clone();
+    contents2[contents2.length - 1] ^= 1;
+    File libFile2 = NativeLibraryLoader.extractToCache(cacheDir, LIBRARY_NAME, createJar("b",
+        contents2));
+
+    assertNotEquals(libFile1, libFile2);
+    assertArrayEquals(contents, Files.readAllBytes(libFile1.toPath()));
+    assertArrayEquals(contents2, Files.readAllBytes(libFile2.toPath()));
+  }
+
+  @Test
+  public void testCorruptCachedCopyIsReplaced() throws Exception {
+    byte[] contents = randomBytes(100_000);
+    URL library = createJar("a", contents);
+
+    File libFile = NativeLibraryLoader.extractToCache(cacheDir, LIBRARY_NAME, library);
+    Files.write(libFile.toPath(), Arrays.copyOf(contents, 1000)); // truncated
+
+    assertEquals(libFile, NativeLibraryLoader.extractToCache(cacheDir, LIBRARY_NAME, library));
+    assertArrayEquals(contents, Files.readAllBytes(libFile.toPath()));
+  }
+
+  @Test
+  public void testNotFromJar() throws Exception {
+    byte[] contents = randomBytes(100_000);
+    File plainFile = new File(tempDir.toFile(), LIBRARY_NAME);
+    Files.write(plainFile.toPath(), contents);
+    URL library = plainFile.toURI().toURL();
+
+    File libFile = NativeLibraryLoader.extractToCache(cacheDir, LIBRARY_NAME, library);
+    assertArrayEquals(contents, Files.readAllBytes(libFile.toPath()));
+    assertEquals(libFile, NativeLibraryLoader.extractToCache(cacheDir, LIBRARY_NAME, library));
+  }
+
+  @Test
+  public void testInsecureCacheDirectory() throws Exception {
+    assumeTrue(tempDir.getFileSystem().supportedFileAttributeViews().contains("posix"));
+
+    Files.createDirectory(cacheDir.toPath(), PosixFilePermissions.asFileAttribute(
+        PosixFilePermissions.fromString("rwx------")));
+    Files.setPosixFilePermissions(cacheDir.toPath(), PosixFilePermissions.fromString(
+        "rwxrwxrwx"));
+
+    URL library = createJar("a", randomBytes(1000));
+    assertThrows(IOException.class, () -> NativeLibraryLoader.extractToCache(cacheDir,
+        LIBRARY_NAME, library));
+  }
+
+  @Test
+  public void testConcurrentWriters() throws Exception {
+    byte[] contents = randomBytes(1_000_000);
+    URL library = createJar("a", contents);
+
+    int numThreads = 8;
+    CyclicBarrier barrier = new CyclicBarrier(numThreads);
+    ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+    try {
+      List<Future<File>> futures = new ArrayList<>();
+      for (int i = 0; i < numThreads; i++) {
+        futures.add(executor.submit(() -> {
+          barrier.await();
+          return NativeLibraryLoader.extractToCache(cacheDir, LIBRARY_NAME, library);
+        }));
+      }
+
+      File libFile = null;
+      for (Future<File> f : futures) {
+        File file = f.get(30, TimeUnit.SECONDS);
+        if (libFile == null) {
+          libFile = file;
+        } else {
+          assertEquals(libFile, file);
+        }
+      }
+      assertArrayEquals(contents, Files.readAllBytes(libFile.toPath()));
+    } finally {
+      executor.shutdown();
+    }
+
+    // no leftover temporary files (just the library and its digest)
+    String[] names = cacheDir.list();
+    assertEquals(2, names == null ? 0 : names.length, Arrays.toString(names));
+  }
+}
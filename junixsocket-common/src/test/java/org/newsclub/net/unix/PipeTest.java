@@ -19,6 +19,7 @@ package org.newsclub.net.unix;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
@@ -127,4 +128,62 @@ public final class PipeTest {
     // System.out.println("AFPipe: passes/msec " + passesPerMsec);
     assertNotEquals(0, passesPerMsec);
   }
+
+  /**
+   * Tests growing the pipe capacity.
+   *
+   * @throws IOException on error.
+   */
+  @Test
+  @AFSocketCapabilityRequirement(AFSocketCapability.CAPABILITY_SPLICE)
+  public void testCapacity() throws IOException {
+    try (AFPipe pipe = AFPipe.open()) {
+      int capacity = pipe.getCapacity();
+      assertTrue(capacity > 0);
+      int newCapacity = pipe.setCapacity(capacity * 4);
+      assertTrue(newCapacity >= capacity * 4);
+      assertEquals(newCapacity, pipe.getCapacity());
+    }
+  }
+
+  /**
+   * Tests writing direct buffers via vmsplice, and transferring data from a socket into the pipe,
+   * and from the pipe into a socket.
+   *
+   * @throws IOException on error.
+   */
+  @Test
+  public void testTransfer() throws IOException {
+    ByteBuffer out = ByteBuffer.allocateDirect(4096);
+    for (int i = 0; i < out.capacity(); i++) {
+      out.put((byte) i);
+    }
+    out.flip();
+
+    AFUNIXSocketPair<AFUNIXSocketChannel> socketPair = AFUNIXSocketPair.open();
+    try (AFPipe pipe = AFPipe.open(); AFUNIXSocketChannel s1 = socketPair.getSocket1();
+        AFUNIXSocketChannel s2 = socketPair.getSocket2()) {
+      while (out.hasRemaining()) {
+        pipe.sink().writeUnmodifiable(out);
+      }
+
+      long transferred = 0;
+      while (transferred < out.capacity()) {
+        transferred += pipe.source().transferTo(out.capacity() - transferred, s1);
+      }
+
+      transferred = 0;
+      while (transferred < out.capacity()) {
+        transferred += pipe.sink().transferFrom(s2, out.capacity() - transferred);
+      }
+
+      ByteBuffer in = ByteBuffer.allocate(out.capacity());
+      while (in.hasRemaining()) {
+        pipe.source().read(in);
+      }
+      in.flip();
+      out.rewind();
+      assertEquals(out, in);
+    }
+  }
 }
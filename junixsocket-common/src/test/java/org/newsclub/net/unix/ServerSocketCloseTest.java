@@ -20,6 +20,7 @@ package org.newsclub.net.unix;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
 import java.io.IOException;
@@ -47,22 +48,35 @@ public abstract class ServerSocketCloseTest<A extends SocketAddress> extends Soc
   @Test
   @Timeout(value = 60, unit = TimeUnit.SECONDS)
   public void testUnblockAcceptsWithSoTimeout() throws Exception {
-    testUnblockAccepts(60 * 1000);
+    testUnblockAccepts(60 * 1000, 4);
   }
 
   @Test
   public void testUnblockAcceptsWithoutSoTimeout() throws Exception {
-    testUnblockAccepts(0);
+    testUnblockAccepts(0, 4);
   }
 
+  @Test
+  public void testUnblockManyAcceptsQuickly() throws Exception {
+    long elapsed = testUnblockAccepts(0, 64);
+    assertTrue(elapsed < TimeUnit.SECONDS.toMillis(1),
+        "Unblocking 64 pending accepts should be quick; took " + elapsed + "ms");
+  }
+
+  /**
+   * Blocks the given number of threads in accept, then closes the server socket.
+   *
+   * @param timeout The socket timeout.
+   * @param numThreads The number of threads.
+   * @return The time in milliseconds it took until all threads were unblocked after closing.
+   * @throws Exception on error.
+   */
   @SuppressWarnings("PMD.CognitiveComplexity")
-  private void testUnblockAccepts(int timeout) throws Exception {
-    assertTimeoutPreemptively(Duration.ofSeconds(30), () -> {
+  private long testUnblockAccepts(int timeout, int numThreads) throws Exception {
+    return assertTimeoutPreemptively(Duration.ofSeconds(30), () -> {
       try (ServerSocket serverSocket = newServerSocketBindOn(getServerBindAddress())) {
         serverSocket.setSoTimeout(timeout);
 
-        final int numThreads = 4;
-
         final CountDownLatch cdl = new CountDownLatch(numThreads);
 
         @SuppressWarnings("all") // "resource"; only since Java 19 ThreadPoolExecutor is
@@ -98,10 +112,12 @@ public abstract class ServerSocketCloseTest<A extends SocketAddress> extends Soc
         cdl.await();
         Thread.sleep(100);
 
+        long time = System.currentTimeMillis();
         serverSocket.close();
 
         threadPool.shutdown();
         threadPool.awaitTermination(5, TimeUnit.SECONDS);
+        time = System.currentTimeMillis() - time;
 
         int active = threadPool.getActiveCount();
         if (active == numThreads) {
@@ -119,6 +135,7 @@ public abstract class ServerSocketCloseTest<A extends SocketAddress> extends Soc
         }
 
         assertEquals(0, active, "There should be no pending accepts");
+        return time;
       }
     });
   }
@@ -199,6 +199,69 @@ public abstract class ThroughputTest<A extends SocketAddress> extends SocketTest
     });
   }
 
+  /**
+   * Measures the round-trip latency of a 1-byte ping-pong over a socket pair, with reads
+   * busy-polling for up to 50µs before blocking (see {@link AFSocketChannel#setReadSpinNanos(long)}).
+   *
+   * @throws Exception on error.
+   */
+  @Test
+  public void testSocketPairPingPongSpin() throws Exception {
+    assumeTrue(ENABLED > 0, "Throughput tests are disabled");
+    assertTimeoutPreemptively(Duration.ofSeconds(NUM_SECONDS + GRACE_TIME_NUM_SECONDS), () -> {
+      try (CloseablePair<? extends SocketChannel> pair = newSocketPair()) {
+        SocketChannel ping = pair.getFirst();
+        SocketChannel pong = pair.getSecond();
+        assumeTrue(ping instanceof AFSocketChannel, "Read spinning is specific to junixsocket");
+        ((AFSocketChannel<?>) ping).setReadSpinNanos(TimeUnit.MICROSECONDS.toNanos(50));
+        ((AFSocketChannel<?>) pong).setReadSpinNanos(TimeUnit.MICROSECONDS.toNanos(50));
+
+        AtomicBoolean keepRunning = new AtomicBoolean(true);
+        CompletableFuture<Void> echo = CompletableFuture.runAsync(() -> {
+          ByteBuffer bb = ByteBuffer.allocateDirect(1);
+          try {
+            while (pong.read(bb) >= 0) {
+              bb.flip();
+              pong.write(bb);
+              bb.clear();
+            }
+          } catch (IOException e) {
+            if (keepRunning.get()) {
+              throw new IllegalStateException(e);
+            }
+          }
+        });
+
+        TestAsyncUtil.runAsyncDelayed(NUM_MILLISECONDS, TimeUnit.MILLISECONDS, () -> {
+          keepRunning.set(false);
+        });
+
+        ByteBuffer bb = ByteBuffer.allocateDirect(1);
+        long roundTrips = 0;
+        long time = System.nanoTime();
+        while (keepRunning.get()) {
+          bb.clear();
+          bb.put((byte) roundTrips);
+          bb.flip();
+          ping.write(bb);
+          bb.clear();
+          assertEquals(1, ping.read(bb));
+          assertEquals((byte) roundTrips, bb.get(0));
+          roundTrips++;
+        }
+        time = System.nanoTime() - time;
+
+        ping.shutdownOutput();
+        echo.get();
+
+        AFSocketChannel<?> afPing = (AFSocketChannel<?>) ping;
+        reportResults(stbTestType() + " ping-pong spin", (time / 1000f / roundTrips)
+            + " µs per round trip (spin hits: " + afPing.getReadSpinHits() + ", misses: " + afPing
+                .getReadSpinMisses() + ")");
+      }
+    });
+  }
+
   @FunctionalInterface
   protected interface SupplierWithException<T, E extends Exception> {
     T get() throws E;
@@ -17,18 +17,24 @@
  */
 package org.newsclub.net.unix.domain;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.fail;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 
 import org.junit.jupiter.api.Test;
 import org.newsclub.net.unix.AFDatagramSocket;
+import org.newsclub.net.unix.AFMessageBuffer;
 import org.newsclub.net.unix.AFSocketCapability;
 import org.newsclub.net.unix.AFSocketCapabilityRequirement;
 import org.newsclub.net.unix.AFSocketType;
@@ -73,6 +79,57 @@ public final class DatagramSocketTest extends
     assertEquals(msg, StandardCharsets.UTF_8.decode(dst).toString());
   }
 
+  @Test
+  public void testSeqPacketMessages() throws Exception {
+    AFUNIXSocketPair<AFUNIXDatagramChannel> pair;
+    try {
+      pair = AFUNIXSocketPair.openDatagram(AFSocketType.SOCK_SEQPACKET);
+    } catch (OperationNotSupportedSocketException e) {
+      throw new TestAbortedNotAnIssueException("SEQPACKET not supported", e);
+    }
+
+    byte[] large = new byte[5000];
+    for (int i = 0; i < large.length; i++) {
+      large[i] = (byte) i;
+    }
+
+    AFUNIXDatagramChannel sender = pair.getSocket1();
+    AFUNIXDatagramChannel receiver = pair.getSocket2();
+
+    sender.write(ByteBuffer.wrap(large));
+    assertEquals(large.length, receiver.nextMessageSize());
+    try (AFMessageBuffer message = receiver.receiveMessage()) {
+      assertNotNull(message);
+      assertEquals(large.length, message.length());
+      byte[] received = new byte[large.length];
+      message.getBuffer().get(received);
+      assertArrayEquals(large, received);
+    }
+
+    sender.write(ByteBuffer.wrap(new byte[] {1}));
+    sender.write(ByteBuffer.wrap(new byte[] {2, 3}));
+    sender.write(ByteBuffer.wrap(new byte[] {4, 5, 6}));
+
+    List<AFMessageBuffer> messages = new ArrayList<>();
+    assertEquals(2, receiver.receiveMessages(messages, 2));
+    assertEquals(1, receiver.receiveMessages(messages, 10));
+    try {
+      for (int i = 0; i < 3; i++) {
+        AFMessageBuffer message = messages.get(i);
+        assertEquals(i + 1, message.length());
+        assertEquals(i * (i + 1) / 2 + 1, message.getBuffer().get(0));
+      }
+    } finally {
+      for (AFMessageBuffer message : messages) {
+        message.close();
+      }
+    }
+
+    receiver.configureBlocking(false);
+    assertEquals(0, receiver.nextMessageSize());
+    assertNull(receiver.receiveMessage());
+  }
+
   @Test
   public void testSeqPacket() throws Exception {
     boolean gotInstance = false;
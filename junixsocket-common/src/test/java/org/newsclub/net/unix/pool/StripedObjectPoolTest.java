@@ -0,0 +1,176 @@
+/*
+ * junixsocket
+ *
+ * Copyright 2009-2026 Christian Kohlschütter
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.newsclub.net.unix.pool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.newsclub.net.unix.pool.ObjectPool.Lease;
+
+public class StripedObjectPoolTest {
+  @Test
+  public void testReuse() throws Exception {
+    StripedObjectPool<StringBuilder> pool = new StripedObjectPool<>(StringBuilder::new, (sb) -> {
+      sb.setLength(0);
+      return true;
+    }, 1, 1);
+
+    StringBuilder sb;
+    Lease<StringBuilder> lease = pool.take();
+    sb = lease.get();
+    sb.append("Hello");
+    lease.close();
+
+    Lease<StringBuilder> lease2 = pool.take();
+    assertSame(sb, lease2.get());
+    assertEquals(0, lease2.get().length(), "Object should have been sanitized");
+
+    Lease<StringBuilder> lease3 = pool.take();
+    assertNotSame(sb, lease3.get());
+    lease3.close();
+
+    lease2.close();
+
+    assertEquals(1, pool.getHitCount());
+    assertEquals(1, pool.getMissCount());
+    assertEquals(1, pool.getOverflowCount());
+  }
+
+  @Test
+  public void testLeaseObjectsAreReused() throws Exception {
+    StripedObjectPool<Object> pool = new StripedObjectPool<>(Object::new, (o) -> true, 1, 1);
+
+    Lease<Object> first = pool.take();
+    first.close();
+    boolean reused = false;
+    for (int i = 0; i < 16 && !reused; i++) {
+      Lease<Object> lease = pool.take();
+      reused = (lease == first);
+      lease.close();
+    }
+    assertTrue(reused, "Lease objects should be reused");
+  }
+
+  @Test
+  public void testStaleLeaseFailsFast() throws Exception {
+    StripedObjectPool<Object> pool = new StripedObjectPool<>(Object::new, (o) -> true, 1, 1);
+
+    Lease<Object> stale = pool.take();
+    stale.close();
+    assertThrows(IllegalStateException.class, stale::close);
+
+    Lease<Object> current = pool.take();
+    Object o = current.get();
+
+    // misuse of the stale lease must not affect the current borrower
+    assertNull(stale.get());
+    assertThrows(IllegalStateException.class, stale::close);
+    assertThrows(IllegalStateException.class, stale::discard);
+    assertSame(o, current.get());
+
+    // the slot is still leased, so the next take overflows
+    try (Lease<Object> other = pool.take()) {
+      assertNotSame(o, other.get());
+    }
+    assertEquals(1, pool.getOverflowCount());
+
+    current.close();
+    try (Lease<Object> next = pool.take()) {
+      assertSame(o, next.get());
+    }
+  }
+
+  @Test
+  public void testDiscard() throws Exception {
+    StripedObjectPool<Object> pool = new StripedObjectPool<>(Object::new, (o) -> true, 1, 1);
+
+    Lease<Object> lease = pool.take();
+    Object o = lease.get();
+    lease.discard();
+    assertNull(lease.get());
+    lease.close();
+
+    try (Lease<Object> lease2 = pool.take()) {
+      assertNotSame(o, lease2.get());
+    }
+    assertEquals(2, pool.getMissCount());
+  }
+
+  @Test
+  public void testSanitizeFails() throws Exception {
+    StripedObjectPool<Object> pool = new StripedObjectPool<>(Object::new, (o) -> false, 1, 1);
+
+    Object o;
+    try (Lease<Object> lease = pool.take()) {
+      o = lease.get();
+    }
+    try (Lease<Object> lease = pool.take()) {
+      assertNotSame(o, lease.get());
+    }
+    assertEquals(0, pool.getHitCount());
+  }
+
+  @Test
+  public void testConcurrentExclusive() throws Exception {
+    AtomicInteger created = new AtomicInteger();
+    StripedObjectPool<AtomicInteger> pool = new StripedObjectPool<>(() -> {
+      created.incrementAndGet();
+      return new AtomicInteger();
+    }, (o) -> true);
+
+    int numThreads = 8;
+    int iterations = 100_000;
+    ExecutorService es = Executors.newFixedThreadPool(numThreads);
+    try {
+      @SuppressWarnings("unchecked")
+      Future<Void>[] futures = new Future[numThreads];
+      for (int t = 0; t < numThreads; t++) {
+        futures[t] = es.submit(() -> {
+          for (int i = 0; i < iterations; i++) {
+            try (Lease<AtomicInteger> lease = pool.take()) {
+              AtomicInteger ai = lease.get();
+              assertEquals(1, ai.incrementAndGet(), "Object must be leased exclusively");
+              ai.decrementAndGet();
+            }
+          }
+          return null;
+        });
+      }
+      for (Future<Void> f : futures) {
+        f.get();
+      }
+    } finally {
+      es.shutdown();
+    }
+
+    long total = pool.getHitCount() + pool.getMissCount() + pool.getOverflowCount();
+    assertEquals((long) numThreads * iterations, total);
+    assertEquals(created.get(), pool.getMissCount() + pool.getOverflowCount());
+    assertTrue(pool.getMissCount() <= pool.getCapacity());
+  }
+}
@@ -27,7 +27,9 @@ import org.eclipse.jetty.io.ClientConnector;
 import org.eclipse.jetty.io.SelectorManager;
 import org.eclipse.jetty.io.Transport;
 import org.eclipse.jetty.server.Connector;
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
 import org.newsclub.net.unix.AFAddressFamily;
+import org.newsclub.net.unix.AFSelectorProvider;
 import org.newsclub.net.unix.AFSocketAddress;
 
 /**
@@ -37,14 +39,18 @@ import org.newsclub.net.unix.AFSocketAddress;
  *
  * This implementation should work with jetty version 12.1.0 or newer.
  *
+ * By default, the connector's selectors are obtained via {@link SelectorProvider#openSelector()};
+ * see {@link #setUseScalableSelector(boolean)} to use epoll-based selectors instead.
+ *
  * @author Christian Kohlschütter
  */
 public final class AFSocketClientConnector extends ClientConnector {
   private final AFAddressFamily<?> addressFamily;
   private final AFSocketAddress addr;
   private final Transport transport;
+  private volatile boolean useScalableSelector = false;
 
-  private AFSocketClientConnector(AFSocketAddress addr) {
+  AFSocketClientConnector(AFSocketAddress addr) {
     super();
     this.addr = addr;
     this.transport = AFSocketTransport.withSocketChannel(addr);
@@ -62,12 +68,37 @@ public final class AFSocketClientConnector extends ClientConnector {
     return new AFSocketClientConnector(addr);
   }
 
+  /**
+   * Checks whether this connector uses selectors that are optimized for a large number of
+   * connections (epoll-based, where supported).
+   *
+   * @return {@code true} if so.
+   */
+  @ManagedAttribute("Whether this connector uses epoll-based selectors, where supported")
+  public boolean isUseScalableSelector() {
+    return useScalableSelector;
+  }
+
+  /**
+   * Sets whether this connector uses selectors that are optimized for a large number of
+   * connections (epoll-based, where supported). Must be set before the connector is started.
+   *
+   * @param useScalableSelector {@code true} if so (default: {@code false}).
+   * @see AFSelectorProvider#openScalableSelector()
+   */
+  public void setUseScalableSelector(boolean useScalableSelector) {
+    this.useScalableSelector = useScalableSelector;
+  }
+
   @Override
   protected SelectorManager newSelectorManager() {
     return new ClientSelectorManager(getExecutor(), getScheduler(), getSelectors()) {
       @Override
       protected Selector newSelector() throws IOException {
         SelectorProvider provider = addressFamily.getSelectorProvider();
+        if (isUseScalableSelector() && provider instanceof AFSelectorProvider<?>) {
+          return ((AFSelectorProvider<?>) provider).openScalableSelector();
+        }
         return provider.openSelector();
       }
     };
@@ -0,0 +1,164 @@
+/*
+ * junixsocket
+ *
+ * Copyright 2009-2026 Christian Kohlschütter
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.newsclub.net.unix.jetty;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+import org.eclipse.jetty.client.ConnectionPool;
+import org.eclipse.jetty.client.Destination;
+import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.jetty.client.HttpClientTransport;
+import org.eclipse.jetty.client.transport.HttpClientTransportOverHTTP;
+import org.eclipse.jetty.http2.client.HTTP2Client;
+import org.eclipse.jetty.http2.client.transport.HttpClientTransportOverHTTP2;
+import org.eclipse.jetty.io.ClientConnector;
+import org.newsclub.net.unix.AFSocketAddress;
+
+/**
+ * Creates jetty {@link HttpClient}s that talk to a local junixsocket server (e.g., a Docker-style
+ * daemon listening on a Unix domain socket), with connection pool settings suitable for high
+ * request rates.
+ *
+ * Connections to local sockets are cheap to keep open, so the returned clients keep a small number
+ * of connections per destination alive for reuse, and allow many requests to be queued while all
+ * connections are busy, instead of establishing a new connection for each request.
+ *
+ * Use {@link #newHttpClient(AFSocketAddress)} for HTTP/1.1 (with keep-alive), or
+ * {@link #newHttp2cClient(AFSocketAddress)} for HTTP/2 without TLS ("h2c", with prior knowledge),
+ * where requests are multiplexed over a single connection. The latter requires
+ * {@code jetty-http2-client-transport} on the classpath, and an h2c-enabled server (e.g., an
+ * {@link AFSocketServerConnector} with an {@code HTTP2CServerConnectionFactory}).
+ *
+ * Clients are returned unstarted, so settings can be adjusted further before calling
+ * {@link HttpClient#start()}. Connections can then be established ahead of time via
+ * {@link #prewarm(HttpClient, String, int)}.
+ *
+ * This implementation should work with jetty version 12.1.0 or newer.
+ *
+ * @author Christian Kohlschütter
+ */
+public final class AFSocketHttpClients {
+  /**
+   * The default maximum number of HTTP/1.1 connections per destination.
+   */
+  public static final int DEFAULT_MAX_CONNECTIONS_PER_DESTINATION = 16;
+
+  /**
+   * The default maximum number of HTTP/2 connections per destination; each of them can carry many
+   * concurrent requests.
+   */
+  public static final int DEFAULT_MAX_HTTP2_CONNECTIONS_PER_DESTINATION = 2;
+
+  /**
+   * The default maximum number of requests that may be queued per destination while all
+   * connections are busy.
+   */
+  public static final int DEFAULT_MAX_REQUESTS_QUEUED_PER_DESTINATION = 8192;
+
+  /**
+   * The default idle timeout after which pooled connections are closed.
+   */
+  public static final Duration DEFAULT_IDLE_TIMEOUT = Duration.ofSeconds(60);
+
+  /**
+   * The default connect timeout. Connecting to a local socket either succeeds or fails quickly.
+   */
+  public static final Duration DEFAULT_CONNECT_TIMEOUT = Duration.ofSeconds(5);
+
+  private AFSocketHttpClients() {
+    throw new IllegalStateException("No instances");
+  }
+
+  /**
+   * Creates a new, unstarted HTTP/1.1 {@link HttpClient} that connects to the given address, with
+   * pooling defaults suitable for a local server.
+   *
+   * @param addr The server's socket address.
+   * @return The client.
+   */
+  public static HttpClient newHttpClient(AFSocketAddress addr) {
+    HttpClient client = new HttpClient(new HttpClientTransportOverHTTP(newClientConnector(addr)));
+    configure(client, DEFAULT_MAX_CONNECTIONS_PER_DESTINATION);
+    return client;
+  }
+
+  /**
+   * Creates a new, unstarted HTTP/2 {@link HttpClient} that connects to the given address using
+   * cleartext HTTP/2 with prior knowledge ("h2c"); concurrent requests are multiplexed over a
+   * single connection (up to the server's limit of concurrent streams per connection).
+   *
+   * @param addr The server's socket address.
+   * @return The client.
+   */
+  public static HttpClient newHttp2cClient(AFSocketAddress addr) {
+    HttpClient client = new HttpClient(Http2c.newTransport(newClientConnector(addr)));
+    configure(client, DEFAULT_MAX_HTTP2_CONNECTIONS_PER_DESTINATION);
+    return client;
+  }
+
+  /**
+   * Establishes connections to the destination of the given URI ahead of time, so that subsequent
+   * requests don't have to wait for a connection to be established.
+   *
+   * Since an {@link AFSocketClientConnector} always connects to its configured socket address, the
+   * URI's host and port are only used to identify the destination (they should match the ones used
+   * for subsequent requests, e.g., {@code http://localhost/}).
+   *
+   * @param client The client (must be started).
+   * @param uri The URI identifying the destination.
+   * @param connections The number of connections to establish.
+   * @return A future that completes once the connections have been established.
+   */
+  public static CompletableFuture<Void> prewarm(HttpClient client, String uri, int connections) {
+    if (connections < 0) {
+      throw new IllegalArgumentException("connections");
+    }
+    Destination destination = client.resolveDestination(client.newRequest(uri));
+    ConnectionPool pool = destination.getConnectionPool();
+    return pool.preCreateConnections(connections);
+  }
+
+  private static ClientConnector newClientConnector(AFSocketAddress addr) {
+    AFSocketClientConnector connector = new AFSocketClientConnector(addr);
+    connector.setUseScalableSelector(true);
+    connector.setSelectors(1);
+    connector.setConnectTimeout(DEFAULT_CONNECT_TIMEOUT);
+    connector.setIdleTimeout(DEFAULT_IDLE_TIMEOUT);
+    return connector;
+  }
+
+  private static void configure(HttpClient client, int maxConnectionsPerDestination) {
+    client.setMaxConnectionsPerDestination(maxConnectionsPerDestination);
+    client.setMaxRequestsQueuedPerDestination(DEFAULT_MAX_REQUESTS_QUEUED_PER_DESTINATION);
+    client.setIdleTimeout(DEFAULT_IDLE_TIMEOUT.toMillis());
+    client.setConnectTimeout(DEFAULT_CONNECT_TIMEOUT.toMillis());
+  }
+
+  /**
+   * Keeps references to the (optional) HTTP/2 classes out of {@link AFSocketHttpClients}.
+   */
+  private static final class Http2c {
+    static HttpClientTransport newTransport(ClientConnector connector) {
+      HttpClientTransportOverHTTP2 transport = new HttpClientTransportOverHTTP2(new HTTP2Client(
+          connector));
+      transport.setUseALPN(false);
+      return transport;
+    }
+  }
+}
@@ -69,6 +69,7 @@ import org.eclipse.jetty.util.annotation.ManagedAttribute;
 import org.eclipse.jetty.util.annotation.ManagedObject;
 import org.eclipse.jetty.util.thread.ScheduledExecutorScheduler;
 import org.eclipse.jetty.util.thread.Scheduler;
+import org.newsclub.net.unix.AFSelectorProvider;
 import org.newsclub.net.unix.AFServerSocketChannel;
 import org.newsclub.net.unix.AFSocketAddress;
 import org.newsclub.net.unix.AFUNIXSocketAddress;
@@ -83,6 +84,18 @@ import com.kohlschutter.annotations.compiletime.SuppressFBWarnings;
  * Based upon jetty's UnixDomainServerConnector.
  *
  * This implementation should work with jetty version 9.4.12 or newer.
+ *
+ * By default, the connector's selectors are obtained via
+ * {@link AFSelectorProvider#openScalableSelector()}, which uses epoll where supported, so the cost
+ * of each selection operation depends on the number of active connections rather than the number
+ * of open ones (see {@link #setUseScalableSelector(boolean)}).
+ *
+ * Jetty hands all content (including static file resources) to the connection as
+ * {@link java.nio.ByteBuffer}s, so this connector does not use {@code sendfile(2)}. Content in
+ * direct buffers (e.g., file-mapped resources) is written without an intermediate copy, and the
+ * response headers and content are written with one gathering write. Code that has a
+ * {@link java.nio.channels.FileChannel} at hand can send it with {@code sendfile(2)} via
+ * {@code AFSocketChannel#transferFrom}.
  */
 @ManagedObject
 @SuppressWarnings("PMD.CouplingBetweenObjects")
@@ -99,6 +112,7 @@ public class AFSocketServerConnector extends AbstractConnector {
   private volatile int acceptedSendBufferSize;
   private volatile boolean mayStopServer = false;
   private volatile boolean mayStopServerForce = false;
+  private volatile boolean useScalableSelector = true;
 
   private final Class<? extends EventListener> selectorManagerListenerClass;
   private final Server server;
@@ -310,6 +324,28 @@ public class AFSocketServerConnector extends AbstractConnector {
     this.acceptedSendBufferSize = acceptedSendBufferSize;
   }
 
+  /**
+   * Checks whether this connector uses selectors that are optimized for a large number of
+   * connections (epoll-based, where supported).
+   *
+   * @return {@code true} if so (default).
+   */
+  @ManagedAttribute("Whether this connector uses epoll-based selectors, where supported")
+  public boolean isUseScalableSelector() {
+    return useScalableSelector;
+  }
+
+  /**
+   * Sets whether this connector uses selectors that are optimized for a large number of
+   * connections (epoll-based, where supported). Must be set before the connector is started.
+   *
+   * @param useScalableSelector {@code true} if so.
+   * @see AFSelectorProvider#openScalableSelector()
+   */
+  public void setUseScalableSelector(boolean useScalableSelector) {
+    this.useScalableSelector = useScalableSelector;
+  }
+
   @Override
   protected void doStart() throws Exception {
     if (selectorManagerListenerClass != null) {
@@ -489,6 +525,9 @@ public class AFSocketServerConnector extends AbstractConnector {
     @Override
     protected Selector newSelector() throws IOException {
       SelectorProvider provider = listenSocketAddress.getAddressFamily().getSelectorProvider();
+      if (isUseScalableSelector() && provider instanceof AFSelectorProvider<?>) {
+        return ((AFSelectorProvider<?>) provider).openScalableSelector();
+      }
       return provider.openSelector();
     }
 
@@ -0,0 +1,142 @@
+/*
+ * junixsocket
+ *
+ * Copyright 2009-2026 Christian Kohlschütter
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.newsclub.net.unix.jetty;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jetty.client.CompletableResponseListener;
+import org.eclipse.jetty.client.ContentResponse;
+import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.jetty.http.HttpStatus;
+import org.eclipse.jetty.http.HttpVersion;
+import org.eclipse.jetty.http2.server.HTTP2CServerConnectionFactory;
+import org.eclipse.jetty.io.Content;
+import org.eclipse.jetty.server.ConnectionFactory;
+import org.eclipse.jetty.server.Handler;
+import org.eclipse.jetty.server.HttpConfiguration;
+import org.eclipse.jetty.server.HttpConnectionFactory;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Response;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.util.Callback;
+import org.eclipse.jetty.util.component.LifeCycle;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.newsclub.net.unix.AFUNIXSocketAddress;
+
+/**
+ * Tests connection reuse and HTTP/2 multiplexing with {@link AFSocketHttpClients}.
+ *
+ * @author Christian Kohlschütter
+ */
+public class AFSocketHttpClientsTest {
+  private static final String URI = "http://localhost/";
+  private static final int NUM_REQUESTS = 500;
+
+  private final Set<Object> connectionIds = ConcurrentHashMap.newKeySet();
+  private Server server;
+  private AFUNIXSocketAddress addr;
+
+  @BeforeAll
+  public static void setUp() {
+    System.setProperty("org.slf4j.simpleLogger.log.org.eclipse.jetty", "error");
+  }
+
+  private void start(ConnectionFactory... factories) throws Exception {
+    server = new Server();
+    AFSocketServerConnector connector = new AFSocketServerConnector(server, factories);
+    addr = AFUNIXSocketAddress.ofNewTempFile();
+    connector.setListenSocketAddress(addr);
+    server.addConnector(connector);
+    server.setHandler(new Handler.Abstract() {
+      @Override
+      public boolean handle(Request request, Response response, Callback callback)
+          throws Exception {
+        connectionIds.add(request.getConnectionMetaData().getId());
+        response.setStatus(HttpStatus.OK_200);
+        Content.Sink.write(response, true, "OK", callback);
+        return true;
+      }
+    });
+    server.start();
+  }
+
+  @AfterEach
+  public void dispose() {
+    LifeCycle.stop(server);
+  }
+
+  @Test
+  public void testHttp11Pooling() throws Exception {
+    start(new HttpConnectionFactory());
+
+    try (HttpClient client = AFSocketHttpClients.newHttpClient(addr)) {
+      client.start();
+      AFSocketHttpClients.prewarm(client, URI, 4).get(5, TimeUnit.SECONDS);
+
+      sendConcurrently(client, HttpVersion.HTTP_1_1);
+
+      int numConnections = connectionIds.size();
+      assertTrue(numConnections >= 1, "At least one connection was used");
+      assertTrue(numConnections <= AFSocketHttpClients.DEFAULT_MAX_CONNECTIONS_PER_DESTINATION,
+          "Connections should be reused; got " + numConnections);
+    }
+  }
+
+  @Test
+  public void testHttp2cMultiplexing() throws Exception {
+    start(new HTTP2CServerConnectionFactory(new HttpConfiguration()));
+
+    try (HttpClient client = AFSocketHttpClients.newHttp2cClient(addr)) {
+      client.start();
+      AFSocketHttpClients.prewarm(client, URI, 1).get(5, TimeUnit.SECONDS);
+
+      sendConcurrently(client, HttpVersion.HTTP_2);
+
+      int numConnections = connectionIds.size();
+      assertTrue(numConnections >= 1, "At least one connection was used");
+      int maxConnections = AFSocketHttpClients.DEFAULT_MAX_HTTP2_CONNECTIONS_PER_DESTINATION;
+      assertTrue(numConnections <= maxConnections, "Requests should be multiplexed; got "
+          + numConnections + " connections");
+    }
+  }
+
+  private static void sendConcurrently(HttpClient client, HttpVersion expectedVersion)
+      throws Exception {
+    List<CompletableFuture<ContentResponse>> futures = new ArrayList<>(NUM_REQUESTS);
+    for (int i = 0; i < NUM_REQUESTS; i++) {
+      futures.add(new CompletableResponseListener(client.newRequest(URI).timeout(10,
+          TimeUnit.SECONDS)).send());
+    }
+    for (CompletableFuture<ContentResponse> future : futures) {
+      ContentResponse response = future.get(30, TimeUnit.SECONDS);
+      assertEquals(HttpStatus.OK_200, response.getStatus());
+      assertEquals(expectedVersion, response.getVersion());
+      assertEquals("OK", response.getContentAsString());
+    }
+  }
+}
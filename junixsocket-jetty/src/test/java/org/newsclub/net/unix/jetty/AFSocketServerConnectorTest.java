@@ -65,6 +65,20 @@ public class AFSocketServerConnectorTest {
     assertFalse(addr.getFile().exists()); // isDeleteOnClose=true by default
   }
 
+  @Test
+  public void testServerAFUNIXPollSelector() throws Exception {
+    AFSocketAddress addr = (AFSocketAddress) AFUNIXAddressSpecifics.INSTANCE
+        .newTempAddressForDatagram();
+    Server server = newServer(addr, false);
+    try {
+      checkConnection(addr);
+      checkConnection(addr);
+    } finally {
+      server.stop();
+      server.join();
+    }
+  }
+
   private void checkConnection(AFSocketAddress addr) throws Exception {
     OkHttpClient.Builder builder = new OkHttpClient.Builder() //
         .socketFactory(new AFSocketFactory.FixedAddressSocketFactory(addr)) //
@@ -90,6 +104,11 @@ public class AFSocketServerConnectorTest {
   }
 
   private static Server newServer(AFSocketAddress addr) throws Exception {
+    return newServer(addr, true);
+  }
+
+  private static Server newServer(AFSocketAddress addr, boolean scalableSelector)
+      throws Exception {
     Server server = new Server();
 
     // below code is based upon
@@ -114,6 +133,10 @@ public class AFSocketServerConnectorTest {
     // Try to automatically stop server if another instance reuses our address
     connector.setMayStopServer(true);
 
+    // Use epoll-based selectors, where supported (default: true)
+    assertTrue(connector.isUseScalableSelector());
+    connector.setUseScalableSelector(scalableSelector);
+
     server.addConnector(connector);
     server.start();
 
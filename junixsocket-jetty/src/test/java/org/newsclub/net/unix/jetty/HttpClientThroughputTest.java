@@ -0,0 +1,183 @@
+/*
+ * junixsocket
+ *
+ * Copyright 2009-2026 Christian Kohlschütter
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.newsclub.net.unix.jetty;
+
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.util.Locale;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.jetty.client.Request;
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.http.HttpStatus;
+import org.eclipse.jetty.http2.server.HTTP2CServerConnectionFactory;
+import org.eclipse.jetty.io.Content;
+import org.eclipse.jetty.server.Handler;
+import org.eclipse.jetty.server.HttpConfiguration;
+import org.eclipse.jetty.server.HttpConnectionFactory;
+import org.eclipse.jetty.server.Response;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.util.Callback;
+import org.eclipse.jetty.util.component.LifeCycle;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.newsclub.net.unix.AFUNIXSocketAddress;
+
+import com.kohlschutter.util.SystemPropertyUtil;
+
+/**
+ * Measures the request rate of jetty's {@link HttpClient} against a local jetty server listening
+ * on an AF_UNIX socket, comparing a new connection per request, pooled HTTP/1.1 connections, and
+ * HTTP/2 multiplexing (h2c), see {@link AFSocketHttpClients}.
+ *
+ * The test is enabled by default (only runs for a very short time, and does not report results).
+ *
+ * The tests can be configured as follows (all system properties):
+ * <ul>
+ * <li><code>org.newsclub.net.unix.jetty.throughput-test.enabled</code> (0/1, default: 1)</li>
+ * <li><code>org.newsclub.net.unix.jetty.throughput-test.seconds</code> (default: 0)</li>
+ * <li><code>org.newsclub.net.unix.jetty.throughput-test.concurrency</code> (number of outstanding
+ * requests, default: 64)</li>
+ * </ul>
+ *
+ * @author Christian Kohlschütter
+ */
+@TestMethodOrder(MethodOrderer.MethodName.class)
+public class HttpClientThroughputTest {
+  private static final int ENABLED = SystemPropertyUtil.getIntSystemProperty(
+      "org.newsclub.net.unix.jetty.throughput-test.enabled", 1);
+  private static final int NUM_SECONDS = SystemPropertyUtil.getIntSystemProperty(
+      "org.newsclub.net.unix.jetty.throughput-test.seconds", 0);
+  private static final int CONCURRENCY = SystemPropertyUtil.getIntSystemProperty(
+      "org.newsclub.net.unix.jetty.throughput-test.concurrency", 64);
+  private static final int NUM_MILLISECONDS = Math.max(100, NUM_SECONDS * 1000);
+
+  private static final String URI = "http://localhost/";
+
+  private Server server;
+  private AFUNIXSocketAddress addr;
+
+  @BeforeAll
+  public static void setUp() {
+    System.setProperty("org.slf4j.simpleLogger.log.org.eclipse.jetty", "error");
+  }
+
+  @BeforeEach
+  public void startServer() throws Exception {
+    assumeTrue(ENABLED > 0, "Throughput tests are disabled");
+
+    server = new Server();
+    HttpConfiguration config = new HttpConfiguration();
+    AFSocketServerConnector connector = new AFSocketServerConnector(server,
+        new HttpConnectionFactory(config), new HTTP2CServerConnectionFactory(config));
+    addr = AFUNIXSocketAddress.ofNewTempFile();
+    connector.setListenSocketAddress(addr);
+    server.addConnector(connector);
+    server.setHandler(new Handler.Abstract() {
+      @Override
+      public boolean handle(org.eclipse.jetty.server.Request request, Response response,
+          Callback callback) throws Exception {
+        response.setStatus(HttpStatus.OK_200);
+        Content.Sink.write(response, true, "OK", callback);
+        return true;
+      }
+    });
+    server.start();
+  }
+
+  @AfterEach
+  public void stopServer() {
+    LifeCycle.stop(server);
+  }
+
+  @Test
+  public void testConnectionPerRequest() throws Exception {
+    try (HttpClient client = AFSocketHttpClients.newHttpClient(addr)) {
+      client.start();
+      runBenchmark("new connection per request", client, true);
+    }
+  }
+
+  @Test
+  public void testPooledHttp11() throws Exception {
+    try (HttpClient client = AFSocketHttpClients.newHttpClient(addr)) {
+      client.start();
+      AFSocketHttpClients.prewarm(client, URI, Math.min(CONCURRENCY,
+          AFSocketHttpClients.DEFAULT_MAX_CONNECTIONS_PER_DESTINATION)).get(5, TimeUnit.SECONDS);
+      runBenchmark("pooled HTTP/1.1", client, false);
+    }
+  }
+
+  @Test
+  public void testHttp2c() throws Exception {
+    try (HttpClient client = AFSocketHttpClients.newHttp2cClient(addr)) {
+      client.start();
+      AFSocketHttpClients.prewarm(client, URI, 1).get(5, TimeUnit.SECONDS);
+      runBenchmark("h2c", client, false);
+    }
+  }
+
+  private static void runBenchmark(String label, HttpClient client, boolean closeConnection)
+      throws Exception {
+    Semaphore outstanding = new Semaphore(CONCURRENCY);
+    AtomicLong completed = new AtomicLong();
+    AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    long start = System.nanoTime();
+    long deadline = start + TimeUnit.MILLISECONDS.toNanos(NUM_MILLISECONDS);
+    while (System.nanoTime() < deadline && failure.get() == null) {
+      outstanding.acquire();
+      Request request = client.newRequest(URI);
+      if (closeConnection) {
+        request.headers((h) -> h.put(HttpHeader.CONNECTION, "close"));
+      }
+      request.send((result) -> {
+        if (result.isFailed()) {
+          failure.compareAndSet(null, result.getFailure());
+        } else if (result.getResponse().getStatus() != HttpStatus.OK_200) {
+          failure.compareAndSet(null, new IllegalStateException("Unexpected status: " + result
+              .getResponse().getStatus()));
+        } else {
+          completed.incrementAndGet();
+        }
+        outstanding.release();
+      });
+    }
+    outstanding.acquire(CONCURRENCY);
+    long elapsed = System.nanoTime() - start;
+
+    assertNull(failure.get());
+    assertNotEquals(0, completed.get());
+
+    if (NUM_SECONDS > 0) {
+      System.out.println(String.format(Locale.ENGLISH,
+          "HttpClientThroughputTest (%s): %.0f requests/s (%d requests, concurrency %d)", label,
+          completed.get() * 1_000_000_000d / elapsed, completed.get(), CONCURRENCY));
+    }
+  }
+}
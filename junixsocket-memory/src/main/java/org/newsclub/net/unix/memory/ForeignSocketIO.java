@@ -0,0 +1,199 @@
+/*
+ * junixsocket
+ *
+ * Copyright 2009-2026 Christian Kohlschütter
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.newsclub.net.unix.memory;
+
+import static java.lang.foreign.ValueLayout.ADDRESS;
+import static java.lang.foreign.ValueLayout.JAVA_INT;
+import static java.lang.foreign.ValueLayout.JAVA_LONG;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.Linker;
+import java.lang.foreign.MemoryLayout.PathElement;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.StructLayout;
+import java.lang.foreign.SymbolLookup;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ReadOnlyBufferException;
+import java.util.Locale;
+
+import org.newsclub.net.unix.ForeignSocketIOInternal;
+
+import com.kohlschutter.annotations.compiletime.SuppressFBWarnings;
+
+/**
+ * Internal class; the Foreign Function and Memory API-based implementation of
+ * {@link ForeignSocketIOInternal}.
+ *
+ * Calls {@code recv(2)} and {@code send(2)} via downcall handles, bypassing JNI. Since these calls
+ * always use {@code MSG_DONTWAIT}, they never block, and can therefore safely be linked as
+ * "critical" functions, which also allows passing heap segments without copying.
+ *
+ * Currently only supported on 64-bit Linux (where the errno values and message flags are the same
+ * across architectures). Enable with {@code -Dorg.newsclub.net.unix.io.backend=ffm}; native access
+ * should be granted to this module ({@code --enable-native-access}).
+ *
+ * @author Christian Kohlschütter
+ */
+@SuppressWarnings("doclint")
+public final class ForeignSocketIO extends ForeignSocketIOInternal {
+  private static final int MSG_DONTWAIT = 0x40;
+  private static final int MSG_NOSIGNAL = 0x4000;
+
+  private static final int EINTR = 4;
+  private static final int EBADF = 9;
+  private static final int EAGAIN = 11;
+  private static final int EPIPE = 32;
+  private static final int ECONNRESET = 104;
+  private static final int ENOTCONN = 107;
+
+  private static final StructLayout CAPTURE_STATE_LAYOUT = Linker.Option.captureStateLayout();
+  private static final VarHandle VH_ERRNO = CAPTURE_STATE_LAYOUT.varHandle(PathElement
+      .groupElement("errno"));
+
+  private static final ThreadLocal<MemorySegment> CAPTURE_STATE = ThreadLocal.withInitial(
+      () -> Arena.ofAuto().allocate(CAPTURE_STATE_LAYOUT));
+
+  private static final MethodHandle RECV;
+  private static final MethodHandle SEND;
+  private static final MethodHandle STRERROR;
+
+  static {
+    MethodHandle recv = null;
+    MethodHandle send = null;
+    MethodHandle strerror = null;
+    if (isSupportedPlatform()) {
+      Linker linker = Linker.nativeLinker();
+      SymbolLookup libc = linker.defaultLookup();
+
+      // ssize_t recv(int sockfd, void *buf, size_t len, int flags), same for send
+      FunctionDescriptor io = FunctionDescriptor.of(JAVA_LONG, JAVA_INT, ADDRESS, JAVA_LONG,
+          JAVA_INT);
+      Linker.Option[] options = {
+          Linker.Option.captureCallState("errno"), Linker.Option.critical(true)};
+
+      recv = linker.downcallHandle(libc.find("recv").orElseThrow(), io, options);
+      send = linker.downcallHandle(libc.find("send").orElseThrow(), io, options);
+      strerror = linker.downcallHandle(libc.find("strerror").orElseThrow(), FunctionDescriptor.of(
+          ADDRESS, JAVA_INT));
+    }
+    RECV = recv;
+    SEND = send;
+    STRERROR = strerror;
+  }
+
+  /**
+   * Creates a new instance; called via reflection from junixsocket-common.
+   */
+  public ForeignSocketIO() {
+    super();
+  }
+
+  private static boolean isSupportedPlatform() {
+    if (!"Linux".equals(System.getProperty("os.name")) || ADDRESS.byteSize() != 8) {
+      return false;
+    }
+    switch (System.getProperty("os.arch", "").toLowerCase(Locale.ENGLISH)) {
+      case "amd64":
+      case "x86_64":
+      case "aarch64":
+      case "riscv64":
+      case "ppc64le":
+      case "s390x":
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  @Override
+  protected boolean isAvailable() {
+    return RECV != null;
+  }
+
+  @Override
+  @SuppressWarnings("PMD.AvoidCatchingThrowable")
+  @SuppressFBWarnings("THROWS_METHOD_THROWS_RUNTIMEEXCEPTION")
+  protected int recv(int fd, ByteBuffer buf, int length) {
+    if (buf.isReadOnly()) {
+      throw new ReadOnlyBufferException();
+    }
+    MemorySegment state = CAPTURE_STATE.get();
+    try {
+      long ret = (long) RECV.invokeExact(state, fd, MemorySegment.ofBuffer(buf), (long) length,
+          MSG_DONTWAIT);
+      return ret < 0 ? -(int) VH_ERRNO.get(state, 0L) : (int) ret;
+    } catch (RuntimeException | Error e) {
+      throw e;
+    } catch (Throwable e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  @Override
+  @SuppressWarnings("PMD.AvoidCatchingThrowable")
+  @SuppressFBWarnings("THROWS_METHOD_THROWS_RUNTIMEEXCEPTION")
+  protected int send(int fd, ByteBuffer buf, int length) {
+    MemorySegment state = CAPTURE_STATE.get();
+    try {
+      long ret = (long) SEND.invokeExact(state, fd, MemorySegment.ofBuffer(buf), (long) length,
+          MSG_DONTWAIT | MSG_NOSIGNAL);
+      return ret < 0 ? -(int) VH_ERRNO.get(state, 0L) : (int) ret;
+    } catch (RuntimeException | Error e) {
+      throw e;
+    } catch (Throwable e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  @Override
+  protected ErrorKind errorKind(int errno) {
+    switch (errno) {
+      case EAGAIN:
+        return ErrorKind.WOULD_BLOCK;
+      case EINTR:
+        return ErrorKind.INTERRUPTED;
+      case EPIPE:
+        return ErrorKind.BROKEN_PIPE;
+      case ECONNRESET:
+        return ErrorKind.CONNECTION_RESET;
+      case ENOTCONN:
+        return ErrorKind.NOT_CONNECTED;
+      case EBADF:
+        return ErrorKind.BAD_FILE_DESCRIPTOR;
+      default:
+        return ErrorKind.OTHER;
+    }
+  }
+
+  @Override
+  @SuppressWarnings("PMD.AvoidCatchingThrowable")
+  protected String errorMessage(int errno) {
+    try {
+      MemorySegment str = (MemorySegment) STRERROR.invokeExact(errno);
+      if (!MemorySegment.NULL.equals(str)) {
+        return str.reinterpret(Integer.MAX_VALUE).getString(0);
+      }
+    } catch (Throwable e) {
+      // ignore
+    }
+    return "errno " + errno;
+  }
+}
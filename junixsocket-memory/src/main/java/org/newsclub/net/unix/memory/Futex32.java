@@ -154,7 +154,139 @@ final class Futex32 implements Futex {
     }
   }
 
+  /**
+   * A {@link SharedMutex} that is compatible with {@link Mutex32} (same lock word states), but
+   * briefly spins before parking via {@link Futex32#tryWait(int, int)}.
+   * <p>
+   * The number of spin iterations adapts to the observed contention: successful spins increase
+   * the budget (up to {@code maxSpins}), whereas spins that end up parking anyway decrease it.
+   */
+  private final class AdaptiveMutex32 implements SharedMutex {
+    private static final int MIN_SPINS = 16;
+    private static final long NANOS_PER_MILLI = 1_000_000L;
+
+    private final int maxSpins;
+    private int spins; // racy updates are OK, this is just a heuristic
+
+    AdaptiveMutex32(int maxSpins) {
+      this.maxSpins = Math.max(MIN_SPINS, maxSpins);
+      this.spins = this.maxSpins;
+    }
+
+    @Override
+    public void close() throws IOException {
+      Futex32.this.close();
+    }
+
+    @Override
+    public boolean tryLock(int timeoutMillis) throws IOException {
+      if (timeoutMillis < 0) {
+        throw new IllegalArgumentException("timeoutMillis");
+      }
+      return tryLockNanos(timeoutMillis * NANOS_PER_MILLI);
+    }
+
+    @Override
+    @SuppressWarnings("PMD.CognitiveComplexity")
+    public boolean tryLockNanos(long timeoutNanos) throws IOException {
+      if (timeoutNanos < 0) {
+        throw new IllegalArgumentException("timeoutNanos");
+      }
+      if ((int) VH_INT.compareAndExchange(ms, 0, MUTEX_UNLOCKED, MUTEX_LOCKED) == MUTEX_UNLOCKED) {
+        return true;
+      }
+
+      final boolean indefinitely = timeoutNanos == 0;
+      final long deadline = System.nanoTime() + timeoutNanos;
+
+      // Phase 1: spin, hoping the current holder releases the lock soon
+      int maxSpin = spins;
+      for (int i = 1; i <= maxSpin; i++) {
+        Thread.onSpinWait();
+        if ((int) VH_INT.getVolatile(ms, 0) == MUTEX_UNLOCKED && (int) VH_INT.compareAndExchange(
+            ms, 0, MUTEX_UNLOCKED, MUTEX_LOCKED) == MUTEX_UNLOCKED) {
+          spins = Math.min(maxSpins, maxSpin * 2);
+          return true;
+        }
+        if (!indefinitely && (i & 63) == 0 && System.nanoTime() - deadline >= 0) {
+          return false;
+        }
+      }
+      spins = Math.max(MIN_SPINS, maxSpin / 2);
+
+      // Phase 2: announce we're waiting, then park on the futex
+      if ((int) VH_INT.getAndSet(ms, 0, MUTEX_LOCKED_WAITING) == MUTEX_UNLOCKED) {
+        return true;
+      }
+
+      while (!Thread.interrupted()) {
+        int waitMillis;
+        if (indefinitely) {
+          waitMillis = 0;
+        } else {
+          long remaining = deadline - System.nanoTime();
+          if (remaining <= 0) {
+            return false;
+          } else if (remaining < NANOS_PER_MILLI) {
+            // The futex timeout is too coarse for what's left; spin until the deadline instead
+            return spinUntil(deadline);
+          }
+          waitMillis = (int) Math.min(Integer.MAX_VALUE, remaining / NANOS_PER_MILLI);
+        }
+
+        if (!Futex32.this.tryWait(MUTEX_LOCKED_WAITING, waitMillis)) {
+          if (isClosed()) {
+            return false;
+          }
+        }
+        if ((int) VH_INT.getAndSet(ms, 0, MUTEX_LOCKED_WAITING) == MUTEX_UNLOCKED) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    private boolean spinUntil(long deadline) {
+      do {
+        // keep the "waiting" state, since others may still be parked on the futex
+        if ((int) VH_INT.getVolatile(ms, 0) == MUTEX_UNLOCKED && (int) VH_INT.compareAndExchange(
+            ms, 0, MUTEX_UNLOCKED, MUTEX_LOCKED_WAITING) == MUTEX_UNLOCKED) {
+          return true;
+        }
+        Thread.onSpinWait();
+      } while (System.nanoTime() - deadline < 0 && !isClosed());
+      return false;
+    }
+
+    @Override
+    public void unlock() throws IOException {
+      int c = (int) VH_INT.getAndAdd(ms, 0, -1);
+      switch (c) {
+        case MUTEX_UNLOCKED:
+        case MUTEX_LOCKED:
+          break;
+        default:
+          VH_INT.setVolatile(ms, 0, MUTEX_UNLOCKED);
+          Futex32.this.tryWake(false);
+      }
+    }
+
+    @Override
+    public boolean isReentrant() {
+      return false;
+    }
+
+    @Override
+    public boolean isInterProcess() {
+      return Futex32.this.isInterProcess();
+    }
+  }
+
   SharedMutex mutex() {
     return new Mutex32();
   }
+
+  SharedMutex adaptiveMutex(int maxSpins) {
+    return new AdaptiveMutex32(maxSpins);
+  }
 }
\ No newline at end of file
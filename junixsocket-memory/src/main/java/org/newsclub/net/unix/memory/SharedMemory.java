@@ -43,6 +43,10 @@ import com.kohlschutter.annotations.compiletime.SuppressFBWarnings;
 
 /**
  * Some shared memory.
+ * <p>
+ * Shared memory cannot be released and recreated transparently across a CRaC checkpoint; while a
+ * {@link SharedMemory} instance is open, checkpoint attempts fail with an {@link IOException}.
+ * Close it (and any mutexes/futexes created from it) before taking a checkpoint.
  *
  * @author Christian Kohlschütter
  */
@@ -68,6 +72,11 @@ public final class SharedMemory implements Closeable {
    */
   static final int FUTEX32_SEGMENT_SIZE = 4;
 
+  /**
+   * The default upper bound of spin iterations for {@link #adaptiveMutex(MemorySegment)}.
+   */
+  private static final int DEFAULT_MUTEX_MAX_SPINS = 1024;
+
   private static final Map<String, Integer> MAP_MODES = Map.of(//
       "READ_ONLY", MemoryImplUtilInternal.MMODE_READ, //
       "READ_WRITE", (MemoryImplUtilInternal.MMODE_READ | MemoryImplUtilInternal.MMODE_WRITE), //
@@ -106,6 +115,7 @@ public final class SharedMemory implements Closeable {
     this.name = name;
     this.knownReadOnly = isReadOnly(mopts);
     this.unlinkUponClose = (mopts & MemoryImplUtilInternal.MOPT_UNLINK_UPON_CLOSE) != 0;
+    getUtil().blockCheckpoints(this, name == null ? "SharedMemory" : "SharedMemory " + name);
   }
 
   private static long determineSize(FileDescriptor fd) throws IOException {
@@ -586,6 +596,7 @@ public final class SharedMemory implements Closeable {
   public void close() throws IOException {
     boolean valid = cleaner.fd.valid();
 
+    getUtil().unblockCheckpoints(this);
     cleaner.close();
     if (unlinkUponClose && valid && name != null) {
       MemoryImplUtilInternal util = getUtil();
@@ -651,10 +662,51 @@ public final class SharedMemory implements Closeable {
   }
 
   private SharedMutex mutex(MemorySegment addr, boolean unlockOnClose) throws IOException {
+    return mutexFutex(addr, unlockOnClose).mutex();
+  }
+
+  /**
+   * Returns an adaptive {@link SharedMutex} instance working with the given {@link MemorySegment},
+   * which has to be exactly {@link #MUTEX_SEGMENT_SIZE} bytes long.
+   * <p>
+   * Unlike {@link #mutex(MemorySegment)}, a contended lock attempt first spins for a bounded
+   * number of iterations before parking on the underlying futex. This is typically much cheaper
+   * for short critical sections. Timeouts specified via {@link SharedMutex#tryLockNanos(long)}
+   * are honored with nanosecond precision.
+   * <p>
+   * Adaptive and regular mutexes can be used interchangeably on the same memory.
+   *
+   * @param addr The address.
+   * @return The instance.
+   * @throws IOException on error.
+   */
+  public SharedMutex adaptiveMutex(MemorySegment addr) throws IOException {
+    return adaptiveMutex(addr, DEFAULT_MUTEX_MAX_SPINS);
+  }
+
+  /**
+   * Returns an adaptive {@link SharedMutex} instance working with the given {@link MemorySegment},
+   * which has to be exactly {@link #MUTEX_SEGMENT_SIZE} bytes long, using a custom upper bound for
+   * the number of spin iterations.
+   *
+   * @param addr The address.
+   * @param maxSpins The maximum number of spin iterations before parking.
+   * @return The instance.
+   * @throws IOException on error.
+   * @see #adaptiveMutex(MemorySegment)
+   */
+  public SharedMutex adaptiveMutex(MemorySegment addr, int maxSpins) throws IOException {
+    if (maxSpins < 0) {
+      throw new IllegalArgumentException("maxSpins");
+    }
+    return mutexFutex(addr, false).adaptiveMutex(maxSpins);
+  }
+
+  private Futex32 mutexFutex(MemorySegment addr, boolean unlockOnClose) throws IOException {
     if (addr.isReadOnly()) {
       throw new IOException("MemorySegment is read-only");
     }
-    if (addr.byteSize() != 8) {
+    if (addr.byteSize() != MUTEX_SEGMENT_SIZE) {
       throw new IOException("MemorySegment must be exactly 8 bytes long");
     }
 
@@ -664,8 +716,38 @@ public final class SharedMemory implements Closeable {
     if (unlockOnClose) {
       cleaner.registerFutex(futex);
     }
+    return futex;
+  }
+
+  /**
+   * Returns a {@link SharedSeqLock} instance working with the given {@link MemorySegment}, which
+   * has to be at least {@link SharedSeqLock#HEADER_SIZE} bytes long; the remaining bytes are used
+   * for the payload.
+   * <p>
+   * If the segment is read-only, the returned instance can only be used for reading snapshots
+   * (waiting for new versions is not supported in that case).
+   *
+   * @param addr The address.
+   * @return The instance.
+   * @throws IOException on error.
+   */
+  public SharedSeqLock seqLock(MemorySegment addr) throws IOException {
+    if (addr.byteSize() < SharedSeqLock.HEADER_SIZE) {
+      throw new IOException("MemorySegment must be at least " + SharedSeqLock.HEADER_SIZE
+          + " bytes long");
+    }
+    if ((addr.address() & 7) != 0) {
+      throw new IOException("Not aligned");
+    }
+    cleaner.checkCovered(addr);
 
-    return futex.mutex();
+    Futex futex;
+    if (addr.isReadOnly()) {
+      futex = null;
+    } else {
+      futex = futex(addr.asSlice(0, FUTEX32_SEGMENT_SIZE), true);
+    }
+    return new SharedSeqLock(addr, futex);
   }
 
   /**
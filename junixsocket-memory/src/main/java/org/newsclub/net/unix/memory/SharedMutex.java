@@ -19,6 +19,7 @@ package org.newsclub.net.unix.memory;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.util.concurrent.TimeUnit;
 
 /**
  * A mutually exclusive lock, which may or may not be reentrant.
@@ -38,6 +39,30 @@ public interface SharedMutex extends Closeable {
    */
   boolean tryLock(int timeoutMillis) throws IOException;
 
+  /**
+   * Try to lock the mutex, using a timeout specified in nanoseconds.
+   * <p>
+   * By default, the timeout is rounded up to the next millisecond, and
+   * {@link #tryLock(int)} is called. Implementations may provide a more precise
+   * implementation.
+   *
+   * @param timeoutNanos The timeout, in nanoseconds, or {@code 0} for "try indefinitely".
+   * @return {@code true} if the lock was acquired.
+   * @throws IOException on error.
+   */
+  default boolean tryLockNanos(long timeoutNanos) throws IOException {
+    if (timeoutNanos < 0) {
+      throw new IllegalArgumentException("timeoutNanos");
+    } else if (timeoutNanos == 0) {
+      return tryLock(0);
+    }
+    long millis = TimeUnit.NANOSECONDS.toMillis(timeoutNanos);
+    if (TimeUnit.MILLISECONDS.toNanos(millis) != timeoutNanos) {
+      millis++;
+    }
+    return tryLock((int) Math.min(Integer.MAX_VALUE, Math.max(1, millis)));
+  }
+
   /**
    * Unlocks the mutex.
    * <p>
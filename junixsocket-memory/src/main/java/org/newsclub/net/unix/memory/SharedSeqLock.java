@@ -0,0 +1,240 @@
+/*
+ * junixsocket
+ *
+ * Copyright 2009-2026 Christian Kohlschütter
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.newsclub.net.unix.memory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.lang.invoke.VarHandle;
+import java.util.function.Consumer;
+
+/**
+ * A sequence lock ("seqlock") over a region of {@link SharedMemory}, allowing a single writer to
+ * publish fixed-size snapshots that can be read by any number of readers (potentially in other
+ * processes) without blocking the writer or each other.
+ * <p>
+ * Readers copy the snapshot and retry whenever they observe a concurrent modification. Optionally,
+ * readers may wait for a new version to be published (see {@link #awaitNewVersion(int, int)}),
+ * which is implemented using a futex on the version counter.
+ * <p>
+ * The memory layout is as follows: a 4-byte version counter (odd while a write is in progress), a
+ * 4-byte waiter count, followed by the payload. Use {@link #HEADER_SIZE} to compute the required
+ * segment size.
+ * <p>
+ * Only one writer (across all processes) must be active at any given time; this is not enforced.
+ * Use a {@link SharedMutex} if multiple writers are expected.
+ *
+ * @author Christian Kohlschütter
+ * @see SharedMemory#seqLock(MemorySegment)
+ */
+public final class SharedSeqLock implements Closeable {
+  /**
+   * The number of bytes at the beginning of the segment that are reserved for the seqlock header.
+   */
+  public static final int HEADER_SIZE = 8;
+
+  private static final VarHandle VH_INT = ValueLayout.OfInt.JAVA_INT.varHandle();
+
+  private static final long OFFSET_VERSION = 0;
+  private static final long OFFSET_WAITERS = 4;
+
+  private final MemorySegment ms;
+  private final MemorySegment payload;
+  private final Futex futex;
+
+  SharedSeqLock(MemorySegment ms, Futex futex) {
+    this.ms = ms;
+    this.payload = ms.asSlice(HEADER_SIZE);
+    this.futex = futex;
+  }
+
+  /**
+   * Returns the size of the payload (the snapshot), in bytes.
+   *
+   * @return The payload size.
+   */
+  public long payloadSize() {
+    return payload.byteSize();
+  }
+
+  /**
+   * Returns the current version. The returned value is odd if a write is in progress, and never
+   * negative (the counter wraps around to zero).
+   *
+   * @return The version.
+   */
+  public int version() {
+    return (int) VH_INT.getAcquire(ms, OFFSET_VERSION);
+  }
+
+  /**
+   * Checks if this instance can be used to publish snapshots, i.e., if the underlying memory
+   * segment is writable.
+   *
+   * @return {@code true} if writable.
+   */
+  public boolean isWritable() {
+    return !ms.isReadOnly();
+  }
+
+  /**
+   * Publishes a new snapshot by letting the given writer modify the payload segment in place.
+   * <p>
+   * The writer must not retain the given {@link MemorySegment} past the call.
+   *
+   * @param writer The writer.
+   * @return The new version.
+   * @throws IOException on error.
+   */
+  public int write(Consumer<MemorySegment> writer) throws IOException {
+    checkWritable();
+    int v = beginWrite();
+    try {
+      writer.accept(payload);
+    } finally {
+      v = endWrite(v);
+    }
+    return v;
+  }
+
+  /**
+   * Publishes a new snapshot by copying the given source segment into the payload. If the source
+   * is smaller than the payload, the remaining bytes are left unchanged.
+   *
+   * @param source The source.
+   * @return The new version.
+   * @throws IOException on error.
+   */
+  public int publish(MemorySegment source) throws IOException {
+    if (source.byteSize() > payload.byteSize()) {
+      throw new IllegalArgumentException("source is larger than payload");
+    }
+    return write((p) -> MemorySegment.copy(source, 0, p, 0, source.byteSize()));
+  }
+
+  private int beginWrite() {
+    int v = (int) VH_INT.get(ms, OFFSET_VERSION);
+    if ((v & 1) != 0) {
+      // a previous writer crashed mid-write; continue from there
+      v--;
+    }
+    VH_INT.setVolatile(ms, OFFSET_VERSION, v + 1);
+    VarHandle.storeStoreFence();
+    return v + 1;
+  }
+
+  private int endWrite(int v) throws IOException {
+    int newVersion = (v + 1) & Integer.MAX_VALUE;
+    VH_INT.setRelease(ms, OFFSET_VERSION, newVersion);
+    if (futex != null) {
+      VarHandle.fullFence();
+      if ((int) VH_INT.getVolatile(ms, OFFSET_WAITERS) > 0) {
+        futex.tryWake(true);
+      }
+    }
+    return newVersion;
+  }
+
+  /**
+   * Tries to copy a consistent snapshot into the given target segment, retrying upon concurrent
+   * modification until successful.
+   *
+   * @param target The target segment, which must not be smaller than {@link #payloadSize()}.
+   * @return The version of the snapshot that was copied.
+   */
+  public int read(MemorySegment target) {
+    int v;
+    while ((v = tryRead(target)) == -1) {
+      Thread.onSpinWait();
+    }
+    return v;
+  }
+
+  /**
+   * Tries to copy a consistent snapshot into the given target segment, making exactly one attempt.
+   *
+   * @param target The target segment, which must not be smaller than {@link #payloadSize()}.
+   * @return The version of the snapshot that was copied, or {@code -1} if the snapshot was modified
+   *         concurrently (the contents of {@code target} are undefined in that case).
+   */
+  public int tryRead(MemorySegment target) {
+    int v1 = (int) VH_INT.getAcquire(ms, OFFSET_VERSION);
+    if ((v1 & 1) != 0) {
+      return -1;
+    }
+    MemorySegment.copy(payload, 0, target, 0, payload.byteSize());
+    VarHandle.loadLoadFence();
+    int v2 = (int) VH_INT.getVolatile(ms, OFFSET_VERSION);
+    return v1 == v2 ? v1 : -1;
+  }
+
+  /**
+   * Waits until a version other than {@code knownVersion} has been published, or until the timeout
+   * elapses. Spurious wakeups are possible; callers should always check {@link #version()}.
+   *
+   * @param knownVersion The version the caller already knows about.
+   * @param timeoutMillis The timeout, in milliseconds, or {@code 0} for "wait indefinitely".
+   * @return {@code true} if a newer version is available.
+   * @throws IOException on error, or if notifications are not supported for this instance (e.g.,
+   *           because the segment is read-only).
+   */
+  public boolean awaitNewVersion(int knownVersion, int timeoutMillis) throws IOException {
+    if (futex == null) {
+      throw new IOException("MemorySegment is read-only");
+    }
+    int v = version();
+    if (v != knownVersion && (v & 1) == 0) {
+      return true;
+    }
+
+    VH_INT.getAndAdd(ms, OFFSET_WAITERS, 1);
+    try {
+      long end = timeoutMillis == 0 ? 0 : System.currentTimeMillis() + timeoutMillis;
+      while ((v = version()) == knownVersion || (v & 1) != 0) {
+        int wait = 0;
+        if (end != 0) {
+          wait = (int) (end - System.currentTimeMillis());
+          if (wait <= 0) {
+            return false;
+          }
+        }
+        futex.tryWait(v, wait);
+        if (futex.isClosed()) {
+          return false;
+        }
+      }
+      return true;
+    } finally {
+      VH_INT.getAndAdd(ms, OFFSET_WAITERS, -1);
+    }
+  }
+
+  private void checkWritable() throws IOException {
+    if (ms.isReadOnly()) {
+      throw new IOException("MemorySegment is read-only");
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (futex != null) {
+      futex.close();
+    }
+  }
+}
@@ -0,0 +1,93 @@
+/*
+ * junixsocket
+ *
+ * Copyright 2009-2026 Christian Kohlschütter
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.newsclub.net.unix.memory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ReadOnlyBufferException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+import org.newsclub.net.unix.AFUNIXSocketChannel;
+import org.newsclub.net.unix.AFUNIXSocketPair;
+import org.newsclub.net.unix.FileDescriptorCast;
+
+import com.kohlschutter.testutil.TestAbortedNotAnIssueException;
+
+public class ForeignSocketIOTest {
+  private static ForeignSocketIO newInstance() {
+    ForeignSocketIO io = new ForeignSocketIO();
+    if (!io.isAvailable()) {
+      throw new TestAbortedNotAnIssueException("FFM-based socket I/O is not supported here");
+    }
+    return io;
+  }
+
+  private static int nativeFd(AFUNIXSocketChannel channel) throws IOException {
+    return FileDescriptorCast.using(channel.getFileDescriptor()).as(Integer.class);
+  }
+
+  @Test
+  public void testSendReceive() throws Exception {
+    ForeignSocketIO io = newInstance();
+    AFUNIXSocketPair<AFUNIXSocketChannel> pair = AFUNIXSocketPair.open();
+    try (AFUNIXSocketChannel s1 = pair.getSocket1(); AFUNIXSocketChannel s2 = pair.getSocket2()) {
+      int fd1 = nativeFd(s1);
+      int fd2 = nativeFd(s2);
+
+      ByteBuffer in = ByteBuffer.allocateDirect(64);
+
+      // nothing to read yet; MSG_DONTWAIT must not block
+      int ret = io.recv(fd2, in, in.remaining());
+      assertEquals(ForeignSocketIO.ErrorKind.WOULD_BLOCK, io.errorKind(-ret));
+
+      // heap buffer, with non-zero position
+      ByteBuffer out = ByteBuffer.wrap("xxHello".getBytes(StandardCharsets.US_ASCII));
+      out.position(2);
+      assertEquals(5, io.send(fd1, out, out.remaining()));
+      assertEquals(2, out.position(), "Buffer position must not be modified");
+
+      assertEquals(5, io.recv(fd2, in, in.remaining()));
+      in.limit(5);
+      assertEquals("Hello", StandardCharsets.US_ASCII.decode(in).toString());
+
+      // direct buffer to heap buffer
+      ByteBuffer directOut = ByteBuffer.allocateDirect(3);
+      directOut.put(new byte[] {1, 2, 3}).flip();
+      assertEquals(3, io.send(fd2, directOut, 3));
+      byte[] heapIn = new byte[8];
+      assertEquals(3, io.recv(fd1, ByteBuffer.wrap(heapIn), heapIn.length));
+      assertEquals(3, heapIn[2]);
+
+      assertThrows(ReadOnlyBufferException.class, () -> io.recv(fd1, ByteBuffer.allocate(1)
+          .asReadOnlyBuffer(), 1));
+
+      s1.close();
+      in.clear();
+      assertEquals(0, io.recv(fd2, in, in.remaining()), "Expected EOF");
+
+      ret = io.send(fd2, ByteBuffer.wrap(new byte[1]), 1);
+      assertEquals(ForeignSocketIO.ErrorKind.BROKEN_PIPE, io.errorKind(-ret));
+      assertFalse(io.errorMessage(-ret).isEmpty());
+    }
+  }
+}
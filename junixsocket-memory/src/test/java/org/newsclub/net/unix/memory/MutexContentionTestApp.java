@@ -0,0 +1,40 @@
+/*
+ * junixsocket
+ *
+ * Copyright 2009-2026 Christian Kohlschütter
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.newsclub.net.unix.memory;
+
+import java.io.FileDescriptor;
+import java.lang.foreign.MemorySegment;
+import java.nio.channels.FileChannel.MapMode;
+
+/**
+ * See {@link SharedMemoryTest#testMutexContentionSeparateVM()}.
+ *
+ * @author Christian Kohlschütter
+ */
+public class MutexContentionTestApp {
+  public static void main(String[] args) {
+    try (SharedMemory mem = SharedMemory.using(FileDescriptor.in)) {
+      MemorySegment ms = mem.asMappedMemorySegment(MapMode.READ_WRITE);
+
+      SharedMemoryTest.runMutexContention(mem, ms);
+    } catch (Throwable e) { // NOPMD
+      e.printStackTrace();
+      System.exit(1);
+    }
+  }
+}
@@ -67,6 +67,14 @@ public class SharedMemoryTest {
   static final int FORKEDVM_FUTEX_SIZE = 16;
   private static final int FUTEX32BIT_CHECK_WAIT_TIME = 20;
 
+  private static final int CONTENTION_ITERATIONS = 100_000;
+  private static final int CONTENTION_OFFSET_COUNTER = 8;
+  private static final int CONTENTION_OFFSET_ITERATIONS = 16;
+  private static final int CONTENTION_OFFSET_ADAPTIVE = 20;
+  private static final int CONTENTION_OFFSET_READY = 24;
+  private static final int CONTENTION_OFFSET_NANOS = 32;
+  private static final int CONTENTION_SEGMENT_SIZE = 40;
+
   static {
     Thread.setDefaultUncaughtExceptionHandler((th, t) -> {
       System.err.println("Uncaught exception @ " + th + ":");
@@ -807,6 +815,250 @@ public class SharedMemoryTest {
     }
   }
 
+  @Test
+  public void testAdaptiveMutex() throws Exception {
+    try (SharedMemory mem = SharedMemory.createAnonymous(8)) {
+      MemorySegment ms = mem.asMappedMemorySegment(MapMode.READ_WRITE);
+
+      try (SharedMutex mutex = mem.adaptiveMutex(ms.asSlice(0, SharedMemory.MUTEX_SEGMENT_SIZE));
+          SharedMutex regular = mem.mutex(ms.asSlice(0, SharedMemory.MUTEX_SEGMENT_SIZE))) {
+        assertTrue(mutex.tryLock(1));
+        assertFalse(mutex.tryLock(1));
+        assertFalse(regular.tryLock(1));
+        mutex.unlock();
+        assertTrue(regular.tryLock(1));
+        assertFalse(mutex.tryLockNanos(1000));
+        regular.unlock();
+        assertTrue(mutex.tryLockNanos(1000));
+        mutex.unlock();
+      }
+    }
+  }
+
+  @Test
+  public void testAdaptiveMutexNanosTimeout() throws Exception {
+    try (SharedMemory mem = SharedMemory.createAnonymous(8)) {
+      MemorySegment ms = mem.asMappedMemorySegment(MapMode.READ_WRITE);
+
+      try (SharedMutex mutex = mem.adaptiveMutex(ms.asSlice(0, SharedMemory.MUTEX_SEGMENT_SIZE))) {
+        assertTrue(mutex.tryLock(0));
+
+        long timeoutNanos = TimeUnit.MICROSECONDS.toNanos(1500);
+        long time = System.nanoTime();
+        assertFalse(mutex.tryLockNanos(timeoutNanos));
+        time = System.nanoTime() - time;
+
+        assertTrue(time >= timeoutNanos, "Should not time out early: " + time + "ns");
+        assertTrue(time < TimeUnit.MILLISECONDS.toNanos(500), "Should time out in time: " + time
+            + "ns");
+
+        mutex.unlock();
+        assertTrue(mutex.tryLockNanos(timeoutNanos));
+      }
+    }
+  }
+
+  @Test
+  @ForkedVMRequirement(forkSupported = true)
+  public void testMutexContentionSeparateVM() throws Exception {
+    double regular = measureMutexContentionSeparateVM(false);
+    double adaptive = measureMutexContentionSeparateVM(true);
+
+    System.out.println("SharedMutex contention across two processes: regular=" + regular
+        + "ns/op; adaptive=" + adaptive + "ns/op");
+  }
+
+  private double measureMutexContentionSeparateVM(boolean adaptive) throws Exception {
+    try (SharedMemory mem = SharedMemory.createAnonymous(CONTENTION_SEGMENT_SIZE)) {
+      MemorySegment ms = mem.asMappedMemorySegment(MapMode.READ_WRITE);
+      ms.asSlice(0, CONTENTION_SEGMENT_SIZE).fill((byte) 0);
+      ms.set(OfInt.JAVA_INT, CONTENTION_OFFSET_ITERATIONS, CONTENTION_ITERATIONS);
+      ms.set(OfInt.JAVA_INT, CONTENTION_OFFSET_ADAPTIVE, adaptive ? 1 : 0);
+
+      try (SharedMutex mutex = mem.mutex(ms.asSlice(0, SharedMemory.MUTEX_SEGMENT_SIZE))) {
+        if (!mutex.isInterProcess()) {
+          throw new TestAbortedWithImportantMessageException(
+              MessageType.TEST_ABORTED_SHORT_INFORMATIONAL,
+              "On this system, SharedMemory Mutexes cannot be shared between processes");
+        }
+      }
+
+      ForkedVM vm = new ForkedVM(MutexContentionTestApp.class);
+      Redirect fdRedirect = FileDescriptorCast.using(mem.getFileDescriptor()).as(Redirect.class);
+      vm.setRedirectInput(fdRedirect);
+      vm.setRedirectError(Redirect.INHERIT);
+      vm.setRedirectOutput(Redirect.INHERIT);
+
+      Process p = vm.fork();
+
+      long waitUntil = System.currentTimeMillis() + 10_000;
+      while (ms.get(OfInt.JAVA_INT, CONTENTION_OFFSET_READY) == 0) {
+        if (!p.isAlive() || System.currentTimeMillis() > waitUntil) {
+          p.destroyForcibly();
+          fail("Forked VM did not become ready");
+        }
+        Thread.sleep(1);
+      }
+
+      long ourNanos = runMutexContention(mem, ms);
+
+      assertTrue(p.waitFor(30, TimeUnit.SECONDS), "Forked VM should have terminated in time");
+      assertEquals(0, p.exitValue(), "Forked VM should have terminated successfully");
+
+      assertEquals(2L * CONTENTION_ITERATIONS, ms.get(OfLong.JAVA_LONG, CONTENTION_OFFSET_COUNTER),
+          "Mutual exclusion must hold across processes");
+
+      long theirNanos = ms.get(OfLong.JAVA_LONG, CONTENTION_OFFSET_NANOS);
+      return (double) Math.max(ourNanos, theirNanos) / (2 * CONTENTION_ITERATIONS);
+    }
+  }
+
+  /**
+   * Repeatedly locks a mutex and increments a shared counter. Used by
+   * {@link #testMutexContentionSeparateVM()} and {@link MutexContentionTestApp}.
+   *
+   * @param mem The shared memory.
+   * @param ms The memory segment, mapped from {@code mem}.
+   * @return The elapsed time, in nanoseconds.
+   * @throws IOException on error.
+   */
+  static long runMutexContention(SharedMemory mem, MemorySegment ms) throws IOException {
+    int iterations = ms.get(OfInt.JAVA_INT, CONTENTION_OFFSET_ITERATIONS);
+    MemorySegment addr = ms.asSlice(0, SharedMemory.MUTEX_SEGMENT_SIZE);
+
+    try (SharedMutex mutex = ms.get(OfInt.JAVA_INT, CONTENTION_OFFSET_ADAPTIVE) != 0 ? mem
+        .adaptiveMutex(addr) : mem.mutex(addr)) {
+      ms.set(OfInt.JAVA_INT, CONTENTION_OFFSET_READY, 1);
+
+      long time = System.nanoTime();
+      for (int i = 0; i < iterations; i++) {
+        if (!mutex.tryLock(5000)) {
+          throw new IOException("Could not acquire lock");
+        }
+        try {
+          ms.set(OfLong.JAVA_LONG, CONTENTION_OFFSET_COUNTER, ms.get(OfLong.JAVA_LONG,
+              CONTENTION_OFFSET_COUNTER) + 1);
+        } finally {
+          mutex.unlock();
+        }
+      }
+      time = System.nanoTime() - time;
+      ms.set(OfLong.JAVA_LONG, CONTENTION_OFFSET_NANOS, time);
+      return time;
+    }
+  }
+
+  @Test
+  public void testSeqLock() throws Exception {
+    try (SharedMemory mem = SharedMemory.createAnonymous(64)) {
+      MemorySegment ms = mem.asMappedMemorySegment(MapMode.READ_WRITE);
+
+      try (SharedSeqLock seqLock = mem.seqLock(ms.asSlice(0, SharedSeqLock.HEADER_SIZE + 16))) {
+        assertEquals(16, seqLock.payloadSize());
+        assertEquals(0, seqLock.version());
+
+        int v = seqLock.write((p) -> {
+          p.set(OfLong.JAVA_LONG, 0, 123);
+          p.set(OfLong.JAVA_LONG, 8, 456);
+        });
+        assertEquals(2, v);
+        assertEquals(2, seqLock.version());
+
+        MemorySegment target = Arena.ofAuto().allocate(16);
+        assertEquals(2, seqLock.read(target));
+        assertEquals(123, target.get(OfLong.JAVA_LONG, 0));
+        assertEquals(456, target.get(OfLong.JAVA_LONG, 8));
+
+        assertThrows(IllegalArgumentException.class, () -> seqLock.publish(Arena.ofAuto().allocate(
+            17)));
+      }
+    }
+  }
+
+  @Test
+  public void testSeqLockReadOnly() throws Exception {
+    try (SharedMemory mem = SharedMemory.createAnonymous(64)) {
+      MemorySegment ms = mem.asMappedMemorySegment(MapMode.READ_WRITE);
+      MemorySegment msRO = mem.asMappedMemorySegment(MapMode.READ_ONLY);
+
+      try (SharedSeqLock writer = mem.seqLock(ms.asSlice(0, 16));
+          SharedSeqLock reader = mem.seqLock(msRO.asSlice(0, 16))) {
+        assertTrue(writer.isWritable());
+        assertFalse(reader.isWritable());
+
+        writer.publish(Arena.ofAuto().allocate(8).fill((byte) 42));
+
+        MemorySegment target = Arena.ofAuto().allocate(8);
+        assertEquals(writer.version(), reader.read(target));
+        assertEquals(42, target.get(OfByte.JAVA_BYTE, 7));
+
+        assertThrows(IOException.class, () -> reader.publish(target));
+        assertThrows(IOException.class, () -> reader.awaitNewVersion(0, 1));
+      }
+    }
+  }
+
+  @Test
+  public void testSeqLockConsistency() throws Exception {
+    try (SharedMemory mem = SharedMemory.createAnonymous(4096)) {
+      MemorySegment ms = mem.asMappedMemorySegment(MapMode.READ_WRITE);
+
+      try (SharedSeqLock seqLock = mem.seqLock(ms.asSlice(0, SharedSeqLock.HEADER_SIZE + 1024))) {
+        AtomicBoolean keepGoing = new AtomicBoolean(true);
+        CompletableFuture<Void> writer = CompletableFuture.runAsync(() -> {
+          try {
+            for (int i = 0; keepGoing.get(); i++) {
+              byte b = (byte) i;
+              seqLock.write((p) -> p.fill(b));
+            }
+          } catch (IOException e) {
+            throw new IllegalStateException(e);
+          }
+        });
+
+        try {
+          MemorySegment target = Arena.ofAuto().allocate(1024);
+          MemorySegment expected = Arena.ofAuto().allocate(1024);
+          for (int i = 0; i < 10_000; i++) {
+            seqLock.read(target);
+            expected.fill(target.get(OfByte.JAVA_BYTE, 0));
+            assertEquals(-1L, target.mismatch(expected), "Snapshot must not be torn");
+          }
+        } finally {
+          keepGoing.set(false);
+          writer.get(5, TimeUnit.SECONDS);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testSeqLockAwaitNewVersion() throws Exception {
+    try (SharedMemory mem = SharedMemory.createAnonymous(64)) {
+      MemorySegment ms = mem.asMappedMemorySegment(MapMode.READ_WRITE);
+
+      try (SharedSeqLock seqLock = mem.seqLock(ms.asSlice(0, 16))) {
+        int v = seqLock.version();
+        assertFalse(seqLock.awaitNewVersion(v, 10));
+
+        CompletableFuture<Boolean> cf = CompletableFuture.supplyAsync(() -> {
+          try {
+            return seqLock.awaitNewVersion(v, 5000);
+          } catch (IOException e) {
+            throw new IllegalStateException(e);
+          }
+        });
+        Thread.sleep(50);
+        seqLock.publish(Arena.ofAuto().allocate(8));
+        assertTrue(cf.get(5, TimeUnit.SECONDS));
+        assertNotEquals(v, seqLock.version());
+      }
+    } catch (UnsupportedOperationException e) {
+      throw new TestAbortedWithImportantMessageException(MessageType.TEST_ABORTED_SHORT_WITH_ISSUES,
+          "Futexes are not supported on your platform", e);
+    }
+  }
+
   @Test
   public void testOSAdvisory() throws Exception {
     String osName = System.getProperty("os.name", "");
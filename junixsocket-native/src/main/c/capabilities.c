@@ -46,6 +46,9 @@ static jint CAPABILITY_UNSAFE = (1 << 12);
 static jint CAPABILITY_LARGE_PORTS = (1 << 13);
 static jint CAPABILITY_DARWIN = (1 << 14);
 static jint CAPABILITY_SEND_RECV_TIMEOUT = (1 << 15);
+static jint CAPABILITY_SPLICE = (1 << 16);
+static jint CAPABILITY_EPOLL = (1 << 17);
+static jint CAPABILITY_SENDFILE = (1 << 18);
 CK_IGNORE_UNUSED_VARIABLE_END
 
 void init_capabilities(JNIEnv *env CK_UNUSED) {
@@ -163,5 +166,17 @@ defined(SO_PEERCRED) || defined(SO_PEERID) || defined(__NetBSD__) || defined(__s
 #if junixsocket_have_system
     capabilities |= CAPABILITY_DARWIN;
 #endif
+
+#if junixsocket_have_splice
+    capabilities |= CAPABILITY_SPLICE;
+#endif
+
+#if junixsocket_have_epoll
+    capabilities |= CAPABILITY_EPOLL;
+#endif
+
+#if junixsocket_have_sendfile
+    capabilities |= CAPABILITY_SENDFILE;
+#endif
     return capabilities;
 }
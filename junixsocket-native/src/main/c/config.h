@@ -423,6 +423,34 @@ int jux_mangleErrno(int);
 #  define junixsocket_have_MSG_DONTWAIT 0
 #endif
 
+#if defined(__linux__) && defined(SPLICE_F_MOVE)
+#  define junixsocket_have_splice 1
+#else
+#  define junixsocket_have_splice 0
+#endif
+
+#if defined(__linux__)
+#  include <sys/epoll.h>
+#  include <sys/sendfile.h>
+#  define junixsocket_have_epoll 1
+#  define junixsocket_have_sendfile 1
+#else
+#  define junixsocket_have_epoll 0
+#  define junixsocket_have_sendfile 0
+#endif
+
+#if defined(__linux__) && !defined(__ANDROID__)
+#  define junixsocket_have_sendmmsg 1
+#else
+#  define junixsocket_have_sendmmsg 0
+#endif
+
+#if defined(F_SETPIPE_SZ) && defined(F_GETPIPE_SZ)
+#  define junixsocket_have_pipe_size 1
+#else
+#  define junixsocket_have_pipe_size 0
+#endif
+
 #if !defined(MIN)
 #define MIN(a,b) ((a) < (b) ? (a) : (b))
 #endif
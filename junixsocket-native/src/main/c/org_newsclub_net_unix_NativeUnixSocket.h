@@ -37,6 +37,18 @@ extern "C" {
 #define org_newsclub_net_unix_NativeUnixSocket_OPT_NON_SOCKET 8L
 #undef org_newsclub_net_unix_NativeUnixSocket_OPT_DGRAM_MODE
 #define org_newsclub_net_unix_NativeUnixSocket_OPT_DGRAM_MODE 16L
+#undef org_newsclub_net_unix_NativeUnixSocket_OPT_TRUNC
+#define org_newsclub_net_unix_NativeUnixSocket_OPT_TRUNC 32L
+#undef org_newsclub_net_unix_NativeUnixSocket_SPLICE_OPT_NON_BLOCKING
+#define org_newsclub_net_unix_NativeUnixSocket_SPLICE_OPT_NON_BLOCKING 1L
+#undef org_newsclub_net_unix_NativeUnixSocket_SPLICE_OPT_MORE
+#define org_newsclub_net_unix_NativeUnixSocket_SPLICE_OPT_MORE 2L
+#undef org_newsclub_net_unix_NativeUnixSocket_EPOLL_ADD
+#define org_newsclub_net_unix_NativeUnixSocket_EPOLL_ADD 1L
+#undef org_newsclub_net_unix_NativeUnixSocket_EPOLL_MOD
+#define org_newsclub_net_unix_NativeUnixSocket_EPOLL_MOD 2L
+#undef org_newsclub_net_unix_NativeUnixSocket_EPOLL_DEL
+#define org_newsclub_net_unix_NativeUnixSocket_EPOLL_DEL 3L
 #undef org_newsclub_net_unix_NativeUnixSocket_BIND_OPT_REUSE
 #define org_newsclub_net_unix_NativeUnixSocket_BIND_OPT_REUSE 1L
 #undef org_newsclub_net_unix_NativeUnixSocket_SOCKETSTATUS_INVALID
@@ -643,6 +655,78 @@ JNIEXPORT jboolean JNICALL Java_org_newsclub_net_unix_NativeUnixSocket_futexIsIn
 JNIEXPORT jlong JNICALL Java_org_newsclub_net_unix_NativeUnixSocket_sizeOfSharedMemory
   (JNIEnv *, jclass, jobject);
 
+/*
+ * Class:     org_newsclub_net_unix_NativeUnixSocket
+ * Method:    splice
+ * Signature: (Ljava/io/FileDescriptor;Ljava/io/FileDescriptor;JI)J
+ */
+JNIEXPORT jlong JNICALL Java_org_newsclub_net_unix_NativeUnixSocket_splice
+  (JNIEnv *, jclass, jobject, jobject, jlong, jint);
+
+/*
+ * Class:     org_newsclub_net_unix_NativeUnixSocket
+ * Method:    tee
+ * Signature: (Ljava/io/FileDescriptor;Ljava/io/FileDescriptor;JI)J
+ */
+JNIEXPORT jlong JNICALL Java_org_newsclub_net_unix_NativeUnixSocket_tee
+  (JNIEnv *, jclass, jobject, jobject, jlong, jint);
+
+/*
+ * Class:     org_newsclub_net_unix_NativeUnixSocket
+ * Method:    vmsplice
+ * Signature: (Ljava/io/FileDescriptor;Ljava/nio/ByteBuffer;III)I
+ */
+JNIEXPORT jint JNICALL Java_org_newsclub_net_unix_NativeUnixSocket_vmsplice
+  (JNIEnv *, jclass, jobject, jobject, jint, jint, jint);
+
+/*
+ * Class:     org_newsclub_net_unix_NativeUnixSocket
+ * Method:    pipeCapacity
+ * Signature: (Ljava/io/FileDescriptor;I)I
+ */
+JNIEXPORT jint JNICALL Java_org_newsclub_net_unix_NativeUnixSocket_pipeCapacity
+  (JNIEnv *, jclass, jobject, jint);
+
+/*
+ * Class:     org_newsclub_net_unix_NativeUnixSocket
+ * Method:    sendfile
+ * Signature: (Ljava/io/FileDescriptor;Ljava/nio/channels/FileChannel;JJ)J
+ */
+JNIEXPORT jlong JNICALL Java_org_newsclub_net_unix_NativeUnixSocket_sendfile
+  (JNIEnv *, jclass, jobject, jobject, jlong, jlong);
+
+/*
+ * Class:     org_newsclub_net_unix_NativeUnixSocket
+ * Method:    sendmmsg
+ * Signature: (Ljava/io/FileDescriptor;Ljava/nio/ByteBuffer;[ILjava/nio/ByteBuffer;I[III)I
+ */
+JNIEXPORT jint JNICALL Java_org_newsclub_net_unix_NativeUnixSocket_sendmmsg
+  (JNIEnv *, jclass, jobject, jobject, jintArray, jobject, jint, jintArray, jint, jint);
+
+/*
+ * Class:     org_newsclub_net_unix_NativeUnixSocket
+ * Method:    epollCreate
+ * Signature: (Ljava/io/FileDescriptor;)V
+ */
+JNIEXPORT void JNICALL Java_org_newsclub_net_unix_NativeUnixSocket_epollCreate
+  (JNIEnv *, jclass, jobject);
+
+/*
+ * Class:     org_newsclub_net_unix_NativeUnixSocket
+ * Method:    epollCtl
+ * Signature: (Ljava/io/FileDescriptor;ILjava/io/FileDescriptor;II)V
+ */
+JNIEXPORT void JNICALL Java_org_newsclub_net_unix_NativeUnixSocket_epollCtl
+  (JNIEnv *, jclass, jobject, jint, jobject, jint, jint);
+
+/*
+ * Class:     org_newsclub_net_unix_NativeUnixSocket
+ * Method:    epollWait
+ * Signature: (Ljava/io/FileDescriptor;[I[II)I
+ */
+JNIEXPORT jint JNICALL Java_org_newsclub_net_unix_NativeUnixSocket_epollWait
+  (JNIEnv *, jclass, jobject, jintArray, jintArray, jint);
+
 #ifdef __cplusplus
 }
 #endif
@@ -89,3 +89,37 @@ JNIEXPORT jboolean JNICALL Java_org_newsclub_net_unix_NativeUnixSocket_initPipe
 
      return false;
  }
+
+/*
+ * Class:     org_newsclub_net_unix_NativeUnixSocket
+ * Method:    pipeCapacity
+ * Signature: (Ljava/io/FileDescriptor;I)I
+ */
+JNIEXPORT jint JNICALL Java_org_newsclub_net_unix_NativeUnixSocket_pipeCapacity
+ (JNIEnv *env, jclass clazz CK_UNUSED, jobject fd, jint newCapacity) {
+#if junixsocket_have_pipe_size
+    int handle = _getFD(env, fd);
+    if(handle < 0) {
+        _throwException(env, kExceptionSocketException, "Pipe is closed");
+        return -1;
+    }
+
+    int ret;
+    if(newCapacity > 0) {
+        // the kernel rounds up to a power-of-two number of pages
+        ret = fcntl(handle, F_SETPIPE_SZ, newCapacity);
+    } else {
+        ret = fcntl(handle, F_GETPIPE_SZ);
+    }
+    if(ret == -1) {
+        _throwErrnumException(env, errno, NULL);
+        return -1;
+    }
+    return ret;
+#else
+    CK_ARGUMENT_POTENTIALLY_UNUSED(fd);
+    CK_ARGUMENT_POTENTIALLY_UNUSED(newCapacity);
+    _throwException(env, kExceptionOperationNotSupportedSocketException, "pipeCapacity");
+    return -1;
+#endif
+}
@@ -316,7 +316,7 @@ JNIEXPORT jint JNICALL Java_org_newsclub_net_unix_NativeUnixSocket_available
                 return 0;
             }
 
-            ssize_t count = recv(handle, (char*)&dataBufferRef.buf, dataBufferRef.size, MSG_PEEK
+            ssize_t count = recv(handle, (char*)dataBufferRef.buf, dataBufferRef.size, MSG_PEEK
 #if defined(MSG_TRUNC)
                                  | MSG_TRUNC // ask for the correct amount in case our buffer is too small
 #endif
@@ -434,4 +434,192 @@ end:
     return ret;
 }
 
+#if junixsocket_have_epoll
+static uint32_t opToEpollEvent(int op) {
+    uint32_t event = 0;
+    if((op & OP_READ) || (op & OP_ACCEPT)) {
+        event |= EPOLLIN;
+    }
+    if((op & OP_WRITE) || (op & OP_CONNECT)) {
+        event |= EPOLLOUT;
+    }
+    return event;
+}
+
+static int epollEventToOp(uint32_t event) {
+    int op = 0;
+    if((event & EPOLLIN)) {
+        op |= (OP_READ | OP_ACCEPT); // will be masked accordingly later
+    }
+    if((event & EPOLLOUT)) {
+        op |= (OP_WRITE | OP_CONNECT); // will be masked accordingly later
+    }
+    if((event & (EPOLLERR | EPOLLHUP)) != 0) {
+        op |= OP_INVALID;
+    }
+    return op;
+}
+#endif
+
+/*
+ * Class:     org_newsclub_net_unix_NativeUnixSocket
+ * Method:    epollCreate
+ * Signature: (Ljava/io/FileDescriptor;)V
+ */
+JNIEXPORT void JNICALL Java_org_newsclub_net_unix_NativeUnixSocket_epollCreate
+ (JNIEnv *env, jclass clazz CK_UNUSED, jobject epfd) {
+#if junixsocket_have_epoll
+    int handle = epoll_create1(EPOLL_CLOEXEC);
+    if(handle == -1) {
+        _throwErrnumException(env, errno, NULL);
+        return;
+    }
+    _initFD(env, epfd, handle);
+#else
+    CK_ARGUMENT_POTENTIALLY_UNUSED(epfd);
+    _throwException(env, kExceptionOperationNotSupportedSocketException, "epoll");
+#endif
+}
+
+/*
+ * Class:     org_newsclub_net_unix_NativeUnixSocket
+ * Method:    epollCtl
+ * Signature: (Ljava/io/FileDescriptor;ILjava/io/FileDescriptor;II)V
+ */
+JNIEXPORT void JNICALL Java_org_newsclub_net_unix_NativeUnixSocket_epollCtl
+ (JNIEnv *env, jclass clazz CK_UNUSED, jobject epfd, jint op, jobject fd, jint ops, jint id) {
+#if junixsocket_have_epoll
+    int epHandle = _getFD(env, epfd);
+    if(epHandle < 0) {
+        _throwException(env, kExceptionSocketException, "Selector is closed");
+        return;
+    }
+    int handle = _getFD(env, fd);
+    if(handle < 0) {
+        if(op == org_newsclub_net_unix_NativeUnixSocket_EPOLL_DEL) {
+            // closing the file descriptor already removed it from the interest list
+            return;
+        }
+        _throwException(env, kExceptionSocketException, "Socket is closed");
+        return;
+    }
+
+    int ctlOp;
+    switch(op) {
+        case org_newsclub_net_unix_NativeUnixSocket_EPOLL_ADD:
+            ctlOp = EPOLL_CTL_ADD;
+            break;
+        case org_newsclub_net_unix_NativeUnixSocket_EPOLL_MOD:
+            ctlOp = EPOLL_CTL_MOD;
+            break;
+        case org_newsclub_net_unix_NativeUnixSocket_EPOLL_DEL:
+            ctlOp = EPOLL_CTL_DEL;
+            break;
+        default:
+            _throwException(env, kExceptionInvalidArgumentSocketException, "Illegal epoll op");
+            return;
+    }
+
+    struct epoll_event ev = {
+        .events = opToEpollEvent(ops),
+        .data.u32 = (uint32_t)id
+    };
+
+    int ret = epoll_ctl(epHandle, ctlOp, handle, &ev);
+    if(ret == -1) {
+        int errnum = errno;
+        if(ctlOp == EPOLL_CTL_ADD && errnum == EEXIST) {
+            ret = epoll_ctl(epHandle, EPOLL_CTL_MOD, handle, &ev);
+            errnum = errno;
+        } else if(ctlOp == EPOLL_CTL_MOD && errnum == ENOENT) {
+            ret = epoll_ctl(epHandle, EPOLL_CTL_ADD, handle, &ev);
+            errnum = errno;
+        } else if(ctlOp == EPOLL_CTL_DEL && (errnum == ENOENT || errnum == EBADF)) {
+            return;
+        }
+        if(ret == -1) {
+            _throwErrnumException(env, errnum, fd);
+        }
+    }
+#else
+    CK_ARGUMENT_POTENTIALLY_UNUSED(epfd);
+    CK_ARGUMENT_POTENTIALLY_UNUSED(op);
+    CK_ARGUMENT_POTENTIALLY_UNUSED(fd);
+    CK_ARGUMENT_POTENTIALLY_UNUSED(ops);
+    CK_ARGUMENT_POTENTIALLY_UNUSED(id);
+    _throwException(env, kExceptionOperationNotSupportedSocketException, "epoll");
+#endif
+}
+
+/*
+ * Class:     org_newsclub_net_unix_NativeUnixSocket
+ * Method:    epollWait
+ * Signature: (Ljava/io/FileDescriptor;[I[II)I
+ */
+JNIEXPORT jint JNICALL Java_org_newsclub_net_unix_NativeUnixSocket_epollWait
+ (JNIEnv *env, jclass clazz CK_UNUSED, jobject epfd, jintArray idsObj, jintArray ropsObj,
+  jint timeout) {
+#if junixsocket_have_epoll
+    int epHandle = _getFD(env, epfd);
+    if(epHandle < 0) {
+        _throwException(env, kExceptionSocketException, "Selector is closed");
+        return -1;
+    }
+
+    jsize maxEvents = (*env)->GetArrayLength(env, idsObj);
+    jsize maxRops = (*env)->GetArrayLength(env, ropsObj);
+    if(maxRops < maxEvents) {
+        maxEvents = maxRops;
+    }
+    if(maxEvents <= 0) {
+        _throwException(env, kExceptionInvalidArgumentSocketException, "maxEvents");
+        return -1;
+    }
+
+    struct epoll_event *events = calloc((size_t)maxEvents, sizeof(struct epoll_event));
+    if(events == NULL) {
+        _throwErrnumException(env, ENOMEM, NULL);
+        return -1;
+    }
+
+    int ret = epoll_wait(epHandle, events, maxEvents, timeout);
+    if(ret == -1) {
+        int errnum = errno;
+        if(errnum == EINTR) {
+            ret = 0;
+        } else {
+            _throwErrnumException(env, errnum, NULL);
+        }
+        goto end;
+    }
+
+    if(ret > 0) {
+        jint *buf = calloc((size_t)ret * 2, sizeof(jint));
+        if(buf == NULL) {
+            _throwErrnumException(env, ENOMEM, NULL);
+            ret = -1;
+            goto end;
+        }
+        for(int i=0; i<ret; i++) {
+            buf[i] = (jint)events[i].data.u32;
+            buf[ret + i] = epollEventToOp(events[i].events);
+        }
+        (*env)->SetIntArrayRegion(env, idsObj, 0, ret, buf);
+        (*env)->SetIntArrayRegion(env, ropsObj, 0, ret, buf + ret);
+        free(buf);
+    }
+
+end:
+    free(events);
+    return ret;
+#else
+    CK_ARGUMENT_POTENTIALLY_UNUSED(epfd);
+    CK_ARGUMENT_POTENTIALLY_UNUSED(idsObj);
+    CK_ARGUMENT_POTENTIALLY_UNUSED(ropsObj);
+    CK_ARGUMENT_POTENTIALLY_UNUSED(timeout);
+    _throwException(env, kExceptionOperationNotSupportedSocketException, "epoll");
+    return -1;
+#endif
+}
+
 CK_IGNORE_CPP_WARNINGS_END
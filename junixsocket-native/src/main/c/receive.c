@@ -40,6 +40,11 @@ static int optToFlags(jint opt) {
     if ((opt & (org_newsclub_net_unix_NativeUnixSocket_OPT_PEEK)) != 0) {
         flags |= MSG_PEEK;
     }
+#if defined(MSG_TRUNC)
+    if ((opt & (org_newsclub_net_unix_NativeUnixSocket_OPT_TRUNC)) != 0) {
+        flags |= MSG_TRUNC;
+    }
+#endif
     return flags;
 }
 
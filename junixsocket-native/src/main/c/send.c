@@ -312,4 +312,125 @@ JNIEXPORT jint JNICALL Java_org_newsclub_net_unix_NativeUnixSocket_send
     return (jint)ret;
 }
 
+/*
+ * Class:     org_newsclub_net_unix_NativeUnixSocket
+ * Method:    sendmmsg
+ * Signature: (Ljava/io/FileDescriptor;Ljava/nio/ByteBuffer;[ILjava/nio/ByteBuffer;I[III)I
+ */
+JNIEXPORT jint JNICALL Java_org_newsclub_net_unix_NativeUnixSocket_sendmmsg
+(JNIEnv *env, jclass clazz CK_UNUSED, jobject fd, jobject buffer, jintArray lengths, jobject addressBuffer, jint addressStride, jintArray addressLengths, jint count, jint opt) {
+#if junixsocket_have_sendmmsg
+    int handle = _getFD(env, fd);
+    if(handle < 0) {
+        _throwException(env, kExceptionSocketException, "Socket is closed");
+        return -1;
+    }
+    if(count <= 0) {
+        return 0;
+    }
+    if(addressStride <= 0 || (*env)->GetArrayLength(env, lengths) < count
+       || (*env)->GetArrayLength(env, addressLengths) < count) {
+        _throwException(env, kExceptionIndexOutOfBoundsException, "Illegal count");
+        return -1;
+    }
+
+    struct jni_direct_byte_buffer_ref dataBufferRef =
+    getDirectByteBufferRef (env, buffer, 0, 0);
+    struct jni_direct_byte_buffer_ref addressBufferRef =
+    getDirectByteBufferRef (env, addressBuffer, 0, (size_t)addressStride * (size_t)count);
+    if(dataBufferRef.buf == NULL || addressBufferRef.buf == NULL) {
+        _throwException(env, kExceptionSocketException, "Cannot get buffer");
+        return -1;
+    }
+
+    jint *lens = calloc((size_t)count * 2, sizeof(jint));
+    struct mmsghdr *msgs = calloc((size_t)count, sizeof(struct mmsghdr));
+    struct iovec *iovs = calloc((size_t)count, sizeof(struct iovec));
+    if(lens == NULL || msgs == NULL || iovs == NULL) {
+        free(lens);
+        free(msgs);
+        free(iovs);
+        _throwException(env, kExceptionSocketException, "Out of memory");
+        return -1;
+    }
+    jint *addrLens = lens + count;
+    (*env)->GetIntArrayRegion(env, lengths, 0, count, lens);
+    (*env)->GetIntArrayRegion(env, addressLengths, 0, count, addrLens);
+
+    size_t offset = 0;
+    for(jint i = 0; i < count; i++) {
+        if(lens[i] < 0 || (ssize_t)(offset + (size_t)lens[i]) > dataBufferRef.size) {
+            free(lens);
+            free(msgs);
+            free(iovs);
+            _throwException(env, kExceptionIndexOutOfBoundsException, "Illegal length");
+            return -1;
+        }
+        iovs[i].iov_base = dataBufferRef.buf + offset;
+        iovs[i].iov_len = (size_t)lens[i];
+        offset += (size_t)lens[i];
+
+        jux_sockaddr_t *sendTo = (jux_sockaddr_t *)(addressBufferRef.buf + (size_t)addressStride * (size_t)i);
+        socklen_t sendToLen = (socklen_t) MIN(SOCKLEN_MAX, MIN((unsigned)addrLens[i], (unsigned)addressStride));
+        if(sendToLen > 0) {
+            fixupSocketAddress(handle, sendTo, sendToLen);
+            msgs[i].msg_hdr.msg_name = (struct sockaddr *)sendTo;
+            msgs[i].msg_hdr.msg_namelen = sendToLen;
+        }
+        msgs[i].msg_hdr.msg_iov = &iovs[i];
+        msgs[i].msg_hdr.msg_iovlen = 1;
+    }
+
+    const jboolean dgramMode = (opt & org_newsclub_net_unix_NativeUnixSocket_OPT_DGRAM_MODE) != 0;
+    const jboolean nonBlockingMode = (opt & org_newsclub_net_unix_NativeUnixSocket_OPT_NON_BLOCKING) != 0;
+
+    int ret;
+    int myErr = 0;
+    do {
+        errno = 0;
+        ret = sendmmsg(handle, msgs, (unsigned int)count, 0);
+        if(ret >= 0) {
+            break;
+        }
+        myErr = socket_errno;
+        if(myErr == EINTR) {
+            continue;
+        }
+        if((myErr == ENOBUFS || myErr == ENOMEM) && dgramMode && !nonBlockingMode) {
+            // see send_wrapper
+            sched_yield();
+            continue;
+        }
+        break;
+    } while(1);
+
+    free(lens);
+    free(msgs);
+    free(iovs);
+
+    if(ret < 0) {
+        if(myErr == EAGAIN || myErr == EWOULDBLOCK
+           || ((myErr == ENOBUFS || myErr == ENOMEM) && nonBlockingMode)) {
+            return 0;
+        } else if(myErr == ENOSYS) {
+            return -2; // Java code falls back to sending one message at a time
+        }
+        _throwErrnumException(env, myErr, fd);
+        return -1;
+    }
+
+    return (jint)ret;
+#else
+    CK_ARGUMENT_POTENTIALLY_UNUSED(fd);
+    CK_ARGUMENT_POTENTIALLY_UNUSED(buffer);
+    CK_ARGUMENT_POTENTIALLY_UNUSED(lengths);
+    CK_ARGUMENT_POTENTIALLY_UNUSED(addressBuffer);
+    CK_ARGUMENT_POTENTIALLY_UNUSED(addressStride);
+    CK_ARGUMENT_POTENTIALLY_UNUSED(addressLengths);
+    CK_ARGUMENT_POTENTIALLY_UNUSED(count);
+    CK_ARGUMENT_POTENTIALLY_UNUSED(opt);
+    return -2; // Java code falls back to sending one message at a time
+#endif
+}
+
 CK_IGNORE_CPP_WARNINGS_END
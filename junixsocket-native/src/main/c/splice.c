@@ -0,0 +1,256 @@
+/*
+ * junixsocket
+ *
+ * Copyright 2009-2026 Christian Kohlschütter
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+#include "splice.h"
+
+#include "exceptions.h"
+#include "filedescriptors.h"
+
+#if junixsocket_have_splice
+static unsigned int spliceFlags(jint opt) {
+    unsigned int flags = SPLICE_F_MOVE;
+    if((opt & org_newsclub_net_unix_NativeUnixSocket_SPLICE_OPT_NON_BLOCKING) != 0) {
+        flags |= SPLICE_F_NONBLOCK;
+    }
+    if((opt & org_newsclub_net_unix_NativeUnixSocket_SPLICE_OPT_MORE) != 0) {
+        flags |= SPLICE_F_MORE;
+    }
+    return flags;
+}
+#endif
+
+/*
+ * Class:     org_newsclub_net_unix_NativeUnixSocket
+ * Method:    splice
+ * Signature: (Ljava/io/FileDescriptor;Ljava/io/FileDescriptor;JI)J
+ */
+JNIEXPORT jlong JNICALL Java_org_newsclub_net_unix_NativeUnixSocket_splice
+ (JNIEnv *env, jclass clazz CK_UNUSED, jobject fdIn, jobject fdOut, jlong length, jint opt) {
+#if junixsocket_have_splice
+    int handleIn = _getFD(env, fdIn);
+    int handleOut = _getFD(env, fdOut);
+    if(handleIn < 0 || handleOut < 0) {
+        _throwException(env, kExceptionSocketException, "Socket is closed");
+        return -1;
+    }
+
+    ssize_t count;
+    do {
+        count = splice(handleIn, NULL, handleOut, NULL, (size_t)length, spliceFlags(opt));
+    } while(count == (ssize_t)-1 && errno == EINTR);
+
+    if(count == (ssize_t)-1) {
+        int myerr = errno;
+        if(myerr == EAGAIN || myerr == EWOULDBLOCK) {
+            return 0;
+        }
+        _throwErrnumException(env, myerr, NULL);
+        return -1;
+    } else if(count == 0) {
+        // EOF (or no writers on an empty pipe). Java returns -1.
+        return -1;
+    }
+
+    return (jlong)count;
+#else
+    CK_ARGUMENT_POTENTIALLY_UNUSED(fdIn);
+    CK_ARGUMENT_POTENTIALLY_UNUSED(fdOut);
+    CK_ARGUMENT_POTENTIALLY_UNUSED(length);
+    CK_ARGUMENT_POTENTIALLY_UNUSED(opt);
+    _throwException(env, kExceptionOperationNotSupportedSocketException, "splice");
+    return -1;
+#endif
+}
+
+/*
+ * Class:     org_newsclub_net_unix_NativeUnixSocket
+ * Method:    tee
+ * Signature: (Ljava/io/FileDescriptor;Ljava/io/FileDescriptor;JI)J
+ */
+JNIEXPORT jlong JNICALL Java_org_newsclub_net_unix_NativeUnixSocket_tee
+ (JNIEnv *env, jclass clazz CK_UNUSED, jobject fdIn, jobject fdOut, jlong length, jint opt) {
+#if junixsocket_have_splice
+    int handleIn = _getFD(env, fdIn);
+    int handleOut = _getFD(env, fdOut);
+    if(handleIn < 0 || handleOut < 0) {
+        _throwException(env, kExceptionSocketException, "Pipe is closed");
+        return -1;
+    }
+
+    unsigned int flags = 0;
+    if((opt & org_newsclub_net_unix_NativeUnixSocket_SPLICE_OPT_NON_BLOCKING) != 0) {
+        flags |= SPLICE_F_NONBLOCK;
+    }
+
+    ssize_t count;
+    do {
+        count = tee(handleIn, handleOut, (size_t)length, flags);
+    } while(count == (ssize_t)-1 && errno == EINTR);
+
+    if(count == (ssize_t)-1) {
+        int myerr = errno;
+        if(myerr == EAGAIN || myerr == EWOULDBLOCK) {
+            return 0;
+        }
+        _throwErrnumException(env, myerr, NULL);
+        return -1;
+    } else if(count == 0) {
+        // No data and no writers on the input pipe. Java returns -1.
+        return -1;
+    }
+
+    return (jlong)count;
+#else
+    CK_ARGUMENT_POTENTIALLY_UNUSED(fdIn);
+    CK_ARGUMENT_POTENTIALLY_UNUSED(fdOut);
+    CK_ARGUMENT_POTENTIALLY_UNUSED(length);
+    CK_ARGUMENT_POTENTIALLY_UNUSED(opt);
+    _throwException(env, kExceptionOperationNotSupportedSocketException, "tee");
+    return -1;
+#endif
+}
+
+/*
+ * Class:     org_newsclub_net_unix_NativeUnixSocket
+ * Method:    vmsplice
+ * Signature: (Ljava/io/FileDescriptor;Ljava/nio/ByteBuffer;III)I
+ */
+JNIEXPORT jint JNICALL Java_org_newsclub_net_unix_NativeUnixSocket_vmsplice
+ (JNIEnv *env, jclass clazz CK_UNUSED, jobject fdOut, jobject buffer, jint offset, jint length,
+  jint opt) {
+#if junixsocket_have_splice
+    int handle = _getFD(env, fdOut);
+    if(handle < 0) {
+        _throwException(env, kExceptionSocketException, "Pipe is closed");
+        return -1;
+    }
+
+    char *buf = (*env)->GetDirectBufferAddress(env, buffer);
+    if(buf == NULL) {
+        _throwException(env, kExceptionInvalidArgumentSocketException, "Not a direct buffer");
+        return -1;
+    }
+
+    struct iovec iov = {
+        .iov_base = buf + offset,
+        .iov_len = (size_t)length
+    };
+
+    unsigned int flags = 0;
+    if((opt & org_newsclub_net_unix_NativeUnixSocket_SPLICE_OPT_NON_BLOCKING) != 0) {
+        flags |= SPLICE_F_NONBLOCK;
+    }
+
+    ssize_t count;
+    do {
+        count = vmsplice(handle, &iov, 1, flags);
+    } while(count == (ssize_t)-1 && errno == EINTR);
+
+    if(count == (ssize_t)-1) {
+        int myerr = errno;
+        if(myerr == EAGAIN || myerr == EWOULDBLOCK) {
+            return 0;
+        }
+        _throwErrnumException(env, myerr, NULL);
+        return -1;
+    }
+
+    return (jint)count;
+#else
+    CK_ARGUMENT_POTENTIALLY_UNUSED(fdOut);
+    CK_ARGUMENT_POTENTIALLY_UNUSED(buffer);
+    CK_ARGUMENT_POTENTIALLY_UNUSED(offset);
+    CK_ARGUMENT_POTENTIALLY_UNUSED(length);
+    CK_ARGUMENT_POTENTIALLY_UNUSED(opt);
+    _throwException(env, kExceptionOperationNotSupportedSocketException, "vmsplice");
+    return -1;
+#endif
+}
+
+/*
+ * Class:     org_newsclub_net_unix_NativeUnixSocket
+ * Method:    sendfile
+ * Signature: (Ljava/io/FileDescriptor;Ljava/nio/channels/FileChannel;JJ)J
+ */
+JNIEXPORT jlong JNICALL Java_org_newsclub_net_unix_NativeUnixSocket_sendfile
+ (JNIEnv *env, jclass clazz CK_UNUSED, jobject fdOut, jobject fileChannel, jlong position,
+  jlong count) {
+#if junixsocket_have_sendfile
+    int handleOut = _getFD(env, fdOut);
+    if(handleOut < 0) {
+        _throwException(env, kExceptionSocketException, "Socket is closed");
+        return -1;
+    }
+
+    // FileChannelImpl keeps its FileDescriptor in a private field, which is not accessible
+    // from Java code, but JNI doesn't care. This is an implementation detail, so we only use it
+    // for that very class (not for other FileChannel implementations that may happen to have a
+    // field of the same name), and fall back to Java code whenever it's not there.
+    jclass implClass = (*env)->FindClass(env, "sun/nio/ch/FileChannelImpl");
+    if(implClass == NULL) {
+        (*env)->ExceptionClear(env);
+        return -2; // unknown JDK; Java code falls back
+    }
+    jboolean isImpl = (*env)->IsInstanceOf(env, fileChannel, implClass);
+    jfieldID fieldID_fd = isImpl ? (*env)->GetFieldID(env, implClass, "fd", "Ljava/io/FileDescriptor;") : NULL;
+    (*env)->DeleteLocalRef(env, implClass);
+    if(fieldID_fd == NULL) {
+        if((*env)->ExceptionCheck(env)) {
+            (*env)->ExceptionClear(env);
+        }
+        return -2; // unsupported channel; Java code falls back
+    }
+    jobject fdIn = (*env)->GetObjectField(env, fileChannel, fieldID_fd);
+    if(fdIn == NULL) {
+        return -2;
+    }
+    int handleIn = _getFD(env, fdIn);
+    (*env)->DeleteLocalRef(env, fdIn);
+    if(handleIn < 0) {
+        _throwException(env, kExceptionClosedChannelException, NULL);
+        return -1;
+    }
+
+    off_t offset = (off_t)position;
+    ssize_t ret;
+    do {
+        ret = sendfile(handleOut, handleIn, &offset, (size_t)count);
+    } while(ret == (ssize_t)-1 && errno == EINTR);
+
+    if(ret == (ssize_t)-1) {
+        int myerr = errno;
+        if(myerr == EAGAIN || myerr == EWOULDBLOCK) {
+            return 0;
+        } else if(myerr == EINVAL || myerr == ENOSYS) {
+            // e.g., file system doesn't support mmap-like operations
+            return -2;
+        }
+        _throwErrnumException(env, myerr, fdOut);
+        return -1;
+    }
+
+    return (jlong)ret;
+#else
+    CK_ARGUMENT_POTENTIALLY_UNUSED(fdOut);
+    CK_ARGUMENT_POTENTIALLY_UNUSED(fileChannel);
+    CK_ARGUMENT_POTENTIALLY_UNUSED(position);
+    CK_ARGUMENT_POTENTIALLY_UNUSED(count);
+    _throwException(env, kExceptionOperationNotSupportedSocketException, "sendfile");
+    return -1;
+#endif
+}
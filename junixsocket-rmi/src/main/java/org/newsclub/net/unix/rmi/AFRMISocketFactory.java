@@ -55,6 +55,9 @@ public abstract class AFRMISocketFactory extends RMISocketFactory implements Ext
   private transient Externables externables;
   private final transient Map<Integer, AFServerSocket<?>> openServerSockets = new HashMap<>();
   private final transient Set<AFSocket<?>> openSockets = new HashSet<>();
+  private final transient RMIConnectionCache connectionCache = new RMIConnectionCache(
+      this::newConnectedSocket, RMIConnectionCache.DEFAULT_WARM_CONNECTIONS,
+      RMIConnectionCache.DEFAULT_IDLE_TIMEOUT);
 
   private static final class Externables {
     private final AFNaming naming;
@@ -143,7 +146,7 @@ public abstract class AFRMISocketFactory extends RMISocketFactory implements Ext
     }
 
     final AFSocketAddress addr = newSocketAddress(port);
-    AFSocket<?> socket = newConnectedSocket(addr);
+    AFSocket<?> socket = connectionCache.take(addr);
 
     synchronized (openSockets) {
       openSockets.add(socket);
@@ -160,11 +163,124 @@ public abstract class AFRMISocketFactory extends RMISocketFactory implements Ext
   public void close() throws IOException {
     synchronized (getExternables().naming) {
       rmiService = null;
+      connectionCache.close();
       closeServerSockets();
       closeSockets();
     }
   }
 
+  /**
+   * Returns statistics about the client connections created by this factory.
+   *
+   * @return The statistics (a snapshot).
+   */
+  public ConnectionStatistics getConnectionStatistics() {
+    return new ConnectionStatistics(connectionCache);
+  }
+
+  /**
+   * Statistics about client connections created by an {@link AFRMISocketFactory}, to help detect
+   * excessive connection churn.
+   *
+   * Pre-connected ("warm") connections can be enabled via the system property
+   * {@code org.newsclub.net.unix.rmi.warm-connections} (the number of warm connections to keep per
+   * port, default: 0), and
+   * {@code org.newsclub.net.unix.rmi.warm-connections-idle-timeout-millis} (the time after which
+   * unused warm connections are closed, default: 10000).
+   *
+   * @author Christian Kohlschütter
+   */
+  public static final class ConnectionStatistics {
+    private final long opened;
+    private final long closed;
+    private final long warmHits;
+    private final long warmMisses;
+    private final long evictions;
+    private final long livenessFailures;
+    private final int warmConnections;
+
+    private ConnectionStatistics(RMIConnectionCache cache) {
+      this.opened = cache.opened.get();
+      this.closed = cache.closedConnections.get();
+      this.warmHits = cache.getPool().getHits();
+      this.warmMisses = cache.getPool().getMisses();
+      this.evictions = cache.getPool().getEvictions();
+      this.livenessFailures = cache.getPool().getLivenessFailures();
+      this.warmConnections = cache.getPool().getWarmConnectionCount();
+    }
+
+    /**
+     * Returns the number of connections opened (including warm connections).
+     *
+     * @return The number of connections.
+     */
+    public long getConnectionsOpened() {
+      return opened;
+    }
+
+    /**
+     * Returns the number of connections closed (including evicted warm connections).
+     *
+     * @return The number of connections.
+     */
+    public long getConnectionsClosed() {
+      return closed;
+    }
+
+    /**
+     * Returns the number of connection requests served from a warm connection.
+     *
+     * @return The number of requests.
+     */
+    public long getWarmConnectionHits() {
+      return warmHits;
+    }
+
+    /**
+     * Returns the number of connection requests that could not be served from a warm connection
+     * (only counted if warm connections are enabled).
+     *
+     * @return The number of requests.
+     */
+    public long getWarmConnectionMisses() {
+      return warmMisses;
+    }
+
+    /**
+     * Returns the number of warm connections closed because they were idle for too long.
+     *
+     * @return The number of connections.
+     */
+    public long getIdleEvictions() {
+      return evictions;
+    }
+
+    /**
+     * Returns the number of warm connections discarded because they were no longer usable.
+     *
+     * @return The number of connections.
+     */
+    public long getLivenessCheckFailures() {
+      return livenessFailures;
+    }
+
+    /**
+     * Returns the number of warm connections currently available.
+     *
+     * @return The number of connections.
+     */
+    public int getWarmConnections() {
+      return warmConnections;
+    }
+
+    @Override
+    public String toString() {
+      return super.toString() + "[opened=" + opened + ";closed=" + closed + ";warmHits=" + warmHits
+          + ";warmMisses=" + warmMisses + ";evictions=" + evictions + ";livenessFailures="
+          + livenessFailures + ";warm=" + warmConnections + "]";
+    }
+  }
+
   @SuppressFBWarnings("USO_UNSAFE_ACCESSIBLE_OBJECT_SYNCHRONIZATION")
   private AFRMIService getRmiService() throws IOException {
     AFNaming naming = getExternables().naming;
@@ -427,4 +543,24 @@ public abstract class AFRMISocketFactory extends RMISocketFactory implements Ext
    * @return {@code true} if registered.
    */
   abstract boolean hasRegisteredPort(int port);
+
+  /**
+   * Returns a token that changes whenever names are bound to or unbound from the registry at the
+   * given port, or {@code 0} if such changes cannot be observed without asking the registry.
+   *
+   * @param registryPort The registry port.
+   * @return The generation token, or {@code 0}.
+   */
+  long getRegistryGeneration(int registryPort) {
+    return 0;
+  }
+
+  /**
+   * Signals that names have been bound to or unbound from the registry at the given port, so that
+   * other processes relying on {@link #getRegistryGeneration(int)} can invalidate cached lookups.
+   *
+   * @param registryPort The registry port.
+   */
+  void registryChanged(int registryPort) {
+  }
 }
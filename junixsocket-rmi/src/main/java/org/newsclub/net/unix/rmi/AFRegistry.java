@@ -50,12 +50,14 @@ public abstract class AFRegistry implements Registry {
   private final Map<String, Remote> bound = new HashMap<>();
   private final AFNaming naming;
   private final AtomicBoolean boundCloserExported = new AtomicBoolean(false);
+  private final RegistryLookupCache lookupCache;
 
   private AFRMIService rmiService = null;
 
   AFRegistry(AFNaming naming, Registry impl) {
     this.naming = naming;
     this.impl = impl;
+    this.lookupCache = new RegistryLookupCache(naming);
     this.boundCloser = new RemoteCloseable<Void>() {
       @Override
       public Void get() throws IOException {
@@ -109,15 +111,35 @@ public abstract class AFRegistry implements Registry {
     return naming;
   }
 
+  /**
+   * Returns the remote reference bound to the specified <code>name</code> in this registry.
+   *
+   * Stubs are cached locally, so repeated lookups of the same name usually do not require a
+   * round-trip to the registry. The cache is invalidated whenever names are bound or unbound.
+   *
+   * @param name the name for the remote reference to look up
+   * @return a reference to a remote object
+   * @throws NotBoundException if <code>name</code> is not currently bound
+   * @throws RemoteException if remote communication with the registry failed
+   * @throws AccessException if this registry is local and it denies the caller access to perform
+   *           this operation
+   */
   @Override
   public Remote lookup(String name) throws RemoteException, NotBoundException, AccessException {
-    return impl.lookup(name);
+    long gen = lookupCache.currentGeneration();
+    Remote stub = lookupCache.get(name, gen);
+    if (stub == null) {
+      stub = impl.lookup(name);
+      lookupCache.put(name, stub, gen);
+    }
+    return stub;
   }
 
   @Override
   public void bind(String name, Remote obj) throws RemoteException, AlreadyBoundException,
       AccessException {
     impl.bind(name, RemoteObject.toStub(obj));
+    lookupCache.invalidate();
     synchronized (bound) {
       bound.put(name, obj);
     }
@@ -127,6 +149,7 @@ public abstract class AFRegistry implements Registry {
   @Override
   public void unbind(String name) throws RemoteException, NotBoundException, AccessException {
     impl.unbind(name);
+    lookupCache.invalidate();
     synchronized (bound) {
       bound.remove(name);
     }
@@ -136,6 +159,7 @@ public abstract class AFRegistry implements Registry {
   @Override
   public void rebind(String name, Remote obj) throws RemoteException, AccessException {
     impl.rebind(name, RemoteObject.toStub(obj));
+    lookupCache.invalidate();
     synchronized (bound) {
       bound.put(name, obj);
     }
@@ -177,7 +201,7 @@ public abstract class AFRegistry implements Registry {
     Exception exFirst = null;
     do {
       try {
-        return impl.lookup(name);
+        return lookup(name);
       } catch (NotBoundException | ConnectIOException | NoSuchObjectException e) {
         if (exFirst == null) {
           exFirst = e;
@@ -280,6 +280,14 @@ public final class AFUNIXNaming extends AFNaming {
 
   @Override
   protected void shutdownRegistryFinishingTouches() {
+    File generationFile = getSocketFactory().getRegistryGenerationFile(getRegistryPort());
+    if (generationFile != null) {
+      try {
+        Files.deleteIfExists(generationFile.toPath());
+      } catch (IOException e) {
+        // ignore
+      }
+    }
     deleteSocketDir();
   }
 
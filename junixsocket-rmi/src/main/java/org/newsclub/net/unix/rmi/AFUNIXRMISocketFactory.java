@@ -17,16 +17,22 @@
  */
 package org.newsclub.net.unix.rmi;
 
+import java.io.DataInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.rmi.server.RMIClientSocketFactory;
 import java.rmi.server.RMIServerSocketFactory;
 import java.rmi.server.RMISocketFactory;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
 
 import org.newsclub.net.unix.AFSocket;
 import org.newsclub.net.unix.AFSocketAddress;
@@ -53,6 +59,7 @@ public class AFUNIXRMISocketFactory extends AFRMISocketFactory {
   private String socketSuffix;
 
   private final transient Map<HostAndPort, AFUNIXSocketCredentials> credentials = new HashMap<>();
+  private transient RemoteFileDescriptorChannel.Server fileDescriptorServer;
 
   /**
    * Constructor required per definition.
@@ -225,9 +232,33 @@ public class AFUNIXRMISocketFactory extends AFRMISocketFactory {
     synchronized (credentials) {
       credentials.clear();
     }
+    RemoteFileDescriptorChannel.Server fdServer;
+    synchronized (this) {
+      fdServer = fileDescriptorServer;
+      fileDescriptorServer = null;
+    }
+    if (fdServer != null) {
+      fdServer.close();
+    }
     super.close();
   }
 
+  /**
+   * Returns the server that hands out file descriptors of {@link RemoteFileDescriptorBase}
+   * instances sent from this JVM, starting it if necessary.
+   *
+   * @param expiryMillis The time after which unclaimed file descriptors are forgotten.
+   * @return The server.
+   * @throws IOException on error.
+   */
+  synchronized RemoteFileDescriptorChannel.Server getFileDescriptorServer(int expiryMillis)
+      throws IOException {
+    if (fileDescriptorServer == null || !fileDescriptorServer.isOpen()) {
+      fileDescriptorServer = new RemoteFileDescriptorChannel.Server(this, expiryMillis);
+    }
+    return fileDescriptorServer;
+  }
+
   AFUNIXSocketCredentials peerCredentialsFor(RemotePeerInfo data) {
     synchronized (credentials) {
       return credentials.get(new HostAndPort(data.host, data.port));
@@ -238,4 +269,61 @@ public class AFUNIXRMISocketFactory extends AFRMISocketFactory {
   boolean hasRegisteredPort(int port) {
     return hasSocketFile(port);
   }
+
+  /**
+   * Returns the file that holds the current generation token for the registry at the given port,
+   * or {@code null} if the registry uses a plain file socket.
+   *
+   * @param registryPort The registry port.
+   * @return The file, or {@code null}.
+   */
+  @SuppressFBWarnings("PATH_TRAVERSAL_IN")
+  File getRegistryGenerationFile(int registryPort) {
+    if (isPlainFileSocket() || socketDir == null) {
+      return null;
+    }
+    return new File(socketDir, socketPrefix + registryPort + socketSuffix + ".gen");
+  }
+
+  @Override
+  long getRegistryGeneration(int registryPort) {
+    File f = getRegistryGenerationFile(registryPort);
+    if (f == null) {
+      return 0;
+    }
+    try (DataInputStream in = new DataInputStream(Files.newInputStream(f.toPath()))) {
+      return in.readLong();
+    } catch (IOException e) {
+      return 0;
+    }
+  }
+
+  @Override
+  void registryChanged(int registryPort) {
+    File f = getRegistryGenerationFile(registryPort);
+    if (f == null) {
+      return;
+    }
+    long generation;
+    do {
+      generation = ThreadLocalRandom.current().nextLong();
+    } while (generation == 0);
+
+    // write to a temporary file first, so readers never see a partially written token
+    Path target = f.toPath();
+    Path tmp = target.resolveSibling(f.getName() + "." + Long.toHexString(generation));
+    try {
+      Files.write(tmp, ByteBuffer.allocate(8).putLong(generation).array());
+      Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      // cannot signal the change; remove the token altogether so nobody relies on stale data
+      try {
+        Files.deleteIfExists(tmp);
+        Files.deleteIfExists(target);
+      } catch (IOException e1) {
+        // ignore
+      }
+    }
+  }
 }
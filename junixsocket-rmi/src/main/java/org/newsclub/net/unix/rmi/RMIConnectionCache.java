@@ -0,0 +1,97 @@
+/*
+ * junixsocket
+ *
+ * Copyright 2009-2026 Christian Kohlschütter
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.newsclub.net.unix.rmi;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.newsclub.net.unix.AFSocket;
+import org.newsclub.net.unix.AFSocketAddress;
+import org.newsclub.net.unix.AFSocketWarmPool;
+
+/**
+ * Keeps a small number of pre-connected ("warm") client sockets per RMI port, so that new
+ * connections requested by RMI can be handed out without paying for the connection setup, and
+ * tracks connection churn.
+ *
+ * RMI itself reuses idle connections for a while, but closes them after a timeout (see
+ * {@code sun.rmi.transport.connectionTimeout}); chatty clients with bursty traffic therefore keep
+ * opening new connections. Since a connection that has been used by RMI cannot be reused, this
+ * cache instead connects ahead of time, using an {@link AFSocketWarmPool}.
+ *
+ * @author Christian Kohlschütter
+ */
+final class RMIConnectionCache implements Closeable {
+  private static final String PROP_WARM_CONNECTIONS = "org.newsclub.net.unix.rmi.warm-connections";
+  private static final String PROP_IDLE_TIMEOUT =
+      "org.newsclub.net.unix.rmi.warm-connections-idle-timeout-millis";
+
+  static final int DEFAULT_WARM_CONNECTIONS = Integer.parseInt(System.getProperty(
+      PROP_WARM_CONNECTIONS, "0"));
+  static final long DEFAULT_IDLE_TIMEOUT = Long.parseLong(System.getProperty(PROP_IDLE_TIMEOUT,
+      "10000"));
+
+  private final Connector connector;
+  private final AFSocketWarmPool<AFSocketAddress, AFSocket<?>> pool;
+
+  final AtomicLong opened = new AtomicLong();
+  final AtomicLong closedConnections = new AtomicLong();
+
+  /**
+   * Creates new connections.
+   */
+  @FunctionalInterface
+  interface Connector {
+    AFSocket<?> connect(AFSocketAddress addr) throws IOException;
+  }
+
+  RMIConnectionCache(Connector connector, int maxWarm, long idleTimeoutMillis) {
+    this.connector = connector;
+    // any data is unexpected for a connection that RMI hasn't used yet
+    this.pool = new AFSocketWarmPool<>(this::connect, maxWarm, idleTimeoutMillis, false);
+  }
+
+  /**
+   * Returns a connected socket for the given address, either a warm one from the cache, or a newly
+   * connected one.
+   *
+   * @param addr The address.
+   * @return The socket.
+   * @throws IOException on error.
+   */
+  AFSocket<?> take(AFSocketAddress addr) throws IOException {
+    return pool.take(addr);
+  }
+
+  private AFSocket<?> connect(AFSocketAddress addr) throws IOException {
+    AFSocket<?> socket = connector.connect(addr);
+    opened.incrementAndGet();
+    socket.addCloseable(closedConnections::incrementAndGet);
+    return socket;
+  }
+
+  AFSocketWarmPool<AFSocketAddress, AFSocket<?>> getPool() {
+    return pool;
+  }
+
+  @Override
+  public void close() {
+    pool.close();
+  }
+}
@@ -0,0 +1,114 @@
+/*
+ * junixsocket
+ *
+ * Copyright 2009-2026 Christian Kohlschütter
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.newsclub.net.unix.rmi;
+
+import java.rmi.Remote;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caches the stubs returned by registry lookups, so that repeated lookups of the same name do not
+ * need a round-trip to the registry.
+ *
+ * The cache is invalidated whenever names are bound to or unbound from the registry. Changes made
+ * through the owning {@link AFRegistry} are applied directly; changes made elsewhere (e.g., by
+ * another process) are observed via the registry generation token exposed by the socket factory
+ * (see {@link AFRMISocketFactory#getRegistryGeneration(int)}). If the socket factory cannot
+ * provide such a token, nothing is cached.
+ *
+ * @author Christian Kohlschütter
+ */
+final class RegistryLookupCache {
+  private static final String PROP_LOOKUP_CACHE = "org.newsclub.net.unix.rmi.lookup-cache";
+
+  static final boolean ENABLED = Boolean.parseBoolean(System.getProperty(PROP_LOOKUP_CACHE,
+      "true"));
+
+  private final AFNaming naming;
+  private final Map<String, Remote> stubs = new ConcurrentHashMap<>();
+  private long generation = 0;
+
+  RegistryLookupCache(AFNaming naming) {
+    this.naming = naming;
+  }
+
+  /**
+   * Returns the current registry generation token, invalidating the cache if it has changed since
+   * the last call.
+   *
+   * @return The generation token to pass to {@link #put(String, Remote, long)}, or {@code 0} if
+   *         lookups cannot be cached.
+   */
+  long currentGeneration() {
+    if (!ENABLED) {
+      return 0;
+    }
+    AFRMISocketFactory sf = naming.getSocketFactory();
+    long gen = sf == null ? 0 : sf.getRegistryGeneration(naming.getRegistryPort());
+    synchronized (this) {
+      if (gen != generation) {
+        stubs.clear();
+        generation = gen;
+      }
+    }
+    return gen;
+  }
+
+  /**
+   * Returns the cached stub for the given name, or {@code null}.
+   *
+   * @param name The name.
+   * @param gen The generation token, as returned by {@link #currentGeneration()}.
+   * @return The stub, or {@code null}.
+   */
+  Remote get(String name, long gen) {
+    return gen == 0 ? null : stubs.get(name);
+  }
+
+  /**
+   * Caches the given stub, unless the registry has changed since {@code gen} was obtained.
+   *
+   * @param name The name.
+   * @param stub The stub.
+   * @param gen The generation token obtained before the lookup.
+   */
+  void put(String name, Remote stub, long gen) {
+    if (gen == 0 || stub == null) {
+      return;
+    }
+    synchronized (this) {
+      if (gen == generation) {
+        stubs.put(name, stub);
+      }
+    }
+  }
+
+  /**
+   * Clears the cache and tells other processes that the registry has changed.
+   */
+  void invalidate() {
+    synchronized (this) {
+      stubs.clear();
+      generation = 0;
+    }
+    AFRMISocketFactory sf = naming.getSocketFactory();
+    if (sf != null) {
+      sf.registryChanged(naming.getRegistryPort());
+    }
+  }
+}
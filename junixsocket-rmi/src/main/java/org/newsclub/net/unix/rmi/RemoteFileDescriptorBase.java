@@ -18,28 +18,15 @@
 package org.newsclub.net.unix.rmi;
 
 import java.io.Closeable;
-import java.io.DataInputStream;
-import java.io.DataOutputStream;
 import java.io.Externalizable;
 import java.io.FileDescriptor;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
-import java.io.OutputStream;
-import java.net.SocketException;
 import java.util.Objects;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.ThreadLocalRandom;
-import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 
-import org.newsclub.net.unix.AFServerSocket;
-import org.newsclub.net.unix.AFSocket;
-import org.newsclub.net.unix.AFSocketAddress;
-import org.newsclub.net.unix.AFUNIXSocket;
 import org.newsclub.net.unix.FileDescriptorAccess;
-import org.newsclub.net.unix.server.AFSocketServer;
 
 import com.kohlschutter.annotations.compiletime.SuppressFBWarnings;
 
@@ -64,14 +51,22 @@ public abstract class RemoteFileDescriptorBase<T> implements Externalizable, Clo
       parseTimeoutMillis(System.getProperty(PROP_CONNECT_TIMEOUT, "1000"), true);
 
   static final int MAGIC_VALUE_MASK = 0x00FD0000;
+
+  /**
+   * The marker written instead of {@link #MAGIC_VALUE_MASK} in the serialized form, which carries
+   * a 64-bit token for {@link RemoteFileDescriptorChannel}. Older versions wrote
+   * {@link #MAGIC_VALUE_MASK} followed by a 32-bit value; they reject this marker, and we reject
+   * theirs, so peers with mismatching versions fail with an error instead of misreading the
+   * stream.
+   */
+  private static final int MAGIC_VALUE_TOKEN64 = 0x00FE0000;
+  private static final int MAGIC_MARKER_BITS = 0x00FF0000;
   static final int BIT_READABLE = 1 << 0;
   static final int BIT_WRITABLE = 1 << 1;
+  static final int BIT_SHARED_BUFFER = 1 << 2;
 
   private static final long serialVersionUID = 1L;
 
-  private final AtomicReference<DataInputStream> remoteConnection = new AtomicReference<>();
-  private final AtomicReference<AFUNIXSocket> remoteServer = new AtomicReference<>();
-
   /**
    * An optional, closeable resource that is related to this instance. If the reference is non-null,
    * this will be closed upon {@link #close()}.
@@ -102,83 +97,34 @@ public abstract class RemoteFileDescriptorBase<T> implements Externalizable, Clo
   }
 
   @Override
-  @SuppressWarnings("PMD.ExceptionAsFlowControl")
-  @SuppressFBWarnings("PREDICTABLE_RANDOM")
   public final synchronized void writeExternal(ObjectOutput objOut) throws IOException {
     if (fd == null || !fd.valid()) {
       throw new IOException("No or invalid file descriptor");
     }
-    final int randomValue = ThreadLocalRandom.current().nextInt();
 
-    int localPort;
+    final long token;
+    final int port;
     try {
-      AFServerSocket<?> serverSocket = (AFServerSocket<?>) socketFactory.createServerSocket(0);
-      localPort = serverSocket.getLocalPort();
-
-      AFSocketServer<?> server = new AFSocketServer<AFSocketAddress>(serverSocket) {
-        @Override
-        protected void doServeSocket(AFSocket<?> socket) throws IOException {
-          AFUNIXSocket unixSocket = (AFUNIXSocket) socket;
-          try (DataOutputStream out = new DataOutputStream(socket.getOutputStream());
-              InputStream in = socket.getInputStream();) {
-            unixSocket.setOutboundFileDescriptors(fd);
-            out.writeInt(randomValue);
-
-            try {
-              socket.setSoTimeout(CONNECT_TIMEOUT);
-            } catch (IOException e) {
-              // ignore
-            }
-
-            // This call blocks until the remote is done with the file descriptor, or we time out.
-            int response = in.read();
-            if (response != 1) {
-              if (response == -1) {
-                // EOF, remote terminated
-              } else {
-                throw new IOException("Unexpected response: " + response);
-              }
-            }
-          } finally {
-            stop();
-          }
-        }
-
-        @Override
-        protected void onServerStopped(AFServerSocket<?> socket) {
-          try {
-            serverSocket.close();
-          } catch (IOException e) {
-            // ignore
-          }
-        }
-
-      };
-      @SuppressWarnings("unused")
-      ScheduledFuture<IOException> unused = server.startThenStopAfter(SERVER_TIMEOUT,
-          TimeUnit.MILLISECONDS);
+      RemoteFileDescriptorChannel.Server server = socketFactory.getFileDescriptorServer(
+          SERVER_TIMEOUT);
+      token = server.register(fd);
+      port = server.getPort();
     } catch (IOException e) {
       objOut.writeObject(e);
       throw e;
     }
 
     objOut.writeObject(socketFactory);
-    objOut.writeInt(magicValue);
-    objOut.writeInt(randomValue);
-    objOut.writeInt(localPort);
+    objOut.writeInt((magicValue & ~MAGIC_MARKER_BITS) | MAGIC_VALUE_TOKEN64);
+    objOut.writeLong(token);
+    objOut.writeInt(port);
     objOut.flush();
   }
 
-  @SuppressWarnings("resource")
   @SuppressFBWarnings("OBJECT_DESERIALIZATION")
   @Override
   public final synchronized void readExternal(ObjectInput objIn) throws IOException,
       ClassNotFoundException {
-    DataInputStream in1 = remoteConnection.getAndSet(null);
-    if (in1 != null) {
-      in1.close();
-    }
-
     Object obj = objIn.readObject();
     if (obj instanceof IOException) {
       IOException e = new IOException("Could not read RemoteFileDescriptor");
@@ -187,43 +133,21 @@ public abstract class RemoteFileDescriptorBase<T> implements Externalizable, Clo
     }
     this.socketFactory = (AFUNIXRMISocketFactory) obj;
 
-    // Since ancillary messages can only be read in combination with real data, we read and verify a
-    // magic value
-    this.magicValue = objIn.readInt();
-    if ((magicValue & MAGIC_VALUE_MASK) != MAGIC_VALUE_MASK) {
-      throw new IOException("Unexpected magic value: " + Integer.toHexString(magicValue));
+    int wireMagic = objIn.readInt();
+    switch (wireMagic & MAGIC_MARKER_BITS) {
+      case MAGIC_VALUE_TOKEN64:
+        break;
+      case MAGIC_VALUE_MASK:
+        throw new IOException("Incompatible RemoteFileDescriptor serialization format; "
+            + "the peer uses an older version of junixsocket-rmi");
+      default:
+        throw new IOException("Unexpected magic value: " + Integer.toHexString(wireMagic));
     }
-    final int randomValue = objIn.readInt();
+    this.magicValue = (wireMagic & ~MAGIC_MARKER_BITS) | MAGIC_VALUE_MASK;
+    final long token = objIn.readLong();
     int port = objIn.readInt();
 
-    AFUNIXSocket socket = (AFUNIXSocket) socketFactory.createSocket("", port);
-    if (remoteServer.getAndSet(socket) != null) {
-      throw new IllegalStateException("remoteServer was not null");
-    }
-
-    try {
-      socket.setSoTimeout(CONNECT_TIMEOUT);
-    } catch (IOException e) {
-      // ignore
-    }
-
-    in1 = new DataInputStream(socket.getInputStream());
-    this.remoteConnection.set(in1);
-    socket.ensureAncillaryReceiveBufferSize(128);
-
-    int random = in1.readInt();
-
-    if (random != randomValue) {
-      throw new IOException("Invalid socket connection");
-    }
-    FileDescriptor[] descriptors = socket.getReceivedFileDescriptors();
-
-    if (descriptors == null || descriptors.length != 1) {
-      throw new IOException("Did not receive exactly 1 file descriptor but " + (descriptors == null
-          ? 0 : descriptors.length));
-    }
-
-    this.fd = descriptors[0];
+    this.fd = RemoteFileDescriptorChannel.fetch(socketFactory, port, token, CONNECT_TIMEOUT);
   }
 
   /**
@@ -253,28 +177,8 @@ public abstract class RemoteFileDescriptorBase<T> implements Externalizable, Clo
     return magicValue;
   }
 
-  @SuppressWarnings("resource")
   @Override
   public void close() throws IOException {
-    DataInputStream in1 = remoteConnection.getAndSet(null);
-    if (in1 != null) {
-      try {
-        in1.close();
-      } catch (SocketException e) {
-        // ignore
-      }
-    }
-
-    AFUNIXSocket remoteSocket = remoteServer.getAndSet(null);
-    if (remoteSocket != null) {
-      try (OutputStream out = remoteSocket.getOutputStream()) {
-        out.write(1);
-      } catch (SocketException e) {
-        // ignore
-      }
-      remoteSocket.close();
-    }
-
     @SuppressWarnings("null")
     T c = this.resource.getAndSet(null);
     if (c != null) {
@@ -0,0 +1,464 @@
+/*
+ * junixsocket
+ *
+ * Copyright 2009-2026 Christian Kohlschütter
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.newsclub.net.unix.rmi;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.newsclub.net.unix.AFServerSocket;
+import org.newsclub.net.unix.AFSocket;
+import org.newsclub.net.unix.AFSocketAddress;
+import org.newsclub.net.unix.AFUNIXSocket;
+import org.newsclub.net.unix.AFUNIXSocketCredentials;
+import org.newsclub.net.unix.server.AFSocketServer;
+
+/**
+ * A long-lived side channel for transferring file descriptors of {@link RemoteFileDescriptorBase}
+ * instances between RMI peers.
+ *
+ * The sending side registers each file descriptor with its {@link Server} (one per
+ * {@link AFUNIXRMISocketFactory}), and serializes a token plus the server's port. The receiving
+ * side keeps one {@link Client} connection per server, and requests the file descriptors by token.
+ * Concurrent requests are combined into one request/response exchange, and the corresponding file
+ * descriptors are sent together in one ancillary message.
+ *
+ * Tokens are random 64-bit values. When a file descriptor is serialized as part of a remote method
+ * invocation, it can only be retrieved by a peer with the same credentials as the caller.
+ *
+ * Received file descriptors are detached from the client connection, so closing the connection
+ * (for example, upon an error) does not affect file descriptors that were already delivered.
+ *
+ * @author Christian Kohlschütter
+ */
+final class RemoteFileDescriptorChannel {
+  private static final int MAX_BATCH_SIZE = 64;
+  private static final int MAX_CONCURRENT_PEERS = 256;
+  private static final SecureRandom RANDOM = new SecureRandom();
+
+  private RemoteFileDescriptorChannel() {
+    throw new IllegalStateException("No instances");
+  }
+
+  /**
+   * Retrieves the file descriptor registered with the given token from the server at the given
+   * port.
+   *
+   * @param socketFactory The socket factory.
+   * @param port The server port.
+   * @param token The token.
+   * @param soTimeout The socket timeout, in milliseconds.
+   * @return The file descriptor.
+   * @throws IOException on error.
+   */
+  static FileDescriptor fetch(AFUNIXRMISocketFactory socketFactory, int port, long token,
+      int soTimeout) throws IOException {
+    AFSocketAddress key = socketFactory.newSocketAddress(port);
+    Client client = Client.CLIENTS.get(key);
+    if (client != null) {
+      try {
+        return client.fetch(token);
+      } catch (IOException e) {
+        if (!client.isClosed()) {
+          throw e;
+        }
+        // stale connection; retry with a new one
+      }
+    }
+
+    synchronized (Client.CLIENTS) {
+      client = Client.CLIENTS.get(key);
+      if (client == null || client.isClosed()) {
+        client = new Client(key, (AFUNIXSocket) socketFactory.createSocket("", port), soTimeout);
+        Client.CLIENTS.put(key, client);
+      }
+    }
+    return client.fetch(token);
+  }
+
+  /**
+   * Closes all client connections (for testing purposes). File descriptors that were already
+   * received remain valid.
+   */
+  static void closeClients() {
+    for (Client client : Client.CLIENTS.values()) {
+      client.close();
+    }
+  }
+
+  /**
+   * Checks if there is an open client connection to the server at the given port (for testing
+   * purposes).
+   *
+   * @param socketFactory The socket factory.
+   * @param port The server port.
+   * @return {@code true} if connected.
+   * @throws IOException on error.
+   */
+  static boolean isClientConnected(AFUNIXRMISocketFactory socketFactory, int port)
+      throws IOException {
+    Client client = Client.CLIENTS.get(socketFactory.newSocketAddress(port));
+    return client != null && !client.isClosed();
+  }
+
+  /**
+   * The sending side; serves file descriptors to any number of peers.
+   */
+  static final class Server implements Closeable {
+    private final AFServerSocket<?> serverSocket;
+    private final AFSocketServer<?> server;
+    private final int expiryMillis;
+    private final Map<Long, Handoff> handoffs = new LinkedHashMap<>();
+
+    Server(AFUNIXRMISocketFactory socketFactory, int expiryMillis) throws IOException {
+      this.expiryMillis = expiryMillis;
+      this.serverSocket = (AFServerSocket<?>) socketFactory.createServerSocket(0);
+      this.server = new AFSocketServer<AFSocketAddress>(serverSocket) {
+        @Override
+        protected void doServeSocket(AFSocket<?> socket) throws IOException {
+          serve((AFUNIXSocket) socket);
+        }
+
+        @Override
+        protected void onServerStopped(AFServerSocket<?> socket) {
+          try {
+            serverSocket.close();
+          } catch (IOException e) {
+            // ignore
+          }
+        }
+      };
+      server.setSocketTimeout(0);
+      server.setMaxConcurrentConnections(MAX_CONCURRENT_PEERS);
+      server.start();
+    }
+
+    int getPort() {
+      return serverSocket.getLocalPort();
+    }
+
+    boolean isOpen() {
+      return !serverSocket.isClosed();
+    }
+
+    /**
+     * Registers a file descriptor for transfer. Unless retrieved by a peer, the registration
+     * expires after the configured timeout.
+     *
+     * If called during a remote method invocation, the file descriptor can only be retrieved by a
+     * peer with the same credentials as the caller.
+     *
+     * @param fd The file descriptor.
+     * @return The token.
+     */
+    long register(FileDescriptor fd) {
+      AFUNIXSocketCredentials peer = AFUNIXSocketCredentials.remotePeerCredentials();
+      long now = System.currentTimeMillis();
+      synchronized (handoffs) {
+        purgeExpired(now);
+        long token;
+        do {
+          token = RANDOM.nextLong();
+        } while (token == 0 || handoffs.containsKey(token));
+        handoffs.put(token, new Handoff(fd, now + expiryMillis, peer));
+        return token;
+      }
+    }
+
+    private void purgeExpired(long now) {
+      for (Iterator<Handoff> it = handoffs.values().iterator(); it.hasNext();) {
+        if (it.next().expiry > now) {
+          break;
+        }
+        it.remove();
+      }
+    }
+
+    private FileDescriptor take(long token, AFUNIXSocketCredentials peer) {
+      synchronized (handoffs) {
+        Handoff handoff = handoffs.get(token);
+        if (handoff == null || !handoff.isAllowed(peer)) {
+          // don't remove, so a wrong peer cannot invalidate the token for the right one
+          return null;
+        }
+        handoffs.remove(token);
+        if (handoff.expiry <= System.currentTimeMillis()) {
+          return null;
+        }
+        return handoff.fd;
+      }
+    }
+
+    private void serve(AFUNIXSocket socket) throws IOException {
+      AFUNIXSocketCredentials peer;
+      try {
+        peer = socket.getPeerCredentials();
+      } catch (IOException e) {
+        peer = null;
+      }
+      DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+      OutputStream out = socket.getOutputStream();
+      while (true) {
+        int count;
+        try {
+          count = in.readInt();
+        } catch (EOFException e) {
+          return;
+        }
+        if (count <= 0 || count > MAX_BATCH_SIZE) {
+          throw new IOException("Invalid batch size: " + count);
+        }
+
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(4 + count * 9);
+        DataOutputStream dos = new DataOutputStream(bos);
+        List<FileDescriptor> fds = new ArrayList<>(count);
+        dos.writeInt(count);
+        for (int i = 0; i < count; i++) {
+          long token = in.readLong();
+          FileDescriptor fd = take(token, peer);
+          boolean found = fd != null && fd.valid();
+          dos.writeLong(token);
+          dos.writeBoolean(found);
+          if (found) {
+            fds.add(fd);
+          }
+        }
+
+        // the file descriptors are sent along with the first bytes of the response
+        socket.setOutboundFileDescriptors(fds.toArray(new FileDescriptor[0]));
+        out.write(bos.toByteArray());
+        out.flush();
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      synchronized (handoffs) {
+        handoffs.clear();
+      }
+      try {
+        server.stop();
+      } finally {
+        serverSocket.close();
+      }
+    }
+  }
+
+  private static final class Handoff {
+    private final FileDescriptor fd;
+    private final long expiry;
+    private final AFUNIXSocketCredentials peer;
+
+    Handoff(FileDescriptor fd, long expiry, AFUNIXSocketCredentials peer) {
+      this.fd = fd;
+      this.expiry = expiry;
+      this.peer = peer;
+    }
+
+    /**
+     * Checks if the given peer may retrieve this file descriptor. If the file descriptor was
+     * registered during a remote method invocation, the peer must match the caller (by process ID,
+     * or by user ID if the process ID is unavailable).
+     *
+     * @param other The credentials of the peer requesting the file descriptor.
+     * @return {@code true} if allowed.
+     */
+    boolean isAllowed(AFUNIXSocketCredentials other) {
+      if (peer == null || peer.isEmpty()) {
+        return true;
+      } else if (other == null) {
+        return false;
+      } else if (peer.getPid() > 0 && other.getPid() > 0) {
+        return peer.getPid() == other.getPid();
+      } else if (peer.getUid() >= 0 && other.getUid() >= 0) {
+        return peer.getUid() == other.getUid();
+      } else {
+        return false;
+      }
+    }
+  }
+
+  /**
+   * The receiving side; one connection per {@link Server}.
+   */
+  private static final class Client {
+    private static final Map<AFSocketAddress, Client> CLIENTS = new ConcurrentHashMap<>();
+
+    private final AFSocketAddress key;
+    private final AFUNIXSocket socket;
+    private final DataInputStream in;
+    private final OutputStream out;
+    private final Queue<Request> queue = new ConcurrentLinkedQueue<>();
+    private volatile boolean closed = false;
+
+    Client(AFSocketAddress key, AFUNIXSocket socket, int soTimeout) throws IOException {
+      this.key = key;
+      this.socket = socket;
+      try {
+        socket.setSoTimeout(soTimeout);
+      } catch (IOException e) {
+        // ignore
+      }
+      socket.ensureAncillaryReceiveBufferSize(MAX_BATCH_SIZE * 8);
+
+      // not buffered: ancillary messages are only received along with the corresponding data
+      this.in = new DataInputStream(socket.getInputStream());
+      this.out = socket.getOutputStream();
+    }
+
+    boolean isClosed() {
+      return closed;
+    }
+
+    FileDescriptor fetch(long token) throws IOException {
+      Request req = new Request(token);
+      queue.add(req);
+      synchronized (this) {
+        // Whoever gets here first sends all queued requests, including those of other threads.
+        while (!req.done) {
+          exchange();
+        }
+        if (req.error != null) {
+          throw new IOException("Could not retrieve file descriptor", req.error);
+        }
+        return req.fd;
+      }
+    }
+
+    private void exchange() throws IOException {
+      List<Request> batch = new ArrayList<>();
+      Request r;
+      while (batch.size() < MAX_BATCH_SIZE && (r = queue.poll()) != null) {
+        batch.add(r);
+      }
+      if (batch.isEmpty()) {
+        return;
+      }
+
+      try {
+        if (closed) {
+          throw new IOException("Connection closed");
+        }
+
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(4 + batch.size() * 8);
+        DataOutputStream dos = new DataOutputStream(bos);
+        dos.writeInt(batch.size());
+        for (Request req : batch) {
+          dos.writeLong(req.token);
+        }
+        out.write(bos.toByteArray());
+        out.flush();
+
+        int count = in.readInt();
+        if (count != batch.size()) {
+          throw new IOException("Unexpected batch size: " + count);
+        }
+        boolean[] found = new boolean[count];
+        int numFound = 0;
+        for (int i = 0; i < count; i++) {
+          if (in.readLong() != batch.get(i).token) {
+            throw new IOException("Unexpected token");
+          }
+          if (found[i] = in.readBoolean()) { // NOPMD.AssignmentInOperand
+            numFound++;
+          }
+        }
+
+        // detach: the received file descriptors must outlive this connection
+        FileDescriptor[] fds = socket.getReceivedFileDescriptors(true);
+        int received = fds == null ? 0 : fds.length;
+        if (received != numFound) {
+          closeQuietly(fds);
+          throw new IOException("Expected " + numFound + " file descriptors but received "
+              + received);
+        }
+        int f = 0;
+        for (int i = 0; i < count; i++) {
+          Request req = batch.get(i);
+          if (found[i]) {
+            req.fd = fds[f++];
+          } else {
+            req.error = new IOException("Unknown or expired token");
+          }
+          req.done = true;
+        }
+      } catch (IOException | RuntimeException e) {
+        for (Request req : batch) {
+          if (!req.done) {
+            req.error = e;
+            req.done = true;
+          }
+        }
+        close();
+        if (!(e instanceof IOException)) {
+          throw e;
+        }
+      }
+    }
+
+    private static void closeQuietly(FileDescriptor[] fds) {
+      if (fds == null) {
+        return;
+      }
+      for (FileDescriptor fd : fds) {
+        try (FileInputStream unused = new FileInputStream(fd)) { // NOPMD.UnusedLocalVariable
+          // closes the file descriptor
+        } catch (IOException e) {
+          // ignore
+        }
+      }
+    }
+
+    private void close() {
+      closed = true;
+      CLIENTS.remove(key, this);
+      try {
+        socket.close();
+      } catch (IOException e) {
+        // ignore
+      }
+    }
+  }
+
+  private static final class Request {
+    private final long token;
+    private FileDescriptor fd;
+    private Exception error;
+    private boolean done;
+
+    Request(long token) {
+      this.token = token;
+    }
+  }
+}
@@ -0,0 +1,234 @@
+/*
+ * junixsocket
+ *
+ * Copyright 2009-2026 Christian Kohlschütter
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.newsclub.net.unix.rmi;
+
+import java.io.Closeable;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import com.kohlschutter.annotations.compiletime.SuppressFBWarnings;
+
+/**
+ * A region of shared memory that can be sent via RMI over AF_UNIX sockets without copying its
+ * contents into the RMI stream.
+ *
+ * Only a file descriptor referring to the memory is transferred (see
+ * {@link RemoteFileDescriptorBase}); the receiving side maps the same memory, read-only. This is
+ * useful for large binary arguments or return values (e.g., images).
+ *
+ * The transferred file descriptor is opened read-only; the sending side maps the memory via a
+ * separate, writable descriptor that is closed right after mapping. Note that this does not protect
+ * against a receiving process that runs as the same user: on Linux, such a process could reopen the
+ * file for writing via {@code /proc/self/fd}.
+ *
+ * The memory is backed by an anonymous (already deleted) file in {@code /dev/shm} (or the
+ * directory specified via the system property {@code org.newsclub.net.unix.rmi.shared-buffer-dir},
+ * falling back to {@code java.io.tmpdir}), and is released once all processes have closed their
+ * file descriptors and the mappings have been garbage-collected.
+ *
+ * <pre><code>
+ * // sender
+ * RemoteSharedBuffer buf = RemoteSharedBuffer.allocate(socketFactory, size);
+ * buf.getBuffer().put(imageData);
+ * remote.process(buf);
+ *
+ * // receiver
+ * public void process(RemoteSharedBuffer buf) {
+ *   ByteBuffer data = buf.getBuffer(); // read-only
+ *   ...
+ * }
+ * </code></pre>
+ *
+ * @author Christian Kohlschütter
+ */
+public final class RemoteSharedBuffer extends RemoteFileDescriptorBase<FileChannel> implements
+    Closeable {
+  private static final long serialVersionUID = 1L;
+
+  private static final String PROP_SHARED_BUFFER_DIR =
+      "org.newsclub.net.unix.rmi.shared-buffer-dir";
+
+  private transient MappedByteBuffer buffer;
+
+  /**
+   * Creates an uninitialized instance; used for externalization.
+   *
+   * @see #readExternal(ObjectInput)
+   */
+  public RemoteSharedBuffer() {
+    super();
+  }
+
+  private RemoteSharedBuffer(AFUNIXRMISocketFactory socketFactory, FileInputStream in,
+      MappedByteBuffer buffer) throws IOException {
+    super(socketFactory, in.getChannel(), in.getFD(), RemoteFileDescriptorBase.MAGIC_VALUE_MASK
+        | RemoteFileDescriptorBase.BIT_READABLE | RemoteFileDescriptorBase.BIT_SHARED_BUFFER);
+    this.buffer = buffer;
+  }
+
+  /**
+   * Allocates a new shared buffer of the given capacity. The buffer returned by
+   * {@link #getBuffer()} is writable on the sending side.
+   *
+   * @param socketFactory The socket factory.
+   * @param capacity The capacity, in bytes.
+   * @return The new instance.
+   * @throws IOException on error.
+   */
+  @SuppressWarnings("resource")
+  @SuppressFBWarnings("PATH_TRAVERSAL_IN")
+  public static RemoteSharedBuffer allocate(AFUNIXRMISocketFactory socketFactory, int capacity)
+      throws IOException {
+    if (capacity < 0) {
+      throw new IllegalArgumentException("capacity");
+    }
+    Path file = Files.createTempFile(sharedBufferDir(), "jux-rmi-", ".shm");
+    RandomAccessFile raf;
+    FileInputStream in;
+    try {
+      raf = new RandomAccessFile(file.toFile(), "rw");
+      try {
+        // only this read-only descriptor is sent
+        in = new FileInputStream(file.toFile());
+      } catch (IOException | RuntimeException e) {
+        raf.close();
+        throw e;
+      }
+    } finally {
+      Files.delete(file);
+    }
+    try (RandomAccessFile writable = raf) {
+      writable.setLength(capacity);
+      // the mapping remains valid after closing the writable descriptor
+      MappedByteBuffer buffer = writable.getChannel().map(MapMode.READ_WRITE, 0, capacity);
+      return new RemoteSharedBuffer(socketFactory, in, buffer);
+    } catch (IOException | RuntimeException e) {
+      in.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Allocates a new shared buffer, and copies the remaining bytes of the given buffer into it. The
+   * position of the given buffer is not modified.
+   *
+   * @param socketFactory The socket factory.
+   * @param src The data.
+   * @return The new instance.
+   * @throws IOException on error.
+   */
+  public static RemoteSharedBuffer copyOf(AFUNIXRMISocketFactory socketFactory, ByteBuffer src)
+      throws IOException {
+    RemoteSharedBuffer rsb = allocate(socketFactory, src.remaining());
+    rsb.buffer.put(src.duplicate());
+    rsb.buffer.clear();
+    return rsb;
+  }
+
+  /**
+   * Allocates a new shared buffer, and copies the given bytes into it.
+   *
+   * @param socketFactory The socket factory.
+   * @param bytes The data.
+   * @return The new instance.
+   * @throws IOException on error.
+   */
+  public static RemoteSharedBuffer copyOf(AFUNIXRMISocketFactory socketFactory, byte[] bytes)
+      throws IOException {
+    return copyOf(socketFactory, ByteBuffer.wrap(bytes));
+  }
+
+  @SuppressFBWarnings("PATH_TRAVERSAL_IN")
+  private static Path sharedBufferDir() {
+    String dir = System.getProperty(PROP_SHARED_BUFFER_DIR, "");
+    if (!dir.isEmpty()) {
+      return Paths.get(dir);
+    }
+    Path shm = Paths.get("/dev/shm");
+    if (Files.isDirectory(shm) && Files.isWritable(shm)) {
+      return shm;
+    }
+    return Paths.get(System.getProperty("java.io.tmpdir"));
+  }
+
+  /**
+   * Returns the buffer mapping the shared memory. On the sending side, this is the writable buffer
+   * created upon allocation. On the receiving side, the memory is mapped read-only upon first
+   * access.
+   *
+   * Each call returns a new view, with position zero and limit equal to the capacity.
+   *
+   * @return The buffer.
+   * @throws IOException on error.
+   */
+  public synchronized ByteBuffer getBuffer() throws IOException {
+    if ((getMagicValue() & RemoteFileDescriptorBase.BIT_SHARED_BUFFER) == 0) {
+      throw new IOException("FileDescriptor is not a shared buffer");
+    }
+    if (buffer == null) {
+      FileChannel channel = resource.get();
+      if (channel == null) {
+        channel = new FileInputStream(getFileDescriptor()).getChannel();
+        resource.set(channel);
+      }
+      buffer = channel.map(MapMode.READ_ONLY, 0, channel.size());
+    }
+    return buffer.duplicate();
+  }
+
+  /**
+   * Returns the size of the shared buffer, in bytes.
+   *
+   * @return The size.
+   * @throws IOException on error.
+   */
+  public int length() throws IOException {
+    return getBuffer().capacity();
+  }
+
+  /**
+   * Copies the contents of the shared buffer into a new byte array.
+   *
+   * @return The byte array.
+   * @throws IOException on error.
+   */
+  public byte[] toByteArray() throws IOException {
+    ByteBuffer buf = getBuffer();
+    byte[] bytes = new byte[buf.remaining()];
+    buf.get(bytes);
+    return bytes;
+  }
+
+  /**
+   * Closes the file descriptor. Buffers previously returned by {@link #getBuffer()} remain valid
+   * until they are garbage-collected.
+   */
+  @Override
+  public synchronized void close() throws IOException {
+    super.close();
+  }
+}
@@ -0,0 +1,98 @@
+/*
+ * junixsocket
+ *
+ * Copyright 2009-2026 Christian Kohlschütter
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.newsclub.net.unix.rmi;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.Test;
+import org.newsclub.net.unix.AFSocket;
+import org.newsclub.net.unix.AFSocketCapability;
+import org.newsclub.net.unix.AFUNIXServerSocket;
+import org.newsclub.net.unix.AFUNIXSocket;
+import org.newsclub.net.unix.AFUNIXSocketAddress;
+
+@AFSocketCapabilityRequirement(AFSocketCapability.CAPABILITY_UNIX_DOMAIN)
+public class RMIConnectionCacheTest {
+  private static final long IDLE_TIMEOUT = 500;
+
+  @Test
+  public void testWarmConnections() throws Exception {
+    AFUNIXSocketAddress addr = AFUNIXSocketAddress.ofNewTempFile();
+    List<AFUNIXSocket> accepted = new CopyOnWriteArrayList<>();
+    try (AFUNIXServerSocket server = AFUNIXServerSocket.bindOn(addr);
+        RMIConnectionCache cache = new RMIConnectionCache((a) -> ((AFUNIXSocketAddress) a)
+            .newConnectedSocket(), 2, IDLE_TIMEOUT)) {
+      Thread acceptor = new Thread(() -> {
+        try {
+          while (!server.isClosed()) {
+            accepted.add(server.accept());
+          }
+        } catch (IOException e) {
+          // server closed
+        }
+      });
+      acceptor.setDaemon(true);
+      acceptor.start();
+
+      try (AFSocket<?> s1 = cache.take(addr)) {
+        assertEquals(1, cache.getPool().getMisses());
+      }
+      waitFor(() -> cache.getPool().getWarmConnectionCount() == 2);
+
+      try (AFSocket<?> s2 = cache.take(addr)) {
+        assertEquals(1, cache.getPool().getHits());
+        assertTrue(s2.isConnected());
+      }
+      waitFor(() -> cache.getPool().getWarmConnectionCount() == 2);
+
+      // a warm connection closed by the peer must not be handed out
+      for (AFUNIXSocket s : accepted) {
+        s.close();
+      }
+      AFSocket<?> s3 = cache.take(addr);
+      try {
+        assertTrue(cache.getPool().getLivenessFailures() > 0);
+        assertTrue(s3.isConnected());
+      } finally {
+        s3.close();
+      }
+
+      // unused warm connections are evicted
+      waitFor(() -> cache.getPool().getEvictions() > 0);
+      assertTrue(cache.opened.get() > 0);
+      assertTrue(cache.closedConnections.get() > 0);
+    }
+  }
+
+  private static void waitFor(BooleanSupplier condition)
+      throws InterruptedException {
+    long end = System.currentTimeMillis() + IDLE_TIMEOUT * 10;
+    while (!condition.getAsBoolean()) {
+      if (System.currentTimeMillis() > end) {
+        throw new AssertionError("Condition not met in time");
+      }
+      Thread.sleep(10);
+    }
+  }
+}
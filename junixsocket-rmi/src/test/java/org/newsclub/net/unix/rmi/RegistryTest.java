@@ -18,12 +18,16 @@
 package org.newsclub.net.unix.rmi;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import java.io.IOException;
 import java.rmi.AlreadyBoundException;
 import java.rmi.NotBoundException;
+import java.rmi.Remote;
 import java.rmi.RemoteException;
+import java.rmi.registry.LocateRegistry;
 import java.rmi.server.ExportException;
 import java.util.Arrays;
 import java.util.HashSet;
@@ -92,4 +96,35 @@ public class RegistryTest extends ShutdownHookTestBase {
 
     assertEquals(Arrays.asList(), Arrays.asList(naming.list()));
   }
+
+  @Test
+  public void testCachedLookup() throws IOException, AlreadyBoundException, NotBoundException {
+    AFUNIXNaming naming = AFUNIXNaming.newPrivateInstance();
+    naming.createRegistry();
+
+    // a second view of the same registry, which only learns about changes via the socket directory
+    AFRegistry remoteView = naming.newAFRegistry(LocateRegistry.getRegistry(null, naming
+        .getRegistryPort(), naming.getSocketFactory()));
+    assertThrows(NotBoundException.class, () -> remoteView.lookup("hello"));
+
+    Hello hello = new HelloImpl();
+    naming.exportAndBind("hello", hello);
+
+    Remote stub = remoteView.lookup("hello");
+    assertEquals("Hello", ((Hello) stub).hello());
+    assertSame(stub, remoteView.lookup("hello"));
+
+    Hello hello2 = new HelloImpl();
+    naming.exportAndRebind("hello", hello2);
+    Remote stub2 = remoteView.lookup("hello");
+    assertNotSame(stub, stub2);
+    assertEquals("Hello", ((Hello) stub2).hello());
+
+    naming.unexportAndUnbind("hello", hello2);
+    AFNaming.unexportObject(hello);
+    assertThrows(NotBoundException.class, () -> remoteView.lookup("hello"));
+
+    naming.shutdownRegistry();
+    assertEquals(0, naming.getSocketFactory().getRegistryGeneration(naming.getRegistryPort()));
+  }
 }
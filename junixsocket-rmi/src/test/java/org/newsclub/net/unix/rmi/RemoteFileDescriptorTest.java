@@ -20,16 +20,27 @@ package org.newsclub.net.unix.rmi;
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.File;
+import java.io.FileDescriptor;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+import java.nio.ReadOnlyBufferException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.rmi.NotBoundException;
 import java.rmi.server.RMISocketFactory;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.junit.jupiter.api.Test;
 import org.newsclub.net.unix.AFSocketCapability;
@@ -129,4 +140,119 @@ public class RemoteFileDescriptorTest extends TestBase {
     }
     assertArrayEquals(expected, actual);
   }
+
+  @Test
+  public void testManyDescriptorsConcurrently() throws Exception {
+    TestService svc = lookupTestService();
+
+    final int numThreads = 8;
+    final int numPerThread = 125;
+    ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+    try {
+      List<Future<Void>> futures = new ArrayList<>();
+      for (int t = 0; t < numThreads; t++) {
+        futures.add(executor.submit(() -> {
+          for (int i = 0; i < numPerThread; i++) {
+            try (RemoteFileDescriptor stdout = svc.stdout()) {
+              assertTrue(stdout.getFileDescriptor().valid());
+            }
+          }
+          return null;
+        }));
+      }
+      for (Future<Void> f : futures) {
+        f.get();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testFileDescriptorSurvivesDroppedConnection() throws IOException,
+      NotBoundException {
+    TestService svc = lookupTestService();
+
+    try (FileOutputStream fos = svc.output().asFileOutputStream()) {
+      fos.write(HELLO_WORLD);
+    }
+
+    try (RemoteFileDescriptor unrelated = svc.stdout();
+        FileInputStream fin = svc.input().asFileInputStream()) {
+      // drop the side channel connection that delivered these file descriptors
+      RemoteFileDescriptorChannel.closeClients();
+
+      assertArrayEquals(HELLO_WORLD, IOUtil.readAllBytes(fin));
+      assertTrue(unrelated.getFileDescriptor().valid());
+
+      // a new connection is established on demand
+      try (FileInputStream fin2 = svc.input(12).asFileInputStream()) {
+        assertArrayEquals(SMILEY, IOUtil.readAllBytes(fin2));
+      }
+    }
+  }
+
+  @Test
+  public void testExpiredTokenKeepsConnection() throws Exception {
+    AFUNIXRMISocketFactory sf = (AFUNIXRMISocketFactory) namingSocketFactory();
+    File tempFile = File.createTempFile("junixsocket", ".tmp");
+    tempFile.deleteOnExit();
+    try (RemoteFileDescriptorChannel.Server server = new RemoteFileDescriptorChannel.Server(sf,
+        500); FileInputStream fin = new FileInputStream(tempFile)) {
+      int port = server.getPort();
+
+      long expired = server.register(fin.getFD());
+      Thread.sleep(600);
+
+      IOException e = assertThrows(IOException.class, () -> RemoteFileDescriptorChannel.fetch(sf,
+          port, expired, 1000));
+      assertEquals("Unknown or expired token", e.getCause().getMessage());
+      assertTrue(RemoteFileDescriptorChannel.isClientConnected(sf, port),
+          "An expired token must not tear down the shared connection");
+
+      long valid = server.register(fin.getFD());
+      FileDescriptor fd = RemoteFileDescriptorChannel.fetch(sf, port, valid, 1000);
+      try {
+        assertTrue(fd.valid());
+      } finally {
+        new FileInputStream(fd).close();
+      }
+    } finally {
+      Files.deleteIfExists(tempFile.toPath());
+    }
+  }
+
+  @Test
+  @SuppressWarnings("resource")
+  public void testSharedBuffer() throws IOException, NotBoundException {
+    TestService svc = lookupTestService();
+
+    final int size = 4 * 1024 * 1024;
+    long expectedSum = 0;
+    for (int i = 0; i < size; i++) {
+      expectedSum += (byte) (i * 31);
+    }
+
+    try (RemoteSharedBuffer rsb = svc.sharedBuffer(size)) {
+      ByteBuffer buf = rsb.getBuffer();
+      assertEquals(size, buf.remaining());
+      assertTrue(buf.isReadOnly());
+      assertThrows(ReadOnlyBufferException.class, () -> buf.put((byte) 0));
+      // the transferred file descriptor is read-only, too (not closing the stream; it shares the fd)
+      assertThrows(IOException.class, () -> new FileOutputStream(rsb.getFileDescriptor())
+          .write(0));
+      for (int i = 0; i < size; i++) {
+        assertEquals((byte) (i * 31), buf.get(i));
+      }
+    }
+
+    try (RemoteSharedBuffer rsb = RemoteSharedBuffer.allocate((AFUNIXRMISocketFactory)
+        namingSocketFactory(), size)) {
+      ByteBuffer buf = rsb.getBuffer();
+      for (int i = 0; i < size; i++) {
+        buf.put((byte) (i * 31));
+      }
+      assertEquals(expectedSum, svc.checksum(rsb));
+    }
+  }
 }
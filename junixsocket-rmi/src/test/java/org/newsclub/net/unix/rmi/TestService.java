@@ -46,6 +46,10 @@ public interface TestService extends Remote {
 
   NaiveFileInputStreamRemote naiveInputStreamRemote() throws IOException;
 
+  RemoteSharedBuffer sharedBuffer(int size) throws IOException;
+
+  long checksum(RemoteSharedBuffer buffer) throws IOException;
+
   AFUNIXSocketCredentials remotePeerCredentials() throws IOException;
 
   <T extends RemoteCloseableThing> RemoteCloseable<? extends T> remoteCloseable(Class<T> klass)
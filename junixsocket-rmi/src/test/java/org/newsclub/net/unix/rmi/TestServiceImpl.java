@@ -25,6 +25,7 @@ import java.io.FileDescriptor;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.util.Arrays;
 
@@ -126,6 +127,28 @@ public final class TestServiceImpl implements TestService, Closeable {
     return new NaiveFileInputStreamRemoteImpl(socketFactory, tmpFile);
   }
 
+  @Override
+  public RemoteSharedBuffer sharedBuffer(int size) throws IOException {
+    RemoteSharedBuffer rsb = RemoteSharedBuffer.allocate(socketFactory, size);
+    ByteBuffer buf = rsb.getBuffer();
+    for (int i = 0; i < size; i++) {
+      buf.put((byte) (i * 31));
+    }
+    return rsb;
+  }
+
+  @Override
+  public long checksum(RemoteSharedBuffer buffer) throws IOException {
+    try (RemoteSharedBuffer rsb = buffer) {
+      ByteBuffer buf = rsb.getBuffer();
+      long sum = 0;
+      while (buf.hasRemaining()) {
+        sum += buf.get();
+      }
+      return sum;
+    }
+  }
+
   @Override
   public void close() throws IOException {
     AFNaming.unexportObject(this);
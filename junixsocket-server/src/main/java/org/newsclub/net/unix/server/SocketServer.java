@@ -27,10 +27,8 @@ import java.net.SocketTimeoutException;
 import java.util.Objects;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.Future;
-import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -39,6 +37,7 @@ import java.util.concurrent.atomic.AtomicInteger;
 import org.eclipse.jdt.annotation.NonNull;
 import org.newsclub.net.unix.AFServerSocket;
 import org.newsclub.net.unix.AFSocketAddress;
+import org.newsclub.net.unix.HashedWheelTimer;
 
 import com.kohlschutter.annotations.compiletime.SuppressFBWarnings;
 import com.kohlschutter.annotations.compiletime.SuppressLint;
@@ -53,7 +52,7 @@ import com.kohlschutter.annotations.compiletime.SuppressLint;
  * @param <V> The supported {@link ServerSocket} type.
  */
 public abstract class SocketServer<A extends SocketAddress, S extends Socket, V extends ServerSocket> {
-  private static final ScheduledExecutorService TIMEOUTS = Executors.newScheduledThreadPool(1);
+  private static final HashedWheelTimer TIMEOUTS = new HashedWheelTimer("SocketServer timeouts");
 
   private final @NonNull A listenAddress;
 
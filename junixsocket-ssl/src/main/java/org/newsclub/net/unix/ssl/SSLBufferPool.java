@@ -0,0 +1,104 @@
+/*
+ * junixsocket
+ *
+ * Copyright 2009-2026 Christian Kohlschütter
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.newsclub.net.unix.ssl;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A simple pool of direct {@link ByteBuffer}s used for TLS records.
+ *
+ * Buffers are handed out with at least the requested capacity, and only kept while they are
+ * actually needed, so idle connections do not pin any direct memory.
+ *
+ * @author Christian Kohlschütter
+ */
+final class SSLBufferPool {
+  /**
+   * Enough for any TLS record (16 KiB of plaintext plus header, padding and MAC).
+   */
+  private static final int DEFAULT_CAPACITY = 17 * 1024;
+
+  private static final int MAX_POOLED = Integer.parseInt(System.getProperty(
+      "org.newsclub.net.unix.ssl.buffer-pool-size", "64"));
+
+  private static final SSLBufferPool INSTANCE = new SSLBufferPool();
+
+  private final Queue<ByteBuffer> pool = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger pooled = new AtomicInteger();
+
+  private SSLBufferPool() {
+  }
+
+  static SSLBufferPool getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Returns a cleared direct buffer with at least the given capacity.
+   *
+   * @param minCapacity The minimum capacity.
+   * @return The buffer.
+   */
+  ByteBuffer acquire(int minCapacity) {
+    ByteBuffer buf;
+    while ((buf = pool.poll()) != null) {
+      pooled.decrementAndGet();
+      if (buf.capacity() >= minCapacity) {
+        buf.clear();
+        return buf;
+      }
+      // too small; let it be garbage-collected
+    }
+    return ByteBuffer.allocateDirect(Math.max(minCapacity, DEFAULT_CAPACITY));
+  }
+
+  /**
+   * Returns a buffer with at least the given capacity, containing the data of the given buffer
+   * (which must be in "fill" mode, i.e., not flipped). The given buffer is released to the pool.
+   *
+   * @param buf The buffer to grow.
+   * @param minCapacity The minimum capacity.
+   * @return The new buffer, in "fill" mode.
+   */
+  ByteBuffer grow(ByteBuffer buf, int minCapacity) {
+    ByteBuffer newBuf = acquire(Math.max(minCapacity, buf.capacity() * 2));
+    buf.flip();
+    newBuf.put(buf);
+    release(buf);
+    return newBuf;
+  }
+
+  /**
+   * Returns the given buffer to the pool. The buffer must no longer be used by the caller.
+   *
+   * @param buf The buffer, or {@code null}.
+   */
+  void release(ByteBuffer buf) {
+    if (buf == null || !buf.isDirect() || buf.isReadOnly()) {
+      return;
+    }
+    if (pooled.incrementAndGet() > MAX_POOLED) {
+      pooled.decrementAndGet();
+      return;
+    }
+    pool.offer(buf);
+  }
+}
@@ -45,6 +45,7 @@ import javax.net.ssl.KeyManager;
 import javax.net.ssl.KeyManagerFactory;
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSessionContext;
 import javax.net.ssl.TrustManager;
 import javax.net.ssl.TrustManagerFactory;
 import javax.security.auth.DestroyFailedException;
@@ -82,6 +83,7 @@ public final class SSLContextBuilder {
   private SSLSupplier<char[]> trustManagerPassword;
 
   private Function<SSLParameters, SSLParameters> parametersFunction = null;
+  private Consumer<SSLSessionContext> sessionContextConsumer = null;
 
   private SSLSupplier<KeyStore> keyStoreSupplier = SSLContextBuilder::newKeyStorePKCS12;
   private SSLFunction<KeyManagerFactory, KeyManager[]> keyManager = null;
@@ -353,6 +355,59 @@ public final class SSLContextBuilder {
     });
   }
 
+  /**
+   * Configures this builder to use the given consumer to configure the {@link SSLSessionContext}
+   * of the built {@link SSLContext} (the client session context for client-mode builders, the
+   * server session context otherwise), for example to adjust session cache size and timeout.
+   *
+   * The consumer is not called if the SSL implementation does not provide a session context. Note
+   * that the session context only applies to the current process (see
+   * {@link #withSessionCache(int, int)}).
+   *
+   * @param consumer The consumer to configure the session context.
+   * @return This builder.
+   * @see #withSessionCache(int, int)
+   */
+  public SSLContextBuilder withSessionContext(Consumer<SSLSessionContext> consumer) {
+    if (sessionContextConsumer != null) {
+      throw new IllegalStateException("Session context configuration already set");
+    }
+    this.sessionContextConsumer = consumer;
+    return this;
+  }
+
+  /**
+   * Configures the size and timeout of the TLS session cache, which allows abbreviated handshakes
+   * (session resumption) for repeated connections to the same peer.
+   *
+   * Note that client-side resumption only works for connections where the peer host and port are
+   * known, e.g., when using
+   * {@link javax.net.ssl.SSLSocketFactory#createSocket(java.net.Socket, String, int, boolean)} or
+   * {@link SSLEngineChannel#wrap(java.nio.channels.SocketChannel, SSLContext, String, int)} with a
+   * non-{@code null} host name. Session caches are kept per {@link SSLContext}, so the
+   * context should be shared by all connections to the same peer.
+   *
+   * <b>Limitation:</b> The cache only lives in the memory of the current process. Sessions are not
+   * shared with other processes (e.g., via shared memory or a local cache daemon), and this cannot
+   * be added on top of JSSE, which offers no API to export, import or plug in sessions or session
+   * tickets. Every new process therefore starts with a full handshake; workloads with many
+   * short-lived processes should instead keep their TLS connections in a long-lived process.
+   *
+   * @param cacheSize The maximum number of cached sessions, or {@code 0} for no limit.
+   * @param timeoutSeconds The session timeout in seconds, or {@code 0} for no limit.
+   * @return This builder.
+   * @see #withSessionContext(Consumer)
+   */
+  public SSLContextBuilder withSessionCache(int cacheSize, int timeoutSeconds) {
+    if (cacheSize < 0 || timeoutSeconds < 0) {
+      throw new IllegalArgumentException("Negative values are not allowed");
+    }
+    return withSessionContext((c) -> {
+      c.setSessionCacheSize(cacheSize);
+      c.setSessionTimeout(timeoutSeconds);
+    });
+  }
+
   private KeyManagerFactory buildKeyManagerFactory() throws GeneralSecurityException {
     return KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
   }
@@ -567,6 +622,14 @@ public final class SSLContextBuilder {
 
     BuilderSSLContext.initContext(sslContext, kms, tms, secureRandom);
 
+    if (sessionContextConsumer != null) {
+      SSLSessionContext sessionContext = clientMode ? sslContext.getClientSessionContext()
+          : sslContext.getServerSessionContext();
+      if (sessionContext != null) {
+        sessionContextConsumer.accept(sessionContext);
+      }
+    }
+
     return new BuilderSSLContext(clientMode, sslContext, parametersFunction, socketFactory);
   }
 
@@ -0,0 +1,722 @@
+/*
+ * junixsocket
+ *
+ * Copyright 2009-2026 Christian Kohlschütter
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.newsclub.net.unix.ssl;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ByteChannel;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.ScatteringByteChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLEngineResult.HandshakeStatus;
+import javax.net.ssl.SSLEngineResult.Status;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLHandshakeException;
+import javax.net.ssl.SSLSession;
+
+import com.kohlschutter.annotations.compiletime.SuppressFBWarnings;
+
+/**
+ * A TLS-secured {@link ByteChannel} on top of a (typically non-blocking) {@link SocketChannel},
+ * such as an {@code AFUNIXSocketChannel} or {@code AFVSOCKSocketChannel}, driven by an
+ * {@link SSLEngine}.
+ *
+ * Unlike {@link javax.net.ssl.SSLSocket}, this channel can be used with a
+ * {@link java.nio.channels.Selector}: register the underlying channel (see {@link #getChannel()})
+ * with the selector, and call {@link #read(ByteBuffer)}/{@link #write(ByteBuffer)} when it is
+ * ready. In non-blocking mode, these methods never block; they return {@code 0} if no progress
+ * could be made. Use {@link #interestOps()} to determine which readiness operation the channel is
+ * waiting for, and {@link #hasBufferedInput()} to check for already-decrypted data that the
+ * selector cannot know about.
+ *
+ * The TLS handshake is performed implicitly upon the first read or write, or explicitly via
+ * {@link #handshake()}. Delegated tasks of the {@link SSLEngine} are run on the calling thread.
+ *
+ * Encrypted data is held in pooled direct buffers that are only allocated while they are actually
+ * needed. Decrypted data is written directly to the buffers provided by the caller when possible
+ * ({@link #read(ByteBuffer[], int, int)} passes all of them to
+ * {@link SSLEngine#unwrap(ByteBuffer, ByteBuffer[], int, int)}; similarly,
+ * {@link #write(ByteBuffer[], int, int)} encrypts directly from the caller's buffers).
+ *
+ * Reading and writing are guarded by separate locks, so one thread may read while another one
+ * writes (also in blocking mode). {@link #close()} closes the underlying channel without waiting
+ * for a blocked reader or writer.
+ *
+ * @author Christian Kohlschütter
+ */
+public final class SSLEngineChannel implements ByteChannel, ScatteringByteChannel,
+    GatheringByteChannel {
+  private static final ByteBuffer[] NO_BUFFERS = new ByteBuffer[0];
+  private static final int TLS_RECORD_HEADER_LENGTH = 5;
+
+  private final SocketChannel channel;
+  private final SSLEngine engine;
+  private final SSLBufferPool pool = SSLBufferPool.getInstance();
+
+  /**
+   * Guards {@link #netIn}, {@link #appIn}, {@link #inboundDone}; acquired before
+   * {@link #writeLock} if both are needed.
+   */
+  private final ReentrantLock readLock = new ReentrantLock();
+
+  /**
+   * Guards {@link #netOut}; never held while acquiring {@link #readLock}.
+   */
+  private final ReentrantLock writeLock = new ReentrantLock();
+
+  /**
+   * Encrypted data read from the channel, not yet unwrapped; in "fill" mode, or {@code null}.
+   */
+  private ByteBuffer netIn;
+
+  /**
+   * Encrypted data not yet written to the channel; in "drain" mode, or {@code null}.
+   */
+  private ByteBuffer netOut;
+
+  /**
+   * Decrypted data not yet returned to the caller; in "drain" mode, or {@code null}.
+   */
+  private ByteBuffer appIn;
+
+  private final AtomicBoolean handshakeStarted = new AtomicBoolean(false);
+  private final AtomicBoolean closed = new AtomicBoolean(false);
+  private boolean inboundDone;
+
+  private SSLEngineChannel(SocketChannel channel, SSLEngine engine) {
+    this.channel = Objects.requireNonNull(channel);
+    this.engine = Objects.requireNonNull(engine);
+  }
+
+  /**
+   * Creates a new {@link SSLEngineChannel} on top of the given channel, using the given
+   * {@link SSLEngine}, which must already be configured for client or server mode.
+   *
+   * @param channel The channel carrying the encrypted data.
+   * @param engine The engine.
+   * @return The new channel.
+   */
+  public static SSLEngineChannel wrap(SocketChannel channel, SSLEngine engine) {
+    return new SSLEngineChannel(channel, engine);
+  }
+
+  /**
+   * Creates a new {@link SSLEngineChannel} on top of the given channel, using a new
+   * {@link SSLEngine} obtained from the given {@link SSLContext}.
+   *
+   * When using an {@link SSLContext} built with {@link SSLContextBuilder}, the engine is already
+   * configured for client or server mode, with the configured default parameters.
+   *
+   * @param channel The channel carrying the encrypted data.
+   * @param context The context.
+   * @param peerHost The non-authoritative name of the peer (for example, for SNI and session
+   *          resumption), or {@code null}.
+   * @param peerPort The non-authoritative port of the peer, or {@code -1}.
+   * @return The new channel.
+   */
+  public static SSLEngineChannel wrap(SocketChannel channel, SSLContext context, String peerHost,
+      int peerPort) {
+    return new SSLEngineChannel(channel, peerHost == null ? context.createSSLEngine() : context
+        .createSSLEngine(peerHost, peerPort));
+  }
+
+  /**
+   * Returns the underlying channel, which carries the encrypted data. Register this channel with
+   * a selector, but never read from or write to it directly.
+   *
+   * @return The channel.
+   */
+  @SuppressFBWarnings("EI_EXPOSE_REP")
+  public SocketChannel getChannel() {
+    return channel;
+  }
+
+  /**
+   * Returns the {@link SSLEngine} used by this channel.
+   *
+   * @return The engine.
+   */
+  @SuppressFBWarnings("EI_EXPOSE_REP")
+  public SSLEngine getEngine() {
+    return engine;
+  }
+
+  /**
+   * Returns the current TLS session (which may be incomplete while the handshake is still in
+   * progress).
+   *
+   * @return The session.
+   */
+  public SSLSession getSession() {
+    return engine.getSession();
+  }
+
+  /**
+   * Progresses the TLS handshake as far as possible without blocking (in non-blocking mode), or
+   * until it is complete (in blocking mode).
+   *
+   * Calling this method is optional; the handshake is also performed upon read and write.
+   *
+   * @return {@code true} if the handshake is complete and all handshake data has been sent,
+   *         {@code false} if the handshake needs to be continued once the underlying channel is
+   *         ready for the operations indicated by {@link #interestOps()}.
+   * @throws IOException on error, including {@link SSLHandshakeException} if the handshake
+   *           failed.
+   */
+  public boolean handshake() throws IOException {
+    readLock.lock();
+    try {
+      writeLock.lock();
+      try {
+        return handshake0();
+      } finally {
+        writeLock.unlock();
+      }
+    } finally {
+      readLock.unlock();
+    }
+  }
+
+  /**
+   * Progresses the TLS handshake; must be called with both {@link #readLock} and
+   * {@link #writeLock} held.
+   */
+  private boolean handshake0() throws IOException {
+    ensureOpen();
+    beginHandshakeIfNecessary();
+
+    while (true) {
+      switch (engine.getHandshakeStatus()) {
+        case NOT_HANDSHAKING:
+        case FINISHED:
+          return flushNetOut();
+        case NEED_TASK:
+          runDelegatedTasks();
+          break;
+        case NEED_WRAP:
+          if (!flushNetOut()) {
+            return false;
+          }
+          wrapNetOut(NO_BUFFERS, 0, 0);
+          break;
+        default: // NEED_UNWRAP, NEED_UNWRAP_AGAIN
+          if (!flushNetOut()) {
+            return false;
+          }
+          if (netIn != null) {
+            SSLEngineResult res = unwrap(NO_BUFFERS, 0, 0);
+            if (res.getStatus() == Status.CLOSED) {
+              throw new SSLHandshakeException("Connection closed during handshake");
+            } else if (res.getStatus() == Status.OK && (res.bytesConsumed() > 0 || res
+                .getHandshakeStatus() != HandshakeStatus.NEED_UNWRAP)) {
+              break;
+            }
+          }
+          int read = readNetIn();
+          if (read < 0) {
+            inboundDone = true;
+            throw new SSLHandshakeException("Connection closed during handshake");
+          } else if (read == 0) {
+            return false;
+          }
+          break;
+      }
+    }
+  }
+
+  /**
+   * Returns the {@link SelectionKey} operations the underlying channel should be registered for
+   * to make progress: {@link SelectionKey#OP_WRITE} if there is encrypted data waiting to be
+   * sent, {@link SelectionKey#OP_READ} otherwise.
+   *
+   * @return The interest operations.
+   */
+  public int interestOps() {
+    writeLock.lock();
+    try {
+      if (netOut != null && netOut.hasRemaining()) {
+        return SelectionKey.OP_WRITE;
+      } else {
+        return SelectionKey.OP_READ;
+      }
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  /**
+   * Checks if there is data that has already been read from the underlying channel but not yet
+   * returned by {@link #read(ByteBuffer)}, i.e., decrypted data, or at least one complete TLS
+   * record. In that case, a selector will not report the channel as readable even though a read
+   * would succeed.
+   *
+   * Incomplete TLS records do not count as buffered input; the remainder has to be read from the
+   * underlying channel first.
+   *
+   * @return {@code true} if there is buffered input.
+   */
+  public boolean hasBufferedInput() {
+    readLock.lock();
+    try {
+      return appIn != null || hasCompleteRecord(netIn);
+    } finally {
+      readLock.unlock();
+    }
+  }
+
+  /**
+   * Checks if the given buffer (in "fill" mode) starts with a complete TLS record.
+   */
+  private static boolean hasCompleteRecord(ByteBuffer buf) {
+    if (buf == null || buf.position() < TLS_RECORD_HEADER_LENGTH) {
+      return false;
+    }
+    int recordLength = ((buf.get(3) & 0xFF) << 8) | (buf.get(4) & 0xFF);
+    return buf.position() >= TLS_RECORD_HEADER_LENGTH + recordLength;
+  }
+
+  /**
+   * Checks if there is encrypted data that has not yet been written to the underlying channel.
+   *
+   * @return {@code true} if there is pending output.
+   * @see #flush()
+   */
+  public boolean hasPendingOutput() {
+    writeLock.lock();
+    try {
+      return netOut != null;
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  /**
+   * Tries to write any pending encrypted data to the underlying channel.
+   *
+   * @return {@code true} if all pending data has been written.
+   * @throws IOException on error.
+   */
+  public boolean flush() throws IOException {
+    writeLock.lock();
+    try {
+      ensureOpen();
+      return flushNetOut();
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  @Override
+  public int read(ByteBuffer dst) throws IOException {
+    return (int) read(new ByteBuffer[] {dst}, 0, 1);
+  }
+
+  @Override
+  public long read(ByteBuffer[] dsts) throws IOException {
+    return read(dsts, 0, dsts.length);
+  }
+
+  @Override
+  public long read(ByteBuffer[] dsts, int offset, int length) throws IOException {
+    checkBounds(offset, length, dsts.length);
+    readLock.lock();
+    try {
+      return read0(dsts, offset, length);
+    } finally {
+      readLock.unlock();
+    }
+  }
+
+  private long read0(ByteBuffer[] dsts, int offset, int length) throws IOException {
+    ensureOpen();
+    beginHandshakeIfNecessary();
+
+    while (true) {
+      if (appIn != null) {
+        return drainAppIn(dsts, offset, length);
+      } else if (inboundDone) {
+        return -1;
+      }
+
+      switch (engine.getHandshakeStatus()) {
+        case NEED_TASK:
+          runDelegatedTasks();
+          continue;
+        case NEED_WRAP:
+          writeLock.lock();
+          try {
+            if (!flushNetOut()) {
+              return 0;
+            }
+            wrapNetOut(NO_BUFFERS, 0, 0);
+          } finally {
+            writeLock.unlock();
+          }
+          continue;
+        default:
+          break;
+      }
+
+      // the peer may be waiting for our handshake data before it sends anything; if a writer is
+      // active, it flushes that data itself
+      if (writeLock.tryLock()) {
+        try {
+          flushNetOut();
+        } finally {
+          writeLock.unlock();
+        }
+      }
+
+      if (netIn != null) {
+        SSLEngineResult res = unwrap(dsts, offset, length);
+        switch (res.getStatus()) {
+          case CLOSED:
+            inboundDone = true;
+            continue;
+          case OK:
+            if (appIn != null) {
+              continue;
+            } else if (res.bytesProduced() > 0) {
+              return res.bytesProduced();
+            } else if (res.bytesConsumed() > 0 || res
+                .getHandshakeStatus() == HandshakeStatus.NEED_TASK || res
+                    .getHandshakeStatus() == HandshakeStatus.NEED_WRAP) {
+              continue;
+            }
+            break;
+          default: // BUFFER_UNDERFLOW
+            break;
+        }
+      }
+
+      int read = readNetIn();
+      if (read < 0) {
+        inboundDone = true;
+        try {
+          engine.closeInbound();
+        } catch (SSLException e) {
+          // peer did not send close_notify; treat as regular end-of-stream
+        }
+        return -1;
+      } else if (read == 0) {
+        return 0;
+      }
+    }
+  }
+
+  @Override
+  public int write(ByteBuffer src) throws IOException {
+    return (int) write(new ByteBuffer[] {src}, 0, 1);
+  }
+
+  @Override
+  public long write(ByteBuffer[] srcs) throws IOException {
+    return write(srcs, 0, srcs.length);
+  }
+
+  @Override
+  public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+    checkBounds(offset, length, srcs.length);
+
+    long total = 0;
+    while (true) {
+      writeLock.lock();
+      try {
+        ensureOpen();
+        beginHandshakeIfNecessary();
+
+        if (!flushNetOut()) {
+          return total;
+        }
+
+        while (true) {
+          HandshakeStatus hs = engine.getHandshakeStatus();
+          if (hs == HandshakeStatus.NEED_TASK) {
+            runDelegatedTasks();
+            continue;
+          } else if (hs != HandshakeStatus.NOT_HANDSHAKING && hs != HandshakeStatus.FINISHED
+              && hs != HandshakeStatus.NEED_WRAP) {
+            // NEED_UNWRAP, NEED_UNWRAP_AGAIN
+            break;
+          }
+
+          SSLEngineResult res = wrapNetOut(srcs, offset, length);
+          if (res.getStatus() == Status.CLOSED) {
+            throw new ClosedChannelException();
+          }
+          total += res.bytesConsumed();
+          if (!flushNetOut() || !hasRemaining(srcs, offset, length)) {
+            return total;
+          }
+        }
+      } finally {
+        writeLock.unlock();
+      }
+
+      // the handshake needs data from the peer; this requires the read lock, which must not be
+      // acquired while holding the write lock
+      if (!handshake()) {
+        return total;
+      }
+    }
+  }
+
+  @Override
+  public boolean isOpen() {
+    return !closed.get() && channel.isOpen();
+  }
+
+  /**
+   * Closes this channel, including the underlying channel. A TLS {@code close_notify} alert is
+   * sent if that is possible without blocking, and if no other thread is currently writing.
+   *
+   * Threads blocked in {@link #read(ByteBuffer)} or {@link #write(ByteBuffer)} are unblocked by
+   * closing the underlying channel.
+   *
+   * @throws IOException on error.
+   */
+  @Override
+  public void close() throws IOException {
+    if (!closed.compareAndSet(false, true)) {
+      return;
+    }
+    try {
+      engine.closeOutbound();
+      if (writeLock.tryLock()) {
+        try {
+          if (channel.isOpen() && flushNetOut()) {
+            wrapNetOut(NO_BUFFERS, 0, 0);
+            flushNetOut();
+          }
+        } finally {
+          writeLock.unlock();
+        }
+      }
+    } catch (IOException e) {
+      // ignore; we're closing anyways
+    } finally {
+      try {
+        channel.close();
+      } finally {
+        releaseBuffers();
+      }
+    }
+  }
+
+  /**
+   * Returns all buffers to the pool, once any blocked reader or writer has given up (after the
+   * underlying channel has been closed).
+   */
+  private void releaseBuffers() {
+    readLock.lock();
+    try {
+      pool.release(netIn);
+      pool.release(appIn);
+      netIn = null;
+      appIn = null;
+    } finally {
+      readLock.unlock();
+    }
+    writeLock.lock();
+    try {
+      pool.release(netOut);
+      netOut = null;
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  private static void checkBounds(int offset, int length, int arrayLength) {
+    if (offset < 0 || length < 0 || offset > arrayLength - length) {
+      throw new IndexOutOfBoundsException();
+    }
+  }
+
+  private static boolean hasRemaining(ByteBuffer[] bufs, int offset, int length) {
+    for (int i = offset, n = offset + length; i < n; i++) {
+      if (bufs[i].hasRemaining()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void ensureOpen() throws ClosedChannelException {
+    if (closed.get()) {
+      throw new ClosedChannelException();
+    }
+  }
+
+  private void beginHandshakeIfNecessary() throws SSLException {
+    if (handshakeStarted.compareAndSet(false, true)) {
+      engine.beginHandshake();
+    }
+  }
+
+  private void runDelegatedTasks() {
+    Runnable task;
+    while ((task = engine.getDelegatedTask()) != null) {
+      task.run();
+    }
+  }
+
+  /**
+   * Writes as much of {@link #netOut} as possible.
+   *
+   * @return {@code true} if there is no more pending data.
+   */
+  private boolean flushNetOut() throws IOException {
+    if (netOut == null) {
+      return true;
+    }
+    while (netOut.hasRemaining()) {
+      if (channel.write(netOut) == 0) {
+        return false;
+      }
+    }
+    pool.release(netOut);
+    netOut = null;
+    return true;
+  }
+
+  /**
+   * Encrypts data from the given buffers (or produces handshake data only, if there are none) into
+   * {@link #netOut}. Must only be called when there is no pending output.
+   */
+  private SSLEngineResult wrapNetOut(ByteBuffer[] srcs, int offset, int length)
+      throws SSLException {
+    ByteBuffer out = pool.acquire(engine.getSession().getPacketBufferSize());
+    SSLEngineResult res;
+    try {
+      while ((res = engine.wrap(srcs, offset, length, out)).getStatus() == Status.BUFFER_OVERFLOW) {
+        out = pool.grow(out, engine.getSession().getPacketBufferSize());
+      }
+    } catch (SSLException | RuntimeException e) {
+      pool.release(out);
+      throw e;
+    }
+
+    out.flip();
+    if (out.hasRemaining()) {
+      netOut = out;
+    } else {
+      pool.release(out);
+    }
+    return res;
+  }
+
+  /**
+   * Reads encrypted data from the channel into {@link #netIn}.
+   *
+   * @return The number of bytes read, or {@code -1} upon end-of-stream.
+   */
+  private int readNetIn() throws IOException {
+    int packetSize = engine.getSession().getPacketBufferSize();
+    if (netIn == null) {
+      netIn = pool.acquire(packetSize);
+    } else if (!netIn.hasRemaining()) {
+      netIn = pool.grow(netIn, packetSize);
+    }
+
+    int read = channel.read(netIn);
+    if (netIn.position() == 0) {
+      pool.release(netIn);
+      netIn = null;
+    }
+    return read;
+  }
+
+  /**
+   * Decrypts data from {@link #netIn} directly into the given buffers, or, if they cannot take a
+   * full record, into {@link #appIn}. Must only be called when {@link #netIn} is not {@code null}.
+   */
+  private SSLEngineResult unwrap(ByteBuffer[] dsts, int offset, int length) throws SSLException {
+    netIn.flip();
+    try {
+      if (length > 0) {
+        SSLEngineResult res = engine.unwrap(netIn, dsts, offset, length);
+        if (res.getStatus() != Status.BUFFER_OVERFLOW) {
+          return res;
+        }
+      }
+
+      int appSize = engine.getSession().getApplicationBufferSize();
+      ByteBuffer app = appIn;
+      appIn = null;
+      if (app == null) {
+        app = pool.acquire(appSize);
+      } else {
+        app.compact();
+        if (app.remaining() < appSize) {
+          app = pool.grow(app, app.position() + appSize);
+        }
+      }
+      try {
+        return engine.unwrap(netIn, app);
+      } finally {
+        app.flip();
+        if (app.hasRemaining()) {
+          appIn = app;
+        } else {
+          pool.release(app);
+        }
+      }
+    } finally {
+      netIn.compact();
+      if (netIn.position() == 0) {
+        pool.release(netIn);
+        netIn = null;
+      }
+    }
+  }
+
+  private long drainAppIn(ByteBuffer[] dsts, int offset, int length) {
+    long total = 0;
+    for (int i = offset, n = offset + length; i < n && appIn.hasRemaining(); i++) {
+      ByteBuffer dst = dsts[i];
+      int count = Math.min(dst.remaining(), appIn.remaining());
+      if (count == 0) {
+        continue;
+      }
+      int limit = appIn.limit();
+      appIn.limit(appIn.position() + count);
+      dst.put(appIn);
+      appIn.limit(limit);
+      total += count;
+    }
+    if (!appIn.hasRemaining()) {
+      pool.release(appIn);
+      appIn = null;
+    }
+    return total;
+  }
+
+  @Override
+  public String toString() {
+    return super.toString() + "[" + channel + ";" + engine.getHandshakeStatus() + "]";
+  }
+}
@@ -59,6 +59,7 @@ import javax.net.ssl.SSLHandshakeException;
 import javax.net.ssl.SSLProtocolException;
 import javax.net.ssl.SSLServerSocket;
 import javax.net.ssl.SSLServerSocketFactory;
+import javax.net.ssl.SSLSessionContext;
 import javax.net.ssl.SSLSocket;
 import javax.net.ssl.SSLSocketFactory;
 import javax.net.ssl.TrustManager;
@@ -1105,4 +1106,32 @@ public class SSLContextBuilderTest extends SSLTestBase {
     context.getClientSessionContext(); // just trigger
     context.getServerSessionContext(); // just trigger
   }
+
+  @ParameterizedTest
+  @EnumSource(TestSSLConfiguration.class)
+  public void testSessionCache(TestSSLConfiguration configuration) throws Exception {
+    SSLContext context;
+    try {
+      context = configuration.configure(SSLContextBuilder.forClient()) //
+          .withTrustStore(TestResourceUtil.getRequiredResource(SSLContextBuilderTest.class,
+              "juxclient.truststore"), TestCredentials::getJuxClientTrustStorePassword) //
+          .withSessionCache(12, 34) //
+          .buildAndDestroyBuilder();
+    } catch (KnownJavaBugIOException e) {
+      throw new TestAbortedWithImportantMessageException(MessageType.TEST_ABORTED_SHORT_WITH_ISSUES,
+          e.getMessage(), e);
+    }
+
+    SSLSessionContext sessionContext = context.getClientSessionContext();
+    if (sessionContext != null) {
+      assertEquals(12, sessionContext.getSessionCacheSize());
+      assertEquals(34, sessionContext.getSessionTimeout());
+    }
+
+    assertThrows(IllegalStateException.class, () -> SSLContextBuilder.forClient().withSessionCache(
+        1, 1).withSessionContext((c) -> {
+        }));
+    assertThrows(IllegalArgumentException.class, () -> SSLContextBuilder.forClient()
+        .withSessionCache(-1, 1));
+  }
 }
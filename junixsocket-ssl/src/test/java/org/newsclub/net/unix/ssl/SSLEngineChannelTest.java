@@ -0,0 +1,345 @@
+/*
+ * junixsocket
+ *
+ * Copyright 2009-2026 Christian Kohlschütter
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.newsclub.net.unix.ssl;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.time.Duration;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSession;
+
+import org.junit.jupiter.api.Test;
+import org.newsclub.net.unix.AFUNIXSelectorProvider;
+import org.newsclub.net.unix.AFUNIXSocketChannel;
+import org.newsclub.net.unix.AFUNIXSocketPair;
+
+import com.kohlschutter.testutil.TestResourceUtil;
+
+public class SSLEngineChannelTest extends SSLTestBase {
+  private static SSLContext serverContext() throws Exception {
+    return SSLContextBuilder.forServer() //
+        .withKeyStore(TestResourceUtil.getRequiredResource(SSLEngineChannelTest.class,
+            "juxserver.p12"), TestCredentials::getJuxServerPassword) //
+        .withSessionCache(16, 60) //
+        .buildAndDestroyBuilder();
+  }
+
+  private static SSLContext clientContext() throws Exception {
+    return SSLContextBuilder.forClient() //
+        .withTrustStore(TestResourceUtil.getRequiredResource(SSLEngineChannelTest.class,
+            "juxclient.truststore"), TestCredentials::getJuxClientTrustStorePassword) //
+        .withSessionCache(16, 60) //
+        .buildAndDestroyBuilder();
+  }
+
+  @Test
+  public void testNonBlockingTransfer() throws Exception {
+    assertTimeoutPreemptively(Duration.ofSeconds(10), () -> runTransfer(1024 * 1024, 64 * 1024));
+  }
+
+  @Test
+  public void testSmallReadBuffers() throws Exception {
+    // buffers smaller than a TLS record force decryption into an intermediate buffer
+    assertTimeoutPreemptively(Duration.ofSeconds(10), () -> runTransfer(100 * 1024, 7));
+  }
+
+  @Test
+  public void testSessionResumption() throws Exception {
+    SSLContext serverContext = serverContext();
+    SSLContext clientContext = clientContext();
+
+    assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+      SSLSession first = connect(serverContext, clientContext);
+      SSLSession second = connect(serverContext, clientContext);
+
+      // a resumed session keeps the creation time of the original session
+      assertEquals(first.getCreationTime(), second.getCreationTime());
+    });
+  }
+
+  @Test
+  public void testBlockingFullDuplex() throws Exception {
+    final int length = 4 * 1024 * 1024; // much larger than the socket buffers
+
+    AFUNIXSocketPair<AFUNIXSocketChannel> pair = AFUNIXSocketPair.open();
+    try (SSLEngineChannel client = SSLEngineChannel.wrap(pair.getSocket1(), clientContext(),
+        "localhost", -1);
+        SSLEngineChannel server = SSLEngineChannel.wrap(pair.getSocket2(), serverContext(), null,
+            -1)) {
+      assertTimeoutPreemptively(Duration.ofSeconds(20), () -> {
+        // both sides write and read at the same time, from separate threads
+        CompletableFuture<Void> w1 = CompletableFuture.runAsync(() -> writeFully(client, length));
+        CompletableFuture<Void> w2 = CompletableFuture.runAsync(() -> writeFully(server, length));
+        CompletableFuture<Long> r1 = CompletableFuture.supplyAsync(() -> readFully(client,
+            length));
+        CompletableFuture<Long> r2 = CompletableFuture.supplyAsync(() -> readFully(server,
+            length));
+
+        assertEquals(length, (long) r1.get());
+        assertEquals(length, (long) r2.get());
+        w1.get();
+        w2.get();
+      });
+    }
+  }
+
+  @Test
+  public void testCloseUnblocksReader() throws Exception {
+    AFUNIXSocketPair<AFUNIXSocketChannel> pair = AFUNIXSocketPair.open();
+    try (SSLEngineChannel client = SSLEngineChannel.wrap(pair.getSocket1(), clientContext(),
+        "localhost", -1);
+        SSLEngineChannel server = SSLEngineChannel.wrap(pair.getSocket2(), serverContext(), null,
+            -1)) {
+      CompletableFuture<Void> hs = CompletableFuture.runAsync(() -> {
+        try {
+          server.handshake();
+        } catch (IOException e) {
+          throw new IllegalStateException(e);
+        }
+      });
+      client.handshake();
+      hs.get(10, TimeUnit.SECONDS);
+
+      CompletableFuture<Integer> reader = CompletableFuture.supplyAsync(() -> {
+        try {
+          return server.read(ByteBuffer.allocate(16));
+        } catch (IOException e) {
+          return -2;
+        }
+      });
+      Thread.sleep(100);
+      assertFalse(reader.isDone());
+
+      assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+        server.close(); // must not wait for the blocked reader
+        assertTrue(reader.get() < 0);
+      });
+      assertThrows(IOException.class, () -> server.write(ByteBuffer.allocate(1)));
+    }
+  }
+
+  @Test
+  public void testPartialRecordIsNotBufferedInput() throws Exception {
+    // client <-> (relayed manually) <-> server
+    AFUNIXSocketPair<AFUNIXSocketChannel> clientPair = AFUNIXSocketPair.open();
+    AFUNIXSocketPair<AFUNIXSocketChannel> serverPair = AFUNIXSocketPair.open();
+    for (AFUNIXSocketChannel ch : new AFUNIXSocketChannel[] {
+        clientPair.getSocket1(), clientPair.getSocket2(), serverPair.getSocket1(), serverPair
+            .getSocket2()}) {
+      ch.configureBlocking(false);
+    }
+    AFUNIXSocketChannel relayC = clientPair.getSocket2();
+    AFUNIXSocketChannel relayS = serverPair.getSocket1();
+
+    try (SSLEngineChannel client = SSLEngineChannel.wrap(clientPair.getSocket1(),
+        clientContext(), "localhost", -1);
+        SSLEngineChannel server = SSLEngineChannel.wrap(serverPair.getSocket2(), serverContext(),
+            null, -1)) {
+      assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+        boolean clientDone = false;
+        boolean serverDone = false;
+        while (!clientDone || !serverDone) {
+          clientDone = client.handshake();
+          relay(relayC, relayS, Integer.MAX_VALUE);
+          serverDone = server.handshake();
+          relay(relayS, relayC, Integer.MAX_VALUE);
+        }
+        ByteBuffer sink = ByteBuffer.allocate(4096);
+        while (client.read(sink) > 0 || relay(relayS, relayC, Integer.MAX_VALUE) > 0) {
+          // consume any post-handshake messages (e.g., session tickets)
+          sink.clear();
+        }
+
+        client.write(ByteBuffer.wrap(new byte[100]));
+        assertEquals(10, relay(relayC, relayS, 10));
+
+        ByteBuffer buf = ByteBuffer.allocate(200);
+        assertEquals(0, server.read(buf));
+        assertFalse(server.hasBufferedInput(), "An incomplete record is no buffered input");
+
+        relay(relayC, relayS, Integer.MAX_VALUE);
+        int read;
+        while ((read = server.read(buf)) == 0) {
+          Thread.yield();
+        }
+        assertEquals(100, read);
+        assertFalse(server.hasBufferedInput());
+      });
+    }
+  }
+
+  private static int relay(AFUNIXSocketChannel from, AFUNIXSocketChannel to, int maxBytes)
+      throws IOException {
+    ByteBuffer buf = ByteBuffer.allocate(Math.min(maxBytes, 64 * 1024));
+    int total = 0;
+    int read;
+    while (buf.hasRemaining() && (read = from.read(buf)) > 0) {
+      total += read;
+    }
+    buf.flip();
+    while (buf.hasRemaining()) {
+      to.write(buf);
+    }
+    return total;
+  }
+
+  private static void writeFully(SSLEngineChannel channel, int length) {
+    ByteBuffer buf = ByteBuffer.allocate(64 * 1024);
+    try {
+      int remaining = length;
+      while (remaining > 0) {
+        buf.clear();
+        buf.limit(Math.min(remaining, buf.capacity()));
+        while (buf.hasRemaining()) {
+          remaining -= (int) channel.write(buf);
+        }
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static long readFully(SSLEngineChannel channel, int length) {
+    ByteBuffer buf = ByteBuffer.allocate(64 * 1024);
+    long total = 0;
+    try {
+      while (total < length) {
+        buf.clear();
+        int read = channel.read(buf);
+        if (read < 0) {
+          break;
+        }
+        total += read;
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+    return total;
+  }
+
+  private static SSLSession connect(SSLContext serverContext, SSLContext clientContext)
+      throws Exception {
+    AFUNIXSocketPair<AFUNIXSocketChannel> pair = AFUNIXSocketPair.open();
+    pair.getSocket1().configureBlocking(false);
+    pair.getSocket2().configureBlocking(false);
+
+    // peer host and port are required for client-side session lookup
+    try (SSLEngineChannel client = SSLEngineChannel.wrap(pair.getSocket1(), clientContext,
+        "juxserver", 1234);
+        SSLEngineChannel server = SSLEngineChannel.wrap(pair.getSocket2(), serverContext, null,
+            -1)) {
+      boolean clientDone = false;
+      boolean serverDone = false;
+      while (!clientDone || !serverDone) {
+        clientDone = client.handshake();
+        serverDone = server.handshake();
+      }
+
+      // exchange some data, so the client also receives any post-handshake session tickets
+      ByteBuffer buf = ByteBuffer.allocate(1);
+      server.write(ByteBuffer.wrap(new byte[] {1}));
+      while (client.read(buf) == 0) {
+        server.flush();
+      }
+      buf.clear();
+      client.write(ByteBuffer.wrap(new byte[] {2}));
+      while (server.read(buf) == 0) {
+        client.flush();
+      }
+
+      return client.getSession();
+    }
+  }
+
+  private void runTransfer(int length, int readBufferSize) throws Exception {
+    SSLContext serverContext = serverContext();
+    SSLContext clientContext = clientContext();
+
+    AFUNIXSocketPair<AFUNIXSocketChannel> pair = AFUNIXSocketPair.open();
+    pair.getSocket1().configureBlocking(false);
+    pair.getSocket2().configureBlocking(false);
+
+    byte[] data = new byte[length];
+    new Random(length).nextBytes(data);
+    ByteBuffer src1 = ByteBuffer.wrap(data, 0, length / 3);
+    ByteBuffer src2 = ByteBuffer.wrap(data, length / 3, length - length / 3);
+
+    ByteBuffer received = ByteBuffer.allocate(length);
+    ByteBuffer readBuf1 = ByteBuffer.allocateDirect(readBufferSize);
+    ByteBuffer readBuf2 = ByteBuffer.allocate(readBufferSize);
+
+    try (SSLEngineChannel client = SSLEngineChannel.wrap(pair.getSocket1(), clientContext,
+        "localhost", -1);
+        SSLEngineChannel server = SSLEngineChannel.wrap(pair.getSocket2(), serverContext, null,
+            -1);
+        Selector selector = AFUNIXSelectorProvider.provider().openSelector()) {
+      SelectionKey clientKey = client.getChannel().register(selector, 0);
+      SelectionKey serverKey = server.getChannel().register(selector, 0);
+
+      while (received.hasRemaining()) {
+        if (src1.hasRemaining() || src2.hasRemaining()) {
+          client.write(new ByteBuffer[] {src1, src2});
+        } else {
+          client.flush();
+        }
+
+        long read;
+        do {
+          readBuf1.clear();
+          readBuf2.clear();
+          read = server.read(new ByteBuffer[] {readBuf1, readBuf2});
+          readBuf1.flip();
+          readBuf2.flip();
+          received.put(readBuf1);
+          received.put(readBuf2);
+        } while (read > 0);
+        assertTrue(read >= 0);
+
+        clientKey.interestOps(client.interestOps());
+        serverKey.interestOps(server.interestOps());
+        if (!server.hasBufferedInput()) {
+          selector.select(100);
+          selector.selectedKeys().clear();
+        }
+      }
+      assertArrayEquals(data, received.array());
+      assertEquals(0, src1.remaining() + src2.remaining());
+
+      client.close();
+      long read;
+      while ((read = server.read(readBuf1)) == 0) {
+        selector.select(100);
+        selector.selectedKeys().clear();
+      }
+      assertEquals(-1, read);
+    }
+  }
+}
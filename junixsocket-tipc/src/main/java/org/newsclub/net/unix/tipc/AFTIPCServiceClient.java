@@ -0,0 +1,496 @@
+/*
+ * junixsocket
+ *
+ * Copyright 2009-2026 Christian Kohlschütter
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.newsclub.net.unix.tipc;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.NoRouteToHostException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.newsclub.net.unix.AFSocketType;
+import org.newsclub.net.unix.AFTIPCSocketAddress;
+
+/**
+ * A client for a TIPC service that spreads requests across all currently published instances of
+ * that service.
+ *
+ * The table of instances is kept up-to-date from {@link AFTIPCTopologyWatcher} events, which are
+ * received by the given {@link AFTIPCTopologyEventLoop}. Every socket that publishes a matching
+ * service address is one {@link Instance}; messages are sent directly to the socket address of the
+ * instance that was selected using the client's {@link Strategy}.
+ *
+ * Messages are sent right away, with one system call each; {@link #send(List)} sends several
+ * messages with as few system calls as possible ({@code sendmmsg(2)} on Linux). Responses received
+ * via {@link #receive(ByteBuffer)} count as the completion of an outstanding request to the
+ * sending instance (see {@link Strategy#LEAST_OUTSTANDING}).
+ *
+ * <pre><code>
+ * try (AFTIPCTopologyEventLoop loop = new AFTIPCTopologyEventLoop();
+ *     AFTIPCServiceClient client = new AFTIPCServiceClient(loop, 1234,
+ *         AFTIPCServiceClient.Strategy.LEAST_OUTSTANDING)) {
+ *   // run loop.runLoop() in a separate thread
+ *   ...
+ *   client.send(request1);
+ *   client.send(request2);
+ *   client.receive(response);
+ * }
+ * </code></pre>
+ *
+ * @author Christian Kohlschütter
+ */
+public final class AFTIPCServiceClient implements Closeable {
+  private static final Instance[] NO_INSTANCES = new Instance[0];
+
+  private final int serviceType;
+  private final Strategy strategy;
+  private final AFTIPCDatagramChannel channel;
+  private final AFTIPCTopologyWatcher watcher;
+
+  private final Map<AFTIPCSocketAddress, Instance> instancesByAddress = new ConcurrentHashMap<>();
+  private volatile Instance[] instances = NO_INSTANCES;
+  private final AtomicInteger nextIndex = new AtomicInteger(0);
+
+  /**
+   * The strategy used to select an instance for a request.
+   */
+  public enum Strategy {
+    /**
+     * Selects the instances in turn.
+     */
+    ROUND_ROBIN,
+
+    /**
+     * Selects the instance with the fewest outstanding requests (ties are resolved in turn).
+     */
+    LEAST_OUTSTANDING,
+
+    /**
+     * Selects an instance based on a hash key, such that requests with the same key go to the same
+     * instance for as long as that instance is available. When an instance is withdrawn, only the
+     * keys that were mapped to that instance are moved elsewhere (rendezvous hashing).
+     */
+    HASH;
+  }
+
+  /**
+   * A service instance, i.e., a socket that published a matching service address.
+   */
+  public static final class Instance {
+    private final AFTIPCSocketAddress address;
+    private final int hashSeed;
+    private final AtomicInteger outstanding = new AtomicInteger(0);
+    private int publications = 0;
+
+    Instance(AFTIPCSocketAddress address) {
+      this.address = address;
+      this.hashSeed = mix(address.getTIPCRef() * 31 + address.getTIPCNodeHash());
+    }
+
+    /**
+     * Returns the socket address of this instance.
+     *
+     * @return The socket address.
+     */
+    public AFTIPCSocketAddress getAddress() {
+      return address;
+    }
+
+    /**
+     * Returns the number of requests sent to this instance that have not yet been completed.
+     *
+     * @return The number of outstanding requests.
+     */
+    public int getOutstanding() {
+      return outstanding.get();
+    }
+
+    void complete() {
+      outstanding.getAndUpdate((v) -> v > 0 ? v - 1 : 0);
+    }
+
+    @Override
+    public String toString() {
+      return super.toString() + "[" + address + ";outstanding=" + outstanding.get() + "]";
+    }
+  }
+
+  /**
+   * Creates a new client for all instances of the given service type, using the default
+   * {@link AFSocketType#SOCK_DGRAM} socket type.
+   *
+   * @param eventLoop The event loop that receives the topology events.
+   * @param serviceType The service type.
+   * @param strategy The selection strategy.
+   * @throws IOException on error.
+   */
+  public AFTIPCServiceClient(AFTIPCTopologyEventLoop eventLoop, int serviceType, Strategy strategy)
+      throws IOException {
+    this(eventLoop, AFSocketType.SOCK_DGRAM, serviceType, 0, ~0, strategy);
+  }
+
+  /**
+   * Creates a new client for the instances of the given service type and instance range.
+   *
+   * @param eventLoop The event loop that receives the topology events.
+   * @param socketType The socket type used to send messages ({@link AFSocketType#SOCK_DGRAM} or
+   *          {@link AFSocketType#SOCK_RDM}).
+   * @param serviceType The service type.
+   * @param lower The lower value of the instance range.
+   * @param upper The upper value of the instance range.
+   * @param strategy The selection strategy.
+   * @throws IOException on error.
+   */
+  public AFTIPCServiceClient(AFTIPCTopologyEventLoop eventLoop, AFSocketType socketType,
+      int serviceType, int lower, int upper, Strategy strategy) throws IOException {
+    Objects.requireNonNull(eventLoop);
+    this.serviceType = serviceType;
+    this.strategy = Objects.requireNonNull(strategy);
+    this.channel = AFTIPCDatagramSocket.newInstance(socketType).getChannel();
+
+    boolean success = false;
+    this.watcher = new AFTIPCTopologyWatcher(eventLoop,
+        AFTIPCTopologySubscription.TIPC_WAIT_FOREVER) {
+      @Override
+      protected void onEvent(AFTIPCTopologyEvent event) throws IOException {
+        if (event.isService()) {
+          onServiceEvent(event);
+        }
+      }
+    };
+    try {
+      watcher.addServiceSubscription(serviceType, lower, upper);
+      success = true;
+    } finally {
+      if (!success) {
+        watcher.close();
+        channel.close();
+      }
+    }
+  }
+
+  private void onServiceEvent(AFTIPCTopologyEvent event) {
+    AFTIPCSocketAddress address = event.getAddress();
+    synchronized (instancesByAddress) {
+      Instance instance = instancesByAddress.get(address);
+      if (event.isPublished()) {
+        if (instance == null) {
+          instance = new Instance(address);
+          instancesByAddress.put(address, instance);
+        }
+        instance.publications++;
+      } else if (event.isWithdrawn()) {
+        if (instance == null || --instance.publications > 0) {
+          return;
+        }
+        instancesByAddress.remove(address);
+      } else {
+        return;
+      }
+      instances = instancesByAddress.values().toArray(NO_INSTANCES);
+    }
+  }
+
+  /**
+   * Returns the service type.
+   *
+   * @return The service type.
+   */
+  public int getServiceType() {
+    return serviceType;
+  }
+
+  /**
+   * Returns the selection strategy.
+   *
+   * @return The strategy.
+   */
+  public Strategy getStrategy() {
+    return strategy;
+  }
+
+  /**
+   * Returns the channel used to send requests and receive responses. The channel may be configured
+   * as non-blocking, for example, to be used with a selector.
+   *
+   * @return The channel.
+   */
+  public AFTIPCDatagramChannel getChannel() {
+    return channel;
+  }
+
+  /**
+   * Returns a snapshot of the currently known instances.
+   *
+   * @return The instances (in no particular order).
+   */
+  public List<Instance> getInstances() {
+    return Collections.unmodifiableList(new ArrayList<>(Arrays.asList(instances)));
+  }
+
+  /**
+   * Selects an instance according to the client's {@link Strategy}. For {@link Strategy#HASH},
+   * this is equivalent to {@code select(0)}.
+   *
+   * @return The instance, or {@code null} if no instance is available.
+   */
+  public @Nullable Instance select() {
+    return select(0);
+  }
+
+  /**
+   * Selects an instance according to the client's {@link Strategy}, using the given hash key for
+   * {@link Strategy#HASH} (the key is ignored otherwise).
+   *
+   * @param hashKey The hash key.
+   * @return The instance, or {@code null} if no instance is available.
+   */
+  public @Nullable Instance select(int hashKey) {
+    Instance[] snapshot = instances;
+    int n = snapshot.length;
+    if (n == 0) {
+      return null;
+    } else if (n == 1) {
+      return snapshot[0];
+    }
+
+    switch (strategy) {
+      case HASH:
+        return selectByHash(snapshot, hashKey);
+      case LEAST_OUTSTANDING:
+        return selectLeastOutstanding(snapshot);
+      case ROUND_ROBIN:
+      default:
+        return snapshot[Math.floorMod(nextIndex.getAndIncrement(), n)];
+    }
+  }
+
+  private Instance selectLeastOutstanding(Instance[] snapshot) {
+    int n = snapshot.length;
+    int start = Math.floorMod(nextIndex.getAndIncrement(), n);
+    Instance best = snapshot[start];
+    int bestOutstanding = best.getOutstanding();
+    for (int i = 1; i < n && bestOutstanding > 0; i++) {
+      Instance instance = snapshot[(start + i) % n];
+      int outstanding = instance.getOutstanding();
+      if (outstanding < bestOutstanding) {
+        best = instance;
+        bestOutstanding = outstanding;
+      }
+    }
+    return best;
+  }
+
+  private static Instance selectByHash(Instance[] snapshot, int hashKey) {
+    int keyHash = mix(hashKey);
+    Instance best = null;
+    int bestScore = 0;
+    for (Instance instance : snapshot) {
+      int score = mix(keyHash ^ instance.hashSeed);
+      if (best == null || Integer.compareUnsigned(score, bestScore) > 0) {
+        best = instance;
+        bestScore = score;
+      }
+    }
+    return best;
+  }
+
+  private static int mix(int h) {
+    // MurmurHash3 finalizer
+    h ^= h >>> 16;
+    h *= 0x85ebca6b;
+    h ^= h >>> 13;
+    h *= 0xc2b2ae35;
+    h ^= h >>> 16;
+    return h;
+  }
+
+  /**
+   * Sends a request to an instance selected according to the client's {@link Strategy}.
+   *
+   * @param message The message.
+   * @return The selected instance, or {@code null} if the channel is in non-blocking mode and the
+   *         message could not be sent right away.
+   * @throws NoRouteToHostException if no instance is available.
+   * @throws IOException on error.
+   */
+  public @Nullable Instance send(ByteBuffer message) throws IOException {
+    return send(0, message);
+  }
+
+  /**
+   * Sends a request to an instance selected according to the client's {@link Strategy}, using the
+   * given hash key for {@link Strategy#HASH}.
+   *
+   * The request counts as outstanding only if it was actually sent; if sending fails, the selected
+   * instance is not charged for it.
+   *
+   * @param hashKey The hash key.
+   * @param message The message.
+   * @return The selected instance, or {@code null} if the channel is in non-blocking mode and the
+   *         message could not be sent right away.
+   * @throws NoRouteToHostException if no instance is available.
+   * @throws IOException on error.
+   */
+  public @Nullable Instance send(int hashKey, ByteBuffer message) throws IOException {
+    Objects.requireNonNull(message);
+    Instance instance = select(hashKey);
+    if (instance == null) {
+      throw noInstanceAvailable();
+    }
+
+    // Count the request before sending it, so a fast response cannot complete it early
+    instance.outstanding.incrementAndGet();
+    boolean sent = false;
+    try {
+      sent = sendTo(instance.getAddress(), message);
+    } finally {
+      if (!sent) {
+        instance.complete();
+      }
+    }
+    return sent ? instance : null;
+  }
+
+  /**
+   * Sends several requests, each to an instance selected according to the client's
+   * {@link Strategy}, using as few system calls as possible (on Linux, up to 64 messages are sent
+   * with one {@code sendmmsg(2)} call). For {@link Strategy#HASH}, all requests use the hash key
+   * {@code 0}.
+   *
+   * As with {@link #send(ByteBuffer)}, a request counts as outstanding only if it was actually
+   * sent.
+   *
+   * @param messages The messages.
+   * @return The selected instances, in the order of the messages that were sent. If the channel is
+   *         in non-blocking mode, this list may be shorter than {@code messages}; the remaining
+   *         messages were not sent.
+   * @throws NoRouteToHostException if no instance is available.
+   * @throws IOException on error.
+   */
+  public List<Instance> send(List<ByteBuffer> messages) throws IOException {
+    int n = messages.size();
+    ByteBuffer[] buffers = messages.toArray(new ByteBuffer[n]);
+    SocketAddress[] targets = new SocketAddress[n];
+    Instance[] selected = new Instance[n];
+    for (int i = 0; i < n; i++) {
+      Objects.requireNonNull(buffers[i]);
+    }
+
+    int sent = 0;
+    boolean success = false;
+    try {
+      for (int i = 0; i < n; i++) {
+        Instance instance = select(0);
+        if (instance == null) {
+          throw noInstanceAvailable();
+        }
+        // Count the request before sending it, so a fast response cannot complete it early
+        instance.outstanding.incrementAndGet();
+        selected[i] = instance;
+        targets[i] = instance.getAddress();
+      }
+
+      sent = channel.send(buffers, targets, 0, n);
+      success = true;
+    } finally {
+      for (int i = sent; i < n; i++) {
+        // If an exception was thrown, the messages that were sent have no remaining bytes
+        if (selected[i] != null && (success || buffers[i].hasRemaining())) {
+          selected[i].complete();
+        }
+      }
+    }
+    return Collections.unmodifiableList(Arrays.asList(selected).subList(0, sent));
+  }
+
+  private NoRouteToHostException noInstanceAvailable() {
+    return new NoRouteToHostException("No instance available for service type "
+        + AFTIPCSocketAddress.AddressType.formatTIPCInt(serviceType));
+  }
+
+  /**
+   * Sends a message to the given address, which may be any TIPC address, including service
+   * addresses (anycast) and service ranges (multicast). This does not count as an outstanding
+   * request.
+   *
+   * @param target The target address.
+   * @param message The message.
+   * @return {@code true} if the message was sent, {@code false} if the channel is in non-blocking
+   *         mode and the message could not be sent right away.
+   * @throws IOException on error.
+   */
+  public boolean send(AFTIPCSocketAddress target, ByteBuffer message) throws IOException {
+    return sendTo(Objects.requireNonNull(target), Objects.requireNonNull(message));
+  }
+
+  private boolean sendTo(SocketAddress target, ByteBuffer message) throws IOException {
+    return channel.send(message, target) > 0 || !message.hasRemaining();
+  }
+
+  /**
+   * Receives a response. If the sender is a known instance, one of its outstanding requests is
+   * considered completed.
+   *
+   * @param dst The destination buffer.
+   * @return The sender's address, or {@code null} if no message was available (non-blocking mode).
+   * @throws IOException on error.
+   */
+  public @Nullable AFTIPCSocketAddress receive(ByteBuffer dst) throws IOException {
+    AFTIPCSocketAddress sender = channel.receive(dst);
+    if (sender != null) {
+      Instance instance = instancesByAddress.get(sender);
+      if (instance != null) {
+        instance.complete();
+      }
+    }
+    return sender;
+  }
+
+  /**
+   * Marks one outstanding request to the given instance as completed. This is only necessary if
+   * responses are not received via {@link #receive(ByteBuffer)}, or if a request is not going to
+   * receive a response (for example, due to a timeout).
+   *
+   * @param instance The instance.
+   */
+  public void complete(Instance instance) {
+    instance.complete();
+  }
+
+  /**
+   * Closes this client.
+   */
+  @Override
+  public void close() throws IOException {
+    try {
+      watcher.close();
+    } finally {
+      channel.close();
+    }
+  }
+}
@@ -41,7 +41,7 @@ import com.kohlschutter.annotations.compiletime.SuppressFBWarnings;
  */
 @NonNullByDefault
 public final class AFTIPCTopologyEvent {
-  private static final int MESSAGE_LENGTH = 48;
+  static final int MESSAGE_LENGTH = 48;
   private final Type type;
   private final int foundLower;
   private final int foundUpper;
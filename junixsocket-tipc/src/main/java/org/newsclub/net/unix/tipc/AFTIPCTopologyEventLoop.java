@@ -0,0 +1,180 @@
+/*
+ * junixsocket
+ *
+ * Copyright 2009-2026 Christian Kohlschütter
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.newsclub.net.unix.tipc;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A shared event loop for any number of {@link AFTIPCTopologyWatcher}s, multiplexing their
+ * topology service connections on a single selector and thread.
+ *
+ * Events are received in batches, into one large buffer, before they are dispatched to
+ * {@link AFTIPCTopologyWatcher#onEvent(AFTIPCTopologyEvent)}.
+ *
+ * <pre><code>
+ * try (AFTIPCTopologyEventLoop loop = new AFTIPCTopologyEventLoop()) {
+ *   AFTIPCTopologyWatcher watcher = new AFTIPCTopologyWatcher(loop,
+ *       AFTIPCTopologySubscription.TIPC_WAIT_FOREVER) {
+ *     protected void onEvent(AFTIPCTopologyEvent event) throws IOException {
+ *       ...
+ *     }
+ *   };
+ *   watcher.addServiceSubscription(1234);
+ *   loop.runLoop();
+ * }
+ * </code></pre>
+ *
+ * @author Christian Kohlschütter
+ */
+public final class AFTIPCTopologyEventLoop implements Closeable {
+  private static final int BATCH_SIZE = 1024;
+
+  private final Selector selector;
+  private final ByteBuffer buffer = ByteBuffer.allocateDirect(BATCH_SIZE
+      * AFTIPCTopologyEvent.MESSAGE_LENGTH);
+  private final Queue<AFTIPCTopologyWatcher> pendingWatchers = new ConcurrentLinkedQueue<>();
+  private final AtomicBoolean doLoop = new AtomicBoolean(false);
+  private final AtomicBoolean running = new AtomicBoolean(false);
+
+  /**
+   * Creates a new event loop. Call {@link #runLoop()} to start processing events.
+   *
+   * @throws IOException on error.
+   */
+  public AFTIPCTopologyEventLoop() throws IOException {
+    this.selector = AFTIPCSelectorProvider.provider().openSelector();
+  }
+
+  /**
+   * Registers a watcher with this loop; called from {@link AFTIPCTopologyWatcher}.
+   *
+   * @param watcher The watcher.
+   */
+  void attach(AFTIPCTopologyWatcher watcher) {
+    pendingWatchers.add(watcher);
+    selector.wakeup();
+  }
+
+  /**
+   * Deregisters a watcher from this loop; called from {@link AFTIPCTopologyWatcher}.
+   *
+   * @param watcher The watcher.
+   */
+  void detach(AFTIPCTopologyWatcher watcher) {
+    pendingWatchers.remove(watcher);
+    SelectionKey key = watcher.getChannel().keyFor(selector);
+    if (key != null) {
+      key.cancel();
+      selector.wakeup();
+    }
+  }
+
+  /**
+   * Runs the event loop until {@link #stopLoop()} or {@link #close()} is called.
+   *
+   * If a watcher throws an exception from its
+   * {@link AFTIPCTopologyWatcher#onEvent(AFTIPCTopologyEvent)} method, that watcher is detached
+   * from the loop; other watchers are not affected.
+   *
+   * This method returns after the run loop terminates.
+   *
+   * @throws IOException on error.
+   */
+  public void runLoop() throws IOException {
+    if (!running.compareAndSet(false, true)) {
+      throw new IllegalStateException("Already running");
+    }
+
+    try {
+      doLoop.set(true);
+      while (!Thread.interrupted() && doLoop.get()) {
+        AFTIPCTopologyWatcher watcher;
+        while ((watcher = pendingWatchers.poll()) != null) {
+          AFTIPCDatagramChannel channel = watcher.getChannel();
+          if (channel.isOpen()) {
+            channel.register(selector, SelectionKey.OP_READ, watcher);
+          }
+        }
+
+        try {
+          selector.select();
+        } catch (ClosedSelectorException e) {
+          break;
+        }
+        if (!doLoop.get()) {
+          break;
+        }
+
+        Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+        while (it.hasNext()) {
+          SelectionKey key = it.next();
+          it.remove();
+          if (!key.isValid()) {
+            continue;
+          }
+          watcher = (AFTIPCTopologyWatcher) key.attachment();
+          try {
+            watcher.receiveEvents(buffer);
+          } catch (IOException | RuntimeException e) {
+            // detaches the watcher (cancelling its key), so it no longer reports as running
+            watcher.stopLoop();
+          }
+        }
+      }
+    } finally {
+      running.set(false);
+    }
+  }
+
+  /**
+   * Checks if the event loop is running.
+   *
+   * @return {@code true} if running.
+   * @see #runLoop()
+   */
+  public boolean isRunning() {
+    return running.get();
+  }
+
+  /**
+   * Stops the event loop. Attached watchers remain attached, and will receive any pending events
+   * once {@link #runLoop()} is called again.
+   */
+  public void stopLoop() {
+    doLoop.set(false);
+    selector.wakeup();
+  }
+
+  /**
+   * Stops the event loop and releases its resources. Attached watchers are not closed.
+   */
+  @Override
+  public void close() throws IOException {
+    stopLoop();
+    selector.close();
+  }
+}
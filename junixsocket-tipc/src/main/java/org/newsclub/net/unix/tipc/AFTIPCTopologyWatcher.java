@@ -33,9 +33,12 @@ import org.newsclub.net.unix.AFTIPCSocketAddress;
  * @author Christian Kohlschütter
  */
 public class AFTIPCTopologyWatcher implements Closeable {
+  private static final int BATCH_SIZE = 64;
+
   private final int defaultTimeout;
   private final AFTIPCDatagramChannel channel;
   private final Selector selector;
+  private final AFTIPCTopologyEventLoop eventLoop;
   private final AtomicBoolean doLoop = new AtomicBoolean(false);
   private final AtomicBoolean running = new AtomicBoolean(false);
 
@@ -58,11 +61,31 @@ public class AFTIPCTopologyWatcher implements Closeable {
    * @throws IOException on error.
    */
   public AFTIPCTopologyWatcher(int defaultTimeoutSeconds) throws IOException {
+    this(null, defaultTimeoutSeconds);
+  }
+
+  /**
+   * Creates an {@link AFTIPCTopologyWatcher} whose subscription requests use the given default
+   * timeout, and whose events are processed by the given shared event loop instead of
+   * {@link #runLoop()}.
+   *
+   * @param eventLoop The event loop, or {@code null} to use {@link #runLoop()}.
+   * @param defaultTimeoutSeconds The timeout in seconds (or
+   *          {@link AFTIPCTopologySubscription#TIPC_WAIT_FOREVER};
+   * @throws IOException on error.
+   */
+  public AFTIPCTopologyWatcher(AFTIPCTopologyEventLoop eventLoop, int defaultTimeoutSeconds)
+      throws IOException {
     this.defaultTimeout = defaultTimeoutSeconds;
+    this.eventLoop = eventLoop;
     this.channel = AFTIPCDatagramSocket.newInstance(AFSocketType.SOCK_SEQPACKET).getChannel();
-    this.selector = channel.provider().openSelector();
+    this.selector = eventLoop == null ? channel.provider().openSelector() : null;
     channel.connect(AFTIPCSocketAddress.ofTopologyService());
     channel.configureBlocking(false);
+    if (eventLoop != null) {
+      running.set(true);
+      eventLoop.attach(this);
+    }
   }
 
   @SuppressWarnings("all")
@@ -200,11 +223,14 @@ public class AFTIPCTopologyWatcher implements Closeable {
    */
   @SuppressWarnings("null")
   public final void runLoop() throws IOException {
+    if (eventLoop != null) {
+      throw new IllegalStateException("Attached to an event loop");
+    }
     if (!running.compareAndSet(false, true)) {
       throw new IllegalStateException("Already running");
     }
 
-    ByteBuffer buf = ByteBuffer.allocate(64);
+    ByteBuffer buf = ByteBuffer.allocate(BATCH_SIZE * AFTIPCTopologyEvent.MESSAGE_LENGTH);
     SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
 
     try {
@@ -215,11 +241,8 @@ public class AFTIPCTopologyWatcher implements Closeable {
           break;
         }
         if (n > 0) {
-          channel.receive(buf);
-          @SuppressWarnings("cast")
-          AFTIPCTopologyEvent event = AFTIPCTopologyEvent.readFromBuffer((ByteBuffer) buf.flip());
-          onEvent(event);
-          buf.clear();
+          selector.selectedKeys().clear();
+          receiveEvents(buf);
         }
       }
     } finally {
@@ -228,11 +251,47 @@ public class AFTIPCTopologyWatcher implements Closeable {
     }
   }
 
+  /**
+   * Receives all currently available events into the given buffer (as many as fit), and then
+   * dispatches them to {@link #onEvent(AFTIPCTopologyEvent)}.
+   *
+   * @param buf The receive buffer.
+   * @throws IOException on error.
+   */
+  final void receiveEvents(ByteBuffer buf) throws IOException {
+    buf.clear();
+    while (buf.remaining() >= AFTIPCTopologyEvent.MESSAGE_LENGTH) {
+      int pos = buf.position();
+      buf.limit(pos + AFTIPCTopologyEvent.MESSAGE_LENGTH);
+      if (channel.receive(buf) == null) {
+        buf.position(pos);
+        break;
+      } else if (buf.hasRemaining()) {
+        // short message; ignore
+        buf.position(pos);
+      }
+      buf.limit(buf.capacity());
+    }
+    buf.flip();
+
+    while (buf.remaining() >= AFTIPCTopologyEvent.MESSAGE_LENGTH) {
+      int pos = buf.position();
+      AFTIPCTopologyEvent event = AFTIPCTopologyEvent.readFromBuffer(buf);
+      buf.position(pos + AFTIPCTopologyEvent.MESSAGE_LENGTH);
+      onEvent(event);
+    }
+  }
+
+  AFTIPCDatagramChannel getChannel() {
+    return channel;
+  }
+
   /**
    * Called for every event encountered by the run loop.
    *
    * @param event The event.
-   * @throws IOException on error. Any exception will terminate the run loop.
+   * @throws IOException on error. Any exception will terminate the run loop (or, when attached to
+   *           an {@link AFTIPCTopologyEventLoop}, detach this watcher from the loop).
    * @see #runLoop()
    */
   protected void onEvent(AFTIPCTopologyEvent event) throws IOException {
@@ -247,19 +306,32 @@ public class AFTIPCTopologyWatcher implements Closeable {
   }
 
   /**
-   * Checks if the watcher run loop is running.
+   * Checks if the watcher run loop is running (or, when attached to an
+   * {@link AFTIPCTopologyEventLoop}, if the watcher is still attached and the event loop is
+   * running).
    *
    * @return {@code true} if running.
    * @see #runLoop()
    */
   public boolean isRunning() {
+    if (eventLoop != null) {
+      return running.get() && eventLoop.isRunning();
+    }
     return running.get();
   }
 
   /**
-   * Stops the run loop.
+   * Stops the run loop (or, when attached to an {@link AFTIPCTopologyEventLoop}, detaches this
+   * watcher from the loop). Events that have already been received in the current batch are still
+   * delivered.
    */
   public final void stopLoop() {
+    if (eventLoop != null) {
+      if (running.compareAndSet(true, false)) {
+        eventLoop.detach(this);
+      }
+      return;
+    }
     doLoop.set(false);
     selector.wakeup();
   }
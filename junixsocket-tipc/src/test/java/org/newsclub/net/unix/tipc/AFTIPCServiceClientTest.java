@@ -0,0 +1,284 @@
+/*
+ * junixsocket
+ *
+ * Copyright 2009-2026 Christian Kohlschütter
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.newsclub.net.unix.tipc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.NoRouteToHostException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.Test;
+import org.newsclub.net.unix.AFSocketCapability;
+import org.newsclub.net.unix.AFSocketCapabilityRequirement;
+import org.newsclub.net.unix.AFTIPCSocketAddress;
+
+@AFSocketCapabilityRequirement(AFSocketCapability.CAPABILITY_TIPC)
+public final class AFTIPCServiceClientTest extends
+    org.newsclub.net.unix.SocketTestBase<AFTIPCSocketAddress> {
+  private static final int SERVICE_TYPE = 5432;
+  private static final int NUM_INSTANCES = 3;
+
+  public AFTIPCServiceClientTest() throws IOException {
+    super(AFTIPCAddressSpecifics.INSTANCE);
+  }
+
+  private static void awaitCondition(BooleanSupplier condition) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 5000;
+    while (!condition.getAsBoolean()) {
+      assertTrue(System.currentTimeMillis() < deadline, "Timed out");
+      Thread.sleep(10);
+    }
+  }
+
+  private static CompletableFuture<Void> startLoop(AFTIPCTopologyEventLoop loop) {
+    CompletableFuture<Void> cf = new CompletableFuture<>();
+    Thread t = new Thread(() -> {
+      try {
+        loop.runLoop();
+        cf.complete(null);
+      } catch (Exception e) {
+        cf.completeExceptionally(e);
+      }
+    });
+    t.setDaemon(true);
+    t.start();
+    return cf;
+  }
+
+  private static List<AFTIPCDatagramSocket> startInstances(int instance) throws IOException {
+    List<AFTIPCDatagramSocket> servers = new ArrayList<>();
+    for (int i = 0; i < NUM_INSTANCES; i++) {
+      AFTIPCDatagramSocket server = AFTIPCDatagramSocket.newInstance();
+      server.bind(AFTIPCSocketAddress.ofService(SERVICE_TYPE, instance));
+      servers.add(server);
+    }
+    return servers;
+  }
+
+  private static void closeAll(List<AFTIPCDatagramSocket> servers) throws IOException {
+    for (AFTIPCDatagramSocket server : servers) {
+      server.close();
+    }
+  }
+
+  @Test
+  public void testRoundRobin() throws Exception {
+    final int numRequests = NUM_INSTANCES * 10;
+
+    List<AFTIPCDatagramSocket> servers = startInstances(1);
+    try (AFTIPCTopologyEventLoop loop = new AFTIPCTopologyEventLoop();
+        AFTIPCServiceClient client = new AFTIPCServiceClient(loop, SERVICE_TYPE,
+            AFTIPCServiceClient.Strategy.ROUND_ROBIN)) {
+      CompletableFuture<Void> cf = startLoop(loop);
+      awaitCondition(() -> client.getInstances().size() == NUM_INSTANCES);
+
+      Map<AFTIPCSocketAddress, Integer> counts = new HashMap<>();
+      for (int i = 0; i < numRequests; i++) {
+        AFTIPCServiceClient.Instance instance = client.send(ByteBuffer.wrap(("req" + i).getBytes(
+            StandardCharsets.UTF_8)));
+        assertNotNull(instance);
+        counts.merge(instance.getAddress(), 1, Integer::sum);
+      }
+
+      assertEquals(NUM_INSTANCES, counts.size());
+      for (AFTIPCServiceClient.Instance instance : client.getInstances()) {
+        assertEquals(numRequests / NUM_INSTANCES, counts.get(instance.getAddress()));
+        assertEquals(numRequests / NUM_INSTANCES, instance.getOutstanding());
+      }
+
+      // echo every request back to the client
+      ByteBuffer buf = ByteBuffer.allocate(64);
+      for (AFTIPCDatagramSocket server : servers) {
+        AFTIPCDatagramChannel ch = server.getChannel();
+        for (int i = 0; i < numRequests / NUM_INSTANCES; i++) {
+          buf.clear();
+          AFTIPCSocketAddress sender = ch.receive(buf);
+          assertNotNull(sender);
+          buf.flip();
+          ch.send(buf, sender);
+        }
+      }
+      for (int i = 0; i < numRequests; i++) {
+        buf.clear();
+        assertNotNull(client.receive(buf));
+      }
+      for (AFTIPCServiceClient.Instance instance : client.getInstances()) {
+        assertEquals(0, instance.getOutstanding());
+      }
+
+      loop.stopLoop();
+      cf.get(1, TimeUnit.SECONDS);
+    } finally {
+      closeAll(servers);
+    }
+  }
+
+  @Test
+  public void testBatchSend() throws Exception {
+    final int numRequests = NUM_INSTANCES * 4;
+
+    List<AFTIPCDatagramSocket> servers = startInstances(5);
+    try (AFTIPCTopologyEventLoop loop = new AFTIPCTopologyEventLoop();
+        AFTIPCServiceClient client = new AFTIPCServiceClient(loop, SERVICE_TYPE,
+            AFTIPCServiceClient.Strategy.ROUND_ROBIN)) {
+      CompletableFuture<Void> cf = startLoop(loop);
+      awaitCondition(() -> client.getInstances().size() == NUM_INSTANCES);
+
+      List<ByteBuffer> requests = new ArrayList<>();
+      for (int i = 0; i < numRequests; i++) {
+        requests.add(ByteBuffer.wrap(("req" + i).getBytes(StandardCharsets.UTF_8)));
+      }
+
+      // all requests go out with one call
+      List<AFTIPCServiceClient.Instance> selected = client.send(requests);
+      assertEquals(numRequests, selected.size());
+      for (ByteBuffer request : requests) {
+        assertEquals(0, request.remaining());
+      }
+
+      Map<AFTIPCSocketAddress, Integer> counts = new HashMap<>();
+      for (AFTIPCServiceClient.Instance instance : selected) {
+        counts.merge(instance.getAddress(), 1, Integer::sum);
+      }
+      assertEquals(NUM_INSTANCES, counts.size());
+      for (AFTIPCServiceClient.Instance instance : client.getInstances()) {
+        assertEquals(numRequests / NUM_INSTANCES, counts.get(instance.getAddress()));
+        assertEquals(numRequests / NUM_INSTANCES, instance.getOutstanding());
+      }
+
+      // every instance received its share of the requests
+      ByteBuffer buf = ByteBuffer.allocate(64);
+      for (AFTIPCDatagramSocket server : servers) {
+        AFTIPCDatagramChannel ch = server.getChannel();
+        for (int i = 0; i < numRequests / NUM_INSTANCES; i++) {
+          buf.clear();
+          assertNotNull(ch.receive(buf));
+          buf.flip();
+          assertTrue(new String(buf.array(), 0, buf.limit(), StandardCharsets.UTF_8).startsWith(
+              "req"));
+        }
+      }
+
+      loop.stopLoop();
+      cf.get(1, TimeUnit.SECONDS);
+    } finally {
+      closeAll(servers);
+    }
+  }
+
+  @Test
+  public void testLeastOutstanding() throws Exception {
+    List<AFTIPCDatagramSocket> servers = startInstances(2);
+    try (AFTIPCTopologyEventLoop loop = new AFTIPCTopologyEventLoop();
+        AFTIPCServiceClient client = new AFTIPCServiceClient(loop, SERVICE_TYPE,
+            AFTIPCServiceClient.Strategy.LEAST_OUTSTANDING)) {
+      CompletableFuture<Void> cf = startLoop(loop);
+      awaitCondition(() -> client.getInstances().size() == NUM_INSTANCES);
+
+      AFTIPCServiceClient.Instance busy = client.send(ByteBuffer.allocate(1));
+      client.send(ByteBuffer.allocate(1));
+      client.send(ByteBuffer.allocate(1));
+
+      // every instance has one outstanding request; completing one makes it the preferred one
+      client.complete(busy);
+      assertSame(busy, client.select());
+      assertSame(busy, client.select());
+
+      loop.stopLoop();
+      cf.get(1, TimeUnit.SECONDS);
+    } finally {
+      closeAll(servers);
+    }
+  }
+
+  @Test
+  public void testFailedSendIsNotOutstanding() throws Exception {
+    List<AFTIPCDatagramSocket> servers = startInstances(4);
+    try (AFTIPCTopologyEventLoop loop = new AFTIPCTopologyEventLoop();
+        AFTIPCServiceClient client = new AFTIPCServiceClient(loop, SERVICE_TYPE,
+            AFTIPCServiceClient.Strategy.ROUND_ROBIN)) {
+      CompletableFuture<Void> cf = startLoop(loop);
+      awaitCondition(() -> client.getInstances().size() == NUM_INSTANCES);
+
+      client.getChannel().close();
+      for (int i = 0; i < NUM_INSTANCES; i++) {
+        assertThrows(ClosedChannelException.class, () -> client.send(ByteBuffer.allocate(1)));
+      }
+      for (AFTIPCServiceClient.Instance instance : client.getInstances()) {
+        assertEquals(0, instance.getOutstanding());
+      }
+
+      loop.stopLoop();
+      cf.get(1, TimeUnit.SECONDS);
+    } finally {
+      closeAll(servers);
+    }
+  }
+
+  @Test
+  public void testHashAndWithdrawal() throws Exception {
+    List<AFTIPCDatagramSocket> servers = startInstances(3);
+    try (AFTIPCTopologyEventLoop loop = new AFTIPCTopologyEventLoop();
+        AFTIPCServiceClient client = new AFTIPCServiceClient(loop, SERVICE_TYPE,
+            AFTIPCServiceClient.Strategy.HASH)) {
+      CompletableFuture<Void> cf = startLoop(loop);
+      awaitCondition(() -> client.getInstances().size() == NUM_INSTANCES);
+
+      AFTIPCServiceClient.Instance first = client.select(42);
+      assertNotNull(first);
+      for (int i = 0; i < 10; i++) {
+        assertSame(first, client.select(42));
+      }
+
+      // withdraw the instance that key 42 maps to; the key moves to another instance
+      for (AFTIPCDatagramSocket server : servers) {
+        if (first.getAddress().equals(server.getLocalSocketAddress())) {
+          server.close();
+        }
+      }
+      awaitCondition(() -> client.getInstances().size() == NUM_INSTANCES - 1);
+      AFTIPCServiceClient.Instance second = client.select(42);
+      assertNotNull(second);
+      assertNotEquals(first.getAddress(), second.getAddress());
+
+      closeAll(servers);
+      awaitCondition(() -> client.getInstances().isEmpty());
+      assertThrows(NoRouteToHostException.class, () -> client.send(ByteBuffer.allocate(1)));
+
+      loop.stopLoop();
+      cf.get(1, TimeUnit.SECONDS);
+    } finally {
+      closeAll(servers);
+    }
+  }
+}
@@ -26,8 +26,11 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.IOException;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
@@ -191,4 +194,109 @@ public final class AFTIPCTopologyWatcherTest extends
       }
     }
   }
+
+  @Test
+  public void testSharedEventLoop() throws Exception {
+    final int numWatchers = 16;
+    CountDownLatch published = new CountDownLatch(numWatchers);
+
+    try (AFTIPCTopologyEventLoop loop = new AFTIPCTopologyEventLoop();
+        AFTIPCDatagramSocket testServiceSock = AFTIPCDatagramSocket.newInstance()) {
+      List<AFTIPCTopologyWatcher> watchers = new ArrayList<>();
+      try {
+        for (int i = 0; i < numWatchers; i++) {
+          AFTIPCTopologyWatcher watcher = new AFTIPCTopologyWatcher(loop,
+              AFTIPCTopologySubscription.TIPC_WAIT_FOREVER) {
+            @Override
+            protected void onEvent(AFTIPCTopologyEvent event) throws IOException {
+              assertThrows(IllegalStateException.class, this::runLoop);
+              if (event.isPublished() && event.isService() && event.getFoundLower() == 1) {
+                published.countDown();
+                stopLoop();
+              }
+            }
+          };
+          watchers.add(watcher);
+          watcher.addServiceSubscription(4321);
+        }
+
+        CompletableFuture<Void> cf = new CompletableFuture<>();
+        Thread t = new Thread(() -> {
+          try {
+            loop.runLoop();
+            cf.complete(null);
+          } catch (Exception e) {
+            cf.completeExceptionally(e);
+          }
+        });
+        t.setDaemon(true);
+        t.start();
+
+        testServiceSock.bind(AFTIPCSocketAddress.ofService(4321, 1));
+
+        assertTrue(published.await(5, TimeUnit.SECONDS), "All watchers should see the service");
+        for (AFTIPCTopologyWatcher watcher : watchers) {
+          assertFalse(watcher.isRunning());
+        }
+
+        loop.stopLoop();
+        cf.get(1, TimeUnit.SECONDS);
+        assertFalse(loop.isRunning());
+      } finally {
+        for (AFTIPCTopologyWatcher watcher : watchers) {
+          watcher.close();
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testSharedEventLoopDetachesFailingWatcher() throws Exception {
+    CountDownLatch failed = new CountDownLatch(1);
+    CountDownLatch published = new CountDownLatch(1);
+
+    try (AFTIPCTopologyEventLoop loop = new AFTIPCTopologyEventLoop();
+        AFTIPCDatagramSocket testServiceSock = AFTIPCDatagramSocket.newInstance();
+        AFTIPCTopologyWatcher failing = new AFTIPCTopologyWatcher(loop,
+            AFTIPCTopologySubscription.TIPC_WAIT_FOREVER) {
+          @Override
+          protected void onEvent(AFTIPCTopologyEvent event) throws IOException {
+            failed.countDown();
+            throw new IOException("Simulated failure");
+          }
+        }; AFTIPCTopologyWatcher healthy = new AFTIPCTopologyWatcher(loop,
+            AFTIPCTopologySubscription.TIPC_WAIT_FOREVER) {
+          @Override
+          protected void onEvent(AFTIPCTopologyEvent event) throws IOException {
+            if (event.isPublished() && event.isService() && event.getFoundLower() == 1) {
+              published.countDown();
+            }
+          }
+        }) {
+      failing.addServiceSubscription(4322);
+      healthy.addServiceSubscription(4322);
+
+      CompletableFuture<Void> cf = CompletableFuture.runAsync(() -> {
+        try {
+          loop.runLoop();
+        } catch (IOException e) {
+          throw new IllegalStateException(e);
+        }
+      });
+
+      testServiceSock.bind(AFTIPCSocketAddress.ofService(4322, 1));
+
+      assertTrue(failed.await(5, TimeUnit.SECONDS));
+      assertTrue(published.await(5, TimeUnit.SECONDS));
+      assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+        while (failing.isRunning()) {
+          Thread.sleep(10);
+        }
+      }, "Failing watcher should have been detached");
+      assertTrue(healthy.isRunning());
+
+      loop.stopLoop();
+      cf.get(1, TimeUnit.SECONDS);
+    }
+  }
 }
@@ -0,0 +1,151 @@
+/*
+ * junixsocket
+ *
+ * Copyright 2009-2026 Christian Kohlschütter
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.newsclub.net.unix.vsock;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+import org.newsclub.net.unix.AFSocket;
+import org.newsclub.net.unix.AFSocketAddress;
+import org.newsclub.net.unix.AFSocketConnector;
+import org.newsclub.net.unix.AFSocketWarmPool;
+import org.newsclub.net.unix.AFUNIXSocket;
+import org.newsclub.net.unix.AFUNIXSocketAddress;
+import org.newsclub.net.unix.AFVSOCKSocketAddress;
+import org.newsclub.net.unix.AddressUnavailableSocketException;
+
+/**
+ * A Firecracker-style proxy connector (see
+ * {@link AFVSOCKProxySocketConnector#openFirecrackerStyleConnector(AFUNIXSocketAddress, int)})
+ * that keeps a number of already-proxied connections per VSOCK port ready.
+ *
+ * Whenever a connection to a port is requested, a ready connection is handed out if available, and
+ * the pool for that port is refilled in the background (see {@link AFSocketWarmPool}); the
+ * {@code CONNECT} handshake with the proxy therefore no longer happens on the request path once
+ * the pool is warm.
+ *
+ * Note that every ready connection is an actual connection to the service in the VM; ready
+ * connections that stay unused for longer than the idle timeout are closed. Ready connections that
+ * have been closed by the other side are detected and discarded before they are handed out. The
+ * {@code CONNECT} handshake is subject to a timeout, so an unresponsive proxy cannot stall the
+ * background refill.
+ *
+ * @author Christian Kohlschütter
+ * @see AFVSOCKProxySocketConnector#openPooledFirecrackerStyleConnector(AFUNIXSocketAddress, int,
+ *      int)
+ */
+public final class AFVSOCKPooledProxySocketConnector implements
+    AFSocketConnector<AFVSOCKSocketAddress, AFSocketAddress>, Closeable {
+  /**
+   * The default time after which an unused ready connection is closed, in milliseconds.
+   */
+  public static final long DEFAULT_IDLE_TIMEOUT = 10000;
+
+  /**
+   * The default timeout for the {@code CONNECT} handshake with the proxy, in milliseconds.
+   */
+  public static final int DEFAULT_HANDSHAKE_TIMEOUT = 5000;
+
+  private final AFVSOCKProxySocketConnector connector;
+  private final AFSocketWarmPool<Integer, AFUNIXSocket> pool;
+
+  AFVSOCKPooledProxySocketConnector(AFVSOCKProxySocketConnector connector,
+      int warmConnectionsPerPort, long idleTimeoutMillis, int handshakeTimeoutMillis) {
+    if (warmConnectionsPerPort < 0) {
+      throw new IllegalArgumentException("warmConnectionsPerPort");
+    }
+    if (handshakeTimeoutMillis < 0) {
+      throw new IllegalArgumentException("handshakeTimeoutMillis");
+    }
+    this.connector = connector;
+    // the service may legitimately send a greeting right away; keep it for the caller
+    this.pool = new AFSocketWarmPool<>((port) -> connector.connect(port, handshakeTimeoutMillis),
+        warmConnectionsPerPort, idleTimeoutMillis, true);
+  }
+
+  /**
+   * Connects to the given AF_VSOCK address, using a ready connection if possible.
+   *
+   * @param vsockAddress The address to connect to.
+   * @return The connected socket.
+   * @throws IOException on error.
+   * @throws AddressUnavailableSocketException if the CID is not covered by this connector.
+   */
+  @Override
+  public AFSocket<?> connect(AFVSOCKSocketAddress vsockAddress) throws IOException {
+    connector.checkCID(vsockAddress);
+    return pool.take(vsockAddress.getVSOCKPort());
+  }
+
+  /**
+   * Starts establishing ready connections for the given VSOCK port, so that even the first
+   * connection request can be served from the pool.
+   *
+   * @param vsockPort The VSOCK port.
+   */
+  public void prefill(int vsockPort) {
+    pool.prefill(vsockPort);
+  }
+
+  /**
+   * Returns the number of ready connections currently in the pool for the given VSOCK port.
+   *
+   * @param vsockPort The VSOCK port.
+   * @return The number of ready connections.
+   */
+  public int getReadyConnectionCount(int vsockPort) {
+    return pool.getWarmConnectionCount(vsockPort);
+  }
+
+  /**
+   * Returns the number of connect requests that were served from the pool.
+   *
+   * @return The number of hits.
+   */
+  public long getHits() {
+    return pool.getHits();
+  }
+
+  /**
+   * Returns the number of connect requests that had to connect to the proxy on the request path.
+   *
+   * @return The number of misses.
+   */
+  public long getMisses() {
+    return pool.getMisses();
+  }
+
+  /**
+   * Returns the number of ready connections that were closed because they were unused for longer
+   * than the idle timeout.
+   *
+   * @return The number of evictions.
+   */
+  public long getEvictions() {
+    return pool.getEvictions();
+  }
+
+  /**
+   * Closes all ready connections. Subsequent connect requests are served directly, without
+   * pooling.
+   */
+  @Override
+  public void close() {
+    pool.close();
+  }
+}
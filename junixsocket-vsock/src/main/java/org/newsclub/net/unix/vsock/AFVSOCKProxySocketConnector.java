@@ -19,11 +19,8 @@ package org.newsclub.net.unix.vsock;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
 import java.net.SocketException;
 import java.nio.charset.StandardCharsets;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import org.newsclub.net.unix.AFSocket;
 import org.newsclub.net.unix.AFSocketAddress;
@@ -39,6 +36,7 @@ import org.newsclub.net.unix.AddressUnavailableSocketException;
  *
  * @author Christian Kohlschütter
  * @see #openFirecrackerStyleConnector(AFUNIXSocketAddress, int)
+ * @see #openPooledFirecrackerStyleConnector(AFUNIXSocketAddress, int, int)
  * @see #openDirectConnector()
  */
 public final class AFVSOCKProxySocketConnector implements
@@ -53,8 +51,8 @@ public final class AFVSOCKProxySocketConnector implements
         }
       };
 
-  private static final Pattern PAT_OK = Pattern.compile("OK ([0-9]+)");
   private static final byte[] OK = {'O', 'K', ' '};
+  private static final int MAX_PORT_DIGITS = 13;
   private final AFUNIXSocketAddress connectorAddress;
   private final int allowedCID;
 
@@ -87,6 +85,48 @@ public final class AFVSOCKProxySocketConnector implements
     return DIRECT_CONNECTOR;
   }
 
+  /**
+   * Returns an instance that is configured to support Firecracker-style Unix domain sockets (see
+   * {@link #openFirecrackerStyleConnector(AFUNIXSocketAddress, int)}), and that keeps a number of
+   * already-proxied connections per VSOCK port ready, so the {@code CONNECT} handshake is
+   * performed ahead of time instead of on every connect.
+   *
+   * @param connectorAddress The unix socket address pointing at the Firecracker-style multiplexing
+   *          domain socket.
+   * @param allowedCID The permitted CID, or {@link AFVSOCKSocketAddress#VMADDR_CID_ANY} for "any".
+   * @param warmConnectionsPerPort The number of connections to keep ready per VSOCK port.
+   * @return The instance; should be closed when no longer needed.
+   * @see #openPooledFirecrackerStyleConnector(AFUNIXSocketAddress, int, int, long, int)
+   */
+  public static AFVSOCKPooledProxySocketConnector openPooledFirecrackerStyleConnector(
+      AFUNIXSocketAddress connectorAddress, int allowedCID, int warmConnectionsPerPort) {
+    return openPooledFirecrackerStyleConnector(connectorAddress, allowedCID,
+        warmConnectionsPerPort, AFVSOCKPooledProxySocketConnector.DEFAULT_IDLE_TIMEOUT,
+        AFVSOCKPooledProxySocketConnector.DEFAULT_HANDSHAKE_TIMEOUT);
+  }
+
+  /**
+   * Returns an instance that is configured to support Firecracker-style Unix domain sockets (see
+   * {@link #openFirecrackerStyleConnector(AFUNIXSocketAddress, int)}), and that keeps a number of
+   * already-proxied connections per VSOCK port ready, so the {@code CONNECT} handshake is
+   * performed ahead of time instead of on every connect.
+   *
+   * @param connectorAddress The unix socket address pointing at the Firecracker-style multiplexing
+   *          domain socket.
+   * @param allowedCID The permitted CID, or {@link AFVSOCKSocketAddress#VMADDR_CID_ANY} for "any".
+   * @param warmConnectionsPerPort The number of connections to keep ready per VSOCK port.
+   * @param idleTimeoutMillis The time after which an unused ready connection is closed.
+   * @param handshakeTimeoutMillis The timeout for the {@code CONNECT} handshake with the proxy
+   *          ({@code 0} means no timeout, which is not recommended).
+   * @return The instance; should be closed when no longer needed.
+   */
+  public static AFVSOCKPooledProxySocketConnector openPooledFirecrackerStyleConnector(
+      AFUNIXSocketAddress connectorAddress, int allowedCID, int warmConnectionsPerPort,
+      long idleTimeoutMillis, int handshakeTimeoutMillis) {
+    return new AFVSOCKPooledProxySocketConnector(new AFVSOCKProxySocketConnector(connectorAddress,
+        allowedCID), warmConnectionsPerPort, idleTimeoutMillis, handshakeTimeoutMillis);
+  }
+
   /**
    * Connects to the given AF_VSOCK address.
    *
@@ -96,44 +136,57 @@ public final class AFVSOCKProxySocketConnector implements
    * @throws AddressUnavailableSocketException if the CID is not covered by this connector.
    */
   @Override
-  @SuppressWarnings("Finally" /* errorprone */)
   public AFSocket<?> connect(AFVSOCKSocketAddress vsockAddress) throws IOException {
+    checkCID(vsockAddress);
+    return connect(vsockAddress.getVSOCKPort());
+  }
+
+  /**
+   * Checks if the given address is covered by this connector.
+   *
+   * @param vsockAddress The address.
+   * @throws AddressUnavailableSocketException if the CID is not covered by this connector.
+   */
+  void checkCID(AFVSOCKSocketAddress vsockAddress) throws AddressUnavailableSocketException {
     int cid = vsockAddress.getVSOCKCID();
     if (cid != allowedCID && cid != AFVSOCKSocketAddress.VMADDR_CID_ANY
         && allowedCID != AFVSOCKSocketAddress.VMADDR_CID_ANY) {
       throw new AddressUnavailableSocketException("Connector does not cover CID " + cid);
     }
+  }
 
+  /**
+   * Connects to the proxy socket and asks it to connect to the given VSOCK port.
+   *
+   * @param vsockPort The VSOCK port.
+   * @return The connected socket.
+   * @throws IOException on error.
+   */
+  AFUNIXSocket connect(int vsockPort) throws IOException {
+    return connect(vsockPort, 0);
+  }
+
+  /**
+   * Connects to the proxy socket and asks it to connect to the given VSOCK port, waiting at most
+   * the given time for the proxy's response.
+   *
+   * @param vsockPort The VSOCK port.
+   * @param handshakeTimeoutMillis The handshake timeout, or {@code 0} for "no timeout".
+   * @return The connected socket.
+   * @throws IOException on error.
+   */
+  @SuppressWarnings("Finally" /* errorprone */)
+  AFUNIXSocket connect(int vsockPort, int handshakeTimeoutMillis) throws IOException {
     @SuppressWarnings("resource")
     AFUNIXSocket sock = connectorAddress.newConnectedSocket();
-    InputStream in = sock.getInputStream();
-    OutputStream out = sock.getOutputStream();
 
     boolean success = false;
-
     try { // NOPMD.UseTryWithResources
-      String connectLine = "CONNECT " + vsockAddress.getVSOCKPort() + "\n";
-      out.write(connectLine.getBytes(StandardCharsets.ISO_8859_1));
-
-      byte[] buf = new byte[16];
-      int b;
-      int i = 0;
-      while ((b = in.read()) != -1 && b != '\n' && i < buf.length) {
-        buf[i] = (byte) b;
-        if (i < 3) {
-          if (OK[i] != b) {
-            break;
-          }
-        }
-        i++;
-      }
-      if (b == '\n' && i > 3) {
-        Matcher m = PAT_OK.matcher(new String(buf, 0, i, StandardCharsets.ISO_8859_1));
-        if (m.matches()) {
-          /* int hostPort = */ Integer.parseInt(m.group(1));
-          success = true;
-        }
-      }
+      sock.setSoTimeout(handshakeTimeoutMillis);
+      sock.getOutputStream().write(("CONNECT " + vsockPort + "\n").getBytes(
+          StandardCharsets.ISO_8859_1));
+      success = readOkResponse(sock.getInputStream()) >= 0;
+      sock.setSoTimeout(0);
     } finally { // NOPMD.DoNotThrowExceptionInFinally
       if (!success) {
         sock.close();
@@ -143,4 +196,32 @@ public final class AFVSOCKProxySocketConnector implements
 
     return sock;
   }
+
+  /**
+   * Reads an "{@code OK <hostPort>\n}" response from the given stream, one byte at a time (so no
+   * data following the response is consumed).
+   *
+   * @param in The stream.
+   * @return The host port specified in the response, or {@code -1} if the response was not
+   *         understood.
+   * @throws IOException on error.
+   */
+  static long readOkResponse(InputStream in) throws IOException {
+    for (byte expected : OK) {
+      if (in.read() != expected) {
+        return -1;
+      }
+    }
+
+    long hostPort = 0;
+    int digits = 0;
+    int b;
+    while ((b = in.read()) >= '0' && b <= '9') {
+      if (++digits > MAX_PORT_DIGITS) {
+        return -1;
+      }
+      hostPort = hostPort * 10 + (b - '0');
+    }
+    return (b == '\n' && digits > 0) ? hostPort : -1;
+  }
 }
@@ -0,0 +1,249 @@
+/*
+ * junixsocket
+ *
+ * Copyright 2009-2026 Christian Kohlschütter
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.newsclub.net.unix.vsock;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.newsclub.net.unix.AFSocket;
+import org.newsclub.net.unix.AFSocketAddress;
+import org.newsclub.net.unix.AFSocketCapability;
+import org.newsclub.net.unix.AFSocketCapabilityRequirement;
+import org.newsclub.net.unix.AFSocketConnector;
+import org.newsclub.net.unix.AFUNIXServerSocket;
+import org.newsclub.net.unix.AFUNIXSocketAddress;
+import org.newsclub.net.unix.AFVSOCKSocketAddress;
+
+@AFSocketCapabilityRequirement(AFSocketCapability.CAPABILITY_UNIX_DOMAIN)
+public class AFVSOCKProxySocketConnectorTest {
+  private static long parse(String response) throws IOException {
+    return AFVSOCKProxySocketConnector.readOkResponse(new ByteArrayInputStream(response.getBytes(
+        StandardCharsets.ISO_8859_1)));
+  }
+
+  @Test
+  public void testReadOkResponse() throws Exception {
+    assertEquals(1073741824, parse("OK 1073741824\n"));
+    assertEquals(0, parse("OK 0\n"));
+    assertEquals(-1, parse("OK \n"));
+    assertEquals(-1, parse("OK 12"));
+    assertEquals(-1, parse("OK 12x\n"));
+    assertEquals(-1, parse("NO 12\n"));
+    assertEquals(-1, parse("OK 12345678901234\n"));
+    assertEquals(-1, parse(""));
+
+    // data following the response must not be consumed
+    InputStream in = new ByteArrayInputStream("OK 1\nHello".getBytes(StandardCharsets.US_ASCII));
+    assertEquals(1, AFVSOCKProxySocketConnector.readOkResponse(in));
+    assertEquals('H', in.read());
+  }
+
+  @Test
+  public void testConnect() throws Exception {
+    try (StandInProxy proxy = new StandInProxy()) {
+      AFSocketConnector<AFVSOCKSocketAddress, AFSocketAddress> connector =
+          AFVSOCKProxySocketConnector.openFirecrackerStyleConnector(proxy.addr,
+              AFVSOCKSocketAddress.VMADDR_CID_ANY);
+      try (AFSocket<?> sock = connector.connect(AFVSOCKSocketAddress.ofPortWithAnyCID(1234))) {
+        assertEcho(sock);
+      }
+      assertThrows(SocketException.class, () -> connector.connect(AFVSOCKSocketAddress
+          .ofPortWithAnyCID(StandInProxy.REJECTED_PORT)));
+    }
+  }
+
+  @Test
+  public void testPooledConnect() throws Exception {
+    assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+      try (StandInProxy proxy = new StandInProxy();
+          AFVSOCKPooledProxySocketConnector connector = AFVSOCKProxySocketConnector
+              .openPooledFirecrackerStyleConnector(proxy.addr, AFVSOCKSocketAddress.VMADDR_CID_ANY,
+                  4)) {
+        connector.prefill(1234);
+        while (connector.getReadyConnectionCount(1234) < 4) {
+          Thread.sleep(10);
+        }
+        assertEquals(4, proxy.handshakes.get());
+
+        try (AFSocket<?> sock = connector.connect(AFVSOCKSocketAddress.ofPortWithAnyCID(1234))) {
+          assertEcho(sock);
+        }
+        assertEquals(1, connector.getHits());
+        assertEquals(0, connector.getMisses());
+
+        // connections closed by the other side must not be handed out
+        proxy.closeAll();
+        try (AFSocket<?> sock = connector.connect(AFVSOCKSocketAddress.ofPortWithAnyCID(1234))) {
+          assertEcho(sock);
+        }
+
+        int n = 1000;
+        long time = System.nanoTime();
+        for (int i = 0; i < n; i++) {
+          connector.connect(AFVSOCKSocketAddress.ofPortWithAnyCID(1234)).close();
+        }
+        time = System.nanoTime() - time;
+        System.out.println("Pooled proxy connect: " + (time / n / 1000) + " µs/connect; hits="
+            + connector.getHits() + " misses=" + connector.getMisses());
+      }
+    });
+  }
+
+  @Test
+  public void testPooledIdleEviction() throws Exception {
+    assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+      try (StandInProxy proxy = new StandInProxy();
+          AFVSOCKPooledProxySocketConnector connector = AFVSOCKProxySocketConnector
+              .openPooledFirecrackerStyleConnector(proxy.addr, AFVSOCKSocketAddress.VMADDR_CID_ANY,
+                  2, 200, AFVSOCKPooledProxySocketConnector.DEFAULT_HANDSHAKE_TIMEOUT)) {
+        connector.prefill(1234);
+        while (connector.getEvictions() < 2) {
+          Thread.sleep(10);
+        }
+        while (!proxy.connections.isEmpty()) {
+          Thread.sleep(10);
+        }
+      }
+    });
+  }
+
+  @Test
+  public void testHandshakeTimeout() throws Exception {
+    assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+      try (StandInProxy proxy = new StandInProxy();
+          AFVSOCKPooledProxySocketConnector connector = AFVSOCKProxySocketConnector
+              .openPooledFirecrackerStyleConnector(proxy.addr, AFVSOCKSocketAddress.VMADDR_CID_ANY,
+                  2, AFVSOCKPooledProxySocketConnector.DEFAULT_IDLE_TIMEOUT, 100)) {
+        // an unresponsive proxy must neither block the caller nor the background refill
+        assertThrows(SocketException.class, () -> connector.connect(AFVSOCKSocketAddress
+            .ofPortWithAnyCID(StandInProxy.SILENT_PORT)));
+
+        connector.prefill(1234);
+        while (connector.getReadyConnectionCount(1234) < 2) {
+          Thread.sleep(10);
+        }
+      }
+    });
+  }
+
+  private static void assertEcho(AFSocket<?> sock) throws IOException {
+    OutputStream out = sock.getOutputStream();
+    InputStream in = sock.getInputStream();
+    out.write(42);
+    assertEquals(42, in.read());
+  }
+
+  /**
+   * A minimal stand-in for Firecracker's VSOCK multiplexing socket: accepts "CONNECT port"
+   * requests, and then echoes all data.
+   */
+  private static final class StandInProxy implements AutoCloseable {
+    static final int REJECTED_PORT = 666;
+    static final int SILENT_PORT = 667;
+
+    private final AFUNIXSocketAddress addr;
+    private final AFUNIXServerSocket server;
+    private final AtomicInteger handshakes = new AtomicInteger();
+    private final List<AFSocket<?>> connections = new CopyOnWriteArrayList<>();
+
+    StandInProxy() throws IOException {
+      addr = AFUNIXSocketAddress.ofNewTempFile();
+      server = addr.newForceBoundServerSocket();
+      Thread t = new Thread(this::acceptLoop, "StandInProxy");
+      t.setDaemon(true);
+      t.start();
+    }
+
+    private void acceptLoop() {
+      while (!server.isClosed()) {
+        try {
+          AFSocket<?> sock = server.accept();
+          connections.add(sock);
+          Thread t = new Thread(() -> serve(sock), "StandInProxy connection");
+          t.setDaemon(true);
+          t.start();
+        } catch (IOException e) {
+          return;
+        }
+      }
+    }
+
+    private void serve(AFSocket<?> sock) {
+      try (AFSocket<?> s = sock) {
+        InputStream in = s.getInputStream();
+        OutputStream out = s.getOutputStream();
+        StringBuilder sb = new StringBuilder();
+        int b;
+        while ((b = in.read()) != -1 && b != '\n') {
+          sb.append((char) b);
+        }
+        if (("CONNECT " + REJECTED_PORT).contentEquals(sb)) {
+          out.write("FAILURE\n".getBytes(StandardCharsets.US_ASCII));
+          return;
+        } else if (("CONNECT " + SILENT_PORT).contentEquals(sb)) {
+          // never respond
+          while (in.read() != -1) {
+            // wait for the client to give up
+          }
+          return;
+        } else if (!sb.toString().startsWith("CONNECT ")) {
+          return;
+        }
+        handshakes.incrementAndGet();
+        out.write("OK 1073741824\n".getBytes(StandardCharsets.US_ASCII));
+
+        byte[] buf = new byte[1024];
+        int read;
+        while ((read = in.read(buf)) != -1) {
+          out.write(buf, 0, read);
+        }
+      } catch (IOException e) {
+        // ignore
+      } finally {
+        connections.remove(sock);
+      }
+    }
+
+    void closeAll() throws IOException {
+      for (AFSocket<?> sock : connections) {
+        sock.close();
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      server.close();
+      closeAll();
+      Files.deleteIfExists(addr.getFile().toPath());
+    }
+  }
+}